@@ -333,6 +333,19 @@ public interface CoreSession {
      */
     List<DocumentRef> getChildrenRefs(DocumentRef parentRef, String perm);
 
+    /**
+     * Loads the descendants of the given parent down to a given depth in a single operation when the storage supports
+     * it, so that subsequent calls to get their children are served from memory. This is useful before walking a
+     * folder tree.
+     * <p>
+     * No permission is checked on the descendants; the normal checks are done when getting the children.
+     *
+     * @param parentRef the parent reference
+     * @param depth the maximum depth, {@code 1} for the children only
+     * @since 10.3
+     */
+    void prefetchDescendants(DocumentRef parentRef, int depth);
+
     /**
      * Gets the children of the given parent filtered according to the given document type and permission. Long result
      * sets are loaded frame by frame transparently by the DocumentModelIterator.
@@ -1045,6 +1058,29 @@ public interface CoreSession {
      */
     DocumentModelList query(String query, String queryType, Filter filter, long limit, long offset, long countUpTo);
 
+    /**
+     * Executes the given query and returns the documents following the given keyset, in the query order.
+     * <p>
+     * This is keyset (seek) pagination: instead of an offset, the next page is defined by the values of the ORDER BY
+     * keys of the last document of the previous page, which can be computed using {@code KeysetPagination.getKeyset}.
+     * The time taken to get a page doesn't depend on the number of previous pages. {@code ecm:uuid} is used as the last
+     * ORDER BY key to get a total order.
+     *
+     * @param query the query to execute
+     * @param queryType the query type, like "NXQL"
+     * @param filter the filter to apply to result
+     * @param limit the maximum number of documents to retrieve, or 0 for all of them
+     * @param keyset the keyset of the last document of the previous page, or {@code null} or an empty array for the
+     *            first page
+     * @param countUpTo if {@code -1}, count the total number of documents following the keyset, if {@code 0}, don't
+     *            count it, if {@code n}, count it if it is smaller than {@code n} else set the total size to
+     *            {@code -1}
+     * @return the query result
+     * @since 10.3
+     */
+    DocumentModelList query(String query, String queryType, Filter filter, long limit, Serializable[] keyset,
+            long countUpTo);
+
     /**
      * Executes the given query and returns an iterable of maps containing the requested properties (which must be
      * closed when done).
@@ -1072,6 +1108,24 @@ public interface CoreSession {
      */
     IterableQueryResult queryAndFetch(String query, String queryType, boolean distinctDocuments, Object... params);
 
+    /**
+     * Executes the given query and returns a forward-only cursor over the requested properties (which must be closed
+     * when done).
+     * <p>
+     * Contrary to {@link #queryAndFetch}, rows are not materialized as maps: the cursor returns the same
+     * {@link ProjectionRow} for each row, and fetches rows from the database as it is advanced, which makes it suitable
+     * for iterating over very large results in constant memory.
+     *
+     * @param query the query to execute
+     * @param queryType the query type, usually "NXQL"
+     * @param distinctDocuments if {@code true} then a maximum of one row per document will be returned
+     * @param params optional query-type-dependent parameters
+     * @return a {@link ProjectionCursor}, which <b>must</b> be closed after use
+     * @since 10.3
+     */
+    ProjectionCursor queryProjectionCursor(String query, String queryType, boolean distinctDocuments,
+            Object... params);
+
     /**
      * Executes the given NXQL query and returns the result that matches the filter.
      *
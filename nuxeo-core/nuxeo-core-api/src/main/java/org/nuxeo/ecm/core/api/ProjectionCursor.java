@@ -0,0 +1,72 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.api;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A forward-only cursor over the rows of a projection query.
+ * <p>
+ * Rows are fetched from the backend as the cursor is advanced, so that iterating over a large result uses a constant
+ * amount of memory. {@link #next} returns the same {@link ProjectionRow} instance for each row, whose values change
+ * when the cursor is advanced.
+ * <p>
+ * The {@link #close()} method MUST be called when the cursor is no more needed, otherwise underlying resources will be
+ * leaked. There is no auto-closing at the end of the iteration.
+ *
+ * @since 10.3
+ */
+public interface ProjectionCursor extends Iterator<ProjectionRow>, Closeable {
+
+    /**
+     * Gets the names of the columns of the projection.
+     */
+    List<String> getColumnNames();
+
+    /**
+     * Closes the cursor and releases the underlying resources.
+     */
+    @Override
+    void close();
+
+    /**
+     * Indicates if the cursor must be closed (because it holds resources).
+     */
+    boolean mustBeClosed();
+
+    /**
+     * Returns a sequential stream over the rows of this cursor. Rows are fetched lazily as the stream is consumed.
+     * Closing the stream closes the cursor.
+     * <p>
+     * As rows are reused, they must be copied (using {@link ProjectionRow#toMap} for instance) if they are to be kept
+     * beyond the current stream element.
+     */
+    default Stream<ProjectionRow> stream() {
+        Spliterator<ProjectionRow> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.api;
+
+import java.io.Serializable;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * The current row of a {@link ProjectionCursor}.
+ * <p>
+ * The same instance is returned for each row of the cursor, so its values are only valid until the cursor is advanced.
+ * Use {@link #toMap} to keep a copy of a row.
+ * <p>
+ * Columns are indexed from {@code 0}, in the order of the projection.
+ *
+ * @since 10.3
+ */
+public interface ProjectionRow {
+
+    /**
+     * Gets the number of columns.
+     */
+    int getColumnCount();
+
+    /**
+     * Gets the name of a column, as would be used as a key by {@link CoreSession#queryAndFetch}.
+     */
+    String getColumnName(int index);
+
+    /**
+     * Gets the index of a column, or {@code -1} if there is no column with this name.
+     */
+    int getColumnIndex(String name);
+
+    /**
+     * Gets the value of a column.
+     */
+    Serializable get(int index);
+
+    /**
+     * Gets the value of a column, or {@code null} if there is no column with this name.
+     */
+    default Serializable get(String name) {
+        int index = getColumnIndex(name);
+        return index == -1 ? null : get(index);
+    }
+
+    /**
+     * Checks if the value of a column is {@code null}.
+     */
+    default boolean isNull(int index) {
+        return get(index) == null;
+    }
+
+    default String getString(int index) {
+        Serializable value = get(index);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Gets the value of a numeric column as a {@code long}, or {@code 0} if it is {@code null}.
+     */
+    default long getLong(int index) {
+        Serializable value = get(index);
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    /**
+     * Gets the value of a numeric column as a {@code double}, or {@code 0} if it is {@code null}.
+     */
+    default double getDouble(int index) {
+        Serializable value = get(index);
+        return value == null ? 0 : ((Number) value).doubleValue();
+    }
+
+    /**
+     * Gets the value of a boolean column, or {@code false} if it is {@code null}.
+     */
+    default boolean getBoolean(int index) {
+        Serializable value = get(index);
+        return value != null && ((Boolean) value).booleanValue();
+    }
+
+    default Calendar getCalendar(int index) {
+        return (Calendar) get(index);
+    }
+
+    /**
+     * Returns a copy of this row as a map, as would be returned by {@link CoreSession#queryAndFetch}.
+     */
+    Map<String, Serializable> toMap();
+
+}
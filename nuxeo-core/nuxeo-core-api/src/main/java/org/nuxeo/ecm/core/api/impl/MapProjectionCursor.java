@@ -0,0 +1,145 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.api.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.nuxeo.ecm.core.api.IterableQueryResult;
+import org.nuxeo.ecm.core.api.ProjectionCursor;
+import org.nuxeo.ecm.core.api.ProjectionRow;
+
+/**
+ * A {@link ProjectionCursor} over the maps of an {@link IterableQueryResult}, for backends that don't have a native
+ * cursor.
+ * <p>
+ * The columns are given explicitly, or are the keys of the first map returned by the query result. Keys of the maps
+ * that are not columns are ignored.
+ *
+ * @since 10.3
+ */
+public class MapProjectionCursor implements ProjectionCursor, ProjectionRow {
+
+    protected final IterableQueryResult result;
+
+    protected final Iterator<Map<String, Serializable>> it;
+
+    protected List<String> names;
+
+    protected Map<String, Serializable> current;
+
+    protected Map<String, Serializable> pending;
+
+    public MapProjectionCursor(IterableQueryResult result) {
+        this(result, null);
+    }
+
+    /**
+     * Constructs a cursor returning the given columns.
+     *
+     * @param result the query result
+     * @param names the column names, or {@code null} to use the keys of the first map
+     */
+    public MapProjectionCursor(IterableQueryResult result, List<String> names) {
+        this.result = result;
+        this.names = names == null ? null : Collections.unmodifiableList(new ArrayList<>(names));
+        it = result.iterator();
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        if (names == null) {
+            if (!it.hasNext()) {
+                return Collections.emptyList();
+            }
+            // read ahead the first row to know the columns
+            pending = it.next();
+            setNames(pending);
+        }
+        return names;
+    }
+
+    protected void setNames(Map<String, Serializable> map) {
+        names = Collections.unmodifiableList(new ArrayList<>(map.keySet()));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return pending != null || it.hasNext();
+    }
+
+    @Override
+    public ProjectionRow next() {
+        if (pending != null) {
+            current = pending;
+            pending = null;
+        } else {
+            current = it.next();
+            if (names == null) {
+                setNames(current);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        result.close();
+    }
+
+    @Override
+    public boolean mustBeClosed() {
+        return result.mustBeClosed();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return names.size();
+    }
+
+    @Override
+    public String getColumnName(int index) {
+        return names.get(index);
+    }
+
+    @Override
+    public int getColumnIndex(String name) {
+        return names.indexOf(name);
+    }
+
+    @Override
+    public Serializable get(int index) {
+        return current.get(names.get(index));
+    }
+
+    @Override
+    public Map<String, Serializable> toMap() {
+        Map<String, Serializable> map = new LinkedHashMap<>();
+        for (String name : names) {
+            map.put(name, current.get(name));
+        }
+        return map;
+    }
+
+}
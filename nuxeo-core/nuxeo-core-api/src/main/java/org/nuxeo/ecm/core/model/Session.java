@@ -28,6 +28,7 @@ import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentNotFoundException;
 import org.nuxeo.ecm.core.api.IterableQueryResult;
 import org.nuxeo.ecm.core.api.PartialList;
+import org.nuxeo.ecm.core.api.ProjectionCursor;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.api.VersionModel;
 import org.nuxeo.ecm.core.api.lock.LockManager;
@@ -70,6 +71,14 @@ public interface Session<T extends QueryFilter> {
     PartialList<Map<String, Serializable>> queryProjection(String query, String queryType, T queryFilter,
             boolean distinctDocuments, long countUpTo, Object[] params);
 
+    /**
+     * Does a query and returns a forward-only cursor over the results.
+     *
+     * @since 10.3
+     */
+    ProjectionCursor queryProjectionCursor(String query, String queryType, T queryFilter, boolean distinctDocuments,
+            Object[] params);
+
     /**
      * Executes the given query and returns the first batch of results containing id of documents, next batch must be
      * requested within the keepAliveSeconds delay.
@@ -140,6 +149,16 @@ public interface Session<T extends QueryFilter> {
      */
     Document getNullDocument();
 
+    /**
+     * Loads the descendants of a document down to a given depth, so that subsequent reads of their children don't need
+     * any additional access to the storage. Storages for which this is not useful do nothing.
+     *
+     * @param doc the root document
+     * @param depth the maximum depth, {@code 1} for the children only
+     * @since 10.3
+     */
+    void prefetchDescendants(Document doc, int depth);
+
     /**
      * Copies the source document to the given folder.
      * <p>
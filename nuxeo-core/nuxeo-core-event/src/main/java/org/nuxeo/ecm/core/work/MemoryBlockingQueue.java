@@ -226,6 +226,21 @@ public class MemoryBlockingQueue extends NuxeoBlockingQueue {
         return metrics();
     }
 
+    /**
+     * A work waiting for a work slot has left the queue but is still scheduled.
+     *
+     * @since 10.3
+     */
+    synchronized WorkQueueMetrics workCanceledWaiting(Work work) {
+        String id = work.getId();
+        if (scheduledWorks.remove(id)) {
+            works.remove(id);
+            scheduledCount -= 1;
+            cancelledCount += 1;
+        }
+        return metrics();
+    }
+
     synchronized WorkQueueMetrics workCompleted(Work work) {
         String id = work.getId();
         if (runningWorks.remove(id) && !scheduledWorks.contains(id)) {
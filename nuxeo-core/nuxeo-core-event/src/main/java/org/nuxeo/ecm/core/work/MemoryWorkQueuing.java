@@ -71,6 +71,11 @@ public class MemoryWorkQueuing implements WorkQueuing {
         listener.queueChanged(work, getQueue(queueId).workCanceled(work));
     }
 
+    @Override
+    public void workCanceledWaiting(String queueId, Work work) {
+        listener.queueChanged(work, getQueue(queueId).workCanceledWaiting(work));
+    }
+
     @Override
     public void workRunning(String queueId, Work work) {
         listener.queueChanged(work, getQueue(queueId).workRunning(work));
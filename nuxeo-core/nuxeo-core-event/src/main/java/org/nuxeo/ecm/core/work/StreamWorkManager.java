@@ -23,8 +23,10 @@ import static org.nuxeo.ecm.core.work.api.WorkManager.Scheduling.CANCEL_SCHEDULE
 
 import java.time.Duration;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -114,6 +116,13 @@ public class StreamWorkManager extends WorkManagerImpl {
 
     protected final Set<String> streamIds = new HashSet<>();
 
+    /**
+     * Coalescers of the queues having a coalescing window.
+     *
+     * @since 10.3
+     */
+    protected final Map<String, WorkCoalescer> coalescers = new HashMap<>();
+
     protected boolean storeState;
 
     protected long stateTTL;
@@ -160,6 +169,13 @@ public class StreamWorkManager extends WorkManagerImpl {
         if (afterCommit && scheduleAfterCommit(work, scheduling)) {
             return;
         }
+        WorkCoalescer coalescer = coalescers.get(queueId);
+        if (coalescer != null && !coalescer.schedule(work)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Coalesced with a pending work: " + work.getId());
+            }
+            return;
+        }
         WorkSchedulePath.newInstance(work);
         // We don't need to set a codec because appender is initialized with proper codec during processor init
         LogAppender<Record> appender = logManager.getAppender(getStreamForCategory(work.getCategory()));
@@ -169,7 +185,15 @@ public class StreamWorkManager extends WorkManagerImpl {
             return;
         }
         String key = work.getPartitionKey();
-        appender.append(key, Record.of(key, WorkComputation.serialize(work)));
+        try {
+            appender.append(key, Record.of(key, WorkComputation.serialize(work)));
+        } catch (RuntimeException e) {
+            if (coalescer != null) {
+                // not pending, do not coalesce the next works with the same id
+                coalescer.started(work);
+            }
+            throw e;
+        }
         if (storeState) {
             WorkStateHelper.setState(work.getId(), Work.State.SCHEDULED, stateTTL);
         }
@@ -210,8 +234,8 @@ public class StreamWorkManager extends WorkManagerImpl {
             }
             streamIds.addAll(getDescriptors(QUEUES_EP).stream().map(Descriptor::getId).collect(Collectors.toList()));
             index();
-            initTopology();
             logManager = getLogManager();
+            initTopology();
             streamProcessor = new LogStreamProcessor(logManager);
             streamProcessor.init(topology, settings);
             started = true;
@@ -266,14 +290,40 @@ public class StreamWorkManager extends WorkManagerImpl {
         // create a single topology with one root per work pool
         Topology.Builder builder = Topology.builder();
         List<WorkQueueDescriptor> descriptors = getDescriptors(QUEUES_EP);
+        coalescers.clear();
+        descriptors.stream().filter(d -> !d.getCoalescingWindow().isZero()).forEach(this::initCoalescer);
         descriptors.stream().filter(WorkQueueDescriptor::isProcessingEnabled).forEach(d -> builder.addComputation(
-                () -> new WorkComputation(d.getId()), Collections.singletonList("i1:" + d.getId())));
+                () -> new WorkComputation(d.getId(), coalescers.get(d.getId())),
+                Collections.singletonList("i1:" + d.getId())));
         topology = builder.build();
         settings = new Settings(DEFAULT_CONCURRENCY, getPartitions(DEFAULT_CONCURRENCY), getCodec());
         descriptors.forEach(item -> settings.setConcurrency(item.getId(), item.getMaxThreads()));
         descriptors.forEach(item -> settings.setPartitions(item.getId(), getPartitions(item.getMaxThreads())));
     }
 
+    /**
+     * Coalescing relies on the works being started on this node, with a distributed log a work scheduled here can be
+     * processed by another node and later works with the same id would be wrongly coalesced.
+     *
+     * @since 10.3
+     */
+    protected void initCoalescer(WorkQueueDescriptor descriptor) {
+        if (logManager.supportSubscribe()) {
+            log.warn("Coalescing is not supported with a distributed log, ignoring the coalescing window of queue: "
+                    + descriptor.getId());
+            return;
+        }
+        coalescers.put(descriptor.getId(), new WorkCoalescer(descriptor.getCoalescingWindow(),
+                registry.counter(getCoalescedMetricName(descriptor.getId()))));
+    }
+
+    /**
+     * @since 10.3
+     */
+    protected String getCoalescedMetricName(String queueId) {
+        return MetricRegistry.name("nuxeo", "works", queueId, "coalesced");
+    }
+
     protected int getPartitions(int maxThreads) {
         if (maxThreads == 1) {
             // when the pool size is one the we don't want any concurrency
@@ -340,6 +390,9 @@ public class StreamWorkManager extends WorkManagerImpl {
         queueMetrics.putGauge(() -> getMetricsWithNuxeoClassLoader(queueId).running, "running");
         queueMetrics.putGauge(() -> getMetricsWithNuxeoClassLoader(queueId).completed, "completed");
         queueMetrics.putGauge(() -> getMetricsWithNuxeoClassLoader(queueId).canceled, "canceled");
+        if (coalescers.containsKey(queueId)) {
+            queueMetrics.putGauge(() -> coalescers.get(queueId).getCoalesced(), "coalesced");
+        }
         registry.registerAll(queueMetrics);
     }
 
@@ -404,7 +457,9 @@ public class StreamWorkManager extends WorkManagerImpl {
             // give an approximation that can be higher that actual one because of the over provisioning
             running = min(lag.lag(), settings.getPartitions(queueId));
         }
-        return new WorkQueueMetrics(queueId, lag.lag(), running, lag.lower(), 0);
+        WorkCoalescer coalescer = coalescers.get(queueId);
+        long coalesced = coalescer == null ? 0 : coalescer.getCoalesced();
+        return new WorkQueueMetrics(queueId, lag.lag(), running, lag.lower(), 0, coalesced);
     }
 
     @Override
@@ -0,0 +1,106 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.nuxeo.ecm.core.work.api.Work;
+
+import com.codahale.metrics.Counter;
+
+/**
+ * Coalesces the idempotent works scheduled on a queue with the same id within a time window.
+ * <p>
+ * A work is coalesced when a work with the same id has been scheduled less than the window ago and has not been started
+ * yet: the pending work will do the same job, it does not need to be appended again. Once started, a new work with
+ * the same id is scheduled again so that it sees the latest changes.
+ * <p>
+ * The works must be started on the node where they are scheduled: coalescing is only enabled when the log is not
+ * distributed. A work that cannot be appended is not pending anymore.
+ *
+ * @since 10.3
+ */
+public class WorkCoalescer {
+
+    // purge expired entries at most every window
+    protected volatile long nextPurge;
+
+    protected final long windowMillis;
+
+    /** Scheduling time of the pending works by id. */
+    protected final Map<String, Long> pending = new ConcurrentHashMap<>();
+
+    protected final Counter coalescedCount;
+
+    public WorkCoalescer(Duration window, Counter coalescedCount) {
+        windowMillis = window.toMillis();
+        this.coalescedCount = coalescedCount;
+        nextPurge = System.currentTimeMillis() + windowMillis;
+    }
+
+    /**
+     * Checks if the work has to be scheduled, or if it can be coalesced with a pending work.
+     *
+     * @return {@code true} if the work must be scheduled, {@code false} if it is coalesced
+     */
+    public boolean schedule(Work work) {
+        if (!work.isIdempotent()) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        purge(now);
+        boolean[] scheduled = new boolean[1];
+        pending.compute(work.getId(), (id, time) -> {
+            if (time != null && now - time < windowMillis) {
+                return time;
+            }
+            scheduled[0] = true;
+            return now;
+        });
+        if (!scheduled[0]) {
+            coalescedCount.inc();
+        }
+        return scheduled[0];
+    }
+
+    /**
+     * Called when a work starts, or could not be appended: new works with the same id must not be coalesced anymore.
+     */
+    public void started(Work work) {
+        pending.remove(work.getId());
+    }
+
+    /**
+     * Returns the number of coalesced works.
+     */
+    public long getCoalesced() {
+        return coalescedCount.getCount();
+    }
+
+    protected void purge(long now) {
+        if (now < nextPurge) {
+            return;
+        }
+        nextPurge = now + windowMillis;
+        pending.values().removeIf(time -> now - time >= windowMillis);
+    }
+
+}
@@ -65,8 +65,22 @@ public class WorkComputation extends AbstractComputation {
 
     protected Work work;
 
+    /**
+     * @since 10.3
+     */
+    protected final WorkCoalescer coalescer;
+
     public WorkComputation(String name) {
+        this(name, null);
+    }
+
+    /**
+     * @param coalescer the coalescer of the queue, or {@code null} if works are not coalesced
+     * @since 10.3
+     */
+    public WorkComputation(String name, WorkCoalescer coalescer) {
         super(name, 1, 0);
+        this.coalescer = coalescer;
         MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
         workTimer = registry.timer(MetricRegistry.name("nuxeo", "works", name, "total"));
         stateTTL = Long.parseLong(
@@ -83,6 +97,9 @@ public class WorkComputation extends AbstractComputation {
     @Override
     public void processRecord(ComputationContext context, String inputStreamName, Record record) {
         work = deserialize(record.getData());
+        if (coalescer != null) {
+            coalescer.started(work);
+        }
         try {
             if (work.isIdempotent() && workIds.contains(work.getId())) {
                 log.warn("Duplicate work id: " + work.getId() + " skipping");
@@ -39,6 +39,8 @@ public class WorkHolder implements Runnable {
 
     private final Work work;
 
+    private boolean canceled;
+
     public WorkHolder(Work work) {
         this.work = work;
     }
@@ -47,8 +49,27 @@ public class WorkHolder implements Runnable {
         return ((WorkHolder) r).work;
     }
 
+    /**
+     * Cancels a work taken by an executor thread before it runs, the work is not called.
+     *
+     * @since 10.3
+     */
+    public static void cancel(Runnable r) {
+        ((WorkHolder) r).canceled = true;
+    }
+
+    /**
+     * @since 10.3
+     */
+    public static boolean isCanceled(Runnable r) {
+        return ((WorkHolder) r).canceled;
+    }
+
     @Override
     public void run() {
+        if (canceled) {
+            return;
+        }
         final Thread currentThread = Thread.currentThread();
         String name = currentThread.getName();
         currentThread.setName(name + ":" + work.getId());
@@ -27,6 +27,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
@@ -100,6 +102,14 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
      */
     public static final String SHUTDOWN_DELAY_MS_KEY = "nuxeo.work.shutdown.delay.ms";
 
+    /**
+     * The maximum number of works running at the same time on the node, shared between the queues according to their
+     * weight. Not limited by default.
+     *
+     * @since 10.3
+     */
+    public static final String WORK_SLOTS_KEY = "nuxeo.work.slots";
+
     protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
 
     // used synchronized
@@ -147,6 +157,13 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     protected WorkCompletionSynchronizer completionSynchronizer;
 
+    /**
+     * The scheduler of the work slots shared between queues, or {@code null} if not limited.
+     *
+     * @since 10.3
+     */
+    protected WorkSlotScheduler slotScheduler;
+
     @Override
     public void registerContribution(Object contribution, String xp, ComponentInstance component) {
         if (QUEUES_EP.equals(xp)) {
@@ -185,7 +202,10 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             throw new IllegalStateException("work queue " + config.id + " already have an executor");
         }
         NuxeoBlockingQueue queue = queuing.init(config);
-        ThreadFactory threadFactory = new NamedThreadFactory(THREAD_PREFIX + config.id + "-");
+        if (slotScheduler != null) {
+            slotScheduler.register(config.id, config.getWeight());
+        }
+        ThreadFactory threadFactory = newThreadFactory(config);
         int maxPoolSize = config.getMaxThreads();
         WorkThreadPoolExecutor executor = new WorkThreadPoolExecutor(maxPoolSize, maxPoolSize, 0, TimeUnit.SECONDS,
                 queue, threadFactory);
@@ -196,6 +216,27 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         getLog().info("Initialized work queue " + config.id + " " + config.toString());
     }
 
+    /**
+     * Creates the factory of the threads processing the works of a queue.
+     * <p>
+     * The number of threads is the concurrency cap of the queue, as all of them are started and take works from the
+     * queue. With virtual threads the cap can be high, idle or blocked works do not hold an OS thread.
+     *
+     * @since 10.3
+     */
+    protected ThreadFactory newThreadFactory(WorkQueueDescriptor config) {
+        String prefix = THREAD_PREFIX + config.id + "-";
+        if (config.isVirtualThreads()) {
+            ThreadFactory virtualThreadFactory = VirtualThreadFactory.lookupVirtualThreadFactory();
+            if (virtualThreadFactory != null) {
+                return new VirtualThreadFactory(prefix, virtualThreadFactory);
+            }
+            getLog().warn("Virtual threads are not supported by this JVM, work queue " + config.id
+                    + " uses platform threads");
+        }
+        return new NamedThreadFactory(prefix);
+    }
+
     void activateQueue(WorkQueueDescriptor config) {
         if (ALL_QUEUES.equals(config.id)) {
             throw new IllegalArgumentException("cannot activate all queues");
@@ -226,6 +267,9 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         queueMetrics.putGauge(() -> getMetrics(queueId).running, "running");
         queueMetrics.putGauge(() -> getMetrics(queueId).completed, "completed");
         queueMetrics.putGauge(() -> getMetrics(queueId).canceled, "canceled");
+        if (slotScheduler != null) {
+            queueMetrics.putGauge(() -> getMetrics(queueId).allocation, "allocation");
+        }
         registry.registerAll(queueMetrics);
     }
 
@@ -341,6 +385,9 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
                 throw new RuntimeException(e);
             }
             completionSynchronizer = new WorkCompletionSynchronizer();
+            int slots = Integer.parseInt(
+                    Framework.getService(ConfigurationService.class).getProperty(WORK_SLOTS_KEY, "0"));
+            slotScheduler = slots > 0 ? new WorkSlotScheduler(slots) : null;
             started = true;
             index();
             List<WorkQueueDescriptor> descriptors = getDescriptors(QUEUES_EP);
@@ -506,11 +553,11 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
      */
     private static class NamedThreadFactory implements ThreadFactory {
 
-        private final AtomicInteger threadNumber = new AtomicInteger();
+        protected final AtomicInteger threadNumber = new AtomicInteger();
 
-        private final ThreadGroup group;
+        protected final ThreadGroup group;
 
-        private final String prefix;
+        protected final String prefix;
 
         public NamedThreadFactory(String prefix) {
             SecurityManager sm = System.getSecurityManager();
@@ -544,6 +591,43 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     }
 
+    /**
+     * Creates virtual threads, available since Java 21, looked up by reflection.
+     *
+     * @since 10.3
+     */
+    private static class VirtualThreadFactory extends NamedThreadFactory {
+
+        protected final ThreadFactory factory;
+
+        public VirtualThreadFactory(String prefix, ThreadFactory factory) {
+            super(prefix);
+            this.factory = factory;
+        }
+
+        /**
+         * Returns the factory of {@code Thread.ofVirtual()}, or {@code null} if virtual threads are not available.
+         */
+        protected static ThreadFactory lookupVirtualThreadFactory() {
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // not available or preview feature not enabled
+                return null;
+            }
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = factory.newThread(r);
+            thread.setName(prefix + threadNumber.incrementAndGet());
+            thread.setUncaughtExceptionHandler(this::handleUncaughtException);
+            return thread;
+        }
+
+    }
+
     /**
      * A {@link ThreadPoolExecutor} that keeps available the list of running tasks.
      * <p>
@@ -576,6 +660,18 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
         protected final Timer workTimer;
 
+        /**
+         * @since 10.3
+         */
+        protected final WorkSlotScheduler scheduler;
+
+        /**
+         * Works waiting for a work slot by id, they have been taken from the queue but are not running yet.
+         *
+         * @since 10.3
+         */
+        protected final Map<String, Work> waiting = new ConcurrentHashMap<>();
+
         protected WorkThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
                 NuxeoBlockingQueue queue, ThreadFactory threadFactory) {
             super(corePoolSize, maximumPoolSize, keepAliveTime, unit, queue, threadFactory);
@@ -586,6 +682,7 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             runningCount = registry.counter(MetricRegistry.name("nuxeo", "works", queueId, "running"));
             completedCount = registry.counter(MetricRegistry.name("nuxeo", "works", queueId, "completed"));
             workTimer = registry.timer(MetricRegistry.name("nuxeo", "works", queueId, "total"));
+            scheduler = slotScheduler;
         }
 
         public int getScheduledOrRunningSize() {
@@ -630,15 +727,64 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
                 queuing.workReschedule(queueId, work);
                 throw new RejectedExecutionException(queueId + " was shutdown, rescheduled " + work);
             }
+            if (scheduler != null && !acquireSlot(work)) {
+                // canceled while waiting for a work slot, the task is skipped
+                WorkHolder.cancel(r);
+                return;
+            }
             work.setWorkInstanceState(State.RUNNING);
             queuing.workRunning(queueId, work);
             running.add(work);
             runningCount.inc();
         }
 
+        /**
+         * Waits for a work slot of the node, the work stays scheduled meanwhile and can be canceled.
+         *
+         * @return {@code false} if the work has been canceled while waiting
+         * @since 10.3
+         */
+        protected boolean acquireSlot(Work work) {
+            String workId = work.getId();
+            waiting.put(workId, work);
+            boolean acquired = false;
+            boolean interrupted = false;
+            try {
+                acquired = scheduler.acquire(queueId, () -> isShutdown() || waiting.get(workId) != work);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                interrupted = true;
+            }
+            if (!waiting.remove(workId, work)) {
+                // canceled while waiting, the work leaves the queue state without running
+                if (acquired) {
+                    scheduler.release(queueId);
+                }
+                work.setWorkInstanceState(State.UNKNOWN);
+                queuing.workCanceledWaiting(queueId, work);
+                completionSynchronizer.signalCompletedWork();
+                return false;
+            }
+            if (!acquired) {
+                work.setWorkInstanceState(State.SCHEDULED);
+                queuing.workReschedule(queueId, work);
+                String reason = interrupted ? " was interrupted" : " was shutdown";
+                throw new RejectedExecutionException(queueId + reason + " while waiting for a work slot, rescheduled "
+                        + work);
+            }
+            return true;
+        }
+
         @Override
         protected void afterExecute(Runnable r, Throwable t) {
+            if (WorkHolder.isCanceled(r)) {
+                // never started, already removed from the queue
+                return;
+            }
             Work work = WorkHolder.getWork(r);
+            if (scheduler != null) {
+                scheduler.release(queueId);
+            }
             try {
                 if (work.isSuspending()) {
                     getLog().trace(work + " is suspending, giving up");
@@ -687,6 +833,10 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
                     Thread.sleep(shutdownDelay);
                 }
                 shutdownNow();
+                if (scheduler != null) {
+                    // works waiting for a slot give up
+                    scheduler.wakeUp();
+                }
             } finally {
                 executors.remove(queueId);
             }
@@ -694,6 +844,19 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
         public void removeScheduled(String workId) {
             queuing.removeScheduled(queueId, workId);
+            if (waiting.remove(workId) != null) {
+                // the work gives up waiting for a slot
+                scheduler.wakeUp();
+            }
+        }
+
+        /**
+         * Returns the work waiting for a work slot with the given id, or {@code null}.
+         *
+         * @since 10.3
+         */
+        public Work getWaiting(String workId) {
+            return waiting.get(workId);
         }
 
     }
@@ -809,7 +972,25 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     @Override
     public Work find(String workId, State state) {
-        return queuing.find(workId, state);
+        Work work = queuing.find(workId, state);
+        if (work == null && (state == null || state == State.SCHEDULED)) {
+            work = findWaiting(workId);
+        }
+        return work;
+    }
+
+    /**
+     * Finds a work waiting for a work slot, it is not in the queue anymore but still scheduled.
+     *
+     * @since 10.3
+     */
+    protected Work findWaiting(String workId) {
+        return executors.values()
+                        .stream()
+                        .map(executor -> executor.getWaiting(workId))
+                        .filter(Objects::nonNull)
+                        .findFirst()
+                        .orElse(null);
     }
 
     /**
@@ -821,7 +1002,11 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     @Override
     public State getWorkState(String workId) {
-        return queuing.getWorkState(workId);
+        State state = queuing.getWorkState(workId);
+        if (state == null && findWaiting(workId) != null) {
+            return State.SCHEDULED;
+        }
+        return state;
     }
 
     @Override
@@ -837,7 +1022,12 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     @Override
     public WorkQueueMetrics getMetrics(String queueId) {
-        return queuing.metrics(queueId);
+        WorkQueueMetrics metrics = queuing.metrics(queueId);
+        if (slotScheduler == null) {
+            return metrics;
+        }
+        return new WorkQueueMetrics(queueId, metrics.scheduled, metrics.running, metrics.completed, metrics.canceled,
+                metrics.coalesced, slotScheduler.getAllocation(queueId));
     }
 
     @Override
@@ -87,6 +87,16 @@ public interface WorkQueuing {
      **/
     void workCanceled(String queueId, Work work);
 
+    /**
+     * Removes a work instance taken from the scheduled queue but canceled before running, for instance while waiting
+     * for a work slot.
+     *
+     * @param queueId the queue id
+     * @param work the work instance
+     * @since 10.3
+     */
+    void workCanceledWaiting(String queueId, Work work);
+
     /**
      * Put the work instance into the running set.
      *
@@ -0,0 +1,205 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Weighted fair scheduler of the work slots of a node, shared by the work queues.
+ * <p>
+ * At most {@link #getSlots()} works run at the same time on the node. When several queues have works to run, each one
+ * is allocated a share of the slots proportional to its weight. A queue can use more than its share when the other
+ * queues don't need it, but a freed slot goes first to a waiting queue that is below its share.
+ *
+ * @since 10.3
+ */
+public class WorkSlotScheduler {
+
+    protected static class Lane {
+
+        protected final int weight;
+
+        protected int running;
+
+        protected int waiting;
+
+        protected Lane(int weight) {
+            this.weight = Math.max(1, weight);
+        }
+
+        protected boolean isActive() {
+            return running > 0 || waiting > 0;
+        }
+    }
+
+    protected final int slots;
+
+    protected final ReentrantLock lock = new ReentrantLock();
+
+    protected final Condition slotReleased = lock.newCondition();
+
+    // @GuardedBy("lock")
+    protected final Map<String, Lane> lanes = new HashMap<>();
+
+    // @GuardedBy("lock")
+    protected int running;
+
+    public WorkSlotScheduler(int slots) {
+        if (slots <= 0) {
+            throw new IllegalArgumentException("Invalid number of slots: " + slots);
+        }
+        this.slots = slots;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    /**
+     * Registers a queue with its weight.
+     */
+    public void register(String queueId, int weight) {
+        lock.lock();
+        try {
+            Lane previous = lanes.put(queueId, new Lane(weight));
+            if (previous != null) {
+                throw new IllegalStateException("Queue already registered: " + queueId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for a slot to run a work of the queue.
+     *
+     * @param abort checked while waiting, to give up waiting
+     * @return {@code true} if a slot is acquired, {@code false} if aborted
+     */
+    public boolean acquire(String queueId, BooleanSupplier abort) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            Lane lane = getLane(queueId);
+            lane.waiting++;
+            try {
+                while (!canRun(lane)) {
+                    if (abort.getAsBoolean()) {
+                        return false;
+                    }
+                    slotReleased.await();
+                }
+            } finally {
+                lane.waiting--;
+            }
+            lane.running++;
+            running++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot acquired by a work of the queue.
+     */
+    public void release(String queueId) {
+        lock.lock();
+        try {
+            Lane lane = getLane(queueId);
+            lane.running--;
+            running--;
+            slotReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes up the waiting works so that they check if they must give up.
+     */
+    public void wakeUp() {
+        lock.lock();
+        try {
+            slotReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of slots currently allocated to the queue, according to its weight and the other queues having
+     * works to run.
+     */
+    public int getAllocation(String queueId) {
+        lock.lock();
+        try {
+            Lane lane = lanes.get(queueId);
+            return lane == null ? 0 : getShare(lane, getActiveWeight(lane));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    protected Lane getLane(String queueId) {
+        Lane lane = lanes.get(queueId);
+        if (lane == null) {
+            throw new IllegalArgumentException("Unknown queue: " + queueId);
+        }
+        return lane;
+    }
+
+    protected boolean canRun(Lane lane) {
+        if (running >= slots) {
+            return false;
+        }
+        int activeWeight = getActiveWeight(lane);
+        if (lane.running < getShare(lane, activeWeight)) {
+            return true;
+        }
+        // above its share, only if no other waiting queue is below its share
+        for (Lane other : lanes.values()) {
+            if (other != lane && other.waiting > 0 && other.running < getShare(other, activeWeight)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The total weight of the queues having works to run, including the given one.
+     */
+    protected int getActiveWeight(Lane lane) {
+        int weight = lane.isActive() ? 0 : lane.weight;
+        for (Lane other : lanes.values()) {
+            if (other.isActive()) {
+                weight += other.weight;
+            }
+        }
+        return weight;
+    }
+
+    protected int getShare(Lane lane, int activeWeight) {
+        return Math.max(1, slots * lane.weight / activeWeight);
+    }
+
+}
@@ -18,6 +18,7 @@
  */
 package org.nuxeo.ecm.core.work.api;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -43,6 +44,21 @@ public class WorkQueueDescriptor implements Descriptor {
 
     public static final int DEFAULT_CAPACITY = -1;
 
+    /**
+     * @since 10.3
+     */
+    public static final String PRIORITY_HIGH = "high";
+
+    /**
+     * @since 10.3
+     */
+    public static final String PRIORITY_NORMAL = "normal";
+
+    /**
+     * @since 10.3
+     */
+    public static final String PRIORITY_LOW = "low";
+
     @XNode("@id")
     public String id;
 
@@ -81,6 +97,80 @@ public class WorkQueueDescriptor implements Descriptor {
         return maxThreads == null ? DEFAULT_MAX_THREADS : maxThreads.intValue();
     }
 
+    /**
+     * When {@code true}, the works of this queue are run on virtual threads if the JVM supports them, so that
+     * {@link #maxThreads} can be raised to keep many blocking works in flight without as many OS threads. Falls back to
+     * platform threads otherwise. Not used by the stream work manager.
+     *
+     * @since 10.3
+     */
+    @XNode("virtualThreads")
+    public Boolean virtualThreads;
+
+    /**
+     * @since 10.3
+     */
+    public boolean isVirtualThreads() {
+        return Boolean.TRUE.equals(virtualThreads);
+    }
+
+    /**
+     * When specified, an idempotent work scheduled again with the same id within this window, while the previous one
+     * is still waiting to be processed, is coalesced with the previous one instead of being appended again. Only used
+     * by the stream work manager, when its log is not distributed across nodes.
+     *
+     * @since 10.3
+     */
+    @XNode("coalescingWindow")
+    public Duration coalescingWindow;
+
+    /**
+     * @since 10.3
+     */
+    public Duration getCoalescingWindow() {
+        return coalescingWindow == null ? Duration.ZERO : coalescingWindow;
+    }
+
+    /**
+     * The priority class of the queue: {@value #PRIORITY_HIGH}, {@value #PRIORITY_NORMAL} or {@value #PRIORITY_LOW},
+     * giving a default weight of 4, 2 or 1 when the work slots of the node are shared between queues.
+     *
+     * @since 10.3
+     */
+    @XNode("priority")
+    public String priority;
+
+    /**
+     * The weight of the queue when the work slots of the node are shared between queues, overrides the weight of the
+     * priority class.
+     *
+     * @since 10.3
+     */
+    @XNode("weight")
+    public Integer weight;
+
+    /**
+     * @since 10.3
+     */
+    public int getWeight() {
+        if (weight != null) {
+            return weight.intValue();
+        }
+        if (priority == null) {
+            return 2;
+        }
+        switch (priority) {
+        case PRIORITY_HIGH:
+            return 4;
+        case PRIORITY_LOW:
+            return 1;
+        case PRIORITY_NORMAL:
+            return 2;
+        default:
+            throw new IllegalArgumentException("Unknown priority: " + priority + " for work queue: " + id);
+        }
+    }
+
     @XNodeList(value = "category", type = HashSet.class, componentType = String.class)
     public Set<String> categories = Collections.emptySet();
 
@@ -107,6 +197,10 @@ public class WorkQueueDescriptor implements Descriptor {
         merged.capacity = other.capacity != null ? other.capacity : capacity;
         merged.processing = other.processing != null ? other.processing : processing;
         merged.maxThreads = other.maxThreads != null ? other.maxThreads : maxThreads;
+        merged.virtualThreads = other.virtualThreads != null ? other.virtualThreads : virtualThreads;
+        merged.coalescingWindow = other.coalescingWindow != null ? other.coalescingWindow : coalescingWindow;
+        merged.priority = other.priority != null ? other.priority : priority;
+        merged.weight = other.weight != null ? other.weight : weight;
         merged.categories = new HashSet<>(categories);
         merged.categories.addAll(other.categories);
         return merged;
@@ -125,6 +219,17 @@ public class WorkQueueDescriptor implements Descriptor {
         buf.append(isProcessingEnabled());
         buf.append(" maxThreads=");
         buf.append(getMaxThreads());
+        if (isVirtualThreads()) {
+            buf.append(" virtualThreads=true");
+        }
+        if (priority != null || weight != null) {
+            buf.append(" weight=");
+            buf.append(getWeight());
+        }
+        if (!getCoalescingWindow().isZero()) {
+            buf.append(" coalescingWindow=");
+            buf.append(coalescingWindow);
+        }
         buf.append(" capacity=");
         buf.append(getCapacity());
         buf.append(")");
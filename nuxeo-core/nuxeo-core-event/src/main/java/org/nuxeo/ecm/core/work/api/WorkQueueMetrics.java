@@ -37,12 +37,46 @@ public class WorkQueueMetrics implements Serializable {
 
     public final Number canceled;
 
+    /**
+     * Number of works not scheduled because coalesced with an identical pending work.
+     *
+     * @since 10.3
+     */
+    public final long coalesced;
+
+    /**
+     * Number of work slots of the node currently allocated to the queue, or 0 if the work slots are not shared.
+     * <p>
+     * It depends on the activity of the other queues, so it is not part of the equality.
+     *
+     * @since 10.3
+     */
+    public final long allocation;
+
     public WorkQueueMetrics(String queueId, Number scheduled, Number running, Number completed, Number canceled) {
+        this(queueId, scheduled, running, completed, canceled, 0);
+    }
+
+    /**
+     * @since 10.3
+     */
+    public WorkQueueMetrics(String queueId, Number scheduled, Number running, Number completed, Number canceled,
+            long coalesced) {
+        this(queueId, scheduled, running, completed, canceled, coalesced, 0);
+    }
+
+    /**
+     * @since 10.3
+     */
+    public WorkQueueMetrics(String queueId, Number scheduled, Number running, Number completed, Number canceled,
+            long coalesced, long allocation) {
         this.queueId = queueId;
         this.scheduled = scheduled;
         this.running = running;
         this.completed = completed;
         this.canceled = canceled;
+        this.coalesced = coalesced;
+        this.allocation = allocation;
     }
 
     @Override
@@ -54,6 +88,7 @@ public class WorkQueueMetrics implements Serializable {
         result = prime * result +  running.hashCode();
         result = prime * result +  completed.hashCode();
         result = prime * result +  canceled.hashCode();
+        result = prime * result + Long.hashCode(coalesced);
         return result;
     }
 
@@ -84,6 +119,9 @@ public class WorkQueueMetrics implements Serializable {
         if (canceled.longValue() != other.canceled.longValue()) {
             return false;
         }
+        if (coalesced != other.coalesced) {
+            return false;
+        }
         return true;
     }
 
@@ -99,8 +137,14 @@ public class WorkQueueMetrics implements Serializable {
                 .append(", ")
                 .append(completed)
                 .append(", ")
-                .append(canceled)
-                .append("]");
+                .append(canceled);
+        if (coalesced > 0) {
+            builder.append(", coalesced=").append(coalesced);
+        }
+        if (allocation > 0) {
+            builder.append(", allocation=").append(allocation);
+        }
+        builder.append("]");
         return builder.toString();
     }
 
@@ -123,4 +167,18 @@ public class WorkQueueMetrics implements Serializable {
     public Number getCanceled() {
         return canceled;
     }
+
+    /**
+     * @since 10.3
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * @since 10.3
+     */
+    public long getAllocation() {
+        return allocation;
+    }
 }
\ No newline at end of file
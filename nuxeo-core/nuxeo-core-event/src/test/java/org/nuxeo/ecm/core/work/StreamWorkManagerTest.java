@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core.work;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
 
 import java.util.concurrent.TimeUnit;
 
@@ -140,6 +141,40 @@ public class StreamWorkManagerTest extends AbstractWorkManagerTest {
         tracker.assertDiff(0, 0, 6, 0);
     }
 
+    @Test
+    @Deploy("org.nuxeo.ecm.core.event:test-stream-workmanager-coalescing.xml")
+    public void testWorkCoalescing() throws InterruptedException {
+        assumeFalse("Coalescing is disabled with a distributed log",
+                ((StreamWorkManager) service).logManager.supportSubscribe());
+        final String queue = "CoalescingWork";
+        long timeout = getDurationMillis() * 5;
+        // a single thread and partition: works are pending while the first one is running
+        SleepWork blocking = new SleepWork(getDurationMillis(), queue, "blocking");
+        SleepWork work = new SleepWork(getDurationMillis(), queue, "work");
+        service.schedule(blocking);
+        service.schedule(work);
+        service.schedule(work);
+        service.schedule(work);
+        assertEquals(2, service.getMetrics(queue).getCoalesced());
+        assertTrue(service.awaitCompletion(queue, timeout, TimeUnit.MILLISECONDS));
+        assertEquals(2, service.getMetrics(queue).getCompleted().longValue());
+
+        // once started the work is scheduled again
+        service.schedule(work);
+        assertTrue(service.awaitCompletion(queue, timeout, TimeUnit.MILLISECONDS));
+        assertEquals(3, service.getMetrics(queue).getCompleted().longValue());
+        assertEquals(2, service.getMetrics(queue).getCoalesced());
+
+        // non idempotent works are never coalesced
+        SleepWork nonIdempotent = new SleepWork(1, queue, "nonIdempotent");
+        nonIdempotent.setIdempotent(false);
+        service.schedule(nonIdempotent);
+        service.schedule(nonIdempotent);
+        assertEquals(2, service.getMetrics(queue).getCoalesced());
+        assertTrue(service.awaitCompletion(queue, timeout, TimeUnit.MILLISECONDS));
+        assertEquals(5, service.getMetrics(queue).getCompleted().longValue());
+    }
+
     @Override
     @Ignore
     @Test
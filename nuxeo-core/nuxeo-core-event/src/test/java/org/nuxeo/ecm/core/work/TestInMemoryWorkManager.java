@@ -18,6 +18,21 @@
  */
 package org.nuxeo.ecm.core.work;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.work.api.Work.State;
+import org.nuxeo.ecm.core.work.api.WorkManager.Scheduling;
+import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
+import org.nuxeo.ecm.core.work.api.WorkQueueMetrics;
+import org.nuxeo.runtime.test.runner.Deploy;
+
 public class TestInMemoryWorkManager extends AbstractWorkManagerTest {
 
     @Override
@@ -25,4 +40,93 @@ public class TestInMemoryWorkManager extends AbstractWorkManagerTest {
         return false;
     }
 
+    @Test
+    @Deploy("org.nuxeo.ecm.core.event.test:test-workmanager-virtualthreads.xml")
+    public void testVirtualThreads() throws Exception {
+        assumeTrue("Virtual threads are not supported by this JVM", hasVirtualThreads());
+        assertTrue(service.getWorkQueueDescriptor(QUEUE).isVirtualThreads());
+        final int NB_WORKS = 20;
+        int duration = getDurationMillis() * 3;
+        for (int i = 0; i < NB_WORKS; i++) {
+            service.schedule(new SleepWork(duration, "vt" + i));
+        }
+        // all the works are running concurrently
+        Thread.sleep(duration / 3);
+        tracker.assertDiff(0, NB_WORKS, 0, 0);
+        assertTrue(service.awaitCompletion(QUEUE, 10, TimeUnit.SECONDS));
+        tracker.assertDiff(0, 0, NB_WORKS, 0);
+        assertEquals(0, service.getQueueSize(QUEUE, null));
+    }
+
+    @Test
+    @Deploy("org.nuxeo.ecm.core.event.test:test-workmanager-virtualthreads.xml")
+    public void testVirtualThreadFactory() throws Exception {
+        WorkQueueDescriptor descriptor = service.getWorkQueueDescriptor(QUEUE);
+        assertTrue(descriptor.isVirtualThreads());
+        ThreadFactory factory = ((WorkManagerImpl) service).newThreadFactory(descriptor);
+        Thread thread = factory.newThread(() -> {
+        });
+        assertEquals(WorkManagerImpl.THREAD_PREFIX + QUEUE + "-1", thread.getName());
+        // falls back to platform threads when virtual threads are not supported
+        assertEquals(hasVirtualThreads(), isVirtual(thread));
+    }
+
+    protected static boolean hasVirtualThreads() {
+        try {
+            Thread.class.getMethod("ofVirtual").invoke(null);
+            return true;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    protected static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+        try {
+            return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Test
+    @Deploy("org.nuxeo.ecm.core.event.test:test-workmanager-slots.xml")
+    public void testWorkSlots() throws Exception {
+        assertEquals(1, service.getWorkQueueDescriptor(QUEUE).getWeight());
+        long completed = tracker.initialMetrics.getCompleted().longValue();
+        long canceled = tracker.initialMetrics.getCanceled().longValue();
+        int duration = getDurationMillis() * 3;
+        service.schedule(new SleepWork(duration, "slot1"));
+        service.schedule(new SleepWork(duration, "slot2"));
+        // the queue has 2 threads but the node has a single work slot
+        Thread.sleep(duration / 3);
+        WorkQueueMetrics metrics = service.getMetrics(QUEUE);
+        assertEquals(1, metrics.getRunning().intValue());
+        assertEquals(1, metrics.getScheduled().intValue());
+        assertEquals(1, metrics.getAllocation());
+        assertTrue(service.awaitCompletion(QUEUE, 10, TimeUnit.SECONDS));
+        assertEquals(completed + 2, service.getMetrics(QUEUE).getCompleted().longValue());
+    }
+
+    @Test
+    @Deploy("org.nuxeo.ecm.core.event.test:test-workmanager-slots.xml")
+    public void testCancelWorkWaitingForSlot() throws Exception {
+        long completed = tracker.initialMetrics.getCompleted().longValue();
+        long canceled = tracker.initialMetrics.getCanceled().longValue();
+        int duration = getDurationMillis() * 3;
+        service.schedule(new SleepWork(duration, "running"));
+        service.schedule(new SleepWork(duration, "waiting"));
+        // the second work has left the queue and waits for the single work slot
+        Thread.sleep(duration / 3);
+        assertEquals(State.SCHEDULED, service.getWorkState("waiting"));
+        assertNotNull(service.find("waiting", State.SCHEDULED));
+        service.schedule(new SleepWork(duration, "waiting"), Scheduling.CANCEL_SCHEDULED);
+        // the canceled work gives up waiting while the first one is still running
+        Thread.sleep(duration / 6);
+        WorkQueueMetrics metrics = service.getMetrics(QUEUE);
+        assertEquals(1, metrics.getRunning().intValue());
+        assertEquals(canceled + 1, metrics.getCanceled().longValue());
+        assertEquals(completed, metrics.getCompleted().longValue());
+        assertTrue(service.awaitCompletion(QUEUE, 10, TimeUnit.SECONDS));
+    }
+
 }
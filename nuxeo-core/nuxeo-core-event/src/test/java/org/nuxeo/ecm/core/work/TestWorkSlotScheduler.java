@@ -0,0 +1,96 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @since 10.3
+ */
+public class TestWorkSlotScheduler {
+
+    protected final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    protected Future<Boolean> acquire(WorkSlotScheduler scheduler, String queueId) {
+        return executor.submit(() -> scheduler.acquire(queueId, () -> false));
+    }
+
+    @Test
+    public void testWeightedAllocation() throws Exception {
+        WorkSlotScheduler scheduler = new WorkSlotScheduler(4);
+        scheduler.register("bulk", 1);
+        scheduler.register("default", 3);
+        // a queue alone can use all the slots
+        assertEquals(4, scheduler.getAllocation("bulk"));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(scheduler.acquire("bulk", () -> false));
+        }
+        assertEquals(4, scheduler.getAllocation("bulk"));
+        assertEquals(3, scheduler.getAllocation("default"));
+
+        // no more slot
+        Future<Boolean> defaultWork = acquire(scheduler, "default");
+        Thread.sleep(100);
+        assertFalse(defaultWork.isDone());
+        assertEquals(1, scheduler.getAllocation("bulk"));
+        assertEquals(3, scheduler.getAllocation("default"));
+
+        // freed slots go to the queue below its share
+        Future<Boolean> bulkWork = acquire(scheduler, "bulk");
+        Thread.sleep(100);
+        scheduler.release("bulk");
+        assertTrue(defaultWork.get(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertFalse(bulkWork.isDone());
+
+        // the queue above its share runs again when the other queue does not need the slot
+        scheduler.release("default");
+        assertTrue(bulkWork.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAbort() throws Exception {
+        WorkSlotScheduler scheduler = new WorkSlotScheduler(1);
+        scheduler.register("default", 1);
+        assertTrue(scheduler.acquire("default", () -> false));
+        boolean[] abort = new boolean[1];
+        Future<Boolean> work = executor.submit(() -> scheduler.acquire("default", () -> abort[0]));
+        Thread.sleep(100);
+        assertFalse(work.isDone());
+        abort[0] = true;
+        scheduler.wakeUp();
+        assertFalse(work.get(5, TimeUnit.SECONDS));
+    }
+
+}
@@ -129,4 +129,14 @@ public interface Paginable<T> extends List<T> {
      */
     long getResultsCountLimit();
 
+    /**
+     * Returns an opaque token that can be used to get the next page without using an offset, or {@code null} if this
+     * is not available.
+     *
+     * @since 10.3
+     */
+    default String getNextPageToken() {
+        return null;
+    }
+
 }
@@ -133,4 +133,9 @@ public class PaginablePageProvider<T> extends ArrayList<T> implements Paginable<
     public long getResultsCountLimit() {
         return pageProvider.getResultsCountLimit();
     }
+
+    @Override
+    public String getNextPageToken() {
+        return pageProvider.getNextPageToken();
+    }
 }
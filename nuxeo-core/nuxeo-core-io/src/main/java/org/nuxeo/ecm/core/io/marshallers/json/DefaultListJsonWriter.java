@@ -148,6 +148,10 @@ public abstract class DefaultListJsonWriter<EntityType> extends AbstractJsonWrit
             jg.writeBooleanField("isSortable", paginable.isSortable());
             jg.writeBooleanField("hasError", paginable.hasError());
             jg.writeStringField("errorMessage", paginable.getErrorMessage());
+            String nextPageToken = paginable.getNextPageToken();
+            if (nextPageToken != null) {
+                jg.writeStringField("nextPageToken", nextPageToken);
+            }
             // compat fields
             if (paginable instanceof DocumentModelList) {
                 jg.writeNumberField("totalSize", ((DocumentModelList) paginable).totalSize());
@@ -38,6 +38,16 @@ public class WorksQueueMonitoring implements WorksQueueMonitoringMBean {
                 metrics.canceled.longValue() };
     }
 
+    @Override
+    public long getAllocation() {
+        return manager().getMetrics(queueId).getAllocation();
+    }
+
+    @Override
+    public int getWeight() {
+        return manager().getWorkQueueDescriptor(queueId).getWeight();
+    }
+
     @Override
     public boolean isProcessing() {
         return manager().isProcessingEnabled(queueId);
@@ -27,6 +27,20 @@ public interface WorksQueueMonitoringMBean {
      */
     long[] getMetrics();
 
+    /**
+     * Gets the number of work slots of the node currently allocated to the queue, 0 if the slots are not shared
+     *
+     * @since 10.3
+     */
+    long getAllocation();
+
+    /**
+     * Gets the weight of the queue when the work slots of the node are shared
+     *
+     * @since 10.3
+     */
+    int getWeight();
+
     /**
      * Is at least one queue is processing works ?
      *
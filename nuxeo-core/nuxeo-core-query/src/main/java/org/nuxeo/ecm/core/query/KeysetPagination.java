@@ -0,0 +1,292 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.query;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.api.PropertyException;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.core.query.sql.model.Expression;
+import org.nuxeo.ecm.core.query.sql.model.IntegerLiteral;
+import org.nuxeo.ecm.core.query.sql.model.Literal;
+import org.nuxeo.ecm.core.query.sql.model.Literals;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
+import org.nuxeo.ecm.core.query.sql.model.OrderByClause;
+import org.nuxeo.ecm.core.query.sql.model.OrderByExpr;
+import org.nuxeo.ecm.core.query.sql.model.OrderByList;
+import org.nuxeo.ecm.core.query.sql.model.Predicate;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.query.sql.model.WhereClause;
+
+/**
+ * Helpers for keyset (seek) pagination.
+ * <p>
+ * Instead of skipping a number of results (offset), a page is defined by the values of the ORDER BY keys of the last
+ * result of the previous page (the keyset). The query is restricted to the results following the keyset in the ORDER BY
+ * order, which the database can seek to using an index, so that the cost of a page doesn't depend on its depth.
+ * <p>
+ * To get a total order, {@code ecm:uuid} is added as the last ORDER BY key if not already present. Results having a
+ * {@code NULL} ORDER BY key cannot be reached by keyset pagination, so the ORDER BY keys should be non-null properties
+ * (like {@code dc:created} or {@code dc:modified}).
+ *
+ * @since 10.3
+ */
+public class KeysetPagination {
+
+    private KeysetPagination() {
+        // utility class
+    }
+
+    /**
+     * Gets the ORDER BY keys of a query, as used for keyset pagination: the ORDER BY of the query followed by
+     * {@code ecm:uuid} if not already present.
+     */
+    public static List<OrderByExpr> getOrderBy(SQLQuery query) {
+        List<OrderByExpr> orderBy = new ArrayList<>();
+        boolean hasId = false;
+        if (query.orderBy != null) {
+            for (OrderByExpr expr : query.orderBy.elements) {
+                String name = expr.reference.name;
+                if (NXQL.ECM_PATH.equals(name) || NXQL.ECM_FULLTEXT_SCORE.equals(name)) {
+                    throw new QueryParseException("Keyset pagination cannot be used with ORDER BY " + name);
+                }
+                orderBy.add(expr);
+                if (NXQL.ECM_UUID.equals(name)) {
+                    hasId = true;
+                    break; // following keys are not needed, the id is unique
+                }
+            }
+        }
+        if (!hasId) {
+            orderBy.add(new OrderByExpr(new Reference(NXQL.ECM_UUID), false));
+        }
+        return orderBy;
+    }
+
+    /**
+     * Returns a copy of the query restricted to the results following the given keyset.
+     * <p>
+     * The ORDER BY of the returned query is the one returned by {@link #getOrderBy}, so an empty keyset can be used to
+     * get the first page in the same order as the following ones. For ORDER BY keys {@code a ASC, b
+     * DESC, ecm:uuid} and keyset {@code (x, y, id)}, the added condition is:
+     *
+     * <pre>
+     * a &gt; x OR (a = x AND (b &lt; y OR (b = y AND ecm:uuid &gt; id)))
+     * </pre>
+     *
+     * @param query the query
+     * @param keyset the values of the ORDER BY keys of the last result of the previous page, or an empty array for the
+     *            first page
+     * @return the restricted query
+     */
+    public static SQLQuery addKeyset(SQLQuery query, Serializable[] keyset) {
+        List<OrderByExpr> orderBy = getOrderBy(query);
+        OrderByList orderByList = new OrderByList(null); // stupid constructor
+        orderByList.clear();
+        orderByList.addAll(orderBy);
+        if (keyset.length == 0) {
+            // first page
+            return new SQLQuery(query.select, query.from, query.where, query.groupBy, query.having,
+                    new OrderByClause(orderByList), query.limit, query.offset);
+        }
+        if (keyset.length != orderBy.size()) {
+            throw new QueryParseException(
+                    "Keyset has " + keyset.length + " values but the query has " + orderBy.size() + " ORDER BY keys");
+        }
+        // build from the last key
+        Expression condition = null;
+        for (int i = orderBy.size() - 1; i >= 0; i--) {
+            OrderByExpr expr = orderBy.get(i);
+            Literal literal = toLiteral(expr.reference.name, keyset[i]);
+            Reference reference = new Reference(expr.reference.name, expr.reference.cast);
+            Operator op = expr.isDescending ? Operator.LT : Operator.GT;
+            Expression after = new Predicate(reference, op, literal);
+            if (condition == null) {
+                condition = after;
+            } else {
+                Expression equal = new Predicate(reference, Operator.EQ, literal);
+                condition = new Predicate(after, Operator.OR, new Predicate(equal, Operator.AND, condition));
+            }
+        }
+        Expression where = query.where == null || query.where.predicate == null ? condition
+                : new Predicate(query.where.predicate, Operator.AND, condition);
+        return new SQLQuery(query.select, query.from, new WhereClause(where), query.groupBy, query.having,
+                new OrderByClause(orderByList), query.limit, query.offset);
+    }
+
+    protected static Literal toLiteral(String name, Serializable value) {
+        if (value == null) {
+            throw new QueryParseException("Keyset pagination cannot use a null value for " + name);
+        }
+        if (value instanceof Boolean) {
+            // NXQL booleans are expressed as integers
+            return new IntegerLiteral(((Boolean) value).booleanValue() ? 1 : 0);
+        }
+        try {
+            return Literals.toLiteral(value);
+        } catch (RuntimeException e) {
+            throw new QueryParseException("Invalid keyset value for " + name + ": " + value, e);
+        }
+    }
+
+    /**
+     * Computes the keyset of a document for the given query, to be passed to get the results following it.
+     *
+     * @return the keyset, or {@code null} if it cannot be computed from the document (unsupported, complex or
+     *         {@code null} ORDER BY key)
+     */
+    public static Serializable[] getKeyset(SQLQuery query, DocumentModel doc) {
+        List<OrderByExpr> orderBy;
+        try {
+            orderBy = getOrderBy(query);
+        } catch (QueryParseException e) {
+            return null;
+        }
+        Serializable[] keyset = new Serializable[orderBy.size()];
+        for (int i = 0; i < keyset.length; i++) {
+            Serializable value = getValue(doc, orderBy.get(i).reference.name);
+            if (!(value instanceof String || value instanceof Number || value instanceof Boolean
+                    || value instanceof Calendar)) {
+                // null or complex value
+                return null;
+            }
+            keyset[i] = value;
+        }
+        return keyset;
+    }
+
+    protected static Serializable getValue(DocumentModel doc, String name) {
+        switch (name) {
+        case NXQL.ECM_UUID:
+            return doc.getId();
+        case NXQL.ECM_NAME:
+            return doc.getName();
+        case NXQL.ECM_PRIMARYTYPE:
+            return doc.getType();
+        case NXQL.ECM_LIFECYCLESTATE:
+            return doc.getCurrentLifeCycleState();
+        case NXQL.ECM_PARENTID:
+            DocumentRef parentRef = doc.getParentRef();
+            return parentRef == null ? null : parentRef.reference().toString();
+        default:
+            if (name.startsWith(NXQL.ECM_PREFIX)) {
+                // other system properties are not available on the document model
+                return null;
+            }
+            try {
+                return doc.getPropertyValue(name);
+            } catch (PropertyException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Encodes a keyset as an opaque URL-safe token.
+     *
+     * @see #decode
+     */
+    public static String encode(Serializable[] keyset) {
+        StringBuilder buf = new StringBuilder();
+        for (Serializable value : keyset) {
+            char type;
+            String string;
+            if (value instanceof String) {
+                type = 's';
+                string = (String) value;
+            } else if (value instanceof Long || value instanceof Integer) {
+                type = 'l';
+                string = value.toString();
+            } else if (value instanceof Number) {
+                type = 'd';
+                string = value.toString();
+            } else if (value instanceof Boolean) {
+                type = 'b';
+                string = value.toString();
+            } else if (value instanceof Calendar) {
+                type = 'c';
+                string = String.valueOf(((Calendar) value).getTimeInMillis());
+            } else {
+                throw new IllegalArgumentException("Unsupported keyset value: " + value);
+            }
+            buf.append(type).append(string.length()).append(':').append(string);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buf.toString().getBytes(UTF_8));
+    }
+
+    /**
+     * Decodes a token returned by {@link #encode}.
+     *
+     * @throws QueryParseException if the token is invalid
+     */
+    public static Serializable[] decode(String token) {
+        List<Serializable> values = new ArrayList<>();
+        try {
+            String string = new String(Base64.getUrlDecoder().decode(token), UTF_8);
+            int pos = 0;
+            while (pos < string.length()) {
+                char type = string.charAt(pos++);
+                int colon = string.indexOf(':', pos);
+                int length = Integer.parseInt(string.substring(pos, colon));
+                pos = colon + 1;
+                String value = string.substring(pos, pos + length);
+                pos += length;
+                switch (type) {
+                case 's':
+                    values.add(value);
+                    break;
+                case 'l':
+                    values.add(Long.valueOf(value));
+                    break;
+                case 'd':
+                    values.add(Double.valueOf(value));
+                    break;
+                case 'b':
+                    values.add(Boolean.valueOf(value));
+                    break;
+                case 'c':
+                    Calendar cal = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+                    cal.setTimeInMillis(Long.parseLong(value));
+                    values.add(cal);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown type: " + type);
+                }
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new QueryParseException("Invalid page token: " + token, e);
+        }
+        if (values.isEmpty()) {
+            throw new QueryParseException("Invalid page token: " + token);
+        }
+        return values.toArray(new Serializable[values.size()]);
+    }
+
+}
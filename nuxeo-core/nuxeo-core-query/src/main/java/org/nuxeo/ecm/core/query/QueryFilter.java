@@ -33,7 +33,8 @@ import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
  * This includes filtering on the BROWSE permission for the given principal, filtering on facets, and applying query
  * transformers.
  * <p>
- * You can also include a limit and offset, to get a subset of the total.
+ * You can also include a limit and offset, to get a subset of the total. Instead of an offset, a keyset can be used to
+ * get the results following a given result in the query order (see {@link KeysetPagination}).
  *
  * @author Florent Guillaume
  */
@@ -59,6 +60,9 @@ public class QueryFilter implements org.nuxeo.ecm.core.api.query.QueryFilter<SQL
 
     protected final long offset;
 
+    /** @since 10.3 */
+    protected final Serializable[] keyset;
+
     /**
      * Constructs a query filter.
      * <p>
@@ -66,6 +70,20 @@ public class QueryFilter implements org.nuxeo.ecm.core.api.query.QueryFilter<SQL
      */
     public QueryFilter(Principal principal, String[] principals, String[] permissions, FacetFilter facetFilter,
             Collection<SQLQuery.Transformer> queryTransformers, long limit, long offset) {
+        this(principal, principals, permissions, facetFilter, queryTransformers, limit, offset, null);
+    }
+
+    /**
+     * Constructs a query filter returning the results following the given keyset.
+     * <p>
+     * Note that the principal MUST be {@link Serializable}.
+     *
+     * @param keyset the values of the ORDER BY keys of the last result of the previous page, followed by its id, an
+     *            empty array for the first page, or {@code null} to use the offset
+     * @since 10.3
+     */
+    public QueryFilter(Principal principal, String[] principals, String[] permissions, FacetFilter facetFilter,
+            Collection<SQLQuery.Transformer> queryTransformers, long limit, long offset, Serializable[] keyset) {
         this.principal = principal;
         this.principals = principals;
         this.permissions = permissions;
@@ -73,6 +91,7 @@ public class QueryFilter implements org.nuxeo.ecm.core.api.query.QueryFilter<SQL
         this.queryTransformers = queryTransformers;
         this.limit = limit;
         this.offset = offset;
+        this.keyset = keyset;
     }
 
     public static QueryFilter withoutLimitOffset(QueryFilter other) {
@@ -82,7 +101,8 @@ public class QueryFilter implements org.nuxeo.ecm.core.api.query.QueryFilter<SQL
                 other.permissions, //
                 other.facetFilter, //
                 other.queryTransformers, //
-                0, 0);
+                0, 0, //
+                other.keyset);
     }
 
     public Principal getPrincipal() {
@@ -113,6 +133,15 @@ public class QueryFilter implements org.nuxeo.ecm.core.api.query.QueryFilter<SQL
         return offset;
     }
 
+    /**
+     * Gets the keyset after which results are returned, or {@code null} if there is none.
+     *
+     * @since 10.3
+     */
+    public Serializable[] getKeyset() {
+        return keyset;
+    }
+
     @Override
     public String toString() {
         return String.format("QueryFilter(principal=%s, limit=%d, offset=%d)", principal, limit, offset);
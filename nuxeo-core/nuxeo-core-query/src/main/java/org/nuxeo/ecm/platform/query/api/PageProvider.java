@@ -473,4 +473,14 @@ public interface PageProvider<T> extends Serializable {
      * @since 9.3
      */
     long getResultsCountLimit();
+
+    /**
+     * Returns an opaque token that can be used to get the page following the current one without using an offset
+     * (keyset pagination), or {@code null} if this is not available.
+     *
+     * @since 10.3
+     */
+    default String getNextPageToken() {
+        return null;
+    }
 }
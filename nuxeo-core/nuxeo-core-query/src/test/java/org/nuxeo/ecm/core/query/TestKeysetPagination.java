@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.query;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.Serializable;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+
+public class TestKeysetPagination {
+
+    protected static void assertKeysetQuery(String expected, String query, Serializable... keyset) {
+        SQLQuery sqlQuery = KeysetPagination.addKeyset(SQLQueryParser.parse(query), keyset);
+        assertEquals(SQLQueryParser.parse(expected), sqlQuery);
+    }
+
+    @Test
+    public void testAddKeyset() {
+        // no ORDER BY, just the id
+        assertKeysetQuery("SELECT * FROM Document WHERE ecm:uuid > 'id1' ORDER BY ecm:uuid", //
+                "SELECT * FROM Document", "id1");
+        // ORDER BY with id added, AND with existing WHERE
+        assertKeysetQuery("SELECT * FROM Document WHERE ecm:isProxy = 0 AND (dc:title > 'foo'"
+                + " OR (dc:title = 'foo' AND ecm:uuid > 'id1')) ORDER BY dc:title, ecm:uuid", //
+                "SELECT * FROM Document WHERE ecm:isProxy = 0 ORDER BY dc:title", "foo", "id1");
+        // DESC, booleans and numbers
+        assertKeysetQuery("SELECT * FROM Document WHERE my:long < 3"
+                + " OR (my:long = 3 AND (my:bool > 1 OR (my:bool = 1 AND ecm:uuid < 'id1')))"
+                + " ORDER BY my:long DESC, my:bool, ecm:uuid DESC", //
+                "SELECT * FROM Document ORDER BY my:long DESC, my:bool, ecm:uuid DESC", //
+                Long.valueOf(3), Boolean.TRUE, "id1");
+        // keys after the id are not needed
+        assertKeysetQuery("SELECT * FROM Document WHERE ecm:uuid > 'id1' ORDER BY ecm:uuid", //
+                "SELECT * FROM Document ORDER BY ecm:uuid, dc:title", "id1");
+        // first page, just the ORDER BY
+        assertKeysetQuery("SELECT * FROM Document WHERE ecm:isProxy = 0 ORDER BY dc:title, ecm:uuid", //
+                "SELECT * FROM Document WHERE ecm:isProxy = 0 ORDER BY dc:title");
+    }
+
+    @Test
+    public void testAddKeysetErrors() {
+        try {
+            KeysetPagination.addKeyset(SQLQueryParser.parse("SELECT * FROM Document ORDER BY dc:title"),
+                    new Serializable[] { "id1" });
+            fail();
+        } catch (QueryParseException e) {
+            assertEquals("Keyset has 1 values but the query has 2 ORDER BY keys", e.getMessage());
+        }
+        try {
+            KeysetPagination.addKeyset(SQLQueryParser.parse("SELECT * FROM Document ORDER BY dc:title"),
+                    new Serializable[] { null, "id1" });
+            fail();
+        } catch (QueryParseException e) {
+            assertEquals("Keyset pagination cannot use a null value for dc:title", e.getMessage());
+        }
+        try {
+            KeysetPagination.addKeyset(SQLQueryParser.parse("SELECT * FROM Document ORDER BY ecm:path"),
+                    new Serializable[] { "/foo", "id1" });
+            fail();
+        } catch (QueryParseException e) {
+            assertEquals("Keyset pagination cannot be used with ORDER BY ecm:path", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        Calendar cal = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        cal.setTimeInMillis(1234567890123L);
+        Serializable[] keyset = { "foo:bar 'baz'", Long.valueOf(-12), Double.valueOf(1.5), Boolean.TRUE, cal, "" };
+        String token = KeysetPagination.encode(keyset);
+        assertEquals(token, token.replaceAll("[^A-Za-z0-9_-]", ""));
+        Serializable[] decoded = KeysetPagination.decode(token);
+        assertArrayEquals(keyset, decoded);
+    }
+
+    @Test
+    public void testDecodeInvalid() {
+        for (String token : new String[] { "", "!!", "eDE6YQ", "czM6YQ" }) {
+            try {
+                KeysetPagination.decode(token);
+                fail(token);
+            } catch (QueryParseException e) {
+                assertEquals("Invalid page token: " + token, e.getMessage());
+            }
+        }
+    }
+
+}
@@ -148,6 +148,8 @@ public class RedisWorkQueuing implements WorkQueuing {
 
     protected byte[] cancelledRunningWorkSha;
 
+    protected byte[] cancelledWaitingWorkSha;
+
     public RedisWorkQueuing(Listener listener) {
         this.listener = listener;
         loadConfig();
@@ -165,6 +167,7 @@ public class RedisWorkQueuing implements WorkQueuing {
             cancelledScheduledWorkSha = admin.load("org.nuxeo.ecm.core.redis", "cancelled-scheduled-work").getBytes();
             completedWorkSha = admin.load("org.nuxeo.ecm.core.redis", "completed-work").getBytes();
             cancelledRunningWorkSha = admin.load("org.nuxeo.ecm.core.redis", "cancelled-running-work").getBytes();
+            cancelledWaitingWorkSha = admin.load("org.nuxeo.ecm.core.redis", "cancelled-waiting-work").getBytes();
         } catch (IOException e) {
             throw new RuntimeException("Cannot load LUA scripts", e);
         }
@@ -206,6 +209,15 @@ public class RedisWorkQueuing implements WorkQueuing {
         }
     }
 
+    @Override
+    public void workCanceledWaiting(String queueId, Work work) {
+        try {
+            workSetCancelledWaiting(queueId, work);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public void workCompleted(String queueId, Work work) {
         try {
@@ -557,6 +569,16 @@ public class RedisWorkQueuing implements WorkQueuing {
                 metrics(queueId, evalSha(cancelledScheduledWorkSha, keys(queueId), args(work, true))));
     }
 
+    /**
+     * Removes a work popped from the queue that has been canceled before running.
+     *
+     * @since 10.3
+     */
+    protected void workSetCancelledWaiting(final String queueId, final Work work) throws IOException {
+        listener.queueChanged(work,
+                metrics(queueId, evalSha(cancelledWaitingWorkSha, keys(queueId), args(work, false))));
+    }
+
     /**
      * Switches a work to state running.
      *
@@ -0,0 +1,35 @@
+--
+-- Cancel a work popped from the queue that has not run, for instance while waiting for a work slot
+--
+local dataKey = KEYS[1]
+local stateKey = KEYS[2]
+local countKey = KEYS[3]
+local scheduledKey = KEYS[4]
+local queuedKey = KEYS[5]
+local runningKey = KEYS[6]
+local completedKey = KEYS[7]
+local canceledKey = KEYS[8]
+
+local id = ARGV[1]
+
+if redis.call('SREM', runningKey, id) == 0 then
+  return {
+    redis.call('HINCRBY', countKey, scheduledKey, 0),
+    redis.call('HINCRBY', countKey, runningKey, 0),
+    redis.call('HINCRBY', countKey, completedKey, 0),
+    redis.call('HINCRBY', countKey, canceledKey, 0)
+  }
+end
+
+local isscheduled = redis.call('SISMEMBER', scheduledKey, id)
+if not isscheduled or isscheduled == 0 then
+    redis.call('HDEL', stateKey, id)
+    redis.call('HDEL', dataKey, id)
+end
+
+return {
+    redis.call('HINCRBY', countKey, scheduledKey, 0),
+    redis.call('HINCRBY', countKey, runningKey, -1),
+    redis.call('HINCRBY', countKey, completedKey, 0),
+    redis.call('HINCRBY', countKey, canceledKey, 1)
+}
@@ -24,6 +24,7 @@ import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -32,6 +33,8 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
@@ -48,7 +51,9 @@ import org.nuxeo.ecm.core.query.sql.model.OrderByClause;
 import org.nuxeo.ecm.core.storage.FulltextConfiguration;
 import org.nuxeo.ecm.core.storage.State;
 import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.StateHelper;
 import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.StateUpdate;
 import org.nuxeo.runtime.metrics.MetricsService;
 
 import com.codahale.metrics.MetricRegistry;
@@ -60,6 +65,11 @@ import com.google.common.collect.Ordering;
 
 /**
  * The DBS Cache layer used to cache some method call of real repository
+ * <p>
+ * Documents are cached by id, in a cache bounded either by number of documents or by their estimated size in bytes.
+ * Children lookups by parent id and name are cached in a child cache, and lookups of missing children in a separate
+ * missing child cache. Both are invalidated locally and through the cluster invalidations when documents are created,
+ * moved, renamed or deleted.
  *
  * @since 8.10
  */
@@ -75,6 +85,15 @@ public class DBSCachingRepository implements DBSRepository {
 
     private final Cache<String, String> childCache;
 
+    /** Child keys known to have no child, used for negative caching of {@link #hasChild}. */
+    private final Cache<String, Boolean> missingChildCache;
+
+    /**
+     * Incremented each time child keys are invalidated, to avoid caching a missing child read concurrently with its
+     * creation.
+     */
+    private final AtomicLong childGeneration = new AtomicLong();
+
     private DBSClusterInvalidator clusterInvalidator;
 
     private final DBSInvalidations invalidations;
@@ -84,11 +103,14 @@ public class DBSCachingRepository implements DBSRepository {
     public DBSCachingRepository(DBSRepository repository, DBSRepositoryDescriptor descriptor) {
         this.repository = repository;
         // Init caches
-        cache = newCache(descriptor);
+        cache = newStateCache(descriptor);
         registry.registerAll(GuavaCacheMetric.of(cache, "nuxeo", "repositories", repository.getName(), "cache"));
         childCache = newCache(descriptor);
         registry.registerAll(
                 GuavaCacheMetric.of(childCache, "nuxeo", "repositories", repository.getName(), "childCache"));
+        missingChildCache = newCache(descriptor);
+        registry.registerAll(GuavaCacheMetric.of(missingChildCache, "nuxeo", "repositories", repository.getName(),
+                "missingChildCache"));
         if (log.isInfoEnabled()) {
             log.info(String.format("DBS cache activated on '%s' repository", repository.getName()));
         }
@@ -99,15 +121,38 @@ public class DBSCachingRepository implements DBSRepository {
     }
 
     protected <T> Cache<String, T> newCache(DBSRepositoryDescriptor descriptor) {
+        CacheBuilder<Object, Object> builder = newCacheBuilder(descriptor);
+        if (descriptor.cacheMaxSize != null) {
+            builder = builder.maximumSize(descriptor.cacheMaxSize.longValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates the document cache, weighted by the estimated size of the documents if configured.
+     *
+     * @since 10.3
+     */
+    protected Cache<String, State> newStateCache(DBSRepositoryDescriptor descriptor) {
+        if (descriptor.cacheMaxWeight == null) {
+            return newCache(descriptor);
+        }
+        return newCacheBuilder(descriptor).maximumWeight(descriptor.cacheMaxWeight.longValue())
+                                          .weigher(DBSCachingRepository::weigh)
+                                          .build();
+    }
+
+    protected CacheBuilder<Object, Object> newCacheBuilder(DBSRepositoryDescriptor descriptor) {
         CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
         builder = builder.expireAfterWrite(descriptor.cacheTTL.longValue(), TimeUnit.MINUTES).recordStats();
         if (descriptor.cacheConcurrencyLevel != null) {
             builder = builder.concurrencyLevel(descriptor.cacheConcurrencyLevel.intValue());
         }
-        if (descriptor.cacheMaxSize != null) {
-            builder = builder.maximumSize(descriptor.cacheMaxSize.longValue());
-        }
-        return builder.build();
+        return builder;
+    }
+
+    protected static int weigh(String id, State state) {
+        return (int) Math.min(Integer.MAX_VALUE, StateHelper.estimateSize(state));
     }
 
     protected void initClusterInvalidator(DBSRepositoryDescriptor descriptor) {
@@ -160,10 +205,14 @@ public class DBSCachingRepository implements DBSRepository {
         // Clear caches
         cache.invalidateAll();
         childCache.invalidateAll();
+        missingChildCache.invalidateAll();
         // Remove metrics
         String cacheName = MetricRegistry.name("nuxeo", "repositories", repository.getName(), "cache");
         String childCacheName = MetricRegistry.name("nuxeo", "repositories", repository.getName(), "childCache");
-        registry.removeMatching((name, metric) -> name.startsWith(cacheName) || name.startsWith(childCacheName));
+        String missingChildCacheName = MetricRegistry.name("nuxeo", "repositories", repository.getName(),
+                "missingChildCache");
+        registry.removeMatching((name, metric) -> name.startsWith(cacheName) || name.startsWith(childCacheName)
+                || name.startsWith(missingChildCacheName));
         if (log.isInfoEnabled()) {
             log.info(String.format("DBS cache deactivated on '%s' repository", repository.getName()));
         }
@@ -212,18 +261,35 @@ public class DBSCachingRepository implements DBSRepository {
     public void createState(State state) {
         repository.createState(state);
         // don't cache new state, it is inefficient on mass import
+        invalidateChild(state);
     }
 
     @Override
     public void createStates(List<State> states) {
         repository.createStates(states);
         // don't cache new states, it is inefficient on mass import
+        states.forEach(this::invalidateChild);
     }
 
     @Override
     public void updateState(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater) {
-        repository.updateState(id, diff, changeTokenUpdater);
-        invalidate(id);
+        try {
+            repository.updateState(id, diff, changeTokenUpdater);
+        } finally {
+            invalidate(id);
+            invalidateMovedChild(id, diff);
+        }
+    }
+
+    @Override
+    public void updateStates(List<StateUpdate> updates) {
+        try {
+            repository.updateStates(updates);
+        } finally {
+            // some updates may have been applied even on failure
+            invalidateAll(updates.stream().map(update -> update.id).collect(Collectors.toList()));
+            updates.forEach(update -> invalidateMovedChild(update.id, update.diff));
+        }
     }
 
     @Override
@@ -236,23 +302,26 @@ public class DBSCachingRepository implements DBSRepository {
     public State readChildState(String parentId, String name, Set<String> ignored) {
         processReceivedInvalidations();
 
-        String childCacheKey = computeChildCacheKey(parentId, name);
+        String childCacheKey = DBSInvalidations.childKey(parentId, name);
         String stateId = childCache.getIfPresent(childCacheKey);
         if (stateId != null) {
+            // the child cache entry is invalidated with the document, but check anyway to be safe
             State state = cache.getIfPresent(stateId);
-            if (state != null) {
-                // As we don't have invalidation for childCache we need to check if retrieved state is the right one
-                // and not a previous document which was moved or renamed
-                if (parentId.equals(state.get(KEY_PARENT_ID)) && name.equals(state.get(KEY_NAME))) {
-                    return state;
-                } else {
-                    // We can invalidate the entry in cache as the document seemed to be moved or renamed
-                    childCache.invalidate(childCacheKey);
-                }
+            if (state != null && parentId.equals(state.get(KEY_PARENT_ID)) && name.equals(state.get(KEY_NAME))) {
+                return state;
             }
         }
+        boolean cacheMissing = ignored.isEmpty();
+        if (cacheMissing && missingChildCache.getIfPresent(childCacheKey) != null) {
+            return null;
+        }
+        long generation = childGeneration.get();
         State state = repository.readChildState(parentId, name, ignored);
-        putInCache(state);
+        if (state != null) {
+            putInCache(state);
+        } else if (cacheMissing) {
+            putMissingChild(childCacheKey, generation);
+        }
         return state;
     }
 
@@ -260,15 +329,28 @@ public class DBSCachingRepository implements DBSRepository {
         if (state != null) {
             String stateId = state.get(KEY_ID).toString();
             cache.put(stateId, state);
-            Object stateParentId = state.get(KEY_PARENT_ID);
-            if (stateParentId != null) {
-                childCache.put(computeChildCacheKey(stateParentId.toString(), state.get(KEY_NAME).toString()), stateId);
+            String childKey = getChildKey(state);
+            if (childKey != null) {
+                childCache.put(childKey, stateId);
             }
         }
     }
 
-    private String computeChildCacheKey(String parentId, String name) {
-        return parentId + '_' + name;
+    private static String getChildKey(State state) {
+        Object parentId = state.get(KEY_PARENT_ID);
+        Object name = state.get(KEY_NAME);
+        if (parentId == null || name == null) {
+            return null;
+        }
+        return DBSInvalidations.childKey(parentId.toString(), name.toString());
+    }
+
+    private void putMissingChild(String childKey, long generation) {
+        missingChildCache.put(childKey, Boolean.TRUE);
+        if (childGeneration.get() != generation) {
+            // a child may have been created concurrently
+            missingChildCache.invalidate(childKey);
+        }
     }
 
     private void invalidate(String id) {
@@ -276,7 +358,7 @@ public class DBSCachingRepository implements DBSRepository {
     }
 
     private void invalidateAll(Collection<String> ids) {
-        cache.invalidateAll(ids);
+        invalidateCachedStates(ids);
         if (clusterInvalidator != null) {
             synchronized (invalidations) {
                 invalidations.addAll(ids);
@@ -284,6 +366,58 @@ public class DBSCachingRepository implements DBSRepository {
         }
     }
 
+    /**
+     * Invalidates documents and the child cache entries pointing to them.
+     */
+    private void invalidateCachedStates(Collection<String> ids) {
+        for (String id : ids) {
+            State state = cache.getIfPresent(id);
+            if (state != null) {
+                String childKey = getChildKey(state);
+                if (childKey != null) {
+                    childCache.invalidate(childKey);
+                }
+            }
+        }
+        cache.invalidateAll(ids);
+    }
+
+    /**
+     * Invalidates the missing child cache entry for a created document.
+     */
+    private void invalidateChild(State state) {
+        Object parentId = state.get(KEY_PARENT_ID);
+        Object name = state.get(KEY_NAME);
+        if (parentId != null && name != null) {
+            invalidateChild(parentId.toString(), name.toString());
+        }
+    }
+
+    /**
+     * Invalidates the missing child cache entry for a document moved or renamed by an update.
+     */
+    private void invalidateMovedChild(String id, StateDiff diff) {
+        if (!diff.containsKey(KEY_PARENT_ID) && !diff.containsKey(KEY_NAME)) {
+            return;
+        }
+        // we need both the new parent and name
+        State state = repository.readPartialState(id, Arrays.asList(KEY_PARENT_ID, KEY_NAME));
+        if (state != null) {
+            invalidateChild(state);
+        }
+    }
+
+    private void invalidateChild(String parentId, String name) {
+        childGeneration.incrementAndGet();
+        String childKey = DBSInvalidations.childKey(parentId, name);
+        missingChildCache.invalidate(childKey);
+        if (clusterInvalidator != null) {
+            synchronized (invalidations) {
+                invalidations.addChild(parentId, name);
+            }
+        }
+    }
+
     protected void sendInvalidationsToOther() {
         synchronized (invalidations) {
             if (!invalidations.isEmpty()) {
@@ -301,8 +435,16 @@ public class DBSCachingRepository implements DBSRepository {
             if (invalidations.all) {
                 cache.invalidateAll();
                 childCache.invalidateAll();
-            } else if (invalidations.ids != null) {
-                cache.invalidateAll(invalidations.ids);
+                childGeneration.incrementAndGet();
+                missingChildCache.invalidateAll();
+            } else {
+                if (invalidations.ids != null) {
+                    invalidateCachedStates(invalidations.ids);
+                }
+                if (invalidations.childKeys != null) {
+                    childGeneration.incrementAndGet();
+                    missingChildCache.invalidateAll(invalidations.childKeys);
+                }
             }
         }
     }
@@ -344,7 +486,20 @@ public class DBSCachingRepository implements DBSRepository {
 
     @Override
     public boolean hasChild(String parentId, String name, Set<String> ignored) {
-        return repository.hasChild(parentId, name, ignored);
+        if (!ignored.isEmpty()) {
+            return repository.hasChild(parentId, name, ignored);
+        }
+        processReceivedInvalidations();
+        String childKey = DBSInvalidations.childKey(parentId, name);
+        if (missingChildCache.getIfPresent(childKey) != null) {
+            return false;
+        }
+        long generation = childGeneration.get();
+        boolean hasChild = repository.hasChild(parentId, name, ignored);
+        if (!hasChild) {
+            putMissingChild(childKey, generation);
+        }
+        return hasChild;
     }
 
     @Override
@@ -388,6 +543,12 @@ public class DBSCachingRepository implements DBSRepository {
         return repository.scroll(evaluator, batchSize, keepAliveSeconds);
     }
 
+    @Override
+    public ScrollResult<String> scroll(DBSExpressionEvaluator evaluator, int batchSize, int keepAliveSeconds,
+            String scrollId, String startAfterId) {
+        return repository.scroll(evaluator, batchSize, keepAliveSeconds, scrollId, startAfterId);
+    }
+
     @Override
     public ScrollResult<String> scroll(String scrollId) {
         return repository.scroll(scrollId);
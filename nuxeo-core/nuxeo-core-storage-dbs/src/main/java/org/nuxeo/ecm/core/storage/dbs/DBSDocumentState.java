@@ -71,7 +71,20 @@ public class DBSDocumentState {
      * Constructs a document state from the copy of an existing base state.
      */
     public DBSDocumentState(State base) {
-        state = StateHelper.deepCopy(base);
+        this(base, false);
+    }
+
+    /**
+     * Constructs a document state from the copy of an existing base state.
+     * <p>
+     * A copy-on-write copy is much cheaper than a deep copy for large documents, but can only be used if the base state
+     * is never modified afterwards, which is the case for a state read from the repository.
+     *
+     * @param copyOnWrite {@code true} for a copy-on-write copy, {@code false} for a deep copy
+     * @since 10.3
+     */
+    public DBSDocumentState(State base, boolean copyOnWrite) {
+        state = copyOnWrite ? StateHelper.copyOnWrite(base) : StateHelper.deepCopy(base);
         originalState = null;
     }
 
@@ -80,6 +93,7 @@ public class DBSDocumentState {
      */
     public void markDirty() {
         if (originalState == null) {
+            // values still shared with the base state are not copied
             originalState = StateHelper.deepCopy(state);
         }
     }
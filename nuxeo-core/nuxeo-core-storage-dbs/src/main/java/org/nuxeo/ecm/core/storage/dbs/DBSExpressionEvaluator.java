@@ -281,6 +281,18 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
     // which reference index is being visited, reset / updated during each pass
     protected int refCount;
 
+    // number of references visited by the SELECT projection and ORDER BY, which are walked first
+    protected int projectionRefCount;
+
+    /** Primary types matching ecm:mixinType = or IN, for each list of mixins. */
+    protected final Map<List<String>, Set<String>> includedPrimaryTypes = new HashMap<>();
+
+    /** Primary types matching ecm:mixinType <> or NOT IN, for each list of mixins. */
+    protected final Map<List<String>, Set<String>> excludedPrimaryTypes = new HashMap<>();
+
+    /** Instance mixins matching, for each list of mixins. */
+    protected final Map<List<String>, Set<String>> perInstanceMixinTypes = new HashMap<>();
+
     public DBSExpressionEvaluator(DBSSession session, SQLQuery query, String[] principals,
             boolean fulltextSearchDisabled) {
         super(new DBSPathResolver(session), principals, fulltextSearchDisabled);
@@ -343,6 +355,11 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
         walkAll();
         parsing = false;
 
+        if (!hasFulltext && hasFulltextScore()) {
+            // check now as the projection is only computed for matching states
+            throw new QueryParseException(NXQL.ECM_FULLTEXT_SCORE + " cannot be used without " + NXQL.ECM_FULLTEXT);
+        }
+
         // we use all iterators in reversed ordered to increment them lexicographically from the end
         Collections.reverse(allIterInfos);
     }
@@ -398,17 +415,67 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
      * Does one walk of the expression, using the wildcardIndexes currently defined.
      */
     protected Map<String, Serializable> walkAll() {
-        refCount = 0;
-        Map<String, Serializable> projection = walkSelectClauseAndOrderBy(selectClause, orderByClause);
+        if (parsing) {
+            // references are parsed in the order: projection, then expression
+            Map<String, Serializable> projection = walkSelectClauseAndOrderBy(selectClause, orderByClause);
+            projectionRefCount = referenceValueInfos.size();
+            walkExpression(expression);
+            return projection;
+        }
+        // evaluate the expression first, to compute the projection only for matching states
+        refCount = projectionRefCount;
         Object res = walkExpression(expression);
         if (TRUE.equals(res)) {
             // returns one match
-            return projection;
+            refCount = 0;
+            return walkSelectClauseAndOrderBy(selectClause, orderByClause);
         } else {
             return null;
         }
     }
 
+    protected boolean hasFulltextScore() {
+        if (selectClause.getSelectList().values().stream().anyMatch(
+                operand -> operand instanceof Reference && NXQL.ECM_FULLTEXT_SCORE.equals(((Reference) operand).name))) {
+            return true;
+        }
+        return orderByClause != null && orderByClause.elements.stream().anyMatch(
+                obe -> NXQL.ECM_FULLTEXT_SCORE.equals(obe.reference.name));
+    }
+
+    /**
+     * Gets the toplevel keys of a state needed to evaluate the query and compute its projection, so that the
+     * repository can avoid reading the other ones.
+     * <p>
+     * Must be called after {@link #parse}.
+     *
+     * @since 10.3
+     */
+    public Set<String> getProjectionKeys() {
+        Set<String> keys = new HashSet<>();
+        keys.add(KEY_ID);
+        // ecm:path projection
+        keys.add(KEY_NAME);
+        keys.add(KEY_PARENT_ID);
+        // ecm:mixinType evaluation
+        keys.add(KEY_PRIMARY_TYPE);
+        keys.add(KEY_MIXIN_TYPES);
+        if (principals != null) {
+            keys.add(KEY_READ_ACL);
+        }
+        for (ValueInfo valueInfo : toplevelValueInfos) {
+            if (!valueInfo.steps.isEmpty()) {
+                keys.add((String) valueInfo.steps.get(0));
+            }
+        }
+        for (IterInfo iterInfo : toplevelIterInfos) {
+            if (!iterInfo.steps.isEmpty()) {
+                keys.add((String) iterInfo.steps.get(0));
+            }
+        }
+        return keys;
+    }
+
     /**
      * Walks the select clause and order by clause, and returns the projection.
      */
@@ -830,9 +897,39 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
         if (parsing) {
             return null;
         }
+        // the matching types only depend on the mixins, compute them once
+        Set<String> matchPrimaryTypes = (include ? includedPrimaryTypes : excludedPrimaryTypes).computeIfAbsent(mixins,
+                k -> getMatchPrimaryTypes(k, include));
+        Set<String> matchMixinTypes = perInstanceMixinTypes.computeIfAbsent(mixins, this::getMatchMixinTypes);
         /*
-         * Primary types that match.
+         * Evaluation.
          */
+        String primaryType = (String) state.get(KEY_PRIMARY_TYPE);
+        Object[] mixinTypes = (Object[]) state.get(KEY_MIXIN_TYPES);
+        boolean hasMixinType = false;
+        if (mixinTypes != null) {
+            for (Object mixinType : mixinTypes) {
+                if (matchMixinTypes.contains(mixinType)) {
+                    hasMixinType = true;
+                    break;
+                }
+            }
+        }
+        if (include) {
+            // primary types, then mixin types
+            return Boolean.valueOf(matchPrimaryTypes.contains(primaryType) || hasMixinType);
+        } else {
+            // primary types, then mixin types
+            return Boolean.valueOf(matchPrimaryTypes.contains(primaryType) && !hasMixinType);
+        }
+    }
+
+    /**
+     * Primary types that match.
+     *
+     * @since 10.3
+     */
+    protected Set<String> getMatchPrimaryTypes(List<String> mixins, boolean include) {
         Set<String> matchPrimaryTypes;
         if (include) {
             matchPrimaryTypes = new HashSet<>();
@@ -845,38 +942,22 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
                 matchPrimaryTypes.removeAll(getMixinDocumentTypes(mixin));
             }
         }
-        /*
-         * Instance mixins that match.
-         */
+        return matchPrimaryTypes;
+    }
+
+    /**
+     * Instance mixins that match.
+     *
+     * @since 10.3
+     */
+    protected Set<String> getMatchMixinTypes(List<String> mixins) {
         Set<String> matchMixinTypes = new HashSet<>();
         for (String mixin : mixins) {
             if (!isNeverPerInstanceMixin(mixin)) {
                 matchMixinTypes.add(mixin);
             }
         }
-        /*
-         * Evaluation.
-         */
-        String primaryType = (String) state.get(KEY_PRIMARY_TYPE);
-        Object[] mixinTypesArray = (Object[]) state.get(KEY_MIXIN_TYPES);
-        List<Object> mixinTypes = mixinTypesArray == null ? Collections.emptyList() : Arrays.asList(mixinTypesArray);
-        if (include) {
-            // primary types
-            if (matchPrimaryTypes.contains(primaryType)) {
-                return TRUE;
-            }
-            // mixin types
-            matchMixinTypes.retainAll(mixinTypes); // intersection
-            return Boolean.valueOf(!matchMixinTypes.isEmpty());
-        } else {
-            // primary types
-            if (!matchPrimaryTypes.contains(primaryType)) {
-                return FALSE;
-            }
-            // mixin types
-            matchMixinTypes.retainAll(mixinTypes); // intersection
-            return Boolean.valueOf(matchMixinTypes.isEmpty());
-        }
+        return matchMixinTypes;
     }
 
     @Override
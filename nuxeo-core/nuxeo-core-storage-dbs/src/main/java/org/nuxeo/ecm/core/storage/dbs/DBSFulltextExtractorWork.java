@@ -19,6 +19,8 @@
  */
 package org.nuxeo.ecm.core.storage.dbs;
 
+import java.util.List;
+
 import org.nuxeo.ecm.core.repository.RepositoryService;
 import org.nuxeo.ecm.core.storage.DefaultFulltextParser;
 import org.nuxeo.ecm.core.storage.FulltextExtractorWork;
@@ -40,6 +42,18 @@ public class DBSFulltextExtractorWork extends FulltextExtractorWork {
         super(repositoryName, docId, true);
     }
 
+    /**
+     * @since 10.3
+     */
+    public DBSFulltextExtractorWork(String repositoryName, List<String> docIds) {
+        super(repositoryName, docIds, true);
+    }
+
+    @Override
+    protected FulltextExtractorWork newWork(List<String> ids) {
+        return new DBSFulltextExtractorWork(repositoryName, ids);
+    }
+
     @Override
     public void initFulltextConfigurationAndParser() {
         RepositoryService repositoryService = Framework.getService(RepositoryService.class);
@@ -22,16 +22,22 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import org.nuxeo.runtime.pubsub.BinaryMessageCodec;
 import org.nuxeo.runtime.pubsub.SerializableAccumulableInvalidations;
 
 /**
  * A set of invalidations for a given repository.
  * <p>
  * Records both modified and deleted fragments, as well as "parents modified" fragments.
+ * <p>
+ * Also records the child keys (parent id and name) under which documents were created, moved or renamed, so that
+ * caches of children lookups, including missing children, can be invalidated.
  *
  * @since 8.10
  */
@@ -53,6 +59,13 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
     /** null when empty */
     public Set<String> ids;
 
+    /**
+     * Child keys, see {@link #childKey}. null when empty.
+     *
+     * @since 10.3
+     */
+    public Set<String> childKeys;
+
     public DBSInvalidations() {
     }
 
@@ -62,25 +75,38 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
 
     @Override
     public boolean isEmpty() {
-        return ids == null && !all;
+        return ids == null && childKeys == null && !all;
     }
 
     public void clear() {
         all = false;
         ids = null;
+        childKeys = null;
     }
 
     protected void setAll() {
         all = true;
         ids = null;
+        childKeys = null;
     }
 
     protected void checkMaxSize() {
-        if (ids != null && ids.size() > MAX_SIZE) {
+        int size = (ids == null ? 0 : ids.size()) + (childKeys == null ? 0 : childKeys.size());
+        if (size > MAX_SIZE) {
             setAll();
         }
     }
 
+    /**
+     * Gets the key identifying the child of a parent with a given name.
+     *
+     * @since 10.3
+     */
+    public static String childKey(String parentId, String name) {
+        // ids never contain a slash
+        return parentId + CHILD_KEY_SEP + name;
+    }
+
     @Override
     public void add(SerializableAccumulableInvalidations o) {
         DBSInvalidations other = (DBSInvalidations) o;
@@ -100,6 +126,12 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
             }
             ids.addAll(other.ids);
         }
+        if (other.childKeys != null) {
+            if (childKeys == null) {
+                childKeys = new HashSet<>();
+            }
+            childKeys.addAll(other.childKeys);
+        }
         checkMaxSize();
     }
 
@@ -126,24 +158,66 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
         checkMaxSize();
     }
 
+    /**
+     * Adds the child key of a document created, moved or renamed.
+     *
+     * @since 10.3
+     */
+    public void addChild(String parentId, String name) {
+        if (all) {
+            return;
+        }
+        if (childKeys == null) {
+            childKeys = new HashSet<>();
+        }
+        childKeys.add(childKey(parentId, name));
+        checkMaxSize();
+    }
+
+    private static final char CHILD_KEY_SEP = '/';
+
     private static final String UTF_8 = "UTF-8";
 
     private static final int ALL_IDS = (byte) 'A';
 
     private static final int ID_SEP = (byte) ',';
 
+    private static final int CHILD_KEYS = (byte) 'C';
+
+    /**
+     * Serializes these invalidations: {@code A} if everything is invalidated, otherwise a binary message with the
+     * number of ids followed by the ids, then if there are child keys a {@code C} followed by their number and their
+     * parent ids and names.
+     */
     @Override
     public void serialize(OutputStream out) throws IOException {
         if (all) {
             out.write(ALL_IDS);
-        } else if (ids != null) {
-            for (String id : ids) {
-                out.write(ID_SEP);
-                out.write(id.getBytes(UTF_8));
+        } else if (ids != null || childKeys != null) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            BinaryMessageCodec.writeVarInt(body, ids == null ? 0 : ids.size());
+            if (ids != null) {
+                for (String id : ids) {
+                    BinaryMessageCodec.writeId(body, id);
+                }
+            }
+            if (childKeys != null) {
+                // readers of previous versions ignore this part
+                body.write(CHILD_KEYS);
+                BinaryMessageCodec.writeVarInt(body, childKeys.size());
+                for (String childKey : childKeys) {
+                    int i = childKey.indexOf(CHILD_KEY_SEP);
+                    BinaryMessageCodec.writeId(body, childKey.substring(0, i));
+                    BinaryMessageCodec.writeString(body, childKey.substring(i + 1));
+                }
             }
+            BinaryMessageCodec.writeMessage(out, body.toByteArray());
         }
     }
 
+    /**
+     * Deserializes invalidations written by {@link #serialize}, or in the textual format of previous versions.
+     */
     public static DBSInvalidations deserialize(InputStream in) throws IOException {
         int first = in.read();
         if (first == -1) {
@@ -153,6 +227,23 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
         DBSInvalidations invalidations = new DBSInvalidations();
         if (first == ALL_IDS) {
             invalidations.setAll();
+        } else if (first == BinaryMessageCodec.BINARY_FORMAT) {
+            InputStream body = BinaryMessageCodec.readMessage(in);
+            int n = BinaryMessageCodec.readVarInt(body);
+            List<String> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                list.add(BinaryMessageCodec.readId(body).toString());
+            }
+            if (!list.isEmpty()) {
+                invalidations.addAll(list);
+            }
+            if (body.read() == CHILD_KEYS) {
+                n = BinaryMessageCodec.readVarInt(body);
+                for (int i = 0; i < n; i++) {
+                    String parentId = BinaryMessageCodec.readId(body).toString();
+                    invalidations.addChild(parentId, BinaryMessageCodec.readString(body));
+                }
+            }
         } else if (first != ID_SEP) {
             // invalid message
             return null;
@@ -184,6 +275,10 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
             sb.append("ids=");
             sb.append(ids);
         }
+        if (childKeys != null) {
+            sb.append("childKeys=");
+            sb.append(childKeys);
+        }
         sb.append(')');
         return sb.toString();
     }
@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
 
+import org.nuxeo.ecm.core.api.ConcurrentUpdateException;
 import org.nuxeo.ecm.core.api.PartialList;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.blob.BlobManager;
@@ -35,6 +36,7 @@ import org.nuxeo.ecm.core.storage.FulltextConfiguration;
 import org.nuxeo.ecm.core.storage.State;
 import org.nuxeo.ecm.core.storage.State.StateDiff;
 import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.StateUpdate;
 
 /**
  * Interface for a {@link Repository} for Document-Based Storage.
@@ -153,6 +155,19 @@ public interface DBSRepository extends Repository, LockManager {
      */
     void updateState(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater);
 
+    /**
+     * Updates documents.
+     * <p>
+     * If a change token condition doesn't match or a document is missing, a {@link ConcurrentUpdateException} is
+     * thrown. Other updates of the list may or may not have been applied.
+     *
+     * @param updates the updates to apply
+     * @since 10.3
+     */
+    default void updateStates(List<StateUpdate> updates) {
+        updates.forEach(update -> updateState(update.id, update.diff, update.changeTokenUpdater));
+    }
+
     /**
      * Deletes a set of document.
      *
@@ -276,6 +291,20 @@ public interface DBSRepository extends Repository, LockManager {
      */
     ScrollResult<String> scroll(DBSExpressionEvaluator evaluator, int batchSize, int keepAliveSeconds);
 
+    /**
+     * Executes the given query and returns the first batch of results containing id of documents, next batch must be
+     * requested within the {@code keepAliveSeconds} delay.
+     * <p>
+     * The results are returned ordered by id, without keeping all of them in memory, so that the scroll can be resumed
+     * from the last id it returned if its cursor is lost.
+     *
+     * @param scrollId the scroll id to use, or {@code null} to generate a new one
+     * @param startAfterId the id after which to start, or {@code null} to start from the first document
+     * @since 10.3
+     */
+    ScrollResult<String> scroll(DBSExpressionEvaluator evaluator, int batchSize, int keepAliveSeconds,
+            String scrollId, String startAfterId);
+
     /**
      * Get the next batch of results containing id of documents, the {@code scrollId} is part of the previous
      * {@link ScrollResult} response.
@@ -117,6 +117,15 @@ public class DBSRepositoryDescriptor implements Cloneable {
     @XNode("cache@maxSize")
     public Long cacheMaxSize;
 
+    /**
+     * Maximum estimated size in bytes of the documents in cache. When set, used instead of the maximum number of
+     * documents for the document cache.
+     *
+     * @since 10.3
+     */
+    @XNode("cache@maxWeight")
+    public Long cacheMaxWeight;
+
     /** @since 8.10 */
     @XNode("cache@concurrencyLevel")
     public Integer cacheConcurrencyLevel;
@@ -191,6 +200,9 @@ public class DBSRepositoryDescriptor implements Cloneable {
         if (other.cacheMaxSize != null) {
             cacheMaxSize = other.cacheMaxSize;
         }
+        if (other.cacheMaxWeight != null) {
+            cacheMaxWeight = other.cacheMaxWeight;
+        }
         if (other.cacheConcurrencyLevel != null) {
             cacheConcurrencyLevel = other.cacheConcurrencyLevel;
         }
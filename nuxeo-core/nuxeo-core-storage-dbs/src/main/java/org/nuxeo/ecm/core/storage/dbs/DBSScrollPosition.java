@@ -0,0 +1,139 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import org.apache.commons.lang3.StringUtils;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.kv.KeyValueStore;
+
+/**
+ * The position of a resumable scroll: its query and the last id it returned.
+ * <p>
+ * The position is saved in a {@link KeyValueStore} after each batch, for the keep alive duration of the scroll, so that
+ * the scroll can be resumed if its cursor is lost, for instance after a node crash or when the next batch is requested
+ * from another node.
+ *
+ * @since 10.3
+ */
+public class DBSScrollPosition {
+
+    /**
+     * Whether scrolls are resumable. Resumable scrolls return the documents ordered by id.
+     */
+    public static final String RESUMABLE_PROPERTY = "nuxeo.core.scroll.resumable";
+
+    public static final String RESUMABLE_DEFAULT = "false";
+
+    public static final String KEY_VALUE_STORE_NAME = "dbsScroll";
+
+    protected static final char SEP = '\n';
+
+    protected final String query;
+
+    protected final int batchSize;
+
+    protected final int keepAliveSeconds;
+
+    protected final String lastId;
+
+    public DBSScrollPosition(String query, int batchSize, int keepAliveSeconds, String lastId) {
+        this.query = query;
+        this.batchSize = batchSize;
+        this.keepAliveSeconds = keepAliveSeconds;
+        this.lastId = lastId;
+    }
+
+    public static boolean isResumable() {
+        return Boolean.parseBoolean(Framework.getProperty(RESUMABLE_PROPERTY, RESUMABLE_DEFAULT));
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    /** The last id returned by the scroll, or {@code null} if nothing was returned yet. */
+    public String getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Returns a copy of this position moved to the given id.
+     */
+    public DBSScrollPosition withLastId(String id) {
+        return new DBSScrollPosition(query, batchSize, keepAliveSeconds, id);
+    }
+
+    /**
+     * Loads the position of a scroll.
+     *
+     * @return the position, or {@code null} if the scroll is unknown or timed out
+     */
+    public static DBSScrollPosition load(String repositoryName, String scrollId) {
+        String value = getKeyValueStore().getString(getKey(repositoryName, scrollId));
+        if (value == null) {
+            return null;
+        }
+        // the query is last as it may contain the separator
+        String[] fields = value.split(String.valueOf(SEP), 4);
+        if (fields.length != 4) {
+            return null;
+        }
+        String lastId = fields[2].isEmpty() ? null : fields[2];
+        return new DBSScrollPosition(fields[3], Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), lastId);
+    }
+
+    /**
+     * Saves the position of a scroll, until it times out.
+     */
+    public void save(String repositoryName, String scrollId) {
+        String value = String.valueOf(batchSize) + SEP + keepAliveSeconds + SEP + StringUtils.defaultString(lastId)
+                + SEP + query;
+        getKeyValueStore().put(getKey(repositoryName, scrollId), value, keepAliveSeconds);
+    }
+
+    /**
+     * Removes the position of a finished scroll.
+     */
+    public static void remove(String repositoryName, String scrollId) {
+        getKeyValueStore().put(getKey(repositoryName, scrollId), (String) null);
+    }
+
+    protected static KeyValueStore getKeyValueStore() {
+        return Framework.getService(KeyValueService.class).getKeyValueStore(KEY_VALUE_STORE_NAME);
+    }
+
+    protected static String getKey(String repositoryName, String scrollId) {
+        return repositoryName + ':' + scrollId;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + lastId + "," + query + ")";
+    }
+
+}
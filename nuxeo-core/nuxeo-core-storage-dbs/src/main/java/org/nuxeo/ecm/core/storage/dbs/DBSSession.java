@@ -22,6 +22,7 @@ import static java.lang.Boolean.TRUE;
 import static org.nuxeo.ecm.core.api.AbstractSession.DISABLED_ISLATESTVERSION_PROPERTY;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.FACETED_TAG;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.FACETED_TAG_LABEL;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.INITIAL_CHANGE_TOKEN;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACE_BEGIN;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACE_CREATOR;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACE_END;
@@ -34,6 +35,7 @@ import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACL_NAME;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACP;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_BASE_VERSION_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_CHANGE_TOKEN;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_FULLTEXT_BINARY;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_FULLTEXT_JOBID;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_FULLTEXT_SCORE;
@@ -103,8 +105,10 @@ import org.nuxeo.ecm.core.api.DocumentNotFoundException;
 import org.nuxeo.ecm.core.api.IterableQueryResult;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.PartialList;
+import org.nuxeo.ecm.core.api.ProjectionCursor;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.api.VersionModel;
+import org.nuxeo.ecm.core.api.impl.MapProjectionCursor;
 import org.nuxeo.ecm.core.api.security.ACE;
 import org.nuxeo.ecm.core.api.security.ACL;
 import org.nuxeo.ecm.core.api.security.ACP;
@@ -116,6 +120,7 @@ import org.nuxeo.ecm.core.blob.BlobManager;
 import org.nuxeo.ecm.core.model.Document;
 import org.nuxeo.ecm.core.model.LockManager;
 import org.nuxeo.ecm.core.model.Session;
+import org.nuxeo.ecm.core.query.KeysetPagination;
 import org.nuxeo.ecm.core.query.QueryFilter;
 import org.nuxeo.ecm.core.query.QueryParseException;
 import org.nuxeo.ecm.core.query.sql.NXQL;
@@ -144,6 +149,7 @@ import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
 import com.codahale.metrics.Timer;
@@ -160,6 +166,13 @@ public class DBSSession implements Session<QueryFilter> {
     protected static final Set<String> KEYS_RETENTION_ACTIVE_AND_PROXIES = new HashSet<>(
             Arrays.asList(KEY_IS_RETENTION_ACTIVE, KEY_IS_PROXY, KEY_PROXY_TARGET_ID, KEY_PROXY_IDS));
 
+    /** @since 10.3 */
+    protected static final Set<String> KEYS_RETENTION_ACTIVE_PROXIES_AND_ANCESTORS = new HashSet<>(Arrays.asList(
+            KEY_IS_RETENTION_ACTIVE, KEY_IS_PROXY, KEY_PROXY_TARGET_ID, KEY_PROXY_IDS, KEY_ANCESTOR_IDS));
+
+    /** @since 10.3 */
+    protected static final Set<String> KEYS_ANCESTORS = Collections.singleton(KEY_ANCESTOR_IDS);
+
     protected final DBSRepository repository;
 
     protected final DBSTransactionState transaction;
@@ -176,6 +189,10 @@ public class DBSSession implements Session<QueryFilter> {
 
     private final Timer queryTimer;
 
+    private final Timer scrollTimer;
+
+    private final Meter scrolledDocumentsMeter;
+
     private static final String LOG_MIN_DURATION_KEY = "org.nuxeo.dbs.query.log_min_duration_ms";
 
     private long LOG_MIN_DURATION_NS = -1 * 1000000;
@@ -191,6 +208,9 @@ public class DBSSession implements Session<QueryFilter> {
 
         saveTimer = registry.timer(MetricRegistry.name("nuxeo", "repositories", repository.getName(), "saves"));
         queryTimer = registry.timer(MetricRegistry.name("nuxeo", "repositories", repository.getName(), "queries"));
+        scrollTimer = registry.timer(MetricRegistry.name("nuxeo", "repositories", repository.getName(), "scrolls"));
+        scrolledDocumentsMeter = registry.meter(
+                MetricRegistry.name("nuxeo", "repositories", repository.getName(), "scrolls", "documents"));
         LOG_MIN_DURATION_NS = Long.parseLong(Framework.getProperty(LOG_MIN_DURATION_KEY, "-1")) * 1000000;
         isLatestVersionDisabled = Framework.isBooleanPropertyTrue(DISABLED_ISLATESTVERSION_PROPERTY);
     }
@@ -404,6 +424,11 @@ public class DBSSession implements Session<QueryFilter> {
         return new DBSDocument(null, null, this, true);
     }
 
+    @Override
+    public void prefetchDescendants(Document doc, int depth) {
+        // children are found through queries on the parent id, there is nothing to prefetch
+    }
+
     protected DBSDocument getDocument(String id) {
         DBSDocumentState docState = transaction.getStateForUpdate(id);
         return getDocument(docState);
@@ -691,7 +716,12 @@ public class DBSSession implements Session<QueryFilter> {
         }
         // do the copy
         Long pos = getNextPos(parentId);
-        String copyId = copyRecurse(sourceId, parentId, ancestorIds, name);
+        String copyId;
+        if (isLargeTree(sourceId)) {
+            copyId = copyTree(sourceId, parentId, ancestorIds, name);
+        } else {
+            copyId = copyRecurse(sourceId, parentId, ancestorIds, name);
+        }
         DBSDocumentState copyState = transaction.getStateForUpdate(copyId);
         // version copy fixup
         if (source.isVersion()) {
@@ -716,6 +746,80 @@ public class DBSSession implements Session<QueryFilter> {
         return copyId;
     }
 
+    /**
+     * Checks if a document has enough descendants for a copy or removal to be done in parallel.
+     *
+     * @since 10.3
+     */
+    protected boolean isLargeTree(String id) {
+        int threshold = DBSTreeProcessor.getThreshold();
+        if (threshold <= 0) {
+            return false;
+        }
+        long count;
+        try (Stream<State> states = transaction.getDescendants(id, Collections.emptySet(), threshold)) {
+            count = states.count();
+        }
+        return count >= threshold;
+    }
+
+    /**
+     * Copies a large tree: the root is copied and saved, then its descendants are copied by batches, in parallel.
+     * <p>
+     * The ids of all the copies are allocated before the batches are processed, so that each batch can compute the
+     * parent and ancestors of its copies independently of the others. The copies are undone if the transaction rolls
+     * back, see {@link DBSTransactionState#createStates(DBSTreeProcessor, java.util.function.Function)}.
+     *
+     * @since 10.3
+     */
+    protected String copyTree(String sourceId, String parentId, List<String> ancestorIds, String name) {
+        String copyId = copy(sourceId, parentId, ancestorIds, name);
+        State sourceState = transaction.getStateForRead(sourceId);
+        Object[] sourceAncestorIds = (Object[]) sourceState.get(KEY_ANCESTOR_IDS);
+        int sourceDepth = sourceAncestorIds == null ? 0 : sourceAncestorIds.length;
+        List<String> copyAncestorIds = new ArrayList<>(ancestorIds);
+        copyAncestorIds.add(copyId);
+
+        DBSTreeProcessor processor = new DBSTreeProcessor(sourceId);
+        Map<String, String> copyIds = new HashMap<>();
+        copyIds.put(sourceId, copyId);
+        try (Stream<State> states = transaction.getDescendants(sourceId, KEYS_ANCESTORS, 0)) {
+            states.forEach(state -> {
+                processor.add(state);
+                copyIds.put((String) state.get(KEY_ID), repository.generateNewId());
+            });
+        }
+        // write the root copy first, the descendant copies are written directly to the repository
+        transaction.save();
+        transaction.createStates(processor, batch -> {
+            List<State> copies = new ArrayList<>(batch.size());
+            for (State state : repository.readStates(batch)) {
+                // the read state may be cached, don't modify it
+                State copy = StateHelper.copyOnWrite(state);
+                Object[] ancestors = (Object[]) state.get(KEY_ANCESTOR_IDS);
+                List<Object> copyAncestors = new ArrayList<Object>(copyAncestorIds);
+                for (int i = sourceDepth + 1; i < ancestors.length; i++) {
+                    copyAncestors.add(copyIds.get(ancestors[i]));
+                }
+                copy.put(KEY_ID, copyIds.get(state.get(KEY_ID)));
+                copy.put(KEY_PARENT_ID, copyIds.get(state.get(KEY_PARENT_ID)));
+                copy.put(KEY_ANCESTOR_IDS, copyAncestors.toArray());
+                copy.put(KEY_PROXY_IDS, null); // no proxies to this new doc
+                copy.put(KEY_BASE_VERSION_ID, null);
+                copy.put(KEY_IS_CHECKED_IN, null);
+                copy.put(KEY_MAJOR_VERSION, null);
+                copy.put(KEY_MINOR_VERSION, null);
+                copy.put(KEY_CHANGE_TOKEN, INITIAL_CHANGE_TOKEN);
+                copies.add(copy);
+            }
+            return copies;
+        });
+        if (log.isDebugEnabled()) {
+            log.debug("Copied tree " + sourceId + " to " + copyId + ": " + processor.getProcessed() + " descendants");
+        }
+        return copyId;
+    }
+
     /**
      * Copy source under parent, and set its ancestors.
      */
@@ -873,8 +977,19 @@ public class DBSSession implements Session<QueryFilter> {
             }
         };
         collector.accept(rootState); // add the root node too
-        try (Stream<State> states = transaction.getDescendants(rootId, KEYS_RETENTION_ACTIVE_AND_PROXIES, 0)) {
-            states.forEach(collector);
+        DBSTreeProcessor processor;
+        if (isLargeTree(rootId)) {
+            processor = new DBSTreeProcessor(rootId);
+            collector = collector.andThen(processor::add);
+            try (Stream<State> states = transaction.getDescendants(rootId, KEYS_RETENTION_ACTIVE_PROXIES_AND_ANCESTORS,
+                    0)) {
+                states.forEach(collector);
+            }
+        } else {
+            processor = null;
+            try (Stream<State> states = transaction.getDescendants(rootId, KEYS_RETENTION_ACTIVE_AND_PROXIES, 0)) {
+                states.forEach(collector);
+            }
         }
 
         // if a subdocument is under active retention, removal fails
@@ -900,7 +1015,13 @@ public class DBSSession implements Session<QueryFilter> {
         }
 
         // remove all docs
-        transaction.removeStates(removedIds);
+        if (processor == null) {
+            transaction.removeStates(removedIds);
+        } else {
+            // descendants first, so that the root is still there if a batch fails
+            transaction.removeStates(processor);
+            transaction.removeStates(Collections.singleton(rootId));
+        }
 
         // fix proxies back-pointers on proxy targets
         for (String targetId : targetIds) {
@@ -1503,6 +1624,10 @@ public class DBSSession implements Session<QueryFilter> {
         for (SQLQuery.Transformer transformer : queryFilter.getQueryTransformers()) {
             sqlQuery = transformer.transform(queryFilter.getPrincipal(), sqlQuery);
         }
+        if (queryFilter.getKeyset() != null) {
+            // keyset pagination
+            sqlQuery = KeysetPagination.addKeyset(sqlQuery, queryFilter.getKeyset());
+        }
 
         SelectClause selectClause = sqlQuery.select;
         if (selectClause.isEmpty()) {
@@ -1737,19 +1862,92 @@ public class DBSSession implements Session<QueryFilter> {
         }
     }
 
+    @Override
+    public ProjectionCursor queryProjectionCursor(String query, String queryType, QueryFilter queryFilter,
+            boolean distinctDocuments, Object[] params) {
+        // DBS queries are fully materialized, so the cursor only avoids copying the result
+        List<String> names = null;
+        if (NXQL.NXQL.equals(queryType)) {
+            // the maps may hold more keys than the projection, restrict to the selected columns
+            SelectClause selectClause = SQLQueryParser.parse(query).select;
+            names = selectClause.isEmpty() ? Collections.singletonList(NXQL.ECM_UUID)
+                    : new ArrayList<>(selectClause.elements.keySet());
+        }
+        return new MapProjectionCursor(queryAndFetch(query, queryType, queryFilter, distinctDocuments, params), names);
+    }
+
     @Override
     public ScrollResult<String> scroll(String query, int batchSize, int keepAliveSeconds) {
+        DBSExpressionEvaluator evaluator = getScrollEvaluator(query);
+        ScrollResult<String> scroll;
+        final Timer.Context timerContext = scrollTimer.time();
+        try {
+            if (DBSScrollPosition.isResumable()) {
+                scroll = repository.scroll(evaluator, batchSize, keepAliveSeconds, null, null);
+                if (scroll.hasResults()) {
+                    saveScrollPosition(scroll.getScrollId(),
+                            new DBSScrollPosition(query, batchSize, keepAliveSeconds, null), scroll);
+                }
+            } else {
+                scroll = repository.scroll(evaluator, batchSize, keepAliveSeconds);
+            }
+        } finally {
+            timerContext.stop();
+        }
+        scrolledDocumentsMeter.mark(scroll.getResults().size());
+        return scroll;
+    }
+
+    @Override
+    public ScrollResult<String> scroll(String scrollId) {
+        DBSScrollPosition position = DBSScrollPosition.isResumable()
+                ? DBSScrollPosition.load(repository.getName(), scrollId)
+                : null;
+        ScrollResult<String> scroll;
+        final Timer.Context timerContext = scrollTimer.time();
+        try {
+            try {
+                scroll = repository.scroll(scrollId);
+            } catch (NuxeoException e) {
+                if (position == null) {
+                    throw e;
+                }
+                // the cursor is lost (node restart, other node...), start again after the last returned id
+                log.info("Resuming scroll: " + scrollId + " after id: " + position.getLastId());
+                scroll = repository.scroll(getScrollEvaluator(position.getQuery()), position.getBatchSize(),
+                        position.getKeepAliveSeconds(), scrollId, position.getLastId());
+            }
+            if (position != null) {
+                saveScrollPosition(scrollId, position, scroll);
+            }
+        } finally {
+            timerContext.stop();
+        }
+        scrolledDocumentsMeter.mark(scroll.getResults().size());
+        return scroll;
+    }
+
+    /** @since 10.3 */
+    protected DBSExpressionEvaluator getScrollEvaluator(String query) {
         SQLQuery sqlQuery = SQLQueryParser.parse(query);
         SelectClause selectClause = sqlQuery.select;
         selectClause.add(new Reference(NXQL.ECM_UUID));
         sqlQuery = new DBSQueryOptimizer().optimize(sqlQuery);
-        DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(this, sqlQuery, null, fulltextSearchDisabled);
-        return repository.scroll(evaluator, batchSize, keepAliveSeconds);
+        return new DBSExpressionEvaluator(this, sqlQuery, null, fulltextSearchDisabled);
     }
 
-    @Override
-    public ScrollResult<String> scroll(String scrollId) {
-        return repository.scroll(scrollId);
+    /**
+     * Saves the position of a resumable scroll after a batch, or removes it when the scroll is finished.
+     *
+     * @since 10.3
+     */
+    protected void saveScrollPosition(String scrollId, DBSScrollPosition position, ScrollResult<String> scroll) {
+        List<String> ids = scroll.getResults();
+        if (ids.isEmpty()) {
+            DBSScrollPosition.remove(repository.getName(), scrollId);
+        } else {
+            position.withLastId(ids.get(ids.size() - 1)).save(repository.getName(), scrollId);
+        }
     }
 
     private String countUpToAsString(long countUpTo) {
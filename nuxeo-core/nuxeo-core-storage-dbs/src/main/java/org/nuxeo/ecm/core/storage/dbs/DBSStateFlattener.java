@@ -22,23 +22,67 @@ package org.nuxeo.ecm.core.storage.dbs;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PREFIX;
 
 import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
 
 import org.nuxeo.ecm.core.storage.State;
 
 /**
  * Function to flatten and convert {@link State} into NXQL {@link Map}&lt;{@link String}, {@link Serializable}&gt;.
+ * <p>
+ * When many states are flattened for the same query, {@link #flattenRow} should be preferred: the flattened keys are
+ * computed once and shared by all the rows, and each row only holds an array of values.
  *
  * @since 8.3
  */
 public class DBSStateFlattener {
 
+    /** Marker for a {@code null} value in a row, as {@code null} is used for an absent value. */
+    protected static final Serializable NULL = new Serializable() {
+        private static final long serialVersionUID = 1L;
+    };
+
     protected final Map<String, String> keyMappings;
 
+    /**
+     * The tree of flattened keys, mirroring the structure of the flattened states.
+     *
+     * @since 10.3
+     */
+    protected final KeyPath root = new KeyPath(null);
+
+    /**
+     * The index of each flattened key in the rows.
+     *
+     * @since 10.3
+     */
+    protected final Map<String, Integer> columns = new HashMap<>();
+
+    /**
+     * The buffer in which a row is flattened, reused for each row.
+     *
+     * @since 10.3
+     */
+    protected Serializable[] buffer = new Serializable[16];
+
+    /**
+     * The number of values in the buffer.
+     *
+     * @since 10.3
+     */
+    protected int bufferSize;
+
     public DBSStateFlattener() {
         this.keyMappings = Collections.emptyMap();
     }
@@ -103,4 +147,344 @@ public class DBSStateFlattener {
         }
     }
 
+    /**
+     * Flattens a state into a row sharing its keys with the other rows flattened by this flattener.
+     * <p>
+     * The returned map behaves like a regular map, but is much more compact when many rows are flattened.
+     *
+     * @param state state
+     * @return flattened result
+     * @since 10.3
+     */
+    public Map<String, Serializable> flattenRow(State state) {
+        bufferSize = 0;
+        flattenRow(state, root);
+        Serializable[] values = Arrays.copyOf(buffer, columns.size());
+        Arrays.fill(buffer, null);
+        return new Row(columns, values, bufferSize);
+    }
+
+    protected void flattenRow(State state, KeyPath parent) {
+        for (Entry<String, Serializable> en : state.peekEntrySet()) {
+            KeyPath path = parent.getChild(en.getKey());
+            if (path == null) {
+                // present in state but not returned to caller
+                continue;
+            }
+            Serializable value = en.getValue();
+            if (value instanceof State) {
+                flattenRow((State) value, path);
+            } else if (value instanceof List) {
+                int i = 0;
+                for (Object v : (List<?>) value) {
+                    KeyPath item = path.getItem(i);
+                    if (v instanceof State) {
+                        flattenRow((State) v, item);
+                    } else {
+                        setValue(item, (Serializable) v);
+                    }
+                    i++;
+                }
+            } else if (value instanceof Object[]) {
+                int i = 0;
+                for (Object v : (Object[]) value) {
+                    setValue(path.getItem(i), (Serializable) v);
+                    i++;
+                }
+            } else {
+                setValue(path, value);
+            }
+        }
+    }
+
+    protected void setValue(KeyPath path, Serializable value) {
+        int column = path.column;
+        if (column < 0) {
+            String name = path.name;
+            column = columns.computeIfAbsent(name, k -> Integer.valueOf(columns.size())).intValue();
+            path.column = column;
+            if (column >= buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(column + 1, buffer.length * 2));
+            }
+        }
+        if (buffer[column] == null) {
+            bufferSize++;
+        }
+        buffer[column] = value == null ? NULL : value;
+    }
+
+    /**
+     * Gets the flattened name of a key, or {@code null} if it's not returned to the caller.
+     *
+     * @since 10.3
+     */
+    protected String getName(String key) {
+        String realName = keyMappings.get(key);
+        if (realName != null) {
+            return realName;
+        } else if (key.startsWith(KEY_PREFIX)) {
+            return DBSSession.convToNXQL(key);
+        } else {
+            return key;
+        }
+    }
+
+    /**
+     * A node in the tree of flattened keys, computed the first time a key is encountered at a given position.
+     *
+     * @since 10.3
+     */
+    protected class KeyPath {
+
+        /** The flattened key. */
+        protected final String name;
+
+        /** The index of the key in the rows, or -1 if not yet known. */
+        protected int column = -1;
+
+        /** The children for sub-state keys, with {@code null} values for keys not returned to the caller. */
+        protected Map<String, KeyPath> children;
+
+        /** The children for list items. */
+        protected List<KeyPath> items;
+
+        protected KeyPath(String name) {
+            this.name = name;
+        }
+
+        protected KeyPath getChild(String key) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            KeyPath child = children.get(key);
+            if (child == null && !children.containsKey(key)) {
+                String childName = getName(key);
+                if (childName != null) {
+                    child = new KeyPath(name == null ? childName : name + '/' + childName);
+                }
+                children.put(key, child);
+            }
+            return child;
+        }
+
+        protected KeyPath getItem(int i) {
+            if (items == null) {
+                items = new ArrayList<>();
+            }
+            while (items.size() <= i) {
+                items.add(new KeyPath(name + '/' + items.size()));
+            }
+            return items.get(i);
+        }
+    }
+
+    /**
+     * A flattened row, holding its values in an array indexed by the columns shared by all the rows of a flattener.
+     * <p>
+     * Keys that are not in the columns may be added, they are stored separately.
+     *
+     * @since 10.3
+     */
+    public static class Row extends AbstractMap<String, Serializable> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final transient Map<String, Integer> columns;
+
+        protected final transient Serializable[] values;
+
+        protected transient int size;
+
+        /** The values of the keys that are not in the columns. */
+        protected transient Map<String, Serializable> others;
+
+        protected Row(Map<String, Integer> columns, Serializable[] values, int size) {
+            this.columns = columns;
+            this.values = values;
+            this.size = size;
+        }
+
+        protected int getColumn(Object key) {
+            Integer column = columns.get(key);
+            return column == null || column.intValue() >= values.length ? -1 : column.intValue();
+        }
+
+        @Override
+        public int size() {
+            return size + (others == null ? 0 : others.size());
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            int column = getColumn(key);
+            if (column >= 0) {
+                return values[column] != null;
+            }
+            return others != null && others.containsKey(key);
+        }
+
+        @Override
+        public Serializable get(Object key) {
+            int column = getColumn(key);
+            if (column >= 0) {
+                Serializable value = values[column];
+                return value == NULL ? null : value;
+            }
+            return others == null ? null : others.get(key);
+        }
+
+        @Override
+        public Serializable put(String key, Serializable value) {
+            int column = getColumn(key);
+            if (column >= 0) {
+                Serializable old = values[column];
+                if (old == null) {
+                    size++;
+                }
+                values[column] = value == null ? NULL : value;
+                return old == NULL ? null : old;
+            }
+            if (others == null) {
+                others = new HashMap<>();
+            }
+            return others.put(key, value);
+        }
+
+        @Override
+        public Serializable remove(Object key) {
+            int column = getColumn(key);
+            if (column >= 0) {
+                Serializable old = values[column];
+                if (old != null) {
+                    values[column] = null;
+                    size--;
+                }
+                return old == NULL ? null : old;
+            }
+            return others == null ? null : others.remove(key);
+        }
+
+        @Override
+        public Set<Entry<String, Serializable>> entrySet() {
+            return new AbstractSet<Entry<String, Serializable>>() {
+                @Override
+                public int size() {
+                    return Row.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, Serializable>> iterator() {
+                    return new RowIterator();
+                }
+            };
+        }
+
+        /** Iterates on the keys in the columns, then on the other keys. */
+        protected class RowIterator implements Iterator<Entry<String, Serializable>> {
+
+            protected final Iterator<Entry<String, Integer>> columnsIterator = columns.entrySet().iterator();
+
+            protected final Iterator<Entry<String, Serializable>> othersIterator = others == null
+                    ? Collections.emptyIterator()
+                    : others.entrySet().iterator();
+
+            protected Entry<String, Serializable> next;
+
+            protected Entry<String, Serializable> last;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && columnsIterator.hasNext()) {
+                    Entry<String, Integer> en = columnsIterator.next();
+                    int column = en.getValue().intValue();
+                    if (column < values.length && values[column] != null) {
+                        next = new RowEntry(en.getKey(), column);
+                    }
+                }
+                if (next == null && othersIterator.hasNext()) {
+                    next = othersIterator.next();
+                }
+                return next != null;
+            }
+
+            @Override
+            public Entry<String, Serializable> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = null;
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                if (last instanceof RowEntry) {
+                    Row.this.remove(last.getKey());
+                } else {
+                    othersIterator.remove();
+                }
+                last = null;
+            }
+        }
+
+        /** An entry writing through to the row values. */
+        protected class RowEntry implements Entry<String, Serializable> {
+
+            protected final String key;
+
+            protected final int column;
+
+            protected RowEntry(String key, int column) {
+                this.key = key;
+                this.column = column;
+            }
+
+            @Override
+            public String getKey() {
+                return key;
+            }
+
+            @Override
+            public Serializable getValue() {
+                Serializable value = values[column];
+                return value == NULL ? null : value;
+            }
+
+            @Override
+            public Serializable setValue(Serializable value) {
+                Serializable old = getValue();
+                values[column] = value == null ? NULL : value;
+                return old;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (!(o instanceof Entry)) {
+                    return false;
+                }
+                Entry<?, ?> e = (Entry<?, ?>) o;
+                return key.equals(e.getKey()) && Objects.equals(getValue(), e.getValue());
+            }
+
+            @Override
+            public int hashCode() {
+                return key.hashCode() ^ Objects.hashCode(getValue());
+            }
+
+            @Override
+            public String toString() {
+                return key + "=" + getValue();
+            }
+        }
+
+        /** Serializes as a regular map, as the columns are shared. */
+        protected Object writeReplace() {
+            return new HashMap<>(this);
+        }
+    }
+
 }
@@ -64,6 +64,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
@@ -72,6 +75,7 @@ import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.BatchFinderWork;
 import org.nuxeo.ecm.core.BatchProcessorWork;
 import org.nuxeo.ecm.core.api.ConcurrentUpdateException;
+import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.PartialList;
 import org.nuxeo.ecm.core.api.SystemPrincipal;
 import org.nuxeo.ecm.core.api.model.DeltaLong;
@@ -84,6 +88,7 @@ import org.nuxeo.ecm.core.security.SecurityService;
 import org.nuxeo.ecm.core.storage.BaseDocument;
 import org.nuxeo.ecm.core.storage.DefaultFulltextParser;
 import org.nuxeo.ecm.core.storage.FulltextConfiguration;
+import org.nuxeo.ecm.core.storage.FulltextExtractorWork;
 import org.nuxeo.ecm.core.storage.FulltextParser;
 import org.nuxeo.ecm.core.storage.FulltextUpdaterWork;
 import org.nuxeo.ecm.core.storage.FulltextUpdaterWork.IndexAndText;
@@ -96,6 +101,9 @@ import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.ecm.core.work.api.WorkManager.Scheduling;
 import org.nuxeo.runtime.api.Framework;
 
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
 /**
  * Transactional state for a session.
  * <p>
@@ -126,6 +134,41 @@ public class DBSTransactionState {
 
     public static final String READ_ACL_ASYNC_THRESHOLD_DEFAULT = "500";
 
+    /**
+     * How Read ACLs of large trees are recomputed asynchronously, either {@value #READ_ACL_ASYNC_MODE_TREE} or
+     * {@value #READ_ACL_ASYNC_MODE_DOCUMENT}.
+     *
+     * @since 10.3
+     */
+    public static final String READ_ACL_ASYNC_MODE_PROPERTY = "nuxeo.core.readacl.async.mode";
+
+    /**
+     * Set-based recompute of the whole tree, see {@link DBSTreeReadAclsWork}.
+     *
+     * @since 10.3
+     */
+    public static final String READ_ACL_ASYNC_MODE_TREE = "tree";
+
+    /**
+     * Recompute of each document walking up its ancestors, see {@link FindReadAclsWork}.
+     *
+     * @since 10.3
+     */
+    public static final String READ_ACL_ASYNC_MODE_DOCUMENT = "document";
+
+    /** @since 10.3 */
+    public static final String READ_ACL_ASYNC_MODE_DEFAULT = READ_ACL_ASYNC_MODE_TREE;
+
+    /**
+     * Maximum number of documents written to the repository in a single batch on save.
+     *
+     * @since 10.3
+     */
+    public static final String SAVE_BATCH_SIZE_PROPERTY = "nuxeo.core.dbs.save.batchSize";
+
+    /** @since 10.3 */
+    public static final String SAVE_BATCH_SIZE_DEFAULT = "1000";
+
     protected final DBSRepository repository;
 
     protected final DBSSession session;
@@ -174,7 +217,8 @@ public class DBSTransactionState {
         if (transientStates.containsKey(id)) {
             throw new IllegalStateException("Already transient: " + id);
         }
-        DBSDocumentState docState = new DBSDocumentState(state); // copy
+        // states read from the repository are never modified, a copy-on-write copy is enough
+        DBSDocumentState docState = new DBSDocumentState(state, true);
         transientStates.put(id, docState);
         return docState;
     }
@@ -489,9 +533,16 @@ public class DBSTransactionState {
             }
 
             // asynchronous work to do the whole tree
-            nxql = String.format("SELECT ecm:uuid FROM Document WHERE ecm:ancestorId = '%s'", id);
-            Work work = new FindReadAclsWork(repository.getName(), nxql, null);
-            Framework.getService(WorkManager.class).schedule(work);
+            String mode = Framework.getProperty(READ_ACL_ASYNC_MODE_PROPERTY, READ_ACL_ASYNC_MODE_DEFAULT);
+            if (READ_ACL_ASYNC_MODE_DOCUMENT.equals(mode)) {
+                nxql = String.format("SELECT ecm:uuid FROM Document WHERE ecm:ancestorId = '%s'", id);
+                Work work = new FindReadAclsWork(repository.getName(), nxql, null);
+                Framework.getService(WorkManager.class).schedule(work);
+            } else {
+                // reads the committed states, so must run after commit
+                Work work = new DBSTreeReadAclsWork(repository.getName(), id, null);
+                Framework.getService(WorkManager.class).schedule(work, true);
+            }
         }
     }
 
@@ -606,33 +657,9 @@ public class DBSTransactionState {
      */
     protected String[] getReadACL(State state) {
         Set<String> racls = new HashSet<>();
-        LOOP: do {
-            @SuppressWarnings("unchecked")
-            List<Serializable> aclList = (List<Serializable>) state.get(KEY_ACP);
-            if (aclList != null) {
-                for (Serializable aclSer : aclList) {
-                    State aclMap = (State) aclSer;
-                    @SuppressWarnings("unchecked")
-                    List<Serializable> aceList = (List<Serializable>) aclMap.get(KEY_ACL);
-                    for (Serializable aceSer : aceList) {
-                        State aceMap = (State) aceSer;
-                        String username = (String) aceMap.get(KEY_ACE_USER);
-                        String permission = (String) aceMap.get(KEY_ACE_PERMISSION);
-                        Boolean granted = (Boolean) aceMap.get(KEY_ACE_GRANT);
-                        Long status = (Long) aceMap.get(KEY_ACE_STATUS);
-                        if (TRUE.equals(granted) && browsePermissions.contains(permission)
-                                && (status == null || status == 1)) {
-                            racls.add(username);
-                        }
-                        if (FALSE.equals(granted)) {
-                            if (!EVERYONE.equals(username)) {
-                                // TODO log
-                                racls.add(UNSUPPORTED_ACL);
-                            }
-                            break LOOP;
-                        }
-                    }
-                }
+        do {
+            if (addLocalReadACL(state, browsePermissions, racls)) {
+                break;
             }
             // get the parent; for a version the parent is the live document
             String parentKey = TRUE.equals(state.get(KEY_IS_VERSION)) ? KEY_VERSION_SERIES_ID : KEY_PARENT_ID;
@@ -646,6 +673,47 @@ public class DBSTransactionState {
         return racl.toArray(new String[racl.size()]);
     }
 
+    /**
+     * Adds to the Read ACL the users having browse permission granted by the ACP of a document itself.
+     *
+     * @param state the document state, holding at least its ACP
+     * @param browsePermissions the permissions implying browse
+     * @param racls the Read ACL to add to
+     * @return {@code true} if the ACP blocks inheritance from the parent
+     * @since 10.3
+     */
+    protected static boolean addLocalReadACL(State state, Set<String> browsePermissions, Set<String> racls) {
+        @SuppressWarnings("unchecked")
+        List<Serializable> aclList = (List<Serializable>) state.get(KEY_ACP);
+        if (aclList == null) {
+            return false;
+        }
+        for (Serializable aclSer : aclList) {
+            State aclMap = (State) aclSer;
+            @SuppressWarnings("unchecked")
+            List<Serializable> aceList = (List<Serializable>) aclMap.get(KEY_ACL);
+            for (Serializable aceSer : aceList) {
+                State aceMap = (State) aceSer;
+                String username = (String) aceMap.get(KEY_ACE_USER);
+                String permission = (String) aceMap.get(KEY_ACE_PERMISSION);
+                Boolean granted = (Boolean) aceMap.get(KEY_ACE_GRANT);
+                Long status = (Long) aceMap.get(KEY_ACE_STATUS);
+                if (TRUE.equals(granted) && browsePermissions.contains(permission)
+                        && (status == null || status == 1)) {
+                    racls.add(username);
+                }
+                if (FALSE.equals(granted)) {
+                    if (!EVERYONE.equals(username)) {
+                        // TODO log
+                        racls.add(UNSUPPORTED_ACL);
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     protected Stream<State> getDescendants(String id, Set<String> keys, int limit) {
         return repository.getDescendants(id, keys, limit);
     }
@@ -696,28 +764,110 @@ public class DBSTransactionState {
     public void removeStates(Set<String> ids) {
         if (undoLog != null) {
             for (String id : ids) {
-                if (undoLog.containsKey(id)) {
-                    // there's already a create or an update in the undo log
-                    State oldUndo = undoLog.get(id);
-                    if (oldUndo == null) {
-                        // create + delete -> forget
-                        undoLog.remove(id);
-                    } else {
-                        // update + delete -> original old state to re-create
-                        oldUndo.put(KEY_UNDOLOG_CREATE, TRUE);
-                    }
-                } else {
-                    // just delete -> store old state to re-create
-                    State oldState = StateHelper.deepCopy(getStateForRead(id));
-                    oldState.put(KEY_UNDOLOG_CREATE, TRUE);
-                    undoLog.put(id, oldState);
-                }
+                addUndoLogRemove(id, () -> StateHelper.deepCopy(getStateForRead(id)));
             }
         }
         for (String id : ids) {
             transientStates.remove(id);
         }
-        repository.deleteStates(ids);
+        int batchSize = getSaveBatchSize();
+        if (ids.size() <= batchSize) {
+            repository.deleteStates(ids);
+        } else {
+            for (List<String> batch : Iterables.partition(ids, batchSize)) {
+                repository.deleteStates(new HashSet<>(batch));
+            }
+        }
+    }
+
+    /**
+     * Records the removal of a document in the undo log.
+     *
+     * @param oldState supplies a copy of the state of the document before its removal
+     * @since 10.3
+     */
+    protected void addUndoLogRemove(String id, Supplier<State> oldState) {
+        if (undoLog.containsKey(id)) {
+            // there's already a create or an update in the undo log
+            State oldUndo = undoLog.get(id);
+            if (oldUndo == null) {
+                // create + delete -> forget
+                undoLog.remove(id);
+            } else {
+                // update + delete -> original old state to re-create
+                oldUndo.put(KEY_UNDOLOG_CREATE, TRUE);
+            }
+        } else {
+            // just delete -> store old state to re-create
+            State state = oldState.get();
+            state.put(KEY_UNDOLOG_CREATE, TRUE);
+            undoLog.put(id, state);
+        }
+    }
+
+    /**
+     * Removes the descendants of a document, by batches processed in parallel by the given {@link DBSTreeProcessor}.
+     * <p>
+     * Called after a {@link #save} has been done. Like for {@link #removeStates(Set)}, the removed states are kept in
+     * the undo log to be re-created if the current transaction is rolled back, including when only some of the
+     * batches succeeded.
+     *
+     * @since 10.3
+     */
+    public void removeStates(DBSTreeProcessor processor) {
+        processor.partitions.values().forEach(ids -> ids.forEach(transientStates::remove));
+        Map<String, State> removed = new ConcurrentHashMap<>();
+        try {
+            processor.process(batch -> {
+                List<State> states = undoLog == null ? Collections.emptyList() : repository.readStates(batch);
+                repository.deleteStates(new HashSet<>(batch));
+                for (State state : states) {
+                    // the read state may be cached, don't keep it
+                    removed.put((String) state.get(KEY_ID), StateHelper.deepCopy(state));
+                }
+            });
+        } finally {
+            if (undoLog != null) {
+                removed.forEach((id, state) -> addUndoLogRemove(id, () -> state));
+            }
+        }
+    }
+
+    /**
+     * Creates states for the descendants of a document, by batches processed in parallel by the given
+     * {@link DBSTreeProcessor}.
+     * <p>
+     * Called after a {@link #save} has been done, so that the created states are written after their ancestors. The
+     * creations are kept in the undo log to be deleted if the current transaction is rolled back. If a batch fails,
+     * the states already created are deleted.
+     *
+     * @param batchCreator computes the states to create for a batch of descendant ids
+     * @since 10.3
+     */
+    public void createStates(DBSTreeProcessor processor, Function<List<String>, List<State>> batchCreator) {
+        Set<String> created = ConcurrentHashMap.newKeySet();
+        try {
+            processor.process(batch -> {
+                List<State> states = batchCreator.apply(batch);
+                repository.createStates(states);
+                states.forEach(state -> created.add((String) state.get(KEY_ID)));
+            });
+        } catch (NuxeoException e) {
+            // don't leave orphan states
+            for (List<String> batch : Iterables.partition(created, getSaveBatchSize())) {
+                repository.deleteStates(new HashSet<>(batch));
+            }
+            throw e;
+        }
+        if (undoLog != null) {
+            created.forEach(id -> undoLog.put(id, null)); // marker to denote create
+        }
+    }
+
+    /** @since 10.3 */
+    protected int getSaveBatchSize() {
+        int batchSize = Integer.parseInt(Framework.getProperty(SAVE_BATCH_SIZE_PROPERTY, SAVE_BATCH_SIZE_DEFAULT));
+        return batchSize > 0 ? batchSize : Integer.MAX_VALUE;
     }
 
     public void markUserChange(String id) {
@@ -727,6 +877,8 @@ public class DBSTransactionState {
     /**
      * Writes transient state to database.
      * <p>
+     * Creates and updates are sent to the repository in batches, see {@link #SAVE_BATCH_SIZE_PROPERTY}.
+     * <p>
      * An undo log is kept in order to rollback the transaction later if needed.
      */
     public void save() {
@@ -749,9 +901,12 @@ public class DBSTransactionState {
             state.put(KEY_CHANGE_TOKEN, INITIAL_CHANGE_TOKEN);
             statesToCreate.add(state);
         }
-        if (!statesToCreate.isEmpty()) {
-            repository.createStates(statesToCreate);
+        int batchSize = getSaveBatchSize();
+        for (List<State> batch : Lists.partition(statesToCreate, batchSize)) {
+            repository.createStates(batch);
         }
+        List<StateUpdate> updates = new ArrayList<>();
+        List<DBSDocumentState> updatedDocStates = new ArrayList<>();
         for (DBSDocumentState docState : transientStates.values()) {
             String id = docState.getId();
             if (transientCreated.contains(id)) {
@@ -780,15 +935,53 @@ public class DBSTransactionState {
                 } else {
                     changeTokenUpdater = null;
                 }
-                repository.updateState(id, diff, changeTokenUpdater);
+                updates.add(new StateUpdate(id, diff, changeTokenUpdater));
+                // not dirty only once written, the diff may share values with the state
+                updatedDocStates.add(docState);
+                if (updates.size() >= batchSize) {
+                    flushUpdates(updates, updatedDocStates);
+                }
+            } else {
+                docState.setNotDirty();
             }
-            docState.setNotDirty();
         }
+        flushUpdates(updates, updatedDocStates);
         transientCreated.clear();
         userChangeIds.clear();
         scheduleWork(works);
     }
 
+    protected void flushUpdates(List<StateUpdate> updates, List<DBSDocumentState> updatedDocStates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        repository.updateStates(new ArrayList<>(updates));
+        updatedDocStates.forEach(DBSDocumentState::setNotDirty);
+        updates.clear();
+        updatedDocStates.clear();
+    }
+
+    /**
+     * An update to a document, to be written by {@link DBSRepository#updateStates}.
+     *
+     * @since 10.3
+     */
+    public static class StateUpdate {
+
+        public final String id;
+
+        public final StateDiff diff;
+
+        /** May be {@code null}. */
+        public final ChangeTokenUpdater changeTokenUpdater;
+
+        public StateUpdate(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater) {
+            this.id = id;
+            this.diff = diff;
+            this.changeTokenUpdater = changeTokenUpdater;
+        }
+    }
+
     /**
      * Logic to get the conditions to use to match and update a change token.
      * <p>
@@ -835,6 +1028,8 @@ public class DBSTransactionState {
 
     protected void applyUndoLog() {
         Set<String> deletes = new HashSet<>();
+        List<State> creates = new ArrayList<>();
+        List<StateUpdate> updates = new ArrayList<>();
         for (Entry<String, State> es : undoLog.entrySet()) {
             String id = es.getKey();
             State state = es.getValue();
@@ -843,14 +1038,14 @@ public class DBSTransactionState {
             } else {
                 boolean recreate = state.remove(KEY_UNDOLOG_CREATE) != null;
                 if (recreate) {
-                    repository.createState(state);
+                    creates.add(state);
                 } else {
                     // undo update
                     State currentState = repository.readState(id);
                     if (currentState != null) {
                         StateDiff diff = StateHelper.diff(currentState, state);
                         if (!diff.isEmpty()) {
-                            repository.updateState(id, diff, null);
+                            updates.add(new StateUpdate(id, diff, null));
                         }
                     }
                     // else we expected to read a current state but it was concurrently deleted...
@@ -858,6 +1053,13 @@ public class DBSTransactionState {
                 }
             }
         }
+        int batchSize = getSaveBatchSize();
+        for (List<State> batch : Lists.partition(creates, batchSize)) {
+            repository.createStates(batch);
+        }
+        for (List<StateUpdate> batch : Lists.partition(updates, batchSize)) {
+            repository.updateStates(batch);
+        }
         if (!deletes.isEmpty()) {
             repository.deleteStates(deletes);
         }
@@ -1206,9 +1408,17 @@ public class DBSTransactionState {
         // FulltextExtractorWork does fulltext extraction using converters
         // and then schedules a FulltextUpdaterWork to write the results
         // single-threaded
-        for (String id : docWithDirtyBinaries) {
+        List<String> docIds = new ArrayList<>(docWithDirtyBinaries);
+        int batchSize = FulltextExtractorWork.getBatchSize();
+        for (int i = 0; i < docIds.size(); i += batchSize) {
+            List<String> batch = docIds.subList(i, Math.min(i + batchSize, docIds.size()));
             // don't exclude proxies
-            Work work = new DBSFulltextExtractorWork(repository.getName(), id);
+            Work work;
+            if (batch.size() == 1) {
+                work = new DBSFulltextExtractorWork(repository.getName(), batch.get(0));
+            } else {
+                work = new DBSFulltextExtractorWork(repository.getName(), batch);
+            }
             works.add(work);
         }
     }
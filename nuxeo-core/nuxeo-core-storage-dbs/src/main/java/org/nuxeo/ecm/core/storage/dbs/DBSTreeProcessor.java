@@ -0,0 +1,222 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Processes the descendants of a document by batches, in parallel.
+ * <p>
+ * This is used to copy or remove very large trees, which can't be done by a single thread in a reasonable time. The
+ * descendants are partitioned according to their ancestor just under the root, so that a batch holds documents of the
+ * same subtree whenever possible. The batches are processed by a bounded pool of threads, directly against the
+ * repository.
+ * <p>
+ * The batches are part of the calling transaction: the callers record in the {@link DBSTransactionState} undo log what
+ * is needed to undo the work of the batches if the transaction rolls back.
+ *
+ * @since 10.3
+ */
+public class DBSTreeProcessor {
+
+    private static final Log log = LogFactory.getLog(DBSTreeProcessor.class);
+
+    /**
+     * Minimum number of descendants for which a copy or a removal is done in parallel, {@code 0} to never do it.
+     */
+    public static final String THRESHOLD_PROPERTY = "nuxeo.core.tree.parallel.threshold";
+
+    public static final String THRESHOLD_DEFAULT = "0";
+
+    public static final String THREADS_PROPERTY = "nuxeo.core.tree.parallel.threads";
+
+    public static final String THREADS_DEFAULT = "4";
+
+    public static final String BATCH_SIZE_PROPERTY = "nuxeo.core.tree.parallel.batchSize";
+
+    public static final String BATCH_SIZE_DEFAULT = "1000";
+
+    protected static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    protected final String rootId;
+
+    protected final int batchSize;
+
+    protected final int threads;
+
+    /** The ids of the descendants, for each ancestor just under the root. */
+    protected final Map<String, List<String>> partitions = new LinkedHashMap<>();
+
+    protected long total;
+
+    protected final AtomicLong processed = new AtomicLong();
+
+    public DBSTreeProcessor(String rootId) {
+        this(rootId, Integer.parseInt(Framework.getProperty(BATCH_SIZE_PROPERTY, BATCH_SIZE_DEFAULT)),
+                Integer.parseInt(Framework.getProperty(THREADS_PROPERTY, THREADS_DEFAULT)));
+    }
+
+    public DBSTreeProcessor(String rootId, int batchSize, int threads) {
+        this.rootId = rootId;
+        this.batchSize = Math.max(1, batchSize);
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Gets the minimum number of descendants for which a tree operation should be done in parallel, or {@code 0} if
+     * tree operations are never done in parallel.
+     */
+    public static int getThreshold() {
+        return Integer.parseInt(Framework.getProperty(THRESHOLD_PROPERTY, THRESHOLD_DEFAULT));
+    }
+
+    /**
+     * Adds a descendant of the root.
+     *
+     * @param state the state of the descendant, holding at least its id and ancestor ids
+     */
+    public void add(State state) {
+        String id = (String) state.get(KEY_ID);
+        Object[] ancestorIds = (Object[]) state.get(KEY_ANCESTOR_IDS);
+        String partition = id;
+        if (ancestorIds != null) {
+            for (int i = 0; i < ancestorIds.length - 1; i++) {
+                if (rootId.equals(ancestorIds[i])) {
+                    partition = (String) ancestorIds[i + 1];
+                    break;
+                }
+            }
+        }
+        partitions.computeIfAbsent(partition, k -> new ArrayList<>()).add(id);
+        total++;
+    }
+
+    /** The number of descendants to process. */
+    public long getTotal() {
+        return total;
+    }
+
+    /** The number of descendants processed so far. */
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * Gets the batches to process, filled with whole partitions as much as possible.
+     */
+    protected List<List<String>> getBatches() {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>(batchSize);
+        for (List<String> ids : partitions.values()) {
+            for (String id : ids) {
+                batch.add(id);
+                if (batch.size() == batchSize) {
+                    batches.add(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Processes all the descendants by batches, in parallel.
+     * <p>
+     * If a batch fails, the batches not yet started are skipped and an exception is thrown once the running ones are
+     * done.
+     *
+     * @param batchProcessor the processor of a batch of descendant ids
+     */
+    public void process(Consumer<List<String>> batchProcessor) {
+        List<List<String>> batches = getBatches();
+        if (batches.isEmpty()) {
+            return;
+        }
+        int nbThreads = Math.min(threads, batches.size());
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads, runnable -> {
+            Thread thread = new Thread(runnable, "Nuxeo-DBS-Tree-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> futures = new ArrayList<>(batches.size());
+        AtomicInteger failures = new AtomicInteger();
+        try {
+            for (List<String> batch : batches) {
+                futures.add(executor.submit(() -> {
+                    if (failures.get() > 0) {
+                        // don't start new batches after a failure
+                        return;
+                    }
+                    try {
+                        batchProcessor.accept(batch);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                        throw e;
+                    }
+                    long done = processed.addAndGet(batch.size());
+                    if (log.isDebugEnabled()) {
+                        log.debug("Tree " + rootId + ": processed " + done + "/" + total);
+                    }
+                }));
+            }
+            NuxeoException exception = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (exception == null) {
+                        exception = new NuxeoException("Failed to process tree " + rootId + ", processed "
+                                + processed.get() + "/" + total, e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new NuxeoException(e);
+                }
+            }
+            if (exception != null) {
+                throw exception;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
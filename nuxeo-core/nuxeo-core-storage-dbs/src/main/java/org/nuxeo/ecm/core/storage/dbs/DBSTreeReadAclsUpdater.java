@@ -0,0 +1,274 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static java.lang.Boolean.TRUE;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACP;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_IS_VERSION;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_READ_ACL;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_VERSION_SERIES_ID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.StateUpdate;
+
+/**
+ * Recomputes the Read ACLs of all the descendants of a document in a set-based way.
+ * <p>
+ * Instead of walking up the ancestors of each document, the Read ACL of a document is computed from its own ACP and
+ * the Read ACL of its parent, level by level from the root of the tree. The Read ACL of each ancestor is computed only
+ * once and kept in a cache, and ancestors missing from the cache are read in bulk. Descendants are streamed from the
+ * repository in batches and the changed Read ACLs are written with a bulk update, bypassing the transient space.
+ *
+ * @since 10.3
+ */
+public class DBSTreeReadAclsUpdater {
+
+    /** Keys read from the descendants. */
+    protected static final Set<String> KEYS = new HashSet<>(
+            Arrays.asList(KEY_PARENT_ID, KEY_ANCESTOR_IDS, KEY_ACP, KEY_READ_ACL));
+
+    protected final DBSRepository repository;
+
+    protected final Set<String> browsePermissions;
+
+    protected final String rootId;
+
+    /** The Read ACL of each ancestor already computed. */
+    protected final Map<String, String[]> ancestorReadAcls = new HashMap<>();
+
+    /** Canonical Read ACLs, as most documents share a few distinct values. */
+    protected final Map<List<String>, String[]> canonicalReadAcls = new HashMap<>();
+
+    protected long processed;
+
+    protected long updated;
+
+    public DBSTreeReadAclsUpdater(DBSRepository repository, Set<String> browsePermissions, String rootId) {
+        this.repository = repository;
+        this.browsePermissions = browsePermissions;
+        this.rootId = rootId;
+    }
+
+    /** The number of descendants processed so far. */
+    public long getProcessed() {
+        return processed;
+    }
+
+    /** The number of descendants whose Read ACL was changed so far. */
+    public long getUpdated() {
+        return updated;
+    }
+
+    /** The number of ancestors whose Read ACL is cached. */
+    public int getCachedAncestors() {
+        return ancestorReadAcls.size();
+    }
+
+    /**
+     * Counts the descendants of the root.
+     */
+    public long countDescendants() {
+        try (Stream<State> states = repository.getDescendants(rootId, Collections.emptySet())) {
+            return states.count();
+        }
+    }
+
+    /**
+     * Updates the Read ACLs of the descendants of the root.
+     *
+     * @param batchSize the number of documents to update at a time
+     * @param afterBatch called after each batch is written
+     * @return {@code false} if the root doesn't exist anymore
+     */
+    public boolean update(int batchSize, Runnable afterBatch) {
+        State root = repository.readPartialState(rootId, DBSTransactionState.READ_ACL_RECURSION_KEYS);
+        if (root == null) {
+            return false;
+        }
+        ancestorReadAcls.put(rootId, getRootReadACL(root));
+        List<State> batch = new ArrayList<>(batchSize);
+        try (Stream<State> states = repository.getDescendants(rootId, KEYS)) {
+            Iterator<State> it = states.iterator();
+            while (it.hasNext()) {
+                batch.add(it.next());
+                if (batch.size() >= batchSize || !it.hasNext()) {
+                    processBatch(batch);
+                    batch.clear();
+                    afterBatch.run();
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the Read ACL of the root of the tree from its own ACP and the Read ACL stored on its parent.
+     */
+    protected String[] getRootReadACL(State root) {
+        Set<String> racls = new HashSet<>();
+        if (!DBSTransactionState.addLocalReadACL(root, browsePermissions, racls)) {
+            // for a version the parent is the live document
+            String parentKey = TRUE.equals(root.get(KEY_IS_VERSION)) ? KEY_VERSION_SERIES_ID : KEY_PARENT_ID;
+            String parentId = (String) root.get(parentKey);
+            if (parentId != null) {
+                State parent = repository.readPartialState(parentId, Collections.singleton(KEY_READ_ACL));
+                Object[] parentRacl = parent == null ? null : (Object[]) parent.get(KEY_READ_ACL);
+                if (parentRacl != null) {
+                    for (Object user : parentRacl) {
+                        racls.add((String) user);
+                    }
+                }
+            }
+        }
+        return canonical(racls);
+    }
+
+    protected void processBatch(List<State> batch) {
+        // the documents of the batch may be the ancestors of other ones
+        Map<String, State> states = new HashMap<>();
+        for (State state : batch) {
+            states.put((String) state.get(KEY_ID), state);
+        }
+        // read in bulk the ancestors not yet known
+        Set<String> missing = new LinkedHashSet<>();
+        for (State state : batch) {
+            List<String> ancestorIds = getAncestorsBelowRoot(state);
+            if (ancestorIds == null) {
+                continue;
+            }
+            for (String ancestorId : ancestorIds) {
+                if (!ancestorReadAcls.containsKey(ancestorId) && !states.containsKey(ancestorId)) {
+                    missing.add(ancestorId);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (State state : repository.readStates(new ArrayList<>(missing))) {
+                if (state != null) {
+                    states.put((String) state.get(KEY_ID), state);
+                }
+            }
+        }
+        // compute the Read ACLs top-down
+        List<StateUpdate> updates = new ArrayList<>();
+        for (State state : batch) {
+            String id = (String) state.get(KEY_ID);
+            List<String> ancestorIds = getAncestorsBelowRoot(state);
+            if (ancestorIds == null) {
+                // moved out of the tree meanwhile
+                continue;
+            }
+            String[] parentRacl = ancestorReadAcls.get(rootId);
+            for (String ancestorId : ancestorIds) {
+                parentRacl = getAncestorReadACL(ancestorId, states.get(ancestorId), parentRacl);
+            }
+            String[] racl = ancestorReadAcls.get(id);
+            if (racl == null) {
+                racl = getReadACL(state, parentRacl);
+            }
+            if (!Arrays.equals((Object[]) state.get(KEY_READ_ACL), racl)) {
+                StateDiff diff = new StateDiff();
+                diff.put(KEY_READ_ACL, racl);
+                updates.add(new StateUpdate(id, diff, null));
+            }
+        }
+        if (!updates.isEmpty()) {
+            // no transient for state write, we write directly and just invalidate caches
+            repository.updateStates(updates);
+        }
+        processed += batch.size();
+        updated += updates.size();
+    }
+
+    /**
+     * Gets the ancestors of a document strictly below the root of the tree, from the top down.
+     *
+     * @return the ancestor ids, or {@code null} if the document is not in the tree anymore
+     */
+    protected List<String> getAncestorsBelowRoot(State state) {
+        Object[] ancestorIds = (Object[]) state.get(KEY_ANCESTOR_IDS);
+        if (ancestorIds == null) {
+            return null;
+        }
+        for (int i = 0; i < ancestorIds.length; i++) {
+            if (rootId.equals(ancestorIds[i])) {
+                List<String> list = new ArrayList<>(ancestorIds.length - i - 1);
+                for (int j = i + 1; j < ancestorIds.length; j++) {
+                    list.add((String) ancestorIds[j]);
+                }
+                return list;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the Read ACL of an ancestor, computing and caching it if needed.
+     */
+    protected String[] getAncestorReadACL(String id, State state, String[] parentRacl) {
+        String[] racl = ancestorReadAcls.get(id);
+        if (racl == null) {
+            // a missing ancestor was deleted meanwhile, inherit
+            racl = state == null ? parentRacl : getReadACL(state, parentRacl);
+            ancestorReadAcls.put(id, racl);
+        }
+        return racl;
+    }
+
+    /**
+     * Computes the Read ACL of a document from its ACP and the Read ACL of its parent.
+     */
+    protected String[] getReadACL(State state, String[] parentRacl) {
+        if (state.get(KEY_ACP) == null) {
+            // most frequent case, pure inheritance
+            return parentRacl;
+        }
+        Set<String> racls = new HashSet<>();
+        if (!DBSTransactionState.addLocalReadACL(state, browsePermissions, racls)) {
+            racls.addAll(Arrays.asList(parentRacl));
+        }
+        return canonical(racls);
+    }
+
+    /**
+     * Sorts a Read ACL to have a canonical order, and shares identical values.
+     */
+    protected String[] canonical(Set<String> racls) {
+        List<String> racl = new ArrayList<>(racls);
+        Collections.sort(racl);
+        return canonicalReadAcls.computeIfAbsent(racl, k -> k.toArray(new String[k.size()]));
+    }
+
+}
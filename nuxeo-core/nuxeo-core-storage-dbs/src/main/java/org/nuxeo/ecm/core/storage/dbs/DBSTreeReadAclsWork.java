@@ -0,0 +1,126 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.nuxeo.ecm.core.api.security.SecurityConstants.BROWSE;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.repository.RepositoryService;
+import org.nuxeo.ecm.core.security.SecurityService;
+import org.nuxeo.ecm.core.work.AbstractWork;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Work recomputing the Read ACLs of all the descendants of a document in bulk, using a {@link DBSTreeReadAclsUpdater}.
+ * <p>
+ * Progress is reported as the number of processed documents out of the total number of descendants; the number of
+ * documents actually updated is also available.
+ *
+ * @since 10.3
+ */
+public class DBSTreeReadAclsWork extends AbstractWork {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Log log = LogFactory.getLog(DBSTreeReadAclsWork.class);
+
+    public static final String BATCH_SIZE_PROPERTY = "nuxeo.core.readacl.async.batchSize";
+
+    public static final String BATCH_SIZE_DEFAULT = "500";
+
+    protected long total;
+
+    protected long processed;
+
+    protected long updated;
+
+    public DBSTreeReadAclsWork(String repositoryName, String rootId, String originatingUsername) {
+        setDocument(repositoryName, rootId, true);
+        setOriginatingUsername(originatingUsername);
+    }
+
+    @Override
+    public String getTitle() {
+        return "Update Read ACLs of tree";
+    }
+
+    @Override
+    public String getCategory() {
+        return "security";
+    }
+
+    @Override
+    public int getRetryCount() {
+        // the recompute is idempotent
+        return 1;
+    }
+
+    /** The total number of descendants to process. */
+    public long getTotal() {
+        return total;
+    }
+
+    /** The number of descendants processed so far. */
+    public long getProcessed() {
+        return processed;
+    }
+
+    /** The number of descendants whose Read ACL was changed so far. */
+    public long getUpdated() {
+        return updated;
+    }
+
+    @Override
+    public void work() {
+        // the session takes care of sending invalidations to other cluster nodes on commit
+        openSystemSession();
+        DBSRepository repository = (DBSRepository) Framework.getService(RepositoryService.class)
+                                                           .getRepository(repositoryName);
+        SecurityService securityService = Framework.getService(SecurityService.class);
+        Set<String> browsePermissions = new HashSet<>(
+                Arrays.asList(securityService.getPermissionsToCheck(BROWSE)));
+        DBSTreeReadAclsUpdater updater = new DBSTreeReadAclsUpdater(repository, browsePermissions, docId);
+
+        setStatus("Counting");
+        total = updater.countDescendants();
+        setProgress(new Progress(0, total));
+        setStatus("Updating");
+        int batchSize = Integer.parseInt(Framework.getProperty(BATCH_SIZE_PROPERTY, BATCH_SIZE_DEFAULT));
+        updater.update(batchSize, () -> {
+            processed = updater.getProcessed();
+            updated = updater.getUpdated();
+            setProgress(new Progress(processed, Math.max(processed, total)));
+            // next batch
+            TransactionHelper.commitOrRollbackTransaction();
+            TransactionHelper.startTransaction();
+        });
+        if (log.isDebugEnabled()) {
+            log.debug(getTitle() + ": " + docId + ": processed " + processed + " documents, updated " + updated
+                    + ", cached " + updater.getCachedAncestors() + " ancestors");
+        }
+        setStatus("Done");
+    }
+
+}
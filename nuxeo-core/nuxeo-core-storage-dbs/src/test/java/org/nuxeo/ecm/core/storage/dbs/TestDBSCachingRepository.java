@@ -19,6 +19,8 @@
 package org.nuxeo.ecm.core.storage.dbs;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
@@ -37,6 +39,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.StringUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -170,6 +173,82 @@ public class TestDBSCachingRepository {
         assertEquals(dbState, cachedState);
     }
 
+    @Test
+    public void testReadChildStateAfterMove() {
+        String parentId = "PARENT-ID";
+        String name = "NAME";
+        String id = parentId + "_" + name;
+        repository.readChildState(parentId, name, Collections.emptySet());
+        verify(subRepository, times(1)).readChildState(eq(parentId), eq(name), any());
+
+        // move the document, the child cache entry is invalidated
+        StateDiff diff = new StateDiff();
+        diff.put(KEY_PARENT_ID, "OTHER-ID");
+        repository.updateState(id, diff, null);
+        repository.readChildState(parentId, name, Collections.emptySet());
+        verify(subRepository, times(2)).readChildState(eq(parentId), eq(name), any());
+    }
+
+    @Test
+    public void testHasChildMissing() {
+        String parentId = "PARENT-ID";
+        String name = "NAME";
+        when(subRepository.hasChild(any(), any(), any())).thenReturn(Boolean.FALSE);
+
+        // first call - call sub repository
+        assertFalse(repository.hasChild(parentId, name, Collections.emptySet()));
+        verify(subRepository, times(1)).hasChild(eq(parentId), eq(name), any());
+
+        // second call - call cache
+        assertFalse(repository.hasChild(parentId, name, Collections.emptySet()));
+        verify(subRepository, times(1)).hasChild(eq(parentId), eq(name), any());
+
+        // ignored ids - call sub repository
+        assertFalse(repository.hasChild(parentId, name, Collections.singleton("ID")));
+        verify(subRepository, times(2)).hasChild(eq(parentId), eq(name), any());
+
+        // create the child, the missing child cache entry is invalidated
+        State state = newState("ID");
+        state.put(KEY_PARENT_ID, parentId);
+        state.put(KEY_NAME, name);
+        repository.createState(state);
+        when(subRepository.hasChild(any(), any(), any())).thenReturn(Boolean.TRUE);
+        assertTrue(repository.hasChild(parentId, name, Collections.emptySet()));
+        verify(subRepository, times(3)).hasChild(eq(parentId), eq(name), any());
+    }
+
+    @Test
+    public void testWeightedCache() {
+        DBSRepositoryDescriptor descriptor = newDBSRepositoryDescriptor();
+        descriptor.cacheMaxWeight = 10000L;
+        // concurrency level 1 so that the whole weight is available to a single segment
+        descriptor.cacheConcurrencyLevel = 1;
+        DBSRepository weightedSubRepository = mock(DBSRepository.class);
+        when(weightedSubRepository.getName()).thenReturn("weighted");
+        when(weightedSubRepository.readState(any())).then(invocation -> {
+            String id = invocation.getArguments()[0].toString();
+            State state = newState(id);
+            if (id.equals("BIG")) {
+                state.put("content", StringUtils.repeat('x', 10000));
+            }
+            return state;
+        });
+        DBSCachingRepository weightedRepository = new DBSCachingRepository(weightedSubRepository, descriptor);
+        try {
+            // a small state is cached
+            weightedRepository.readState("ID");
+            weightedRepository.readState("ID");
+            verify(weightedSubRepository, times(1)).readState(eq("ID"));
+
+            // a state bigger than the cache is not kept
+            weightedRepository.readState("BIG");
+            weightedRepository.readState("BIG");
+            verify(weightedSubRepository, times(2)).readState(eq("BIG"));
+        } finally {
+            weightedRepository.shutdown();
+        }
+    }
+
     private State newState(String id) {
         State state = new State();
         state.setSingle(KEY_ID, id);
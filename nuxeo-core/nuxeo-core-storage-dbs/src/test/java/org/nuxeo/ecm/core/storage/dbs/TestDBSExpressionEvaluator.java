@@ -20,11 +20,17 @@ package org.nuxeo.ecm.core.storage.dbs;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -139,4 +145,48 @@ public class TestDBSExpressionEvaluator {
                 projections);
     }
 
+    @Test
+    public void testProjectionKeys() throws Exception {
+        SQLQuery query = SQLQueryParser.parse("SELECT ecm:uuid, cmp:addresses/*1/street FROM D WHERE " //
+                + "cmp:addresses/*1/city = 'Paris' AND cmp:friends/*/name = 'bob' ORDER BY ecm:currentLifeCycleState");
+        DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(null, query, new String[] { "bob" }, false);
+        evaluator.parse();
+        assertEquals(new HashSet<>(Arrays.asList("ecm:id", "ecm:name", "ecm:parentId", "ecm:primaryType",
+                "ecm:mixinTypes", "ecm:racl", "cmp:addresses", "cmp:friends", "ecm:lifeCycleState")),
+                evaluator.getProjectionKeys());
+    }
+
+    @Test
+    public void testNoMatch() throws Exception {
+        SQLQuery query = SQLQueryParser.parse("SELECT ecm:uuid, ecm:name FROM D WHERE ecm:name = 'foo'");
+        DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(null, query, null, false);
+        evaluator.parse();
+        assertEquals(Collections.emptyList(), evaluator.matches(state("ecm:id", "id1", "ecm:name", "bar")));
+        assertEquals(list(map("ecm:uuid", "id2", "ecm:name", "foo")),
+                evaluator.matches(state("ecm:id", "id2", "ecm:name", "foo")));
+    }
+
+    @Test
+    public void testReuseAcrossStates() throws Exception {
+        SQLQuery query = SQLQueryParser.parse("SELECT ecm:uuid FROM D WHERE " //
+                + "ecm:name IN ('foo', 'bar', 'baz') AND ecm:name NOT LIKE 'ba_' AND ecm:path STARTSWITH '/folder'");
+        DBSSession session = mock(DBSSession.class);
+        when(session.getDocumentIdByPath("/folder")).thenReturn("folder-id");
+        DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(session, query, null, false);
+        evaluator.parse();
+        Object[] ancestors = new Object[] { "root-id", "folder-id" };
+        assertEquals(list(map("ecm:uuid", "id1")),
+                evaluator.matches(state("ecm:id", "id1", "ecm:name", "foo", "ecm:ancestorIds", ancestors)));
+        assertEquals(Collections.emptyList(),
+                evaluator.matches(state("ecm:id", "id2", "ecm:name", "bar", "ecm:ancestorIds", ancestors)));
+        assertEquals(Collections.emptyList(),
+                evaluator.matches(state("ecm:id", "id3", "ecm:name", "gee", "ecm:ancestorIds", ancestors)));
+        assertEquals(Collections.emptyList(), evaluator.matches(
+                state("ecm:id", "id4", "ecm:name", "foo", "ecm:ancestorIds", new Object[] { "root-id" })));
+        assertEquals(list(map("ecm:uuid", "id5")),
+                evaluator.matches(state("ecm:id", "id5", "ecm:name", "foo", "ecm:ancestorIds", ancestors)));
+        // the path was resolved only once
+        verify(session, times(1)).getDocumentIdByPath("/folder");
+    }
+
 }
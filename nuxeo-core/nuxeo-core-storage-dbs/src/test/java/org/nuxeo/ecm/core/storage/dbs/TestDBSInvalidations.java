@@ -47,16 +47,14 @@ public class TestDBSInvalidations {
 
         invals = new DBSInvalidations();
         invals.add("foo");
-        baout.reset();
-        invals.serialize(baout);
-        ser = new String(baout.toByteArray());
-        assertEquals(",foo", ser);
-
         invals.add("bar");
+        invals.add("7a6d3b4c-12e8-4f5a-9b0c-d1e2f3a4b5c6");
         baout.reset();
         invals.serialize(baout);
-        ser = new String(baout.toByteArray());
-        assertTrue(ser, Arrays.asList(",foo,bar", ",bar,foo").contains(ser)); // non-deterministic order
+        DBSInvalidations invals2 = DBSInvalidations.deserialize(new ByteArrayInputStream(baout.toByteArray()));
+        assertEquals(invals.ids, invals2.ids);
+        // binary format, uuid written as 16 bytes
+        assertEquals(1 + 1 + 1 + 2 * 5 + 17, baout.size());
 
         invals = new DBSInvalidations();
         invals.setAll();
@@ -66,6 +64,49 @@ public class TestDBSInvalidations {
         assertEquals("A", ser);
     }
 
+    @Test
+    public void testSerializationChildKeys() throws IOException {
+        DBSInvalidations invals = new DBSInvalidations();
+        invals.add("foo");
+        invals.addChild("7a6d3b4c-12e8-4f5a-9b0c-d1e2f3a4b5c6", "some name");
+        invals.addChild("bar", "other");
+        @SuppressWarnings("resource")
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        invals.serialize(baout);
+        DBSInvalidations invals2 = DBSInvalidations.deserialize(new ByteArrayInputStream(baout.toByteArray()));
+        assertEquals(invals.ids, invals2.ids);
+        assertEquals(new HashSet<>(Arrays.asList(DBSInvalidations.childKey("7a6d3b4c-12e8-4f5a-9b0c-d1e2f3a4b5c6",
+                "some name"), DBSInvalidations.childKey("bar", "other"))), invals2.childKeys);
+
+        // only child keys
+        invals = new DBSInvalidations();
+        invals.addChild("bar", "other");
+        baout.reset();
+        invals.serialize(baout);
+        invals2 = DBSInvalidations.deserialize(new ByteArrayInputStream(baout.toByteArray()));
+        assertNull(invals2.ids);
+        assertEquals(invals.childKeys, invals2.childKeys);
+    }
+
+    @Test
+    public void testSerializationCompressed() throws IOException {
+        DBSInvalidations invals = new DBSInvalidations();
+        int legacySize = 0;
+        for (int i = 0; i < 1000; i++) {
+            String id = "doc-" + i;
+            invals.add(id);
+            legacySize += 1 + id.length();
+        }
+        @SuppressWarnings("resource")
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        invals.serialize(baout);
+        DBSInvalidations invals2 = DBSInvalidations.deserialize(new ByteArrayInputStream(baout.toByteArray()));
+        assertEquals(invals.ids, invals2.ids);
+        // compressed
+        assertEquals(1, baout.toByteArray()[1]);
+        assertTrue(String.valueOf(baout.size()), baout.size() < legacySize / 2);
+    }
+
     @Test
     public void testDeserialization() throws IOException {
         DBSInvalidations invals;
@@ -19,7 +19,9 @@
 package org.nuxeo.ecm.core.storage.dbs;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACP;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
@@ -135,4 +137,48 @@ public class TestDBSStateFlatter {
         assertEquals("white", flattened.get("colors/1/main"));
     }
 
+    @Test
+    public void testFlattenRow() {
+        State subState1 = new State();
+        subState1.put("main", "black");
+        State subState2 = new State();
+        subState2.put("main", "white");
+        State state1 = new State();
+        state1.put(KEY_ID, "ID1");
+        state1.put(KEY_ACP, "whatever");
+        state1.put("colors", new ArrayList<>(Arrays.asList(subState1, subState2)));
+        state1.put("tags", new String[] { "foo", null });
+        State state2 = new State();
+        state2.put(KEY_ID, "ID2");
+        state2.put("title", "bar");
+        DBSStateFlattener flattener = new DBSStateFlattener();
+
+        Map<String, Serializable> row1 = flattener.flattenRow(state1);
+        Map<String, Serializable> row2 = flattener.flattenRow(state2);
+        // same content as a regular flattening
+        assertEquals(new DBSStateFlattener().flatten(state1), row1);
+        assertEquals(new DBSStateFlattener().flatten(state2), row2);
+        assertEquals(5, row1.size());
+        assertTrue(row1.containsKey("tags/1"));
+        assertNull(row1.get("tags/1"));
+        assertFalse(row1.containsKey("title"));
+        assertEquals(2, row2.size());
+        assertEquals("bar", row2.get("title"));
+        assertFalse(row2.containsKey("colors/0/main"));
+
+        // rows can be changed
+        row2.put("colors/0/main", "red");
+        row2.put("other", "baz");
+        row2.remove(NXQL.ECM_UUID);
+        Map<String, Serializable> expected = new HashMap<>();
+        expected.put("title", "bar");
+        expected.put("colors/0/main", "red");
+        expected.put("other", "baz");
+        assertEquals(expected, row2);
+        assertEquals(expected, new HashMap<>(row2));
+        // without changing the others
+        assertEquals("ID1", row1.get(NXQL.ECM_UUID));
+        assertEquals("black", row1.get("colors/0/main"));
+    }
+
 }
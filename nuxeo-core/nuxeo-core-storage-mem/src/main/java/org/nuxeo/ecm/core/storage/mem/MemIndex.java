@@ -0,0 +1,262 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Secondary index of the documents of a {@link MemRepository} on one top-level key.
+ * <p>
+ * The index maps each value to the set of ids of the documents having this value. For arrays and lists, each element
+ * is indexed. A hash index can only be used for equality lookups, a sorted index can also be used for range lookups.
+ * <p>
+ * In a sorted index numbers and calendars are normalized to a {@link Double} (milliseconds for calendars), so that
+ * they can be ordered together. Lookups may therefore return more documents than actually matching, callers must check
+ * the documents found.
+ *
+ * @since 10.3
+ */
+public class MemIndex {
+
+    /** Orders booleans, then numbers, then strings. */
+    protected static final Comparator<Object> VALUE_COMPARATOR = (a, b) -> {
+        int ra = rank(a);
+        int rb = rank(b);
+        if (ra != rb) {
+            return Integer.compare(ra, rb);
+        }
+        @SuppressWarnings("unchecked")
+        Comparable<Object> ca = (Comparable<Object>) a;
+        return ca.compareTo(b);
+    };
+
+    protected final String key;
+
+    protected final boolean sorted;
+
+    /** Document ids by value. The id sets are concurrent so that they can be read while being updated. */
+    protected final Map<Object, Set<String>> map;
+
+    /** Whether booleans were indexed, as they can't be used with ranges (null may be evaluated like false). */
+    protected volatile boolean hasBooleans;
+
+    public MemIndex(String key, boolean sorted) {
+        this.key = key;
+        this.sorted = sorted;
+        map = sorted ? new ConcurrentSkipListMap<>(VALUE_COMPARATOR) : new ConcurrentHashMap<>();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    protected static int rank(Object value) {
+        if (value instanceof Boolean) {
+            return 0;
+        } else if (value instanceof Double) {
+            return 1;
+        } else {
+            return 2;
+        }
+    }
+
+    /**
+     * Normalizes a value for use as a key of the index, or returns {@code null} if it can't be indexed.
+     */
+    protected Object normalize(Object value) {
+        if (!sorted) {
+            if (value instanceof String || value instanceof Number || value instanceof Boolean
+                    || value instanceof Calendar) {
+                return value;
+            }
+            return null;
+        }
+        if (value instanceof Number) {
+            return Double.valueOf(((Number) value).doubleValue());
+        } else if (value instanceof Calendar) {
+            return Double.valueOf(((Calendar) value).getTimeInMillis());
+        } else if (value instanceof String || value instanceof Boolean) {
+            return value;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the normalized values to index for a document value.
+     */
+    public Set<Object> getIndexValues(Object value) {
+        if (value == null) {
+            return Collections.emptySet();
+        }
+        Collection<?> values;
+        if (value instanceof Object[]) {
+            values = Arrays.asList((Object[]) value);
+        } else if (value instanceof List) {
+            values = (List<?>) value;
+        } else {
+            values = Collections.singleton(value);
+        }
+        Set<Object> set = new HashSet<>(values.size());
+        for (Object v : values) {
+            v = v == null ? null : normalize(v);
+            if (v != null) {
+                set.add(v);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Indexes a document value.
+     */
+    public void add(String id, Serializable value) {
+        addValues(id, getIndexValues(value));
+    }
+
+    /**
+     * Indexes normalized values for a document.
+     */
+    protected synchronized void addValues(String id, Set<Object> values) {
+        for (Object v : values) {
+            if (v instanceof Boolean) {
+                hasBooleans = true;
+            }
+            map.computeIfAbsent(v, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    /**
+     * Removes a document value from the index.
+     */
+    public void remove(String id, Serializable value) {
+        removeValues(id, getIndexValues(value));
+    }
+
+    /**
+     * Removes normalized values of a document from the index.
+     */
+    protected synchronized void removeValues(String id, Set<Object> values) {
+        for (Object v : values) {
+            Set<String> ids = map.get(v);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    map.remove(v);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the index for a document whose value changed from the given normalized old values.
+     */
+    public void update(String id, Set<Object> oldValues, Serializable newValue) {
+        Set<Object> newValues = getIndexValues(newValue);
+        if (newValues.equals(oldValues)) {
+            return;
+        }
+        Set<Object> added = new HashSet<>(newValues);
+        added.removeAll(oldValues);
+        Set<Object> removed = new HashSet<>(oldValues);
+        removed.removeAll(newValues);
+        // add before remove, so that concurrent lookups don't miss the document
+        addValues(id, added);
+        removeValues(id, removed);
+    }
+
+    /**
+     * Gets the ids of the documents having the given value, or an array or list containing it.
+     */
+    public Set<String> get(Object value) {
+        Object v = normalize(value);
+        if (v == null) {
+            return Collections.emptySet();
+        }
+        Set<String> ids = map.get(v);
+        return ids == null ? Collections.emptySet() : ids;
+    }
+
+    /**
+     * Gets the sets of ids of the documents having a numeric or date value in the given range, or {@code null} if the
+     * index can't be used for that.
+     *
+     * @param min the minimum, or {@code null} for no minimum
+     * @param minInclusive whether the minimum is included
+     * @param max the maximum, or {@code null} for no maximum
+     * @param maxInclusive whether the maximum is included
+     */
+    public List<Set<String>> getRange(Object min, boolean minInclusive, Object max, boolean maxInclusive) {
+        if (!sorted || hasBooleans) {
+            return null;
+        }
+        Object from = min == null ? Double.valueOf(Double.NEGATIVE_INFINITY) : normalize(min);
+        Object to = max == null ? Double.valueOf(Double.POSITIVE_INFINITY) : normalize(max);
+        if (!(from instanceof Double) || !(to instanceof Double)) {
+            return null;
+        }
+        if (min == null) {
+            minInclusive = true;
+        }
+        if (max == null) {
+            maxInclusive = true;
+        }
+        if (((Double) from).compareTo((Double) to) > 0) {
+            return Collections.emptyList();
+        }
+        NavigableMap<Object, Set<String>> sub = ((NavigableMap<Object, Set<String>>) map).subMap(from, minInclusive,
+                to, maxInclusive);
+        return new ArrayList<>(sub.values());
+    }
+
+    /**
+     * Gets the number of distinct values in the index.
+     */
+    public int size() {
+        return map.size();
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        hasBooleans = false;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + key + (sorted ? ",sorted" : "") + ")";
+    }
+
+}
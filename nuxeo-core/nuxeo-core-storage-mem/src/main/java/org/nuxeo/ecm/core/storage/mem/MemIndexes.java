@@ -0,0 +1,151 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PRIMARY_TYPE;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_READ_ACL;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.dbs.DBSSession;
+import org.nuxeo.ecm.core.storage.mem.MemRepositoryDescriptor.MemIndexDescriptor;
+
+/**
+ * The secondary indexes of a {@link MemRepository}, by key.
+ * <p>
+ * Indexes are maintained by the repository when documents are created, updated and deleted. Updates to a document
+ * must be done while holding the document's lock, between a call to {@link #beforeUpdate} and {@link #afterUpdate}.
+ *
+ * @since 10.3
+ */
+public class MemIndexes {
+
+    /** Keys always indexed. */
+    public static final List<String> DEFAULT_KEYS = Collections.unmodifiableList(
+            Arrays.asList(KEY_PARENT_ID, KEY_ANCESTOR_IDS, KEY_PRIMARY_TYPE, KEY_READ_ACL));
+
+    protected final Map<String, MemIndex> indexes = new LinkedHashMap<>();
+
+    public MemIndexes(List<MemIndexDescriptor> descriptors) {
+        for (String key : DEFAULT_KEYS) {
+            indexes.put(key, new MemIndex(key, false));
+        }
+        for (MemIndexDescriptor descriptor : descriptors) {
+            String key = toInternalKey(descriptor.key.trim());
+            MemIndex index = indexes.get(key);
+            if (index == null || descriptor.sorted && !index.isSorted()) {
+                indexes.put(key, new MemIndex(key, descriptor.sorted));
+            }
+        }
+    }
+
+    /**
+     * Converts an NXQL property name to the key used in the documents.
+     */
+    protected static String toInternalKey(String name) {
+        if (name.startsWith(NXQL.ECM_PREFIX)) {
+            try {
+                return DBSSession.convToInternal(name);
+            } catch (QueryParseException e) {
+                // already an internal key
+            }
+        }
+        return name;
+    }
+
+    public MemIndex getIndex(String key) {
+        return indexes.get(key);
+    }
+
+    public Collection<MemIndex> getIndexes() {
+        return indexes.values();
+    }
+
+    /**
+     * Indexes a new document.
+     */
+    public void add(State state) {
+        String id = (String) state.get(KEY_ID);
+        for (MemIndex index : indexes.values()) {
+            index.add(id, state.get(index.getKey()));
+        }
+    }
+
+    /**
+     * Removes a deleted document from the indexes.
+     */
+    public void remove(State state) {
+        String id = (String) state.get(KEY_ID);
+        for (MemIndex index : indexes.values()) {
+            index.remove(id, state.get(index.getKey()));
+        }
+    }
+
+    /**
+     * Records the indexed values of a document for the given keys, before they are updated.
+     *
+     * @return the old values to pass to {@link #afterUpdate}, or {@code null} if no index is impacted
+     */
+    public Map<MemIndex, Set<Object>> beforeUpdate(State state, Collection<String> keys) {
+        Map<MemIndex, Set<Object>> old = null;
+        for (String key : keys) {
+            MemIndex index = indexes.get(key);
+            if (index != null) {
+                if (old == null) {
+                    old = new HashMap<>();
+                }
+                old.put(index, index.getIndexValues(state.get(key)));
+            }
+        }
+        return old;
+    }
+
+    /**
+     * Updates the indexes of a document after it has been updated.
+     */
+    public void afterUpdate(State state, Map<MemIndex, Set<Object>> old) {
+        if (old == null) {
+            return;
+        }
+        String id = (String) state.get(KEY_ID);
+        for (Entry<MemIndex, Set<Object>> en : old.entrySet()) {
+            MemIndex index = en.getKey();
+            index.update(id, en.getValue(), state.get(index.getKey()));
+        }
+    }
+
+    public void clear() {
+        indexes.values().forEach(MemIndex::clear);
+    }
+
+}
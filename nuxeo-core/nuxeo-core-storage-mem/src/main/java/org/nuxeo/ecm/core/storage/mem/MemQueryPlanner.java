@@ -0,0 +1,292 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_READ_ACL;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.core.query.sql.model.DateLiteral;
+import org.nuxeo.ecm.core.query.sql.model.DoubleLiteral;
+import org.nuxeo.ecm.core.query.sql.model.Expression;
+import org.nuxeo.ecm.core.query.sql.model.IntegerLiteral;
+import org.nuxeo.ecm.core.query.sql.model.Literal;
+import org.nuxeo.ecm.core.query.sql.model.LiteralList;
+import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
+import org.nuxeo.ecm.core.query.sql.model.Operand;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
+import org.nuxeo.ecm.core.schema.SchemaManager;
+import org.nuxeo.ecm.core.schema.types.Field;
+import org.nuxeo.ecm.core.schema.types.Type;
+import org.nuxeo.ecm.core.schema.types.primitives.BooleanType;
+import org.nuxeo.ecm.core.storage.dbs.DBSExpressionEvaluator;
+import org.nuxeo.ecm.core.storage.dbs.DBSSession;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Chooses the secondary index to use for a query on a {@link MemRepository}.
+ * <p>
+ * The top-level AND clauses of the query expression, as produced by the {@code DBSQueryOptimizer}, are examined to
+ * find the ones that can be answered by an index: equality or IN on strings, ranges on numbers and dates with a
+ * sorted index, {@code ecm:path STARTSWITH} and {@code ecm:ancestorId =} with the ancestor ids index. Security is
+ * also checked using the read ACL index. The most selective of these clauses is used to find candidate documents,
+ * which must then be fully evaluated by the {@link DBSExpressionEvaluator}.
+ *
+ * @since 10.3
+ */
+public class MemQueryPlanner {
+
+    protected final MemIndexes indexes;
+
+    protected final DBSExpressionEvaluator evaluator;
+
+    protected SchemaManager schemaManager;
+
+    /** For each usable clause, the sets of ids of the candidate documents. */
+    protected final List<List<Set<String>>> candidates = new ArrayList<>();
+
+    public MemQueryPlanner(MemIndexes indexes, DBSExpressionEvaluator evaluator) {
+        this.indexes = indexes;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Gets the ids of the candidate documents using the most selective index, or {@code null} if no index can be used.
+     * The ids returned may include documents not matching the query, and ids of documents that don't exist anymore.
+     */
+    public Collection<String> getCandidateIds() {
+        walk(evaluator.getExpression());
+        if (evaluator.principals != null) {
+            List<Set<String>> sets = new ArrayList<>(evaluator.principals.size());
+            MemIndex index = indexes.getIndex(KEY_READ_ACL);
+            for (String principal : evaluator.principals) {
+                sets.add(index.get(principal));
+            }
+            candidates.add(sets);
+        }
+        List<Set<String>> best = null;
+        long bestSize = Long.MAX_VALUE;
+        for (List<Set<String>> sets : candidates) {
+            long size = 0;
+            for (Set<String> set : sets) {
+                size += set.size();
+            }
+            if (size < bestSize) {
+                best = sets;
+                bestSize = size;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        if (best.size() == 1) {
+            return best.get(0);
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        best.forEach(ids::addAll);
+        return ids;
+    }
+
+    protected void walk(Operand operand) {
+        if (!(operand instanceof Expression)) {
+            return;
+        }
+        Expression expr = (Expression) operand;
+        if (expr.operator == Operator.AND) {
+            if (expr instanceof MultiExpression) {
+                for (Operand value : ((MultiExpression) expr).values) {
+                    walk(value);
+                }
+            } else {
+                walk(expr.lvalue);
+                walk(expr.rvalue);
+            }
+            return;
+        }
+        if (!(expr.lvalue instanceof Reference)) {
+            return;
+        }
+        Reference ref = (Reference) expr.lvalue;
+        if (ref.cast != null) {
+            return;
+        }
+        String name = ref.name;
+        Operator op = expr.operator;
+        Operand rvalue = expr.rvalue;
+        if (NXQL.ECM_PATH.equals(name)) {
+            if (op == Operator.STARTSWITH && rvalue instanceof StringLiteral) {
+                String path = ((StringLiteral) rvalue).value;
+                if (path.length() > 1 && path.endsWith("/")) {
+                    path = path.substring(0, path.length() - 1);
+                }
+                String ancestorId = evaluator.pathResolver.getIdForPath(path);
+                addAncestorCandidates(ancestorId);
+            }
+            return;
+        }
+        if (NXQL.ECM_ANCESTORID.equals(name)) {
+            if (op == Operator.EQ && rvalue instanceof StringLiteral) {
+                addAncestorCandidates(((StringLiteral) rvalue).value);
+            }
+            return;
+        }
+        if (name.contains("/") || NXQL.ECM_ISTRASHED.equals(name) || NXQL.ECM_MIXINTYPE.equals(name)
+                || name.startsWith(NXQL.ECM_FULLTEXT) || name.startsWith(NXQL.ECM_TAG)) {
+            return;
+        }
+        Field field = null;
+        String key;
+        if (name.startsWith(NXQL.ECM_PREFIX)) {
+            try {
+                key = DBSSession.convToInternal(name);
+            } catch (QueryParseException | UnsupportedOperationException e) {
+                return;
+            }
+        } else {
+            field = getSchemaManager().getField(name);
+            if (field == null) {
+                return;
+            }
+            key = field.getName().getPrefixedName();
+        }
+        if (KEY_ID.equals(key)) {
+            addIdCandidates(op, rvalue);
+            return;
+        }
+        MemIndex index = indexes.getIndex(key);
+        if (index == null) {
+            return;
+        }
+        if (op == Operator.EQ) {
+            if (rvalue instanceof StringLiteral) {
+                candidates.add(Collections.singletonList(index.get(((StringLiteral) rvalue).value)));
+            }
+        } else if (op == Operator.IN) {
+            if (rvalue instanceof LiteralList) {
+                List<Set<String>> sets = new ArrayList<>();
+                for (Literal lit : (LiteralList) rvalue) {
+                    if (!(lit instanceof StringLiteral)) {
+                        return;
+                    }
+                    sets.add(index.get(((StringLiteral) lit).value));
+                }
+                candidates.add(sets);
+            }
+        } else if (op == Operator.LT || op == Operator.LTEQ || op == Operator.GT || op == Operator.GTEQ
+                || op == Operator.BETWEEN) {
+            if (isBoolean(key, field)) {
+                // booleans may be evaluated as 0 / 1 with null as 0
+                return;
+            }
+            addRangeCandidates(index, op, rvalue);
+        }
+    }
+
+    protected void addAncestorCandidates(String ancestorId) {
+        if (ancestorId == null) {
+            // no such document, nothing can match
+            candidates.add(Collections.emptyList());
+        } else {
+            candidates.add(Collections.singletonList(indexes.getIndex(KEY_ANCESTOR_IDS).get(ancestorId)));
+        }
+    }
+
+    protected void addIdCandidates(Operator op, Operand rvalue) {
+        if (op == Operator.EQ && rvalue instanceof StringLiteral) {
+            candidates.add(Collections.singletonList(Collections.singleton(((StringLiteral) rvalue).value)));
+        } else if (op == Operator.IN && rvalue instanceof LiteralList) {
+            Set<String> ids = new LinkedHashSet<>();
+            for (Literal lit : (LiteralList) rvalue) {
+                if (!(lit instanceof StringLiteral)) {
+                    return;
+                }
+                ids.add(((StringLiteral) lit).value);
+            }
+            candidates.add(Collections.singletonList(ids));
+        }
+    }
+
+    protected void addRangeCandidates(MemIndex index, Operator op, Operand rvalue) {
+        List<Set<String>> sets;
+        if (op == Operator.BETWEEN) {
+            if (!(rvalue instanceof LiteralList) || ((LiteralList) rvalue).size() != 2) {
+                return;
+            }
+            Object min = getRangeValue(((LiteralList) rvalue).get(0));
+            Object max = getRangeValue(((LiteralList) rvalue).get(1));
+            if (min == null || max == null) {
+                return;
+            }
+            sets = index.getRange(min, true, max, true);
+        } else {
+            Object value = getRangeValue(rvalue);
+            if (value == null) {
+                return;
+            }
+            if (op == Operator.LT) {
+                sets = index.getRange(null, false, value, false);
+            } else if (op == Operator.LTEQ) {
+                sets = index.getRange(null, false, value, true);
+            } else if (op == Operator.GT) {
+                sets = index.getRange(value, false, null, false);
+            } else { // GTEQ
+                sets = index.getRange(value, true, null, false);
+            }
+        }
+        if (sets != null) {
+            candidates.add(sets);
+        }
+    }
+
+    protected Object getRangeValue(Operand operand) {
+        if (operand instanceof IntegerLiteral) {
+            return Long.valueOf(((IntegerLiteral) operand).value);
+        } else if (operand instanceof DoubleLiteral) {
+            return Double.valueOf(((DoubleLiteral) operand).value);
+        } else if (operand instanceof DateLiteral) {
+            return evaluator.walkDateLiteral((DateLiteral) operand);
+        } else {
+            return null;
+        }
+    }
+
+    protected boolean isBoolean(String key, Field field) {
+        Type type = field == null ? DBSSession.getType(key) : field.getType();
+        return type instanceof BooleanType;
+    }
+
+    protected SchemaManager getSchemaManager() {
+        if (schemaManager == null) {
+            schemaManager = Framework.getService(SchemaManager.class);
+        }
+        return schemaManager;
+    }
+
+}
@@ -18,7 +18,6 @@
  */
 package org.nuxeo.ecm.core.storage.mem;
 
-import static org.nuxeo.ecm.core.query.sql.NXQL.ECM_UUID;
 import static org.nuxeo.ecm.core.storage.State.NOP;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_BLOB_DATA;
@@ -35,6 +34,8 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -44,6 +45,7 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import javax.resource.spi.ConnectionManager;
@@ -51,12 +53,12 @@ import javax.resource.spi.ConnectionManager;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.ConcurrentUpdateException;
+import org.nuxeo.ecm.core.api.CursorService;
 import org.nuxeo.ecm.core.api.DocumentNotFoundException;
 import org.nuxeo.ecm.core.api.Lock;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.PartialList;
 import org.nuxeo.ecm.core.api.ScrollResult;
-import org.nuxeo.ecm.core.api.ScrollResultImpl;
 import org.nuxeo.ecm.core.api.model.Delta;
 import org.nuxeo.ecm.core.blob.DocumentBlobManager;
 import org.nuxeo.ecm.core.model.LockManager;
@@ -71,6 +73,7 @@ import org.nuxeo.ecm.core.storage.dbs.DBSExpressionEvaluator;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryBase;
 import org.nuxeo.ecm.core.storage.dbs.DBSSession.OrderByComparator;
 import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.StateUpdate;
 import org.nuxeo.runtime.api.Framework;
 
 /**
@@ -80,6 +83,9 @@ import org.nuxeo.runtime.api.Framework;
  * <p>
  * A document object is a JSON-like document stored as a Map recursively containing the data, see {@link DBSDocument}
  * for the description of the document.
+ * <p>
+ * Unless disabled, secondary indexes (see {@link MemIndexes}) are maintained to avoid full scans for queries and
+ * child or descendant lookups.
  *
  * @since 5.9.4
  */
@@ -87,8 +93,6 @@ public class MemRepository extends DBSRepositoryBase {
 
     private static final Log log = LogFactory.getLog(MemRepository.class);
 
-    protected static final String NOSCROLL_ID = "noscroll";
-
     // for debug
     private final AtomicLong temporaryIdCounter = new AtomicLong(0);
 
@@ -97,8 +101,26 @@ public class MemRepository extends DBSRepositoryBase {
      */
     protected Map<String, State> states;
 
+    /**
+     * The secondary indexes, or {@code null} if disabled.
+     *
+     * @since 10.3
+     */
+    protected MemIndexes indexes;
+
+    /**
+     * The open scrolls.
+     *
+     * @since 10.3
+     */
+    protected final CursorService<Iterator<String>, String, String> cursorService = new CursorService<>(
+            Function.identity());
+
     public MemRepository(ConnectionManager cm, MemRepositoryDescriptor descriptor) {
         super(cm, descriptor.name, descriptor);
+        if (descriptor.isIndexesEnabled()) {
+            indexes = new MemIndexes(descriptor.indexes);
+        }
         initRepository();
     }
 
@@ -110,11 +132,18 @@ public class MemRepository extends DBSRepositoryBase {
     @Override
     public void shutdown() {
         super.shutdown();
+        cursorService.clear();
         states = null;
+        if (indexes != null) {
+            indexes.clear();
+        }
     }
 
     protected void initRepository() {
         states = new ConcurrentHashMap<>();
+        if (indexes != null) {
+            indexes.clear();
+        }
         initRoot();
     }
 
@@ -176,7 +205,14 @@ public class MemRepository extends DBSRepositoryBase {
         }
         state = StateHelper.deepCopy(state, true); // thread-safe
         StateHelper.resetDeltas(state);
-        states.put(id, state);
+        if (indexes != null) {
+            synchronized (state) {
+                states.put(id, state);
+                indexes.add(state);
+            }
+        } else {
+            states.put(id, state);
+        }
     }
 
     @Override
@@ -196,11 +232,46 @@ public class MemRepository extends DBSRepositoryBase {
                         throw new ConcurrentUpdateException((String) state.get(KEY_ID));
                     }
                 }
-                for (Entry<String, Serializable> en : changeTokenUpdater.getUpdates().entrySet()) {
-                    applyDiff(state, en.getKey(), en.getValue());
-                }
+            }
+            // getUpdates computes the new change token, call it only once
+            Map<String, Serializable> tokenUpdates = changeTokenUpdater == null ? Collections.emptyMap()
+                    : changeTokenUpdater.getUpdates();
+            Map<MemIndex, Set<Object>> oldIndexValues = null;
+            if (indexes != null) {
+                Set<String> keys = new HashSet<>(diff.keySet());
+                keys.addAll(tokenUpdates.keySet());
+                oldIndexValues = indexes.beforeUpdate(state, keys);
+            }
+            for (Entry<String, Serializable> en : tokenUpdates.entrySet()) {
+                applyDiff(state, en.getKey(), en.getValue());
             }
             applyDiff(state, diff);
+            if (oldIndexValues != null) {
+                indexes.afterUpdate(state, oldIndexValues);
+            }
+        }
+    }
+
+    @Override
+    public void updateStates(List<StateUpdate> updates) {
+        // check all the documents and change tokens first, so that a conflict is detected before anything is written
+        for (StateUpdate update : updates) {
+            State state = states.get(update.id);
+            if (state == null) {
+                throw new ConcurrentUpdateException("Missing: " + update.id);
+            }
+            if (update.changeTokenUpdater != null) {
+                synchronized (state) {
+                    for (Entry<String, Serializable> en : update.changeTokenUpdater.getConditions().entrySet()) {
+                        if (!Objects.equals(state.get(en.getKey()), en.getValue())) {
+                            throw new ConcurrentUpdateException(update.id);
+                        }
+                    }
+                }
+            }
+        }
+        for (StateUpdate update : updates) {
+            updateState(update.id, update.diff, update.changeTokenUpdater);
         }
     }
 
@@ -210,16 +281,49 @@ public class MemRepository extends DBSRepositoryBase {
             log.trace("Mem: REMOVE " + ids);
         }
         for (String id : ids) {
-            if (states.remove(id) == null) {
+            State state = states.remove(id);
+            if (state == null) {
                 log.debug("Missing on remove: " + id);
+            } else if (indexes != null) {
+                synchronized (state) {
+                    indexes.remove(state);
+                }
             }
         }
     }
 
+    /**
+     * Gets the documents to examine for a lookup on the given key and value, using an index if there is one.
+     *
+     * @since 10.3
+     */
+    protected Iterable<State> getStates(String key, Object value) {
+        MemIndex index = indexes == null ? null : indexes.getIndex(key);
+        if (index == null) {
+            return states.values();
+        }
+        return getStates(index.get(value));
+    }
+
+    /**
+     * Gets the existing documents for the given ids.
+     *
+     * @since 10.3
+     */
+    protected List<State> getStates(Collection<String> ids) {
+        List<State> list = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            State state = states.get(id);
+            if (state != null) {
+                list.add(state);
+            }
+        }
+        return list;
+    }
+
     @Override
     public State readChildState(String parentId, String name, Set<String> ignored) {
-        // TODO optimize by maintaining a parent/child index
-        for (State state : states.values()) {
+        for (State state : getStates(KEY_PARENT_ID, parentId)) {
             if (ignored.contains(state.get(KEY_ID))) {
                 continue;
             }
@@ -245,7 +349,7 @@ public class MemRepository extends DBSRepositoryBase {
             log.trace("Mem: QUERY " + key + " = " + value);
         }
         List<State> list = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getStates(key, value)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -267,7 +371,8 @@ public class MemRepository extends DBSRepositoryBase {
             log.trace("Mem: QUERY " + key1 + " = " + value1 + " AND " + key2 + " = " + value2);
         }
         List<State> list = new ArrayList<>();
-        for (State state : states.values()) {
+        boolean useKey2 = indexes != null && indexes.getIndex(key1) == null;
+        for (State state : useKey2 ? getStates(key2, value2) : getStates(key1, value1)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -293,9 +398,14 @@ public class MemRepository extends DBSRepositoryBase {
         if (log.isTraceEnabled()) {
             log.trace("Mem: QUERY " + KEY_ANCESTOR_IDS + " = " + rootId);
         }
-        Stream<State> stream = states.values() //
-                                     .stream()
-                                     .filter(state -> hasAncestor(state, rootId));
+        Stream<State> stream;
+        if (indexes == null) {
+            stream = states.values() //
+                           .stream()
+                           .filter(state -> hasAncestor(state, rootId));
+        } else {
+            stream = getStates(indexes.getIndex(KEY_ANCESTOR_IDS).get(rootId)).stream();
+        }
         if (limit != 0) {
             stream = stream.limit(limit);
         }
@@ -312,7 +422,7 @@ public class MemRepository extends DBSRepositoryBase {
         if (log.isTraceEnabled()) {
             log.trace("Mem: QUERY " + key + " = " + value);
         }
-        for (State state : states.values()) {
+        for (State state : getStates(key, value)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -338,7 +448,7 @@ public class MemRepository extends DBSRepositoryBase {
         }
         evaluator.parse();
         List<Map<String, Serializable>> projections = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getQueryStates(evaluator)) {
             List<Map<String, Serializable>> matches = evaluator.matches(state);
             if (!matches.isEmpty()) {
                 if (distinctDocuments) {
@@ -384,28 +494,51 @@ public class MemRepository extends DBSRepositoryBase {
 
     @Override
     public ScrollResult<String> scroll(DBSExpressionEvaluator evaluator, int batchSize, int keepAliveSeconds) {
+        return scroll(evaluator, batchSize, keepAliveSeconds, null, null);
+    }
+
+    @Override
+    public ScrollResult<String> scroll(DBSExpressionEvaluator evaluator, int batchSize, int keepAliveSeconds,
+            String scrollId, String startAfterId) {
+        cursorService.checkForTimedOutScroll();
         if (log.isTraceEnabled()) {
-            log.trace("Mem: QUERY " + evaluator);
+            log.trace("Mem: QUERY " + evaluator + (startAfterId == null ? "" : " AFTER " + startAfterId));
         }
         evaluator.parse();
-        List<String> ids = new ArrayList<>();
-        for (State state : states.values()) {
-            List<Map<String, Serializable>> matches = evaluator.matches(state);
-            if (!matches.isEmpty()) {
-                String id = matches.get(0).get(ECM_UUID).toString();
-                ids.add(id);
+        Iterator<String> cursor = new MemScrollIterator(this, evaluator, batchSize, startAfterId);
+        if (scrollId == null) {
+            scrollId = cursorService.registerCursor(cursor, batchSize, keepAliveSeconds);
+        } else {
+            cursorService.registerCursor(scrollId, cursor, batchSize, keepAliveSeconds);
+        }
+        return cursorService.scroll(scrollId);
+    }
+
+    /**
+     * Gets the documents to evaluate for a query, using the most selective index if possible.
+     *
+     * @since 10.3
+     */
+    protected Collection<State> getQueryStates(DBSExpressionEvaluator evaluator) {
+        if (indexes == null) {
+            return states.values();
+        }
+        Collection<String> ids = new MemQueryPlanner(indexes, evaluator).getCandidateIds();
+        if (ids == null || ids.size() >= states.size()) {
+            if (log.isTraceEnabled()) {
+                log.trace("Mem:    full scan");
             }
+            return states.values();
         }
-        return new ScrollResultImpl<>(NOSCROLL_ID, ids);
+        if (log.isTraceEnabled()) {
+            log.trace("Mem:    index candidates: " + ids.size());
+        }
+        return getStates(ids);
     }
 
     @Override
     public ScrollResult<String> scroll(String scrollId) {
-        if (NOSCROLL_ID.equals(scrollId)) {
-            // Id are already in memory, they are returned as a single batch
-            return ScrollResultImpl.emptyResult();
-        }
-        throw new NuxeoException("Unknown or timed out scrollId");
+        return cursorService.scroll(scrollId);
     }
 
     /**
@@ -539,8 +672,7 @@ public class MemRepository extends DBSRepositoryBase {
             Calendar created = (Calendar) state.get(KEY_LOCK_CREATED);
             return new Lock(owner, created);
         }
-        state.put(KEY_LOCK_OWNER, lock.getOwner());
-        state.put(KEY_LOCK_CREATED, lock.getCreated());
+        updateLock(state, lock.getOwner(), lock.getCreated());
         return null;
     }
 
@@ -563,12 +695,23 @@ public class MemRepository extends DBSRepositoryBase {
             return new Lock(oldOwner, oldCreated, true);
         }
         // remove lock
-        state.put(KEY_LOCK_OWNER, null);
-        state.put(KEY_LOCK_CREATED, null);
+        updateLock(state, null, null);
         // return old lock
         return new Lock(oldOwner, oldCreated);
     }
 
+    protected void updateLock(State state, String owner, Calendar created) {
+        synchronized (state) {
+            Map<MemIndex, Set<Object>> oldIndexValues = indexes == null ? null
+                    : indexes.beforeUpdate(state, Arrays.asList(KEY_LOCK_OWNER, KEY_LOCK_CREATED));
+            state.put(KEY_LOCK_OWNER, owner);
+            state.put(KEY_LOCK_CREATED, created);
+            if (oldIndexValues != null) {
+                indexes.afterUpdate(state, oldIndexValues);
+            }
+        }
+    }
+
     @Override
     public void closeLockManager() {
     }
@@ -18,6 +18,11 @@
  */
 package org.nuxeo.ecm.core.storage.mem;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.nuxeo.common.xmap.annotation.XNode;
+import org.nuxeo.common.xmap.annotation.XNodeList;
 import org.nuxeo.common.xmap.annotation.XObject;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryDescriptor;
 
@@ -29,16 +34,69 @@ import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryDescriptor;
 @XObject(value = "repository")
 public class MemRepositoryDescriptor extends DBSRepositoryDescriptor {
 
+    /**
+     * A secondary index on a top-level key of the documents.
+     *
+     * @since 10.3
+     */
+    @XObject(value = "index")
+    public static class MemIndexDescriptor {
+
+        /** The key, as an NXQL property name or an internal key. */
+        @XNode("")
+        public String key;
+
+        /** A sorted index can also be used for range queries. */
+        @XNode("@sorted")
+        public boolean sorted;
+
+        public MemIndexDescriptor() {
+        }
+
+        public MemIndexDescriptor(String key, boolean sorted) {
+            this.key = key;
+            this.sorted = sorted;
+        }
+    }
+
     public MemRepositoryDescriptor() {
     }
 
+    /** @since 10.3 */
+    @XNode("indexes@enabled")
+    private Boolean indexesEnabled;
+
+    /** @since 10.3 */
+    public boolean isIndexesEnabled() {
+        return !Boolean.FALSE.equals(indexesEnabled);
+    }
+
+    /** @since 10.3 */
+    public void setIndexesEnabled(boolean enabled) {
+        indexesEnabled = Boolean.valueOf(enabled);
+    }
+
+    /**
+     * Additional secondary indexes, the ones on the parent id, ancestor ids, primary type and read ACLs always exist.
+     *
+     * @since 10.3
+     */
+    @XNodeList(value = "indexes/index", type = ArrayList.class, componentType = MemIndexDescriptor.class)
+    public List<MemIndexDescriptor> indexes = new ArrayList<>(0);
+
     @Override
     public MemRepositoryDescriptor clone() {
-        return (MemRepositoryDescriptor) super.clone();
+        MemRepositoryDescriptor clone = (MemRepositoryDescriptor) super.clone();
+        clone.indexes = new ArrayList<>(indexes);
+        return clone;
     }
 
     public void merge(MemRepositoryDescriptor other) {
         super.merge(other);
+        if (other.indexesEnabled != null) {
+            indexesEnabled = other.indexesEnabled;
+        }
+        indexes.addAll(other.indexes);
     }
 
 }
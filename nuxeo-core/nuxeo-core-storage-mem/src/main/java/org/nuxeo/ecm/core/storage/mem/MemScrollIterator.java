@@ -0,0 +1,114 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.dbs.DBSExpressionEvaluator;
+
+/**
+ * Iterator on the ids of the documents matching a scroll query, in id order.
+ * <p>
+ * Only one batch of ids is kept in memory: the next batch is found by evaluating again the documents, keeping the
+ * smallest matching ids after the last returned one (keyset iteration).
+ *
+ * @since 10.3
+ */
+public class MemScrollIterator implements Iterator<String> {
+
+    protected final MemRepository repository;
+
+    protected final DBSExpressionEvaluator evaluator;
+
+    protected final int batchSize;
+
+    protected String lastId;
+
+    protected final Deque<String> batch = new ArrayDeque<>();
+
+    protected boolean done;
+
+    /**
+     * @param evaluator the parsed evaluator
+     * @param startAfterId the id after which to start, or {@code null} to start from the first document
+     */
+    public MemScrollIterator(MemRepository repository, DBSExpressionEvaluator evaluator, int batchSize,
+            String startAfterId) {
+        this.repository = repository;
+        this.evaluator = evaluator;
+        this.batchSize = Math.max(1, batchSize);
+        lastId = startAfterId;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (batch.isEmpty() && !done) {
+            fetchBatch();
+        }
+        return !batch.isEmpty();
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        lastId = batch.poll();
+        return lastId;
+    }
+
+    protected void fetchBatch() {
+        // the largest of the smallest ids found so far is on top
+        PriorityQueue<String> ids = new PriorityQueue<>(batchSize + 1, Comparator.reverseOrder());
+        for (State state : repository.getQueryStates(evaluator)) {
+            String id = (String) state.get(KEY_ID);
+            if (lastId != null && id.compareTo(lastId) <= 0) {
+                continue;
+            }
+            if (ids.size() == batchSize && id.compareTo(ids.peek()) >= 0) {
+                continue;
+            }
+            if (evaluator.matches(state).isEmpty()) {
+                continue;
+            }
+            ids.add(id);
+            if (ids.size() > batchSize) {
+                ids.poll();
+            }
+        }
+        if (ids.size() < batchSize) {
+            done = true;
+        }
+        List<String> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted);
+        batch.addAll(sorted);
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.mem.MemRepositoryDescriptor.MemIndexDescriptor;
+
+public class TestMemIndex {
+
+    protected static Set<String> set(String... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    protected static Set<String> union(List<Set<String>> sets) {
+        Set<String> union = new HashSet<>();
+        sets.forEach(union::addAll);
+        return union;
+    }
+
+    @Test
+    public void testHashIndex() {
+        MemIndex index = new MemIndex("ecm:parentId", false);
+        index.add("id1", "p1");
+        index.add("id2", "p1");
+        index.add("id3", "p2");
+        index.add("id4", null);
+        assertEquals(set("id1", "id2"), index.get("p1"));
+        assertEquals(set("id3"), index.get("p2"));
+        assertEquals(Collections.emptySet(), index.get("p3"));
+        assertEquals(2, index.size());
+
+        index.update("id2", index.getIndexValues("p1"), "p2");
+        assertEquals(set("id1"), index.get("p1"));
+        assertEquals(set("id2", "id3"), index.get("p2"));
+
+        index.remove("id1", "p1");
+        assertEquals(Collections.emptySet(), index.get("p1"));
+        assertEquals(1, index.size());
+        // no range on hash index
+        assertNull(index.getRange(Long.valueOf(0), true, null, false));
+    }
+
+    @Test
+    public void testArrayValues() {
+        MemIndex index = new MemIndex("ecm:ancestorIds", false);
+        index.add("id1", new Object[] { "root", "a" });
+        index.add("id2", new Object[] { "root", "a", "b" });
+        assertEquals(set("id1", "id2"), index.get("root"));
+        assertEquals(set("id2"), index.get("b"));
+
+        // move id2 under c
+        index.update("id2", index.getIndexValues(new Object[] { "root", "a", "b" }), new Object[] { "root", "c" });
+        assertEquals(set("id1"), index.get("a"));
+        assertEquals(Collections.emptySet(), index.get("b"));
+        assertEquals(set("id2"), index.get("c"));
+        assertEquals(set("id1", "id2"), index.get("root"));
+    }
+
+    @Test
+    public void testSortedIndex() {
+        MemIndex index = new MemIndex("my:int", true);
+        index.add("id1", Long.valueOf(1));
+        index.add("id2", Long.valueOf(2));
+        index.add("id3", Double.valueOf(2.5));
+        index.add("id4", Long.valueOf(3));
+        index.add("id5", "foo"); // not numeric
+        assertEquals(set("id2"), index.get(Long.valueOf(2)));
+        assertEquals(set("id5"), index.get("foo"));
+        assertEquals(set("id2", "id3"), union(index.getRange(Long.valueOf(2), true, Long.valueOf(3), false)));
+        assertEquals(set("id3", "id4"), union(index.getRange(Long.valueOf(2), false, null, false)));
+        assertEquals(set("id1", "id2"), union(index.getRange(null, false, Double.valueOf(2.1), true)));
+        assertEquals(Collections.emptySet(), union(index.getRange(Long.valueOf(3), true, Long.valueOf(1), true)));
+        // not a numeric range
+        assertNull(index.getRange("a", true, "z", true));
+    }
+
+    @Test
+    public void testSortedIndexDates() {
+        MemIndex index = new MemIndex("dc:modified", true);
+        index.add("id1", new GregorianCalendar(2018, 0, 1));
+        index.add("id2", new GregorianCalendar(2018, 5, 1));
+        assertEquals(set("id2"), union(index.getRange(new GregorianCalendar(2018, 2, 1), true, null, false)));
+    }
+
+    @Test
+    public void testSortedIndexBooleans() {
+        MemIndex index = new MemIndex("my:bool", true);
+        index.add("id1", Boolean.TRUE);
+        assertEquals(set("id1"), index.get(Boolean.TRUE));
+        // booleans can't be used with ranges
+        assertNull(index.getRange(Long.valueOf(0), true, null, false));
+    }
+
+    @Test
+    public void testIndexes() {
+        MemIndexes indexes = new MemIndexes(Arrays.asList(new MemIndexDescriptor("ecm:lockOwner", false),
+                new MemIndexDescriptor("dc:modified", true)));
+        assertEquals(6, indexes.getIndexes().size());
+        assertTrue(indexes.getIndex("dc:modified").isSorted());
+
+        State state = new State();
+        state.put("ecm:id", "id1");
+        state.put("ecm:parentId", "p1");
+        state.put("ecm:primaryType", "File");
+        indexes.add(state);
+        assertEquals(set("id1"), indexes.getIndex("ecm:parentId").get("p1"));
+        assertEquals(set("id1"), indexes.getIndex("ecm:primaryType").get("File"));
+
+        Map<MemIndex, Set<Object>> old = indexes.beforeUpdate(state, Arrays.asList("ecm:lockOwner", "dc:title"));
+        state.put("ecm:lockOwner", "bob");
+        indexes.afterUpdate(state, old);
+        assertEquals(set("id1"), indexes.getIndex("ecm:lockOwner").get("bob"));
+        assertNull(indexes.beforeUpdate(state, Arrays.asList("dc:title")));
+
+        indexes.remove(state);
+        assertEquals(Collections.emptySet(), indexes.getIndex("ecm:parentId").get("p1"));
+        assertEquals(Collections.emptySet(), indexes.getIndex("ecm:lockOwner").get("bob"));
+    }
+
+}
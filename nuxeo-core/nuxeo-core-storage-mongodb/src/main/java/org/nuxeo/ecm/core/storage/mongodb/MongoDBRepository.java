@@ -24,6 +24,7 @@ import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACL;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACP;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_BLOB_DATA;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_CHANGE_TOKEN;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_FULLTEXT_BINARY;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_FULLTEXT_JOBID;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_FULLTEXT_SIMPLE;
@@ -46,6 +47,7 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -82,16 +84,19 @@ import org.nuxeo.ecm.core.storage.dbs.DBSExpressionEvaluator;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryBase;
 import org.nuxeo.ecm.core.storage.dbs.DBSStateFlattener;
 import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.StateUpdate;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.mongodb.MongoDBConnectionService;
 
 import com.mongodb.Block;
 import com.mongodb.QueryOperators;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.CountOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
@@ -99,7 +104,10 @@ import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 
@@ -332,28 +340,7 @@ public class MongoDBRepository extends DBSRepositoryBase {
     public void updateState(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater) {
         List<Document> updates = converter.diffToBson(diff);
         for (Document update : updates) {
-            Document filter = new Document(idKey, id);
-            if (changeTokenUpdater == null) {
-                if (log.isTraceEnabled()) {
-                    log.trace("MongoDB: UPDATE " + id + ": " + update);
-                }
-            } else {
-                // assume bson is identical to dbs internals
-                // condition works even if value is null
-                Map<String, Serializable> conditions = changeTokenUpdater.getConditions();
-                Map<String, Serializable> tokenUpdates = changeTokenUpdater.getUpdates();
-                if (update.containsKey(MONGODB_SET)) {
-                    ((Document) update.get(MONGODB_SET)).putAll(tokenUpdates);
-                } else {
-                    Document set = new Document();
-                    set.putAll(tokenUpdates);
-                    update.put(MONGODB_SET, set);
-                }
-                if (log.isTraceEnabled()) {
-                    log.trace("MongoDB: UPDATE " + id + ": IF " + conditions + " THEN " + update);
-                }
-                filter.putAll(conditions);
-            }
+            Document filter = getUpdateFilter(id, update, changeTokenUpdater);
             UpdateResult w = coll.updateMany(filter, update);
             if (w.getModifiedCount() != 1) {
                 log.trace("MongoDB:    -> CONCURRENT UPDATE: " + id);
@@ -364,6 +351,88 @@ public class MongoDBRepository extends DBSRepositoryBase {
         }
     }
 
+    /**
+     * Gets the filter for an update of a document, and adds the change token update to it if needed.
+     */
+    protected Document getUpdateFilter(String id, Document update, ChangeTokenUpdater changeTokenUpdater) {
+        Document filter = new Document(idKey, id);
+        if (changeTokenUpdater == null) {
+            if (log.isTraceEnabled()) {
+                log.trace("MongoDB: UPDATE " + id + ": " + update);
+            }
+        } else {
+            // assume bson is identical to dbs internals
+            // condition works even if value is null
+            Map<String, Serializable> conditions = changeTokenUpdater.getConditions();
+            Map<String, Serializable> tokenUpdates = changeTokenUpdater.getUpdates();
+            if (update.containsKey(MONGODB_SET)) {
+                ((Document) update.get(MONGODB_SET)).putAll(tokenUpdates);
+            } else {
+                Document set = new Document();
+                set.putAll(tokenUpdates);
+                update.put(MONGODB_SET, set);
+            }
+            if (log.isTraceEnabled()) {
+                log.trace("MongoDB: UPDATE " + id + ": IF " + conditions + " THEN " + update);
+            }
+            filter.putAll(conditions);
+        }
+        return filter;
+    }
+
+    /**
+     * Updates documents using an unordered bulk write.
+     * <p>
+     * Documents whose diff needs several MongoDB updates are updated separately, as these updates must be applied in
+     * order.
+     */
+    @Override
+    public void updateStates(List<StateUpdate> updates) {
+        List<WriteModel<Document>> models = new ArrayList<>(updates.size());
+        // expected change token after the update, null if not updated
+        Map<String, Serializable> expectedTokens = new HashMap<>();
+        for (StateUpdate stateUpdate : updates) {
+            List<Document> bsonUpdates = converter.diffToBson(stateUpdate.diff);
+            if (bsonUpdates.size() != 1) {
+                updateState(stateUpdate.id, stateUpdate.diff, stateUpdate.changeTokenUpdater);
+                continue;
+            }
+            Document update = bsonUpdates.get(0);
+            Document filter = getUpdateFilter(stateUpdate.id, update, stateUpdate.changeTokenUpdater);
+            models.add(new UpdateOneModel<>(filter, update));
+            Document set = (Document) update.get(MONGODB_SET);
+            expectedTokens.put(stateUpdate.id, set == null ? null : (Serializable) set.get(KEY_CHANGE_TOKEN));
+        }
+        if (models.isEmpty()) {
+            return;
+        }
+        BulkWriteResult w = coll.bulkWrite(models, new BulkWriteOptions().ordered(false));
+        if (w.getModifiedCount() != models.size()) {
+            String ids = String.join(", ", getConcurrentUpdates(expectedTokens));
+            log.trace("MongoDB:    -> CONCURRENT UPDATE: " + ids);
+            throw new ConcurrentUpdateException(ids);
+        }
+    }
+
+    /**
+     * Finds which documents of a failed bulk update were not updated: missing ones, or ones that don't have the
+     * expected change token.
+     */
+    protected Collection<String> getConcurrentUpdates(Map<String, Serializable> expectedTokens) {
+        Set<String> ids = new HashSet<>(expectedTokens.keySet());
+        Bson filter = Filters.in(idKey, expectedTokens.keySet());
+        Bson fields = Projections.include(idKey, KEY_CHANGE_TOKEN);
+        for (Document doc : coll.find(filter).projection(fields)) {
+            String id = (String) doc.get(idKey);
+            Serializable expectedToken = expectedTokens.get(id);
+            if (expectedToken == null || expectedToken.equals(doc.get(KEY_CHANGE_TOKEN))) {
+                ids.remove(id);
+            }
+        }
+        // if not found precisely, report all the documents of the batch
+        return ids.isEmpty() ? expectedTokens.keySet() : ids;
+    }
+
     @Override
     public void deleteStates(Set<String> ids) {
         Bson filter = Filters.in(idKey, ids);
@@ -445,13 +514,7 @@ public class MongoDBRepository extends DBSRepositoryBase {
     @Override
     public Stream<State> getDescendants(String rootId, Set<String> keys, int limit) {
         Bson filter = Filters.eq(KEY_ANCESTOR_IDS, rootId);
-        Document fields = new Document();
-        if (useCustomId) {
-            fields.put(MONGODB_ID, ZERO);
-        }
-        fields.put(idKey, ONE);
-        keys.forEach(key -> fields.put(converter.keyToBson(key), ONE));
-        return stream(filter, fields, limit);
+        return stream(filter, getProjection(keys), limit);
     }
 
     @Override
@@ -559,9 +622,9 @@ public class MongoDBRepository extends DBSRepositoryBase {
         boolean manualProjection = !distinctDocuments && builder.hasProjectionWildcard();
         if (manualProjection) {
             // we'll do post-treatment to re-evaluate the query to get proper wildcard projections
-            // so we need the full state from the database
-            keys = null;
+            // so we need from the database all the keys used by the query
             evaluator.parse();
+            keys = getProjection(evaluator.getProjectionKeys());
         }
 
         if (log.isTraceEnabled()) {
@@ -584,7 +647,7 @@ public class MongoDBRepository extends DBSRepositoryBase {
                 if (manualProjection) {
                     projections.addAll(evaluator.matches(state));
                 } else {
-                    projections.add(flattener.flatten(state));
+                    projections.add(flattener.flattenRow(state));
                 }
             }
         }
@@ -619,17 +682,31 @@ public class MongoDBRepository extends DBSRepositoryBase {
         return new PartialList<>(projections, totalSize);
     }
 
+    /**
+     * Gets the projection for the given keys.
+     *
+     * @since 10.3
+     */
+    protected Document getProjection(Set<String> keys) {
+        Document fields = new Document();
+        if (useCustomId) {
+            fields.put(MONGODB_ID, ZERO);
+        }
+        fields.put(idKey, ONE);
+        for (String key : keys) {
+            if (!KEY_ID.equals(key)) {
+                fields.put(converter.keyToBson(key), ONE);
+            }
+        }
+        return fields;
+    }
+
     @Override
     public ScrollResult<String> scroll(DBSExpressionEvaluator evaluator, int batchSize, int keepAliveSeconds) {
         cursorService.checkForTimedOutScroll();
-        MongoDBQueryBuilder builder = new MongoDBQueryBuilder(this, evaluator.getExpression(),
-                evaluator.getSelectClause(), null, evaluator.pathResolver, evaluator.fulltextSearchDisabled);
-        builder.walk();
-        if (builder.hasFulltext && isFulltextSearchDisabled()) {
-            throw new QueryParseException("Fulltext search disabled by configuration");
-        }
-        Bson filter = builder.getQuery();
-        Bson keys = builder.getProjection();
+        Bson filter = getScrollFilter(evaluator);
+        // only the ids are returned, don't fetch the rest of the select clause
+        Bson keys = getProjection(Collections.emptySet());
         if (log.isTraceEnabled()) {
             logQuery(filter, keys, null, 0, 0);
         }
@@ -639,6 +716,47 @@ public class MongoDBRepository extends DBSRepositoryBase {
         return scroll(scrollId);
     }
 
+    @Override
+    public ScrollResult<String> scroll(DBSExpressionEvaluator evaluator, int batchSize, int keepAliveSeconds,
+            String scrollId, String startAfterId) {
+        cursorService.checkForTimedOutScroll();
+        Bson filter = getScrollFilter(evaluator);
+        if (startAfterId != null) {
+            filter = Filters.and(filter, Filters.gt(idKey, startAfterId));
+        }
+        // only the ids are returned, don't fetch the rest of the select clause
+        Bson keys = getProjection(Collections.emptySet());
+        Bson orderBy = Sorts.ascending(idKey);
+        if (log.isTraceEnabled()) {
+            logQuery(filter, keys, orderBy, 0, 0);
+        }
+
+        // walk the id index to get the results in id order without sorting them in memory
+        MongoCursor<Document> cursor = coll.find(filter)
+                                           .projection(keys)
+                                           .sort(orderBy)
+                                           .modifiers(new Document("$hint", Indexes.ascending(idKey)))
+                                           .batchSize(batchSize)
+                                           .iterator();
+        if (scrollId == null) {
+            scrollId = cursorService.registerCursor(cursor, batchSize, keepAliveSeconds);
+        } else {
+            cursorService.registerCursor(scrollId, cursor, batchSize, keepAliveSeconds);
+        }
+        return scroll(scrollId);
+    }
+
+    /** @since 10.3 */
+    protected Bson getScrollFilter(DBSExpressionEvaluator evaluator) {
+        MongoDBQueryBuilder builder = new MongoDBQueryBuilder(this, evaluator.getExpression(),
+                evaluator.getSelectClause(), null, evaluator.pathResolver, evaluator.fulltextSearchDisabled);
+        builder.walk();
+        if (builder.hasFulltext && isFulltextSearchDisabled()) {
+            throw new QueryParseException("Fulltext search disabled by configuration");
+        }
+        return builder.getQuery();
+    }
+
     @Override
     public ScrollResult<String> scroll(String scrollId) {
         return cursorService.scroll(scrollId);
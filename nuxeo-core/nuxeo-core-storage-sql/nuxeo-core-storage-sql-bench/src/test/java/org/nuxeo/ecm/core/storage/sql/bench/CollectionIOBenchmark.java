@@ -0,0 +1,78 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.storage.sql.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Update of a multi-valued property followed by a save, exercising the delete and batched inserts done by
+ * {@code CollectionIO}.
+ *
+ * @since 10.3
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CollectionIOBenchmark extends SQLBenchmarkState {
+
+    /** Number of documents updated before each save. */
+    @Param({ "10" })
+    public int documents;
+
+    /** Number of values of the multi-valued property. */
+    @Param({ "1", "10", "100" })
+    public int values;
+
+    protected List<Node> nodes;
+
+    protected long count;
+
+    @Override
+    protected void populate() {
+        Node folder = createFolder("collection", documents);
+        nodes = new ArrayList<>(session.getChildren(folder, null, false));
+    }
+
+    @Benchmark
+    public void writeCollection() {
+        for (Node node : nodes) {
+            String[] subjects = new String[values];
+            for (int i = 0; i < values; i++) {
+                subjects[i] = "subject" + count++;
+            }
+            node.setCollectionProperty(SUBJECTS_PROP, subjects);
+        }
+        session.save();
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.storage.sql.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Document creation followed by a save, exercising {@code SessionImpl.addChildNode} and the inserts done by
+ * {@code JDBCRowMapper.write}.
+ *
+ * @since 10.3
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DocumentCreateBenchmark extends SQLBenchmarkState {
+
+    /** Number of documents created before each save. */
+    @Param({ "1", "10", "100" })
+    public int batchSize;
+
+    protected Node folder;
+
+    protected long count;
+
+    @Override
+    protected void populate() {
+        folder = createFolder("create", 0);
+    }
+
+    @Benchmark
+    public void createAndSave(Blackhole bh) {
+        for (int i = 0; i < batchSize; i++) {
+            bh.consume(createDocument(folder, "doc" + count++));
+        }
+        session.save();
+    }
+
+}
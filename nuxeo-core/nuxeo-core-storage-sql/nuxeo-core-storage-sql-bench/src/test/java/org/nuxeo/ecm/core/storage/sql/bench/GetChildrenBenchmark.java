@@ -0,0 +1,80 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.storage.sql.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Listing of the children of a folder through {@code SessionImpl.getChildren}, either from the session caches or
+ * after all the caches have been cleared.
+ *
+ * @since 10.3
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GetChildrenBenchmark extends SQLBenchmarkState {
+
+    @Param({ "10", "100", "1000" })
+    public int children;
+
+    /** If {@code false}, the repository caches are cleared before each call, as part of the measured operation. */
+    @Param({ "false", "true" })
+    public boolean cached;
+
+    protected Node folder;
+
+    @Override
+    protected void populate() {
+        folder = createFolder("children", children);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCaches() {
+        // start each iteration from the same state, with caches filled in the cached case
+        repository.clearCaches();
+        if (cached) {
+            session.getChildren(folder, null, false);
+        }
+    }
+
+    @Benchmark
+    public List<Node> getChildren() {
+        if (!cached) {
+            repository.clearCaches();
+        }
+        return session.getChildren(folder, null, false);
+    }
+
+}
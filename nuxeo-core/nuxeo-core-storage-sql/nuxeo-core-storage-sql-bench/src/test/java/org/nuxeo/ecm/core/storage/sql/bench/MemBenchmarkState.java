@@ -0,0 +1,171 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.bench;
+
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PRIMARY_TYPE;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_READ_ACL;
+import static org.nuxeo.ecm.core.storage.sql.bench.SQLBenchmarkState.BENCH_BUNDLE;
+import static org.nuxeo.ecm.core.storage.sql.bench.SQLBenchmarkState.DOC_TYPE;
+import static org.nuxeo.ecm.core.storage.sql.bench.SQLBenchmarkState.FOLDER_TYPE;
+import static org.nuxeo.ecm.core.storage.sql.bench.SQLBenchmarkState.REPOSITORY_NAME;
+import static org.nuxeo.ecm.core.storage.sql.bench.SQLBenchmarkState.TITLE_PROP;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.mem.MemRepository;
+import org.nuxeo.ecm.core.storage.mem.MemRepositoryDescriptor;
+import org.nuxeo.ecm.core.storage.mem.MemRepositoryDescriptor.MemIndexDescriptor;
+import org.nuxeo.runtime.test.RuntimeHarnessImpl;
+import org.nuxeo.runtime.test.runner.RuntimeHarness;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Base JMH state for the in-memory repository benchmarks.
+ * <p>
+ * Starts a Nuxeo runtime with the core bundles and the bench types shared with {@link SQLBenchmarkState}, and creates a
+ * {@link MemRepository}, with or without secondary indexes, holding folders of {@link #FOLDER_SIZE} documents. The documents are written directly as states to make the setup
+ * of large repositories fast.
+ *
+ * @since 10.3
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public abstract class MemBenchmarkState {
+
+    public static final String COUNT_PROP = "bench:count";
+
+    public static final int FOLDER_SIZE = 100;
+
+    /** Principal allowed to read the documents of one folder out of {@link #GROUP_FOLDERS}. */
+    public static final String GROUP = "group";
+
+    public static final int GROUP_FOLDERS = 10;
+
+    protected static final String[] BUNDLES = { //
+            "org.nuxeo.runtime.jtajca", //
+            "org.nuxeo.runtime.kv", //
+            "org.nuxeo.runtime.migration", //
+            "org.nuxeo.ecm.core.api", //
+            "org.nuxeo.ecm.core", //
+            "org.nuxeo.ecm.core.schema", //
+            "org.nuxeo.ecm.core.event", //
+            "org.nuxeo.ecm.core.storage", //
+            "org.nuxeo.ecm.core.storage.dbs", //
+            "org.nuxeo.ecm.core.storage.mem", //
+            "org.nuxeo.ecm.platform.el", //
+            BENCH_BUNDLE, //
+    };
+
+    @Param({ "10000", "100000", "1000000" })
+    public int documents;
+
+    @Param({ "true", "false" })
+    public boolean indexes;
+
+    protected RuntimeHarness harness;
+
+    protected MemRepository repository;
+
+    protected List<String> folderIds = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUpRepository() throws Exception {
+        harness = new RuntimeHarnessImpl(getClass());
+        harness.start();
+        for (String bundle : BUNDLES) {
+            harness.deployBundle(bundle);
+        }
+        harness.deployContrib(BENCH_BUNDLE, "OSGI-INF/bench-core-types-contrib.xml");
+        harness.fireFrameworkStarted();
+
+        MemRepositoryDescriptor descriptor = new MemRepositoryDescriptor();
+        descriptor.name = REPOSITORY_NAME;
+        descriptor.setFulltextDisabled(true);
+        descriptor.setIndexesEnabled(indexes);
+        descriptor.indexes.add(new MemIndexDescriptor(COUNT_PROP, true));
+        // the root is created in a transaction
+        TransactionHelper.startTransaction();
+        try {
+            repository = new MemRepository(null, descriptor);
+        } finally {
+            TransactionHelper.commitOrRollbackTransaction();
+        }
+        populate();
+    }
+
+    /**
+     * Creates the folders and their documents.
+     */
+    protected void populate() {
+        String rootId = repository.getRootId();
+        List<State> states = new ArrayList<>(FOLDER_SIZE + 1);
+        int folders = Math.max(1, documents / FOLDER_SIZE);
+        long count = 0;
+        for (int f = 0; f < folders; f++) {
+            String folderId = repository.generateNewId();
+            folderIds.add(folderId);
+            String[] racl = f % GROUP_FOLDERS == 0 ? new String[] { GROUP } : new String[] { "members" };
+            states.add(newState(folderId, rootId, "folder" + f, FOLDER_TYPE, new Object[] { rootId }, racl, count));
+            for (int i = 0; i < FOLDER_SIZE; i++) {
+                count++;
+                states.add(newState(repository.generateNewId(), folderId, "doc" + i, DOC_TYPE,
+                        new Object[] { rootId, folderId }, racl, count));
+            }
+            repository.createStates(states);
+            states.clear();
+        }
+    }
+
+    protected State newState(String id, String parentId, String name, String type, Object[] ancestorIds,
+            String[] racl, long count) {
+        State state = new State();
+        state.put(KEY_ID, id);
+        state.put(KEY_PARENT_ID, parentId);
+        state.put(KEY_NAME, name);
+        state.put(KEY_PRIMARY_TYPE, type);
+        state.put(KEY_ANCESTOR_IDS, ancestorIds);
+        state.put(KEY_READ_ACL, racl);
+        state.put(TITLE_PROP, "title of " + name);
+        state.put(COUNT_PROP, Long.valueOf(count));
+        return state;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownRepository() throws Exception {
+        try {
+            if (repository != null) {
+                repository.shutdown();
+                repository = null;
+            }
+        } finally {
+            harness.stop();
+        }
+    }
+
+}
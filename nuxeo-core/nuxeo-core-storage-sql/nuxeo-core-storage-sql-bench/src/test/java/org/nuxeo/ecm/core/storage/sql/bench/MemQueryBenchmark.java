@@ -0,0 +1,104 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.bench;
+
+import static org.nuxeo.ecm.core.storage.sql.bench.SQLBenchmarkState.DOC_TYPE;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.api.PartialList;
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.dbs.DBSExpressionEvaluator;
+import org.nuxeo.ecm.core.storage.dbs.DBSQueryOptimizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NXQL queries and child lookups on a {@link org.nuxeo.ecm.core.storage.mem.MemRepository}, with a full scan or
+ * with the secondary indexes chosen by the {@link org.nuxeo.ecm.core.storage.mem.MemQueryPlanner}.
+ *
+ * @since 10.3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class MemQueryBenchmark extends MemBenchmarkState {
+
+    protected static final String PARENT_QUERY = "SELECT ecm:uuid FROM " + DOC_TYPE + " WHERE ecm:parentId = '%s'";
+
+    protected static final String RANGE_QUERY = "SELECT ecm:uuid FROM " + DOC_TYPE + " WHERE " + COUNT_PROP
+            + " BETWEEN %d AND %d";
+
+    protected static final String[] PRINCIPALS = { "bob", "members", "Everyone" };
+
+    protected static final String[] GROUP_PRINCIPALS = { "pete", GROUP, "Everyone" };
+
+    protected SQLQuery parseQuery(String query) {
+        return new DBSQueryOptimizer().optimize(SQLQueryParser.parse(query));
+    }
+
+    protected PartialList<Map<String, Serializable>> query(SQLQuery query, String[] principals) {
+        // no session needed as there is no path resolution
+        DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(null, query, principals, true);
+        return repository.queryAndFetch(evaluator, null, true, 0, 0, 0);
+    }
+
+    protected String randomFolderId() {
+        return folderIds.get(ThreadLocalRandom.current().nextInt(folderIds.size()));
+    }
+
+    /** Children of a folder, uses the parent id index. */
+    @Benchmark
+    public PartialList<Map<String, Serializable>> queryParentId() {
+        return query(parseQuery(String.format(PARENT_QUERY, randomFolderId())), PRINCIPALS);
+    }
+
+    /** Documents in a range of values, uses a sorted index. */
+    @Benchmark
+    public PartialList<Map<String, Serializable>> queryRange() {
+        long min = ThreadLocalRandom.current().nextInt(documents);
+        return query(parseQuery(String.format(RANGE_QUERY, min, min + 49)), PRINCIPALS);
+    }
+
+    /** All documents readable by a group, uses the read ACL index. */
+    @Benchmark
+    public PartialList<Map<String, Serializable>> querySecurity() {
+        return query(parseQuery("SELECT ecm:uuid FROM " + DOC_TYPE), GROUP_PRINCIPALS);
+    }
+
+    /** Child lookup by name, uses the parent id index. */
+    @Benchmark
+    public State readChildState() {
+        return repository.readChildState(randomFolderId(), "doc50", Collections.emptySet());
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.bench;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.api.PartialList;
+import org.nuxeo.ecm.core.api.security.SecurityConstants;
+import org.nuxeo.ecm.core.query.QueryFilter;
+import org.nuxeo.ecm.core.storage.sql.ACLRow;
+import org.nuxeo.ecm.core.storage.sql.Model;
+import org.nuxeo.ecm.core.storage.sql.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NXQL query with a security check, going through {@code NXQLQueryMaker} and the read ACLs tables, for a principal
+ * member of a varying number of groups.
+ *
+ * @since 10.3
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class QueryBenchmark extends SQLBenchmarkState {
+
+    protected static final String QUERY = "SELECT * FROM " + DOC_TYPE + " WHERE ecm:parentId = '%s' ORDER BY "
+            + TITLE_PROP;
+
+    @Param({ "1000" })
+    public int documents;
+
+    /** Number of groups of the principal doing the query. */
+    @Param({ "1", "10", "100" })
+    public int groups;
+
+    @Param({ "50" })
+    public int pageSize;
+
+    protected String query;
+
+    protected QueryFilter queryFilter;
+
+    @Override
+    protected void populate() {
+        Node folder = createFolder("query", documents);
+        // a local ACL granting access to one of the groups, in addition to the ACL of the root
+        ACLRow acl = new ACLRow(0, "local", true, SecurityConstants.READ, "group0", null);
+        folder.setCollectionProperty(Model.ACL_PROP, new ACLRow[] { acl });
+        session.save();
+        session.updateReadAcls();
+        query = String.format(QUERY, folder.getId());
+        String[] principals = new String[groups + 2];
+        principals[0] = "bob";
+        principals[1] = "members"; // granted Read on the root
+        for (int i = 0; i < groups; i++) {
+            principals[i + 2] = "group" + i;
+        }
+        String[] permissions = { SecurityConstants.BROWSE, SecurityConstants.READ };
+        queryFilter = new QueryFilter(null, principals, permissions, null, Collections.emptyList(), pageSize, 0);
+    }
+
+    @Benchmark
+    public PartialList<Serializable> query() {
+        return session.query(query, queryFilter, false);
+    }
+
+}
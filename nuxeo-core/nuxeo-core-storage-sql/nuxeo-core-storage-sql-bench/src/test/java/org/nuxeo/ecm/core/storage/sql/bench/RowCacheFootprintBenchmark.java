@@ -0,0 +1,170 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.bench;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.storage.sql.CompactRow;
+import org.nuxeo.ecm.core.storage.sql.Model;
+import org.nuxeo.ecm.core.storage.sql.Node;
+import org.nuxeo.ecm.core.storage.sql.Row;
+import org.nuxeo.ecm.core.storage.sql.RowId;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Heap retained by the mapper cache per cached document (hierarchy, schema and collection fragments), when the rows
+ * are held as {@link Row} clones or as {@link CompactRow}s.
+ * <p>
+ * Each invocation fills a cache from fresh copies of the rows, as read from the database, and reports the retained
+ * heap per document in the {@code bytesPerDocument} secondary result (measured after the last invocation of each
+ * iteration). The primary score is the time taken to fill the cache. Runs with a serial collector for stable
+ * numbers.
+ *
+ * @since 10.3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseSerialGC")
+public class RowCacheFootprintBenchmark extends SQLBenchmarkState {
+
+    /** Number of documents whose rows are put in the cache at each invocation. */
+    @Param({ "20000" })
+    public int cachedDocuments;
+
+    /** If {@code true}, the rows are held as {@link CompactRow}s, otherwise as {@link Row} clones. */
+    @Param({ "false", "true" })
+    public boolean compact;
+
+    /** Number of distinct documents created in the repository. */
+    protected static final int DOCUMENTS = 100;
+
+    protected List<Row> rows;
+
+    protected CompactRow.Layouts layouts;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+
+        public long bytesPerDocument;
+
+    }
+
+    @Override
+    protected void populate() {
+        Node folder = createFolder("footprint", DOCUMENTS);
+        for (Node node : session.getChildren(folder, null, false)) {
+            node.setSimpleProperty("bench:description", "description of " + node.getName());
+            node.setSimpleProperty("bench:created", new GregorianCalendar());
+            node.setSimpleProperty("bench:count", Long.valueOf(System.nanoTime()));
+        }
+        session.save();
+        Model model = getModel();
+        layouts = model.getCompactRowLayouts();
+        String benchFragment = model.getPropertyInfo(TITLE_PROP).fragmentName;
+        String subjectsFragment = model.getPropertyInfo(SUBJECTS_PROP).fragmentName;
+        List<RowId> rowIds = new ArrayList<>();
+        for (Node node : session.getChildren(folder, null, false)) {
+            rowIds.add(new RowId(Model.HIER_TABLE_NAME, node.getId()));
+            rowIds.add(new RowId(benchFragment, node.getId()));
+            rowIds.add(new RowId(subjectsFragment, node.getId()));
+        }
+        session.getMapper().clearCache();
+        rows = new ArrayList<>();
+        for (RowId rowId : session.getMapper().read(rowIds, false)) {
+            rows.add((Row) rowId);
+        }
+    }
+
+    @Benchmark
+    public void fill(Footprint footprint) {
+        int rowsPerDocument = rows.size() / DOCUMENTS;
+        Object[] cache = new Object[cachedDocuments * rowsPerDocument];
+        long before = usedHeap();
+        for (int i = 0; i < cache.length; i++) {
+            Row row = copy(rows.get(i % rows.size()));
+            Object value = compact ? layouts.compact(row) : null;
+            cache[i] = value == null ? row.clone() : value;
+        }
+        long after = usedHeap();
+        footprint.bytesPerDocument = (after - before) / cachedDocuments;
+        // keep the cache reachable until measured
+        if (cache[cache.length - 1] == null) {
+            throw new AssertionError();
+        }
+    }
+
+    protected static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Copies a row and its values, as if freshly read from the database.
+     */
+    protected static Row copy(Row row) {
+        if (row.isCollection()) {
+            Serializable[] values = row.values.clone();
+            for (int i = 0; i < values.length; i++) {
+                values[i] = copy(values[i]);
+            }
+            return new Row(row.tableName, row.id, values);
+        }
+        Row copy = new Row(row.tableName, row.id);
+        List<String> keys = row.getKeys();
+        List<Serializable> values = row.getValues();
+        for (int i = 0; i < keys.size(); i++) {
+            copy.putNew(keys.get(i), copy(values.get(i)));
+        }
+        return copy;
+    }
+
+    protected static Serializable copy(Serializable value) {
+        if (value instanceof String) {
+            return new String((String) value);
+        } else if (value instanceof Long) {
+            return Long.valueOf(((Long) value).longValue());
+        } else if (value instanceof Calendar) {
+            return (Serializable) ((Calendar) value).clone();
+        } else {
+            return value;
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.storage.sql.Model;
+import org.nuxeo.ecm.core.storage.sql.Node;
+import org.nuxeo.ecm.core.storage.sql.RowId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fragment fetch through {@code RowMapper.read} for the hierarchy, a simple schema fragment and a collection fragment
+ * of a set of documents.
+ *
+ * @since 10.3
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RowMapperReadBenchmark extends SQLBenchmarkState {
+
+    /** Number of documents whose fragments are read. */
+    @Param({ "10", "100", "1000" })
+    public int documents;
+
+    /** If {@code false}, the mapper cache is cleared before each read, as part of the measured operation. */
+    @Param({ "false", "true" })
+    public boolean cached;
+
+    protected List<RowId> rowIds;
+
+    @Override
+    protected void populate() {
+        Node folder = createFolder("read", documents);
+        Model model = getModel();
+        String titleFragment = model.getPropertyInfo(TITLE_PROP).fragmentName;
+        String subjectsFragment = model.getPropertyInfo(SUBJECTS_PROP).fragmentName;
+        rowIds = new ArrayList<>(3 * documents);
+        for (Node node : session.getChildren(folder, null, false)) {
+            rowIds.add(new RowId(Model.HIER_TABLE_NAME, node.getId()));
+            rowIds.add(new RowId(titleFragment, node.getId()));
+            rowIds.add(new RowId(subjectsFragment, node.getId()));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCache() {
+        // start each iteration from the same state, with a cache filled in the cached case
+        session.getMapper().clearCache();
+        if (cached) {
+            session.getMapper().read(rowIds, false);
+        }
+    }
+
+    @Benchmark
+    public List<? extends RowId> read() {
+        if (!cached) {
+            session.getMapper().clearCache();
+        }
+        return session.getMapper().read(rowIds, false);
+    }
+
+}
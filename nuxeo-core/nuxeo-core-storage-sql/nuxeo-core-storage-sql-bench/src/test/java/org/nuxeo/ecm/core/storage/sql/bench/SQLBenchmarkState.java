@@ -0,0 +1,179 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.bench;
+
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.BlobManagerComponent;
+import org.nuxeo.ecm.core.blob.BlobProviderDescriptor;
+import org.nuxeo.ecm.core.blob.binary.DefaultBinaryManager;
+import org.nuxeo.ecm.core.repository.RepositoryService;
+import org.nuxeo.ecm.core.storage.sql.DatabaseHelper;
+import org.nuxeo.ecm.core.storage.sql.Model;
+import org.nuxeo.ecm.core.storage.sql.Node;
+import org.nuxeo.ecm.core.storage.sql.RepositoryDescriptor;
+import org.nuxeo.ecm.core.storage.sql.RepositoryImpl;
+import org.nuxeo.ecm.core.storage.sql.SessionImpl;
+import org.nuxeo.ecm.core.storage.sql.coremodel.SQLRepositoryService;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.test.RuntimeHarnessImpl;
+import org.nuxeo.runtime.test.runner.RuntimeHarness;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Base JMH state for the VCS benchmarks.
+ * <p>
+ * Starts a Nuxeo runtime with the SQL storage bundles, sets up the database configured for the VCS tests (embedded H2
+ * by default, see {@link DatabaseHelper}) and opens a low-level {@link SessionImpl} on a fresh repository. Subclasses
+ * populate the repository in {@link #populate}.
+ *
+ * @since 10.3
+ */
+@State(Scope.Benchmark)
+public abstract class SQLBenchmarkState {
+
+    public static final String BENCH_BUNDLE = "org.nuxeo.ecm.core.storage.sql.bench";
+
+    public static final String REPOSITORY_NAME = "bench";
+
+    public static final String FOLDER_TYPE = "BenchFolder";
+
+    public static final String DOC_TYPE = "BenchDoc";
+
+    public static final String TITLE_PROP = "bench:title";
+
+    public static final String SUBJECTS_PROP = "bench:subjects";
+
+    protected static final String[] BUNDLES = { //
+            "org.nuxeo.runtime.jtajca", //
+            "org.nuxeo.runtime.datasource", //
+            "org.nuxeo.runtime.kv", //
+            "org.nuxeo.runtime.migration", //
+            "org.nuxeo.ecm.core.api", //
+            "org.nuxeo.ecm.core", //
+            "org.nuxeo.ecm.core.schema", //
+            "org.nuxeo.ecm.core.event", //
+            "org.nuxeo.ecm.core.storage", //
+            "org.nuxeo.ecm.core.storage.sql", //
+            "org.nuxeo.ecm.platform.el", //
+            BENCH_BUNDLE, //
+    };
+
+    protected RuntimeHarness harness;
+
+    protected BlobProviderDescriptor blobProviderDescriptor;
+
+    protected RepositoryImpl repository;
+
+    protected SessionImpl session;
+
+    @Setup(Level.Trial)
+    public void setUpRepository() throws Exception {
+        harness = new RuntimeHarnessImpl(getClass());
+        harness.start();
+        for (String bundle : BUNDLES) {
+            harness.deployBundle(bundle);
+        }
+        DatabaseHelper.DATABASE.setUp();
+        // deploy the datasource after the database properties have been set
+        harness.deployContrib(BENCH_BUNDLE, "OSGI-INF/bench-repo-ds.xml");
+        harness.deployContrib(BENCH_BUNDLE, "OSGI-INF/bench-core-types-contrib.xml");
+        harness.fireFrameworkStarted();
+        RepositoryService repositoryService = Framework.getService(RepositoryService.class);
+        repositoryService.initRepositories();
+
+        RepositoryDescriptor descriptor = newDescriptor();
+        SQLRepositoryService sqlRepositoryService = Framework.getService(SQLRepositoryService.class);
+        sqlRepositoryService.registerContribution(descriptor, "repository", null);
+        repositoryService.start(null);
+        registerBlobProvider(descriptor.name);
+        repository = sqlRepositoryService.getRepositoryImpl(descriptor.name);
+        session = repository.getConnection();
+        populate();
+        session.save();
+    }
+
+    protected RepositoryDescriptor newDescriptor() {
+        RepositoryDescriptor descriptor = DatabaseHelper.DATABASE.getRepositoryDescriptor();
+        descriptor.name = REPOSITORY_NAME;
+        // fulltext workers wouldn't have any high-level repository to get a session from
+        descriptor.setFulltextDisabled(true);
+        return descriptor;
+    }
+
+    protected void registerBlobProvider(String name) {
+        blobProviderDescriptor = new BlobProviderDescriptor();
+        blobProviderDescriptor.name = name;
+        blobProviderDescriptor.klass = DefaultBinaryManager.class;
+        BlobManagerComponent blobManager = (BlobManagerComponent) Framework.getService(BlobManager.class);
+        blobManager.registerBlobProvider(blobProviderDescriptor);
+    }
+
+    /**
+     * Creates the documents needed by the benchmark. The session is saved afterwards.
+     */
+    protected abstract void populate();
+
+    /**
+     * Creates a folder under the root with the given number of documents.
+     */
+    protected Node createFolder(String name, int children) {
+        Node folder = session.addChildNode(session.getRootNode(), name, null, FOLDER_TYPE, false);
+        folder.setSimpleProperty(TITLE_PROP, name);
+        for (int i = 0; i < children; i++) {
+            createDocument(folder, "doc" + i);
+        }
+        return folder;
+    }
+
+    protected Node createDocument(Node parent, String name) {
+        Node node = session.addChildNode(parent, name, null, DOC_TYPE, false);
+        node.setSimpleProperty(TITLE_PROP, "title of " + name);
+        node.setCollectionProperty(SUBJECTS_PROP, new String[] { "foo", "bar", name });
+        return node;
+    }
+
+    protected Model getModel() {
+        return session.getModel();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownRepository() throws Exception {
+        try {
+            if (session != null) {
+                session.close();
+                session = null;
+            }
+            if (repository != null) {
+                repository.close();
+            }
+            if (blobProviderDescriptor != null) {
+                BlobManagerComponent blobManager = (BlobManagerComponent) Framework.getService(BlobManager.class);
+                blobManager.unregisterBlobProvider(blobProviderDescriptor);
+            }
+        } finally {
+            DatabaseHelper.DATABASE.tearDown();
+            harness.stop();
+        }
+    }
+
+}
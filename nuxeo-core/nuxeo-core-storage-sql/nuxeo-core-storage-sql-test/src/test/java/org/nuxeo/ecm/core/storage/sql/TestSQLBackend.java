@@ -74,6 +74,8 @@ import org.nuxeo.ecm.core.api.IterableQueryResult;
 import org.nuxeo.ecm.core.api.Lock;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.PartialList;
+import org.nuxeo.ecm.core.api.ProjectionCursor;
+import org.nuxeo.ecm.core.api.ProjectionRow;
 import org.nuxeo.ecm.core.api.model.PropertyNotFoundException;
 import org.nuxeo.ecm.core.blob.BlobManager;
 import org.nuxeo.ecm.core.blob.BlobProvider;
@@ -84,6 +86,7 @@ import org.nuxeo.ecm.core.event.EventService;
 import org.nuxeo.ecm.core.model.LockManager;
 import org.nuxeo.ecm.core.query.QueryFilter;
 import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.NXQL;
 import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
 import org.nuxeo.ecm.core.storage.sql.coremodel.SQLRepositoryService;
 import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCConnection;
@@ -3463,9 +3466,26 @@ public class TestSQLBackend extends SQLBackendTestCase {
         session.close();
     }
 
+    protected static InvalidationsQueue getCacheQueue(Session session) {
+        Mapper mapper = ((SessionImpl) session).getMapper();
+        if (mapper instanceof OffHeapCachingMapper) {
+            return ((OffHeapCachingMapper) mapper).cacheQueue;
+        }
+        return ((SoftRefCachingMapper) mapper).cacheQueue;
+    }
+
+    protected static JDBCConnection getJDBCConnection(Session session) {
+        Mapper mapper = ((SessionImpl) session).getMapper();
+        if (mapper instanceof OffHeapCachingMapper) {
+            mapper = ((OffHeapCachingMapper) mapper).mapper;
+        } else {
+            mapper = ((SoftRefCachingMapper) mapper).mapper;
+        }
+        return (JDBCConnection) JDBCMapperConnector.unwrap(mapper);
+    }
+
     protected static void assertSessionInvalidations(Session session, boolean all, int modified, int deleted) {
-        SoftRefCachingMapper mapper = (SoftRefCachingMapper) ((SessionImpl) session).getMapper();
-        Invalidations invalidations = mapper.cacheQueue.queue;
+        Invalidations invalidations = getCacheQueue(session).queue;
         assertTrue(all == invalidations.all);
         if (modified == -1) {
             if (invalidations.modified != null) {
@@ -4146,6 +4166,53 @@ public class TestSQLBackend extends SQLBackendTestCase {
         it.close();
     }
 
+    @Test
+    public void testQueryProjectionCursor() throws Exception {
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        for (int i = 0; i < 5; i++) {
+            Node doc = session.addChildNode(root, "doc" + i, null, "TestDoc", false);
+            doc.setSimpleProperty("tst:title", "hello" + i);
+            doc.setSimpleProperty("tst:count", Long.valueOf(i));
+            doc.setSimpleProperty("tst:rate", Double.valueOf(i));
+        }
+        session.save();
+
+        ProjectionCursor cursor = session.queryProjectionCursor(
+                "SELECT ecm:uuid, tst:title, tst:count, tst:rate FROM TestDoc ORDER BY tst:count", "NXQL",
+                QueryFilter.EMPTY, false);
+        assertTrue(cursor.mustBeClosed());
+        assertEquals(Arrays.asList(NXQL.ECM_UUID, "tst:title", "tst:count", "tst:rate"), cursor.getColumnNames());
+        int n = 0;
+        while (cursor.hasNext()) {
+            ProjectionRow row = cursor.next();
+            assertTrue(row.get(0) instanceof String);
+            assertEquals("hello" + n, row.getString(1));
+            assertEquals(n, row.getLong(2));
+            assertEquals(n, row.getDouble(3), 0);
+            n++;
+        }
+        assertEquals(5, n);
+        cursor.close();
+        assertFalse(cursor.mustBeClosed());
+        assertFalse(cursor.hasNext());
+
+        // aggregates
+        cursor = session.queryProjectionCursor(
+                "SELECT COUNT(tst:title), SUM(tst:count) FROM TestDoc WHERE ecm:isProxy = 0", "NXQL",
+                QueryFilter.EMPTY, false);
+        try {
+            assertTrue(cursor.hasNext());
+            ProjectionRow row = cursor.next();
+            assertEquals(2, row.getColumnCount());
+            assertEquals(5, row.getLong(0));
+            assertEquals(10, row.getLong(1));
+            assertFalse(cursor.hasNext());
+        } finally {
+            cursor.close();
+        }
+    }
+
     @Test
     public void testQueryAncestorId() throws Exception {
         Session session = repository.getConnection();
@@ -4227,8 +4294,7 @@ public class TestSQLBackend extends SQLBackendTestCase {
 
         // clear context, the mapper cache should still be used
         ((SessionImpl) session).context.pristine.clear();
-        JDBCConnection jdbc = (JDBCConnection) JDBCMapperConnector.unwrap(
-                ((SoftRefCachingMapper) ((SessionImpl) session).getMapper()).mapper);
+        JDBCConnection jdbc = getJDBCConnection(session);
         jdbc.countExecutes = true;
         jdbc.executeCount = 0;
 
@@ -4237,6 +4303,93 @@ public class TestSQLBackend extends SQLBackendTestCase {
         assertEquals(0, jdbc.executeCount);
     }
 
+    @Test
+    public void testPrefetchDescendants() throws Exception {
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        Node folder = session.addChildNode(root, "folder", null, "TestDoc", false);
+        for (int i = 0; i < 3; i++) {
+            Node sub = session.addChildNode(folder, "sub" + i, null, "TestDoc", false);
+            for (int j = 0; j < 4; j++) {
+                Node doc = session.addChildNode(sub, "doc" + j, null, "TestDoc", false);
+                doc.setSimpleProperty("tst:title", "title" + i + j);
+                session.addChildNode(doc, "leaf", null, "TestDoc", false);
+            }
+        }
+        session.addChildNode(folder, "empty", null, "TestDoc", false);
+        session.save();
+        session.close();
+
+        session = repository.getConnection();
+        folder = session.getNodeByPath("/folder", null);
+        JDBCConnection jdbc = getJDBCConnection(session);
+        jdbc.countExecutes = true;
+        jdbc.executeCount = 0;
+        session.prefetchDescendants(folder, 2);
+        // one query for the hierarchy, and bulk reads for the other fragments
+        assertTrue(String.valueOf(jdbc.executeCount), jdbc.executeCount < 10);
+
+        // children down to the prefetch depth are known without database access
+        jdbc.executeCount = 0;
+        List<Node> subs = session.getChildren(folder, null, false);
+        assertEquals(4, subs.size());
+        for (Node sub : subs) {
+            List<Node> docs = session.getChildren(sub, null, false);
+            if (sub.getName().equals("empty")) {
+                assertEquals(0, docs.size());
+                continue;
+            }
+            assertEquals(4, docs.size());
+            String i = sub.getName().substring("sub".length());
+            for (Node doc : docs) {
+                String j = doc.getName().substring("doc".length());
+                assertEquals("title" + i + j, doc.getSimpleProperty("tst:title").getString());
+            }
+        }
+        assertEquals(0, jdbc.executeCount);
+
+        // below the prefetch depth, children are read from the database
+        Node doc = session.getNodeByPath("/folder/sub0/doc0", null);
+        List<Node> leaves = session.getChildren(doc, null, false);
+        assertEquals(1, leaves.size());
+        assertEquals("leaf", leaves.get(0).getName());
+        assertTrue(jdbc.executeCount > 0);
+        session.close();
+    }
+
+    @Test
+    public void testBatchedInserts() throws Exception {
+        int n = 250; // more than the batch size
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        Node folder = session.addChildNode(root, "folder", null, "TestDoc", false);
+        session.save();
+        JDBCConnection jdbc = getJDBCConnection(session);
+        for (int i = 0; i < n; i++) {
+            Node node = session.addChildNode(folder, "doc" + i, null, "TestDoc", false);
+            node.setSimpleProperty("tst:title", "title" + i);
+            node.setCollectionProperty("tst:subjects", new String[] { "a" + i, "b" + i, "c" + i });
+        }
+        jdbc.countExecutes = true;
+        jdbc.executeCount = 0;
+        session.save();
+        // hierarchy, tst and subjects rows are sent in batches, not one statement per row
+        assertTrue(String.valueOf(jdbc.executeCount), jdbc.executeCount < n / 5);
+        session.close();
+
+        // check from another session
+        session = repository.getConnection();
+        folder = session.getNodeByPath("/folder", null);
+        List<Node> children = session.getChildren(folder, null, false);
+        assertEquals(n, children.size());
+        for (int i = 0; i < n; i++) {
+            Node node = session.getChildNode(folder, "doc" + i, false);
+            assertEquals("title" + i, node.getSimpleProperty("tst:title").getString());
+            assertEquals(Arrays.asList("a" + i, "b" + i, "c" + i),
+                    Arrays.asList(node.getCollectionProperty("tst:subjects").getStrings()));
+        }
+    }
+
     @Test
     public void testPathDeep() throws Exception {
         Session session = repository.getConnection();
@@ -0,0 +1,141 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import javax.transaction.Transaction;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCConnection;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * All the tests of TestSQLBackend using the off-heap shared row cache, plus additional tests.
+ */
+public class TestSQLBackendOffHeapCache extends TestSQLBackend {
+
+    @Override
+    protected RepositoryDescriptor newDescriptor(String name, long clusteringDelay) {
+        RepositoryDescriptor descriptor = super.newDescriptor(name, clusteringDelay);
+        descriptor.cachingMapperClass = OffHeapCachingMapper.class;
+        descriptor.cachingMapperProperties.put(OffHeapCachingRowMapper.MAX_SIZE_PROP, "4MB");
+        descriptor.cachingMapperProperties.put(OffHeapCachingRowMapper.SEGMENTS_PROP, "4");
+        return descriptor;
+    }
+
+    @Test
+    public void testCacheSharedBetweenSessions() throws Exception {
+        Session session1 = repository.getConnection();
+        Node root = session1.getRootNode();
+        Node foo = session1.addChildNode(root, "foo", null, "TestDoc", false);
+        foo.setSimpleProperty("tst:title", "hello");
+        foo.setCollectionProperty("tst:subjects", new String[] { "a", "b" });
+        session1.save();
+        Serializable id = foo.getId();
+        session1.close();
+
+        // read through a first session, fills the shared cache
+        Session session2 = repository.getConnection();
+        Node node = session2.getNodeById(id);
+        assertEquals("hello", node.getSimpleProperty("tst:title").getString());
+        assertEquals(Arrays.asList("a", "b"), Arrays.asList(node.getCollectionProperty("tst:subjects").getStrings()));
+        session2.close();
+
+        // read through another session, no database access
+        Session session3 = repository.getConnection();
+        JDBCConnection jdbc = getJDBCConnection(session3);
+        jdbc.countExecutes = true;
+        jdbc.executeCount = 0;
+        node = session3.getNodeById(id);
+        assertEquals("hello", node.getSimpleProperty("tst:title").getString());
+        assertEquals(Arrays.asList("a", "b"), Arrays.asList(node.getCollectionProperty("tst:subjects").getStrings()));
+        assertEquals(0, jdbc.executeCount);
+        session3.close();
+    }
+
+    @Test
+    public void testCacheInvalidatedByWrite() throws Exception {
+        Session session1 = repository.getConnection();
+        Node root = session1.getRootNode();
+        Node foo = session1.addChildNode(root, "foo", null, "TestDoc", false);
+        foo.setSimpleProperty("tst:title", "hello");
+        session1.save();
+        Serializable id = foo.getId();
+
+        // cache the row from another session
+        Session session2 = repository.getConnection();
+        assertEquals("hello", session2.getNodeById(id).getSimpleProperty("tst:title").getString());
+        session2.close();
+
+        // update, then read through a new session
+        foo.setSimpleProperty("tst:title", "world");
+        session1.save();
+        Session session3 = repository.getConnection();
+        assertEquals("world", session3.getNodeById(id).getSimpleProperty("tst:title").getString());
+
+        // delete, then read through a new session
+        session1.removeNode(foo);
+        session1.save();
+        Session session4 = repository.getConnection();
+        assertNull(session4.getNodeById(id));
+        session4.close();
+        session3.close();
+        session1.close();
+    }
+
+    @Test
+    public void testOwnWriteNotReadFromCache() throws Exception {
+        Session session1 = repository.getConnection();
+        Node root = session1.getRootNode();
+        Node foo = session1.addChildNode(root, "foo", null, "TestDoc", false);
+        foo.setSimpleProperty("tst:title", "hello");
+        session1.save();
+        Serializable id = foo.getId();
+
+        Session session2 = repository.getConnection();
+        TransactionHelper.startTransaction();
+        try {
+            TransactionHelper.lookupTransactionManager()
+                             .getTransaction()
+                             .enlistResource(((SessionImpl) session1).getXAResource());
+            foo.setSimpleProperty("tst:title", "world");
+            session1.save();
+            // another session reads the committed version and puts it in the shared cache
+            Transaction tx1 = TransactionHelper.suspendTransaction();
+            try {
+                assertEquals("hello", session2.getNodeById(id).getSimpleProperty("tst:title").getString());
+            } finally {
+                TransactionHelper.resumeTransaction(tx1);
+            }
+            // the pristine copy of the writer is gone, it reads again its own write
+            ((SessionImpl) session1).context.clearLocalCaches();
+            assertEquals("world", session1.getNodeById(id).getSimpleProperty("tst:title").getString());
+        } finally {
+            TransactionHelper.commitOrRollbackTransaction();
+        }
+        session2.close();
+        session1.close();
+    }
+
+}
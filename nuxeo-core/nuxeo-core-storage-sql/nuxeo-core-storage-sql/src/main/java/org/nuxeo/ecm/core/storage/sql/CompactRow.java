@@ -0,0 +1,338 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A compact, immutable form of a single {@link Row}, used to hold rows in the mapper caches.
+ * <p>
+ * The keys of the row are not stored in each instance but in a {@link Layout} shared by all the rows of a table having
+ * the same keys. Values of {@link ColumnSpec#LONG}, {@link ColumnSpec#INTEGER}, {@link ColumnSpec#BOOLEAN} and
+ * {@link ColumnSpec#TIMESTAMP} columns are stored unboxed in a {@code long[]} (timestamps as epoch milliseconds),
+ * other values are stored as is. A value of a primitive column that cannot be represented that way (a delta, or a
+ * calendar with a non-default setup for instance) is kept as is in an overflow array.
+ * <p>
+ * Collection rows are not compacted.
+ *
+ * @since 10.3
+ */
+public final class CompactRow implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    protected static final byte REFERENCE = 0;
+
+    protected static final byte LONG = 1;
+
+    protected static final byte BOOLEAN = 2;
+
+    protected static final byte TIMESTAMP = 3;
+
+    /** Primitive columns beyond this number are stored as references, as null values are tracked in a long mask. */
+    protected static final int MAX_PRIMITIVES = Long.SIZE;
+
+    /** Maximum number of different layouts per table, rows with other keys aren't compacted. */
+    protected static final int MAX_LAYOUTS_PER_TABLE = 16;
+
+    protected static final GregorianCalendar DEFAULT_CALENDAR = new GregorianCalendar();
+
+    protected static final long DEFAULT_GREGORIAN_CHANGE = DEFAULT_CALENDAR.getGregorianChange().getTime();
+
+    /**
+     * The keys of a row, and how each value is stored. Shared by all the rows of a table having the same keys.
+     */
+    public static final class Layout implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final String tableName;
+
+        /** The interned keys, shared with the inflated {@link Row}s. */
+        protected final String[] keys;
+
+        protected final byte[] kinds;
+
+        /** The index of each value in the primitive or reference array, depending on its kind. */
+        protected final int[] slots;
+
+        protected final int primitives;
+
+        protected final int references;
+
+        protected Layout(String tableName, String[] keys, Map<String, ColumnType> types) {
+            this.tableName = tableName;
+            this.keys = keys;
+            kinds = new byte[keys.length];
+            slots = new int[keys.length];
+            int p = 0;
+            int r = 0;
+            for (int i = 0; i < keys.length; i++) {
+                byte kind = p < MAX_PRIMITIVES ? getKind(types == null ? null : types.get(keys[i])) : REFERENCE;
+                kinds[i] = kind;
+                slots[i] = kind == REFERENCE ? r++ : p++;
+            }
+            primitives = p;
+            references = r;
+        }
+
+        protected static byte getKind(ColumnType type) {
+            if (type == null || type.isArray()) {
+                return REFERENCE;
+            }
+            switch (type.spec) {
+            case LONG:
+            case INTEGER:
+                return LONG;
+            case BOOLEAN:
+                return BOOLEAN;
+            case TIMESTAMP:
+                return TIMESTAMP;
+            default:
+                return REFERENCE;
+            }
+        }
+
+        protected boolean matches(Row row) {
+            if (row.size != keys.length) {
+                return false;
+            }
+            for (int i = 0; i < keys.length; i++) {
+                // keys are interned
+                if (keys[i] != row.keys[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public String[] getKeys() {
+            return keys.clone();
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + '(' + tableName + ", " + Arrays.toString(keys) + ')';
+        }
+    }
+
+    /**
+     * The registry of the {@link Layout}s for the tables of a {@link Model}. Thread-safe.
+     */
+    public static class Layouts {
+
+        /** The key types of a table, see {@link Model#getFragmentKeysType}. */
+        protected final Function<String, Map<String, ColumnType>> keysTypes;
+
+        // copy-on-write arrays, there are few layouts per table
+        protected final ConcurrentMap<String, Layout[]> layouts = new ConcurrentHashMap<>();
+
+        public Layouts(Function<String, Map<String, ColumnType>> keysTypes) {
+            this.keysTypes = keysTypes;
+        }
+
+        /**
+         * Gets the layout for the keys of the given row, or {@code null} if the table has too many layouts already.
+         */
+        public Layout getLayout(Row row) {
+            Layout[] tableLayouts = layouts.get(row.tableName);
+            if (tableLayouts != null) {
+                for (Layout layout : tableLayouts) {
+                    if (layout.matches(row)) {
+                        return layout;
+                    }
+                }
+                if (tableLayouts.length >= MAX_LAYOUTS_PER_TABLE) {
+                    return null;
+                }
+            }
+            Layout[] result = new Layout[1];
+            layouts.compute(row.tableName, (tableName, current) -> {
+                if (current != null) {
+                    for (Layout layout : current) {
+                        if (layout.matches(row)) {
+                            result[0] = layout;
+                            return current;
+                        }
+                    }
+                    if (current.length >= MAX_LAYOUTS_PER_TABLE) {
+                        return current;
+                    }
+                }
+                Layout layout = new Layout(tableName, Arrays.copyOf(row.keys, row.size),
+                        keysTypes.apply(tableName));
+                result[0] = layout;
+                if (current == null) {
+                    return new Layout[] { layout };
+                }
+                Layout[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = layout;
+                return updated;
+            });
+            return result[0];
+        }
+
+        /**
+         * Compacts a row, or returns {@code null} if it can't be compacted.
+         */
+        public CompactRow compact(Row row) {
+            if (row.isCollection()) {
+                return null;
+            }
+            Layout layout = getLayout(row);
+            if (layout == null) {
+                return null;
+            }
+            return new CompactRow(layout, row);
+        }
+
+        public int size() {
+            return layouts.values().stream().mapToInt(tableLayouts -> tableLayouts.length).sum();
+        }
+    }
+
+    protected final Layout layout;
+
+    protected final Serializable id;
+
+    protected final long[] primitives;
+
+    /** Bit mask of the primitive slots holding a {@code null} value. */
+    protected final long nulls;
+
+    protected final Serializable[] references;
+
+    /** Values of primitive slots that can't be stored unboxed, or {@code null} if there are none. */
+    protected final Serializable[] overflow;
+
+    /** The time zone of the timestamps, shared with the calendars. */
+    protected final TimeZone timeZone;
+
+    protected CompactRow(Layout layout, Row row) {
+        this.layout = layout;
+        id = row.id;
+        primitives = layout.primitives == 0 ? null : new long[layout.primitives];
+        references = layout.references == 0 ? null : new Serializable[layout.references];
+        long nulls = 0;
+        Serializable[] overflow = null;
+        TimeZone timeZone = null;
+        for (int i = 0; i < layout.kinds.length; i++) {
+            Serializable value = row.values[i];
+            int slot = layout.slots[i];
+            byte kind = layout.kinds[i];
+            if (kind == REFERENCE) {
+                references[slot] = value;
+                continue;
+            }
+            if (value == null) {
+                nulls |= 1L << slot;
+                continue;
+            }
+            if (kind == LONG && value.getClass() == Long.class) {
+                primitives[slot] = ((Long) value).longValue();
+            } else if (kind == BOOLEAN && value.getClass() == Boolean.class) {
+                primitives[slot] = ((Boolean) value).booleanValue() ? 1 : 0;
+            } else if (kind == TIMESTAMP && isDefaultCalendar(value)
+                    && (timeZone == null || timeZone.equals(((Calendar) value).getTimeZone()))) {
+                Calendar cal = (Calendar) value;
+                if (timeZone == null) {
+                    timeZone = cal.getTimeZone();
+                }
+                primitives[slot] = cal.getTimeInMillis();
+            } else {
+                if (overflow == null) {
+                    overflow = new Serializable[layout.primitives];
+                }
+                overflow[slot] = value;
+            }
+        }
+        this.nulls = nulls;
+        this.overflow = overflow;
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * Checks if the value is a calendar that can be rebuilt from its time zone and time.
+     */
+    protected static boolean isDefaultCalendar(Serializable value) {
+        if (value.getClass() != GregorianCalendar.class) {
+            return false;
+        }
+        GregorianCalendar cal = (GregorianCalendar) value;
+        return cal.isLenient() && cal.getFirstDayOfWeek() == DEFAULT_CALENDAR.getFirstDayOfWeek()
+                && cal.getMinimalDaysInFirstWeek() == DEFAULT_CALENDAR.getMinimalDaysInFirstWeek()
+                && cal.getGregorianChange().getTime() == DEFAULT_GREGORIAN_CHANGE;
+    }
+
+    public String getTableName() {
+        return layout.tableName;
+    }
+
+    public Serializable getId() {
+        return id;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Inflates this compact row into a new {@link Row}, which shares its keys with the layout.
+     */
+    public Row toRow() {
+        int size = layout.kinds.length;
+        Serializable[] values = new Serializable[size];
+        for (int i = 0; i < size; i++) {
+            int slot = layout.slots[i];
+            byte kind = layout.kinds[i];
+            if (kind == REFERENCE) {
+                values[i] = references[slot];
+            } else if ((nulls & (1L << slot)) != 0) {
+                values[i] = null;
+            } else if (overflow != null && overflow[slot] != null) {
+                values[i] = overflow[slot];
+            } else if (kind == LONG) {
+                values[i] = Long.valueOf(primitives[slot]);
+            } else if (kind == BOOLEAN) {
+                values[i] = Boolean.valueOf(primitives[slot] != 0);
+            } else {
+                GregorianCalendar cal = new GregorianCalendar(timeZone);
+                cal.setFirstDayOfWeek(DEFAULT_CALENDAR.getFirstDayOfWeek());
+                cal.setMinimalDaysInFirstWeek(DEFAULT_CALENDAR.getMinimalDaysInFirstWeek());
+                cal.setTimeInMillis(primitives[slot]);
+                values[i] = cal;
+            }
+        }
+        return new Row(layout.tableName, id, layout.keys, values);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '(' + toRow() + ')';
+    }
+
+}
@@ -18,15 +18,23 @@
  */
 package org.nuxeo.ecm.core.storage.sql;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
+import org.nuxeo.runtime.pubsub.BinaryMessageCodec;
 import org.nuxeo.runtime.pubsub.SerializableAccumulableInvalidations;
 
 /**
@@ -47,6 +55,13 @@ public class Invalidations implements SerializableAccumulableInvalidations {
     /** Pseudo-table for target proxies invalidation. */
     public static final String TARGET_PROXIES = "__TARGET_PROXIES__";
 
+    /**
+     * Pseudo-table for read ACLs invalidation, see {@link #addReadAcls}.
+     *
+     * @since 10.3
+     */
+    public static final String READ_ACLS = "__READ_ACLS__";
+
     public static final int MODIFIED = 1;
 
     public static final int DELETED = 2;
@@ -177,16 +192,146 @@ public class Invalidations implements SerializableAccumulableInvalidations {
         checkMaxSize();
     }
 
-    // TODO do a more fine-grained serialization than using ObjectOutputStream
+    /**
+     * Records that new read ACLs may have been created, so that the caches of allowed read ACLs are invalidated.
+     * <p>
+     * As cluster invalidators only transmit valid row ids, the pseudo-row reuses the id of an already invalidated row.
+     * Nothing is added if there is no other invalidation.
+     *
+     * @since 10.3
+     */
+    public void addReadAcls() {
+        if (all) {
+            return;
+        }
+        Set<RowId> set = modified != null ? modified : deleted;
+        if (set == null || set.isEmpty()) {
+            return;
+        }
+        addModified(new RowId(READ_ACLS, set.iterator().next().id));
+    }
 
+    /**
+     * Checks if these invalidations imply that the caches of allowed read ACLs must be invalidated.
+     *
+     * @since 10.3
+     */
+    public boolean hasReadAcls() {
+        if (all) {
+            return true;
+        }
+        if (modified != null) {
+            for (RowId rowId : modified) {
+                if (READ_ACLS.equals(rowId.tableName)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** First byte of a Java serialization stream, used by the legacy format. */
+    protected static final int JAVA_SERIALIZATION = 0xAC;
+
+    /**
+     * Serializes these invalidations in a compact binary format.
+     * <p>
+     * The table names are written once in a dictionary, and the row ids are grouped by id so that an id is written
+     * only once for all its invalidated tables.
+     */
     @Override
     public void serialize(OutputStream out) throws IOException {
-        try (ObjectOutputStream oout = new ObjectOutputStream(out)) {
-            oout.writeObject(this);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(all ? 1 : 0);
+        if (!all) {
+            Map<String, Integer> tables = new LinkedHashMap<>();
+            Map<Serializable, List<Integer>> modifiedByIds = groupByIds(modified, tables);
+            Map<Serializable, List<Integer>> deletedByIds = groupByIds(deleted, tables);
+            BinaryMessageCodec.writeVarInt(body, tables.size());
+            for (String tableName : tables.keySet()) {
+                BinaryMessageCodec.writeString(body, tableName);
+            }
+            writeGroupedIds(body, modifiedByIds);
+            writeGroupedIds(body, deletedByIds);
+        }
+        BinaryMessageCodec.writeMessage(out, body.toByteArray());
+    }
+
+    protected static Map<Serializable, List<Integer>> groupByIds(Set<RowId> rowIds, Map<String, Integer> tables) {
+        Map<Serializable, List<Integer>> map = new LinkedHashMap<>();
+        if (rowIds != null) {
+            for (RowId rowId : rowIds) {
+                Integer index = tables.computeIfAbsent(rowId.tableName, k -> Integer.valueOf(tables.size()));
+                map.computeIfAbsent(rowId.id, k -> new ArrayList<>(4)).add(index);
+            }
+        }
+        return map;
+    }
+
+    protected static void writeGroupedIds(OutputStream out, Map<Serializable, List<Integer>> map) throws IOException {
+        BinaryMessageCodec.writeVarInt(out, map.size());
+        for (Entry<Serializable, List<Integer>> en : map.entrySet()) {
+            BinaryMessageCodec.writeId(out, en.getKey());
+            List<Integer> indexes = en.getValue();
+            BinaryMessageCodec.writeVarInt(out, indexes.size());
+            for (Integer index : indexes) {
+                BinaryMessageCodec.writeVarInt(out, index.intValue());
+            }
         }
     }
 
+    /**
+     * Deserializes invalidations written by {@link #serialize}, or by Java serialization in previous versions.
+     */
     public static Invalidations deserialize(InputStream in) throws IOException {
+        int first = in.read();
+        if (first == -1) {
+            // empty message
+            return null;
+        }
+        if (first == JAVA_SERIALIZATION) {
+            return deserializeJava(new SequenceInputStream(new ByteArrayInputStream(new byte[] { (byte) first }), in));
+        }
+        if (first != BinaryMessageCodec.BINARY_FORMAT) {
+            throw new IOException("Invalid invalidations message");
+        }
+        InputStream body = BinaryMessageCodec.readMessage(in);
+        Invalidations invalidations = new Invalidations();
+        if (body.read() == 1) {
+            invalidations.setAll();
+            return invalidations;
+        }
+        int n = BinaryMessageCodec.readVarInt(body);
+        String[] tables = new String[n];
+        for (int i = 0; i < n; i++) {
+            tables[i] = BinaryMessageCodec.readString(body);
+        }
+        invalidations.modified = readGroupedIds(body, tables);
+        invalidations.deleted = readGroupedIds(body, tables);
+        return invalidations;
+    }
+
+    protected static Set<RowId> readGroupedIds(InputStream in, String[] tables) throws IOException {
+        int n = BinaryMessageCodec.readVarInt(in);
+        if (n == 0) {
+            return null;
+        }
+        Set<RowId> rowIds = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            Serializable id = BinaryMessageCodec.readId(in);
+            int count = BinaryMessageCodec.readVarInt(in);
+            for (int j = 0; j < count; j++) {
+                int index = BinaryMessageCodec.readVarInt(in);
+                if (index < 0 || index >= tables.length) {
+                    throw new IOException("Invalid table index: " + index);
+                }
+                rowIds.add(new RowId(tables[index], id));
+            }
+        }
+        return rowIds;
+    }
+
+    protected static Invalidations deserializeJava(InputStream in) throws IOException {
         try (ObjectInputStream oin = new ObjectInputStream(in)) {
             return (Invalidations) oin.readObject();
         } catch (ClassNotFoundException | ClassCastException e) {
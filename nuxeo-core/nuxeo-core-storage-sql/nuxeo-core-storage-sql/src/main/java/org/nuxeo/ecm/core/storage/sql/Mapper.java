@@ -29,6 +29,7 @@ import javax.transaction.xa.XAResource;
 import org.nuxeo.ecm.core.api.IterableQueryResult;
 import org.nuxeo.ecm.core.api.Lock;
 import org.nuxeo.ecm.core.api.PartialList;
+import org.nuxeo.ecm.core.api.ProjectionCursor;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.query.QueryFilter;
 
@@ -172,6 +173,20 @@ public interface Mapper extends RowMapper, XAResource {
     IterableQueryResult queryAndFetch(String query, String queryType, QueryFilter queryFilter,
             boolean distinctDocuments, Object... params);
 
+    /**
+     * Makes a query to the database and returns a forward-only cursor (which must be closed when done).
+     *
+     * @param query the query
+     * @param queryType the query type
+     * @param queryFilter the query filter
+     * @param distinctDocuments if {@code true} then a maximum of one row per document will be returned
+     * @param params optional query-type-dependent parameters
+     * @return a cursor, which <b>must</b> be closed when done
+     * @since 10.3
+     */
+    ProjectionCursor queryProjectionCursor(String query, String queryType, QueryFilter queryFilter,
+            boolean distinctDocuments, Object... params);
+
     /**
      * Makes a query to the database.
      *
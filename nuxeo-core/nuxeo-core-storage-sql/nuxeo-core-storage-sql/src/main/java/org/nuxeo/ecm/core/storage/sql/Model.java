@@ -398,6 +398,9 @@ public class Model {
     /** Map of fragment to keys for binary columns. */
     private final Map<String, List<String>> binaryFragmentKeys;
 
+    /** Layouts of the compact rows held by the caches. */
+    private final CompactRow.Layouts compactRowLayouts;
+
     /** Maps collection table names to their type. */
     private final Map<String, PropertyType> collectionTables;
 
@@ -496,6 +499,7 @@ public class Model {
         fulltextInfoByFragment = new HashMap<>();
         fragmentKeyTypes = new HashMap<>();
         binaryFragmentKeys = new HashMap<>();
+        compactRowLayouts = new CompactRow.Layouts(this::getFragmentKeysType);
 
         collectionTables = new HashMap<>();
         collectionOrderBy = new HashMap<>();
@@ -987,6 +991,15 @@ public class Model {
         return fragmentKeyTypes.get(fragmentName);
     }
 
+    /**
+     * Gets the layouts used to compact the rows of this model's tables.
+     *
+     * @since 10.3
+     */
+    public CompactRow.Layouts getCompactRowLayouts() {
+        return compactRowLayouts;
+    }
+
     public Map<String, List<String>> getBinaryPropertyInfos() {
         return binaryFragmentKeys;
     }
@@ -0,0 +1,549 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.Xid;
+
+import org.apache.commons.lang3.StringUtils;
+import org.nuxeo.common.utils.SizeUtils;
+import org.nuxeo.ecm.core.storage.sql.ACLRow.ACLRowPositionComparator;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+
+/**
+ * A {@link RowMapper} that uses an {@link OffHeapRowCache} shared by all the sessions of the repository.
+ * <p>
+ * The cache only holds {@link Row}s that are known to be identical to what's committed in the underlying
+ * {@link RowMapper}: rows written by a session are invalidated in the cache, and rows read by a session are not cached
+ * if they have been written in its current transaction.
+ * <p>
+ * It is configured through the repository descriptor:
+ *
+ * <pre>
+ * &lt;cachingMapper class="org.nuxeo.ecm.core.storage.sql.OffHeapCachingMapper"&gt;
+ *   &lt;property name="maxSize"&gt;64MB&lt;/property&gt;
+ *   &lt;property name="segments"&gt;16&lt;/property&gt;
+ *   &lt;property name="eviction"&gt;lru&lt;/property&gt; &lt;!-- or tinylfu --&gt;
+ * &lt;/cachingMapper&gt;
+ * </pre>
+ *
+ * @since 10.3
+ */
+public class OffHeapCachingRowMapper implements RowMapper {
+
+    public static final String MAX_SIZE_PROP = "maxSize";
+
+    public static final String SEGMENTS_PROP = "segments";
+
+    public static final String EVICTION_PROP = "eviction";
+
+    public static final String EVICTION_LRU = "lru";
+
+    public static final String EVICTION_TINYLFU = "tinylfu";
+
+    /**
+     * The shared caches, one per repository instance. The key is the repository's invalidations propagator, so that the
+     * cache goes away with the repository.
+     */
+    private static final Map<InvalidationsPropagator, OffHeapRowCache> CACHES = new WeakHashMap<>();
+
+    private OffHeapRowCache cache;
+
+    private Model model;
+
+    /**
+     * The {@link RowMapper} to which operations that cannot be processed from the cache are delegated.
+     */
+    private RowMapper rowMapper;
+
+    /**
+     * The local invalidations due to writes through this mapper that should be propagated to other sessions at
+     * post-commit time.
+     */
+    private final Invalidations localInvalidations;
+
+    /**
+     * The queue of invalidations received from other sessions, to process at pre-transaction time.
+     */
+    // public for unit tests
+    public final InvalidationsQueue cacheQueue;
+
+    /**
+     * The propagator of invalidations to other mappers.
+     */
+    private InvalidationsPropagator invalidationsPropagator;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected Timer cacheGetTimer;
+
+    // sor means system of record (database access)
+    protected Counter sorRows;
+
+    protected Timer sorGetTimer;
+
+    public OffHeapCachingRowMapper() {
+        localInvalidations = new Invalidations();
+        cacheQueue = new InvalidationsQueue("mapper-" + this);
+    }
+
+    public void initialize(String repositoryName, Model model, RowMapper rowMapper,
+            InvalidationsPropagator invalidationsPropagator, Map<String, String> properties) {
+        this.model = model;
+        this.rowMapper = rowMapper;
+        this.invalidationsPropagator = invalidationsPropagator;
+        invalidationsPropagator.addQueue(cacheQueue);
+        synchronized (CACHES) {
+            cache = CACHES.computeIfAbsent(invalidationsPropagator, k -> newCache(repositoryName, properties));
+        }
+        setMetrics(repositoryName);
+    }
+
+    protected static OffHeapRowCache newCache(String repositoryName, Map<String, String> properties) {
+        String maxSizeProp = properties.get(MAX_SIZE_PROP);
+        long maxSize = StringUtils.isBlank(maxSizeProp) ? OffHeapRowCache.DEFAULT_MAX_SIZE
+                : SizeUtils.parseSizeInBytes(maxSizeProp.trim());
+        String segmentsProp = properties.get(SEGMENTS_PROP);
+        int segments = StringUtils.isBlank(segmentsProp) ? OffHeapRowCache.DEFAULT_SEGMENTS
+                : Integer.parseInt(segmentsProp.trim());
+        String eviction = StringUtils.defaultIfBlank(properties.get(EVICTION_PROP), EVICTION_LRU).trim();
+        boolean tinyLfu;
+        if (EVICTION_TINYLFU.equalsIgnoreCase(eviction)) {
+            tinyLfu = true;
+        } else if (EVICTION_LRU.equalsIgnoreCase(eviction)) {
+            tinyLfu = false;
+        } else {
+            throw new IllegalArgumentException("Unknown eviction policy: " + eviction);
+        }
+        return new OffHeapRowCache(repositoryName, maxSize, segments, tinyLfu);
+    }
+
+    protected void setMetrics(String repositoryName) {
+        cacheGetTimer = registry.timer(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches",
+                "offheap", "get"));
+        sorRows = registry.counter(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "offheap",
+                "sor", "rows"));
+        sorGetTimer = registry.timer(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "offheap",
+                "sor", "get"));
+    }
+
+    public void close() {
+        invalidationsPropagator.removeQueue(cacheQueue);
+    }
+
+    @Override
+    public Serializable generateNewId() {
+        return rowMapper.generateNewId();
+    }
+
+    /*
+     * ----- Cache -----
+     */
+
+    protected static boolean isAbsent(Row row) {
+        return row.tableName == OffHeapRowCache.ABSENT; // == is ok
+    }
+
+    /**
+     * Checks if a row read from the database can be shared with other sessions. This is not the case if it has been
+     * written in the current transaction.
+     */
+    protected boolean isCommitted(RowId rowId) {
+        if (localInvalidations.all) {
+            return false;
+        }
+        Set<RowId> modified = localInvalidations.modified;
+        Set<RowId> deleted = localInvalidations.deleted;
+        return (modified == null || !modified.contains(rowId)) && (deleted == null || !deleted.contains(rowId));
+    }
+
+    protected void cachePut(Row row, long[] stamps) {
+        if (!isCommitted(row)) {
+            return;
+        }
+        // for ACL collections, make sure the order is correct
+        // (without the cache, the query to get a list of collection does an
+        // ORDER BY pos, so users of the cache must get the same behavior)
+        if (row.isCollection() && row.values.length > 0 && row.values[0] instanceof ACLRow) {
+            row = row.clone();
+            row.values = sortACLRows((ACLRow[]) row.values);
+        }
+        cache.put(row, stamps);
+    }
+
+    protected ACLRow[] sortACLRows(ACLRow[] acls) {
+        List<ACLRow> list = new ArrayList<>(Arrays.asList(acls));
+        Collections.sort(list, ACLRowPositionComparator.INSTANCE);
+        ACLRow[] res = new ACLRow[acls.length];
+        return list.toArray(res);
+    }
+
+    protected void cachePutAbsent(RowId rowId, long[] stamps) {
+        if (!isCommitted(rowId)) {
+            return;
+        }
+        cache.putAbsent(rowId, stamps);
+    }
+
+    protected void cachePutAbsentIfNull(RowId rowId, Row row, long[] stamps) {
+        if (row != null) {
+            cachePut(row, stamps);
+        } else {
+            cachePutAbsent(rowId, stamps);
+        }
+    }
+
+    protected void cachePutAbsentIfRowId(RowId rowId, long[] stamps) {
+        if (rowId instanceof Row) {
+            cachePut((Row) rowId, stamps);
+        } else {
+            cachePutAbsent(rowId, stamps);
+        }
+    }
+
+    /**
+     * Gets a row from the shared cache. A row written in the current transaction is never served from the cache, as
+     * another session may have put there the committed version older than our write.
+     */
+    protected Row cacheGet(RowId rowId) {
+        if (!isCommitted(rowId)) {
+            return null;
+        }
+        final Timer.Context context = cacheGetTimer.time();
+        try {
+            return cache.get(rowId);
+        } finally {
+            context.stop();
+        }
+    }
+
+    protected void cacheRemove(RowId rowId) {
+        cache.invalidate(rowId);
+    }
+
+    /*
+     * ----- Invalidations / Cache Management -----
+     */
+
+    @Override
+    public Invalidations receiveInvalidations() {
+        // invalidations from the underlying mapper (cluster)
+        // already propagated to our invalidations queue
+        Invalidations remoteInvals = rowMapper.receiveInvalidations();
+
+        Invalidations ret = cacheQueue.getInvalidations();
+
+        if (remoteInvals != null) {
+            if (remoteInvals.all) {
+                cache.clear();
+            }
+            // the cache is shared, local invalidations have already been applied to it by the writer
+            if (remoteInvals.modified != null) {
+                for (RowId rowId : remoteInvals.modified) {
+                    cacheRemove(rowId);
+                }
+            }
+            if (remoteInvals.deleted != null) {
+                for (RowId rowId : remoteInvals.deleted) {
+                    cacheRemove(rowId);
+                }
+            }
+        }
+
+        return ret.isEmpty() ? null : ret;
+    }
+
+    // propagate invalidations
+    @Override
+    public void sendInvalidations(Invalidations invalidations) {
+        // post-commit: invalidate again what we wrote, in case another session
+        // cached an older version read between our write and our commit
+        if (localInvalidations.all) {
+            cache.clear();
+        } else {
+            if (localInvalidations.modified != null) {
+                for (RowId rowId : localInvalidations.modified) {
+                    cacheRemove(rowId);
+                }
+            }
+            if (localInvalidations.deleted != null) {
+                for (RowId rowId : localInvalidations.deleted) {
+                    cacheRemove(rowId);
+                }
+            }
+        }
+
+        // add local invalidations
+        if (!localInvalidations.isEmpty()) {
+            if (invalidations == null) {
+                invalidations = new Invalidations();
+            }
+            invalidations.add(localInvalidations);
+            localInvalidations.clear();
+        }
+
+        if (invalidations != null && !invalidations.isEmpty()) {
+            // send to underlying mapper
+            rowMapper.sendInvalidations(invalidations);
+
+            // queue to other mappers' caches
+            invalidationsPropagator.propagateInvalidations(invalidations, cacheQueue);
+        }
+    }
+
+    /*
+     * Called when a session is closed: the shared cache only holds committed rows and is kept, it's only cleared when
+     * receiving or sending "all" invalidations.
+     */
+    @Override
+    public void clearCache() {
+        localInvalidations.clear();
+        rowMapper.clearCache();
+    }
+
+    @Override
+    public void rollback(Xid xid) throws XAException {
+        try {
+            rowMapper.rollback(xid);
+        } finally {
+            // written rows were never put in the cache, nothing to undo there
+            localInvalidations.clear();
+        }
+    }
+
+    /*
+     * ----- Batch -----
+     */
+
+    /*
+     * Use those from the cache if available, read from the mapper for the rest.
+     */
+    @Override
+    public List<? extends RowId> read(Collection<RowId> rowIds, boolean cacheOnly) {
+        List<RowId> res = new ArrayList<>(rowIds.size());
+        // find which are in cache, and which not
+        List<RowId> todo = new LinkedList<>();
+        for (RowId rowId : rowIds) {
+            Row row = cacheGet(rowId);
+            if (row == null) {
+                if (cacheOnly) {
+                    res.add(new RowId(rowId));
+                } else {
+                    todo.add(rowId);
+                }
+            } else if (isAbsent(row)) {
+                res.add(new RowId(rowId));
+            } else {
+                res.add(row);
+            }
+        }
+        if (!todo.isEmpty()) {
+            final Timer.Context context = sorGetTimer.time();
+            try {
+                long[] stamps = cache.getStamps();
+                // ask missing ones to underlying row mapper
+                List<? extends RowId> fetched = rowMapper.read(todo, cacheOnly);
+                // add them to the cache
+                for (RowId rowId : fetched) {
+                    cachePutAbsentIfRowId(rowId, stamps);
+                }
+                // merge results
+                res.addAll(fetched);
+                sorRows.inc(fetched.size());
+            } finally {
+                context.stop();
+            }
+        }
+        return res;
+    }
+
+    /*
+     * Invalidate in the cache then pass all the writes to the mapper.
+     */
+    @Override
+    public void write(RowBatch batch) {
+        // we avoid gathering invalidations for a write-only table: fulltext
+        for (Row row : batch.creates) {
+            cacheRemove(row);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(row.tableName)) {
+                // we need to send modified invalidations for created
+                // fragments because other session's ABSENT fragments have
+                // to be invalidated
+                localInvalidations.addModified(new RowId(row));
+            }
+        }
+        for (RowUpdate rowu : batch.updates) {
+            cacheRemove(rowu.row);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowu.row.tableName)) {
+                localInvalidations.addModified(new RowId(rowu.row));
+            }
+        }
+        for (RowId rowId : batch.deletes) {
+            if (rowId instanceof Row) {
+                throw new AssertionError();
+            }
+            cacheRemove(rowId);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowId.tableName)) {
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+        for (RowId rowId : batch.deletesDependent) {
+            if (rowId instanceof Row) {
+                throw new AssertionError();
+            }
+            cacheRemove(rowId);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowId.tableName)) {
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+
+        // propagate to underlying mapper
+        rowMapper.write(batch);
+    }
+
+    /*
+     * ----- Read -----
+     */
+
+    @Override
+    public Row readSimpleRow(RowId rowId) {
+        Row row = cacheGet(rowId);
+        if (row == null) {
+            long[] stamps = cache.getStamps();
+            row = rowMapper.readSimpleRow(rowId);
+            cachePutAbsentIfNull(rowId, row, stamps);
+            return row;
+        } else if (isAbsent(row)) {
+            return null;
+        } else {
+            return row;
+        }
+    }
+
+    @Override
+    public Map<String, String> getBinaryFulltext(RowId rowId) {
+        return rowMapper.getBinaryFulltext(rowId);
+    }
+
+    @Override
+    public Serializable[] readCollectionRowArray(RowId rowId) {
+        Row row = cacheGet(rowId);
+        if (row == null) {
+            long[] stamps = cache.getStamps();
+            Serializable[] array = rowMapper.readCollectionRowArray(rowId);
+            assert array != null;
+            row = new Row(rowId.tableName, rowId.id, array);
+            cachePut(row, stamps);
+            return row.values;
+        } else if (isAbsent(row)) {
+            return null;
+        } else {
+            return row.values;
+        }
+    }
+
+    @Override
+    public List<Row> readSelectionRows(SelectionType selType, Serializable selId, Serializable filter,
+            Serializable criterion, boolean limitToOne) {
+        long[] stamps = cache.getStamps();
+        List<Row> rows = rowMapper.readSelectionRows(selType, selId, filter, criterion, limitToOne);
+        for (Row row : rows) {
+            cachePut(row, stamps);
+        }
+        return rows;
+    }
+
+    @Override
+    public Set<Serializable> readSelectionsIds(SelectionType selType, List<Serializable> values) {
+        return rowMapper.readSelectionsIds(selType, values);
+    }
+
+    /*
+     * ----- Copy -----
+     */
+
+    @Override
+    public CopyResult copy(IdWithTypes source, Serializable destParentId, String destName, Row overwriteRow) {
+        CopyResult result = rowMapper.copy(source, destParentId, destName, overwriteRow);
+        Invalidations invalidations = result.invalidations;
+        if (invalidations.modified != null) {
+            for (RowId rowId : invalidations.modified) {
+                cacheRemove(rowId);
+                localInvalidations.addModified(new RowId(rowId));
+            }
+        }
+        if (invalidations.deleted != null) {
+            for (RowId rowId : invalidations.deleted) {
+                cacheRemove(rowId);
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<NodeInfo> getDescendantsInfo(Serializable rootId) {
+        return rowMapper.getDescendantsInfo(rootId);
+    }
+
+    @Override
+    public List<Row> readDescendantsHierRows(Serializable rootId, int depth) {
+        long[] stamps = cache.getStamps();
+        List<Row> rows = rowMapper.readDescendantsHierRows(rootId, depth);
+        for (Row row : rows) {
+            cachePut(row, stamps);
+        }
+        return rows;
+    }
+
+    @Override
+    public void remove(Serializable rootId, List<NodeInfo> nodeInfos) {
+        rowMapper.remove(rootId, nodeInfos);
+        for (NodeInfo info : nodeInfos) {
+            for (String fragmentName : model.getTypeFragments(new IdWithTypes(info.id, info.primaryType, null))) {
+                RowId rowId = new RowId(fragmentName, info.id);
+                cacheRemove(rowId);
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+    }
+
+    @Override
+    public long getCacheSize() {
+        // the shared cache is reported by the entries gauge
+        return 0;
+    }
+
+}
@@ -0,0 +1,813 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * A cache of {@link Row}s shared by all the sessions of a repository, holding serialized rows in direct (off-heap)
+ * memory.
+ * <p>
+ * The memory used is bounded by a maximum size in bytes, allocated upfront and split into segments, each segment
+ * having its own lock. Inside a segment memory is managed as fixed-size pages carved into slots of a given size class
+ * (slab allocation), and each size class has its own LRU list from which entries are evicted when no slot is free.
+ * Optionally, a TinyLFU admission policy can be used: a new entry only evicts the LRU entry if it has been accessed
+ * more frequently, as estimated by a frequency sketch.
+ * <p>
+ * To avoid caching stale rows read from the database concurrently with an invalidation, callers get a stamp before
+ * reading from the database ({@link #getStamps}) and pass it back when putting the rows read. A put is ignored if an
+ * invalidation happened in the meantime in the segment of the row.
+ *
+ * @since 10.3
+ */
+public class OffHeapRowCache {
+
+    private static final Log log = LogFactory.getLog(OffHeapRowCache.class);
+
+    /** Table name of the rows returned by {@link #get} for rows known to be absent from the database. */
+    public static final String ABSENT = "__ABSENT__\0\0\0";
+
+    public static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    protected static final int MIN_PAGE_SIZE = 4 * 1024;
+
+    protected static final int MAX_PAGE_SIZE = 1024 * 1024;
+
+    protected static final int MIN_SLOT_SIZE = 64;
+
+    protected static final double SLOT_GROWTH_FACTOR = 1.25;
+
+    /** Typical size of a serialized row, used to size the frequency sketch. */
+    protected static final int EXPECTED_ENTRY_SIZE = 256;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected final String repositoryName;
+
+    protected final Segment[] segments;
+
+    protected final int segmentMask;
+
+    protected final Counter evictionCount;
+
+    /** Rows that could not be cached because they cannot be serialized or are bigger than the largest slot. */
+    protected final Counter rejectionCount;
+
+    /** Hit and miss counters for each table. */
+    protected final Map<String, Counter[]> tableCounters = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param repositoryName the repository name, used for metrics
+     * @param maxSize the maximum off-heap memory to use, in bytes
+     * @param nsegments the number of segments, rounded up to a power of two
+     * @param tinyLfu {@code true} to use TinyLFU admission, {@code false} for plain LRU
+     */
+    public OffHeapRowCache(String repositoryName, long maxSize, int nsegments, boolean tinyLfu) {
+        this.repositoryName = repositoryName;
+        int n = 1;
+        while (n < nsegments) {
+            n <<= 1;
+        }
+        long segmentSize = Math.min(maxSize / n, Integer.MAX_VALUE);
+        int pageSize = (int) Math.max(MIN_PAGE_SIZE, Math.min(MAX_PAGE_SIZE, segmentSize / 16));
+        int pageCount = (int) Math.max(1, segmentSize / pageSize);
+        int[] slotSizes = computeSlotSizes(pageSize);
+        evictionCount = registry.counter(metricName("evictions"));
+        rejectionCount = registry.counter(metricName("rejections"));
+        segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment(pageSize, pageCount, slotSizes, tinyLfu, evictionCount);
+        }
+        segmentMask = n - 1;
+        registerGauge("entries", this::getEntryCount);
+        registerGauge("bytes", this::getBytes);
+        log.info(String.format("Off-heap row cache for repository %s: %d segments of %d pages of %d bytes, %s",
+                repositoryName, n, pageCount, pageSize, tinyLfu ? "TinyLFU" : "LRU"));
+    }
+
+    protected static int[] computeSlotSizes(int pageSize) {
+        int[] sizes = new int[64];
+        int n = 0;
+        int size = MIN_SLOT_SIZE;
+        while (size < pageSize) {
+            sizes[n++] = size;
+            size = Math.max(size + 8, (int) (size * SLOT_GROWTH_FACTOR + 7) & ~7);
+        }
+        sizes[n++] = pageSize;
+        return Arrays.copyOf(sizes, n);
+    }
+
+    protected String metricName(String... names) {
+        return MetricRegistry.name(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "offheap"),
+                names);
+    }
+
+    protected void registerGauge(String name, Gauge<Long> gauge) {
+        String gaugeName = metricName(name);
+        registry.remove(gaugeName);
+        registry.register(gaugeName, gauge);
+    }
+
+    /**
+     * Unregisters the metrics gauges and releases the cache content.
+     */
+    public void close() {
+        registry.remove(metricName("entries"));
+        registry.remove(metricName("bytes"));
+        clear();
+    }
+
+    protected Counter[] getTableCounters(String tableName) {
+        return tableCounters.computeIfAbsent(tableName, k -> new Counter[] { //
+                registry.counter(metricName(k, "hits")), //
+                registry.counter(metricName(k, "misses")) });
+    }
+
+    protected static int hash(RowId rowId) {
+        // spread the bits, the low ones are used to choose the segment
+        int h = rowId.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    protected Segment segmentFor(int hash) {
+        return segments[hash & segmentMask];
+    }
+
+    /**
+     * Gets the current stamps, to be passed to {@link #put} or {@link #putAbsent} for rows read from the database after
+     * this call.
+     */
+    public long[] getStamps() {
+        long[] stamps = new long[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            stamps[i] = segments[i].stamp;
+        }
+        return stamps;
+    }
+
+    /**
+     * Gets a row from the cache.
+     *
+     * @return the row, a row with table name {@link #ABSENT} if the row is known to be absent, or {@code null} if the
+     *         row is not in the cache
+     */
+    public Row get(RowId rowId) {
+        int hash = hash(rowId);
+        byte[] bytes = segmentFor(hash).get(rowId, hash);
+        Counter[] counters = getTableCounters(rowId.tableName);
+        if (bytes == null) {
+            counters[1].inc();
+            return null;
+        }
+        counters[0].inc();
+        try {
+            return RowCodec.read(bytes, rowId);
+        } catch (IOException e) {
+            log.error("Cannot read cached row: " + rowId, e);
+            invalidate(rowId);
+            return null;
+        }
+    }
+
+    /**
+     * Puts a row read from the database in the cache, unless an invalidation happened since the stamps were taken.
+     */
+    public void put(Row row, long[] stamps) {
+        byte[] bytes;
+        try {
+            bytes = RowCodec.write(row);
+        } catch (IOException e) {
+            rejectionCount.inc();
+            log.debug("Cannot cache row: " + row, e);
+            return;
+        }
+        put(new RowId(row), bytes, stamps);
+    }
+
+    /**
+     * Puts in the cache the knowledge that a row is absent from the database, unless an invalidation happened since the
+     * stamps were taken.
+     */
+    public void putAbsent(RowId rowId, long[] stamps) {
+        put(new RowId(rowId), RowCodec.ABSENT_BYTES, stamps);
+    }
+
+    protected void put(RowId key, byte[] bytes, long[] stamps) {
+        int hash = hash(key);
+        int i = hash & segmentMask;
+        if (!segments[i].put(key, hash, bytes, stamps[i])) {
+            rejectionCount.inc();
+            if (log.isDebugEnabled()) {
+                log.debug("Cannot cache row: " + key + ", size " + bytes.length + " is bigger than the largest slot");
+            }
+        }
+    }
+
+    /**
+     * Removes a row from the cache, and prevents concurrent puts of rows read before this call.
+     */
+    public void invalidate(RowId rowId) {
+        int hash = hash(rowId);
+        segmentFor(hash).invalidate(rowId);
+    }
+
+    /**
+     * Removes all the rows from the cache.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /** Gets the number of entries in the cache. */
+    public long getEntryCount() {
+        long n = 0;
+        for (Segment segment : segments) {
+            n += segment.getEntryCount();
+        }
+        return n;
+    }
+
+    /** Gets the number of bytes used by the serialized entries of the cache. */
+    public long getBytes() {
+        long n = 0;
+        for (Segment segment : segments) {
+            n += segment.getBytes();
+        }
+        return n;
+    }
+
+    /** Gets the number of rows that could not be cached because they were too big or could not be serialized. */
+    public long getRejectedCount() {
+        return rejectionCount.getCount();
+    }
+
+    /**
+     * A cache entry, linked in the LRU list of its slab.
+     */
+    protected static final class Entry {
+
+        protected final RowId key;
+
+        protected final int hash;
+
+        protected final int slab;
+
+        protected final int offset;
+
+        protected final int length;
+
+        protected Entry prev;
+
+        protected Entry next;
+
+        protected Entry(RowId key, int hash, int slab, int offset, int length) {
+            this.key = key;
+            this.hash = hash;
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The slots of a given size, with their free list and the LRU list of the entries using them.
+     */
+    protected static final class Slab {
+
+        protected final int slotSize;
+
+        protected int[] free = new int[16];
+
+        protected int freeCount;
+
+        /** Most recently used. */
+        protected Entry head;
+
+        /** Least recently used. */
+        protected Entry tail;
+
+        protected Slab(int slotSize) {
+            this.slotSize = slotSize;
+        }
+
+        protected void pushFree(int offset) {
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, freeCount * 2);
+            }
+            free[freeCount++] = offset;
+        }
+
+        protected void linkFirst(Entry entry) {
+            entry.prev = null;
+            entry.next = head;
+            if (head == null) {
+                tail = entry;
+            } else {
+                head.prev = entry;
+            }
+            head = entry;
+        }
+
+        protected void unlink(Entry entry) {
+            if (entry.prev == null) {
+                head = entry.next;
+            } else {
+                entry.prev.next = entry.next;
+            }
+            if (entry.next == null) {
+                tail = entry.prev;
+            } else {
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = entry.next = null;
+        }
+    }
+
+    /**
+     * A segment of the cache, with its own memory and lock.
+     */
+    protected static final class Segment {
+
+        protected final ByteBuffer arena;
+
+        protected final int pageSize;
+
+        protected final int pageCount;
+
+        protected int pagesUsed;
+
+        protected final int[] slotSizes;
+
+        protected final Slab[] slabs;
+
+        protected final Map<RowId, Entry> index = new HashMap<>();
+
+        protected final FrequencySketch sketch;
+
+        protected final Counter evictionCount;
+
+        /** Incremented on each invalidation. */
+        protected volatile long stamp;
+
+        protected long bytes;
+
+        protected Segment(int pageSize, int pageCount, int[] slotSizes, boolean tinyLfu, Counter evictionCount) {
+            this.pageSize = pageSize;
+            this.pageCount = pageCount;
+            this.slotSizes = slotSizes;
+            this.evictionCount = evictionCount;
+            arena = ByteBuffer.allocateDirect(pageSize * pageCount);
+            slabs = new Slab[slotSizes.length];
+            for (int i = 0; i < slabs.length; i++) {
+                slabs[i] = new Slab(slotSizes[i]);
+            }
+            sketch = tinyLfu ? new FrequencySketch((int) ((long) pageSize * pageCount / EXPECTED_ENTRY_SIZE)) : null;
+        }
+
+        protected synchronized byte[] get(RowId key, int hash) {
+            if (sketch != null) {
+                sketch.increment(hash);
+            }
+            Entry entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            Slab slab = slabs[entry.slab];
+            if (slab.head != entry) {
+                slab.unlink(entry);
+                slab.linkFirst(entry);
+            }
+            byte[] bytes = new byte[entry.length];
+            ByteBuffer buf = arena.duplicate();
+            buf.position(entry.offset);
+            buf.get(bytes);
+            return bytes;
+        }
+
+        /**
+         * Puts an entry, unless the segment was invalidated since the expected stamp.
+         *
+         * @return {@code false} if the entry is too big to be cached, {@code true} otherwise
+         */
+        protected synchronized boolean put(RowId key, int hash, byte[] bytes, long expectedStamp) {
+            if (stamp != expectedStamp) {
+                // invalidated since the row was read
+                return true;
+            }
+            remove(key);
+            int slabIndex = Arrays.binarySearch(slotSizes, bytes.length);
+            if (slabIndex < 0) {
+                slabIndex = -slabIndex - 1;
+                if (slabIndex == slotSizes.length) {
+                    // too big
+                    return false;
+                }
+            }
+            int offset = allocate(slabIndex, hash);
+            if (offset < 0) {
+                return true;
+            }
+            ByteBuffer buf = arena.duplicate();
+            buf.position(offset);
+            buf.put(bytes);
+            Entry entry = new Entry(key, hash, slabIndex, offset, bytes.length);
+            slabs[slabIndex].linkFirst(entry);
+            index.put(key, entry);
+            this.bytes += bytes.length;
+            return true;
+        }
+
+        protected synchronized int getEntryCount() {
+            return index.size();
+        }
+
+        protected synchronized long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Allocates a slot in the given slab, evicting the LRU entry if needed.
+         *
+         * @return the slot offset, or -1 if no slot could be allocated or the entry was not admitted
+         */
+        protected int allocate(int slabIndex, int hash) {
+            Slab slab = slabs[slabIndex];
+            if (slab.freeCount == 0 && pagesUsed < pageCount) {
+                // carve a new page into slots
+                int start = pagesUsed++ * pageSize;
+                for (int offset = start; offset + slab.slotSize <= start + pageSize; offset += slab.slotSize) {
+                    slab.pushFree(offset);
+                }
+            }
+            if (slab.freeCount > 0) {
+                return slab.free[--slab.freeCount];
+            }
+            Entry victim = slab.tail;
+            if (victim == null) {
+                // no memory left for this size class
+                return -1;
+            }
+            if (sketch != null && sketch.frequency(hash) <= sketch.frequency(victim.hash)) {
+                // not admitted
+                return -1;
+            }
+            slab.unlink(victim);
+            index.remove(victim.key);
+            bytes -= victim.length;
+            evictionCount.inc();
+            return victim.offset;
+        }
+
+        protected void remove(RowId key) {
+            Entry entry = index.remove(key);
+            if (entry != null) {
+                Slab slab = slabs[entry.slab];
+                slab.unlink(entry);
+                slab.pushFree(entry.offset);
+                bytes -= entry.length;
+            }
+        }
+
+        protected synchronized void invalidate(RowId key) {
+            stamp++;
+            remove(key);
+        }
+
+        protected synchronized void clear() {
+            stamp++;
+            index.clear();
+            for (Slab slab : slabs) {
+                slab.head = slab.tail = null;
+                slab.freeCount = 0;
+            }
+            // pages can be reassigned to any size class
+            pagesUsed = 0;
+            bytes = 0;
+        }
+    }
+
+    /**
+     * A Count-Min sketch with 4-bit counters estimating the access frequency of keys, periodically halved so that old
+     * accesses are forgotten.
+     */
+    protected static final class FrequencySketch {
+
+        protected static final int[] SEEDS = { 0x97CB3127, 0xB0AC9B5B, 0x5A3C2D17, 0x8F1BBCDB };
+
+        protected final byte[] counters;
+
+        protected final int mask;
+
+        protected final int resetSize;
+
+        protected int additions;
+
+        protected FrequencySketch(int expectedEntries) {
+            expectedEntries = Math.max(64, Math.min(expectedEntries, 1 << 20));
+            // 16 counters per entry keeps the error low
+            int size = Integer.highestOneBit(expectedEntries * 16 - 1) << 1;
+            counters = new byte[size];
+            mask = size - 1;
+            resetSize = 10 * expectedEntries;
+        }
+
+        protected int indexOf(int hash, int i) {
+            int h = (hash + SEEDS[i]) * SEEDS[i];
+            return (h ^ (h >>> 15)) & mask;
+        }
+
+        protected int frequency(int hash) {
+            int freq = 15;
+            for (int i = 0; i < SEEDS.length; i++) {
+                freq = Math.min(freq, counters[indexOf(hash, i)]);
+            }
+            return freq;
+        }
+
+        protected void increment(int hash) {
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = indexOf(hash, i);
+                if (counters[index] < 15) {
+                    counters[index]++;
+                }
+            }
+            if (++additions >= resetSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+    }
+
+    /**
+     * Compact binary serialization of {@link Row}s, falling back to Java serialization for unknown value types.
+     */
+    protected static final class RowCodec {
+
+        protected static final byte ROW_ABSENT = 0;
+
+        protected static final byte ROW_SIMPLE = 1;
+
+        protected static final byte ROW_COLLECTION = 2;
+
+        protected static final byte[] ABSENT_BYTES = { ROW_ABSENT };
+
+        protected static final byte NULL = 0;
+
+        protected static final byte STRING = 1;
+
+        protected static final byte LONG = 2;
+
+        protected static final byte BOOLEAN = 3;
+
+        protected static final byte DOUBLE = 4;
+
+        protected static final byte CALENDAR = 5;
+
+        protected static final byte INTEGER = 6;
+
+        protected static final byte ACL = 7;
+
+        protected static final byte OPAQUE = 8;
+
+        protected static final byte ARRAY = 9;
+
+        protected static final byte SERIALIZED = 10;
+
+        protected static final Class<?>[] ARRAY_TYPES = { Serializable.class, String.class, Long.class,
+                Boolean.class, Double.class, Calendar.class, Integer.class, ACLRow.class };
+
+        protected static byte[] write(Row row) throws IOException {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(baos);
+            writeValue(out, row.id);
+            if (row.isCollection()) {
+                out.writeByte(ROW_COLLECTION);
+                writeArray(out, row.values);
+            } else {
+                out.writeByte(ROW_SIMPLE);
+                out.writeInt(row.size);
+                for (int i = 0; i < row.size; i++) {
+                    writeString(out, row.keys[i]);
+                    writeValue(out, row.values[i]);
+                }
+            }
+            return baos.toByteArray();
+        }
+
+        protected static Row read(byte[] bytes, RowId rowId) throws IOException {
+            if (bytes.length == 1 && bytes[0] == ROW_ABSENT) {
+                return new Row(ABSENT, (Serializable) null);
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            Serializable id = readValue(in);
+            byte kind = in.readByte();
+            if (kind == ROW_COLLECTION) {
+                return new Row(rowId.tableName, id, readArray(in));
+            }
+            Row row = new Row(rowId.tableName, id);
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                row.putNew(readString(in), readValue(in));
+            }
+            return row;
+        }
+
+        protected static void writeString(DataOutputStream out, String string) throws IOException {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        protected static String readString(DataInputStream in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        protected static void writeValue(DataOutputStream out, Serializable value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                writeString(out, (String) value);
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                out.writeLong(((Long) value).longValue());
+            } else if (value instanceof Boolean) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean(((Boolean) value).booleanValue());
+            } else if (value instanceof Double) {
+                out.writeByte(DOUBLE);
+                out.writeDouble(((Double) value).doubleValue());
+            } else if (value instanceof Integer) {
+                out.writeByte(INTEGER);
+                out.writeInt(((Integer) value).intValue());
+            } else if (value.getClass() == GregorianCalendar.class) {
+                Calendar cal = (Calendar) value;
+                out.writeByte(CALENDAR);
+                out.writeLong(cal.getTimeInMillis());
+                writeString(out, cal.getTimeZone().getID());
+            } else if (value instanceof ACLRow) {
+                out.writeByte(ACL);
+                writeACLRow(out, (ACLRow) value);
+            } else if (value == Row.OPAQUE) {
+                out.writeByte(OPAQUE);
+            } else if (value instanceof Serializable[] && arrayType(value.getClass().getComponentType()) >= 0) {
+                out.writeByte(ARRAY);
+                writeArray(out, (Serializable[]) value);
+            } else {
+                out.writeByte(SERIALIZED);
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+                    oos.writeObject(value);
+                }
+                out.writeInt(baos.size());
+                baos.writeTo(out);
+            }
+        }
+
+        protected static Serializable readValue(DataInputStream in) throws IOException {
+            byte type = in.readByte();
+            switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case LONG:
+                return Long.valueOf(in.readLong());
+            case BOOLEAN:
+                return Boolean.valueOf(in.readBoolean());
+            case DOUBLE:
+                return Double.valueOf(in.readDouble());
+            case INTEGER:
+                return Integer.valueOf(in.readInt());
+            case CALENDAR:
+                long millis = in.readLong();
+                Calendar cal = new GregorianCalendar(TimeZone.getTimeZone(readString(in)));
+                cal.setTimeInMillis(millis);
+                return cal;
+            case ACL:
+                return readACLRow(in);
+            case OPAQUE:
+                return Row.OPAQUE;
+            case ARRAY:
+                return readArray(in);
+            case SERIALIZED:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return (Serializable) ois.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+            default:
+                throw new IOException("Unknown type: " + type);
+            }
+        }
+
+        protected static int arrayType(Class<?> componentType) {
+            for (int i = 0; i < ARRAY_TYPES.length; i++) {
+                if (ARRAY_TYPES[i] == componentType) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        protected static void writeArray(DataOutputStream out, Serializable[] array) throws IOException {
+            out.writeByte(arrayType(array.getClass().getComponentType()));
+            out.writeInt(array.length);
+            for (Serializable value : array) {
+                writeValue(out, value);
+            }
+        }
+
+        protected static Serializable[] readArray(DataInputStream in) throws IOException {
+            Class<?> componentType = ARRAY_TYPES[in.readByte()];
+            int length = in.readInt();
+            Serializable[] array = (Serializable[]) Array.newInstance(componentType, length);
+            for (int i = 0; i < length; i++) {
+                array[i] = readValue(in);
+            }
+            return array;
+        }
+
+        protected static void writeACLRow(DataOutputStream out, ACLRow acl) throws IOException {
+            out.writeInt(acl.pos);
+            writeValue(out, acl.name);
+            out.writeBoolean(acl.grant);
+            writeValue(out, acl.permission);
+            writeValue(out, acl.user);
+            writeValue(out, acl.group);
+            writeValue(out, acl.creator);
+            writeValue(out, acl.begin);
+            writeValue(out, acl.end);
+            writeValue(out, acl.status);
+        }
+
+        protected static ACLRow readACLRow(DataInputStream in) throws IOException {
+            int pos = in.readInt();
+            String name = (String) readValue(in);
+            boolean grant = in.readBoolean();
+            String permission = (String) readValue(in);
+            String user = (String) readValue(in);
+            String group = (String) readValue(in);
+            String creator = (String) readValue(in);
+            Calendar begin = (Calendar) readValue(in);
+            Calendar end = (Calendar) readValue(in);
+            Long status = (Long) readValue(in);
+            return new ACLRow(pos, name, grant, permission, user, group, creator, begin, end, status);
+        }
+    }
+
+}
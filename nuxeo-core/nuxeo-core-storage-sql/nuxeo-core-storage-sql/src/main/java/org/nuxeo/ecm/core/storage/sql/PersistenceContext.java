@@ -969,6 +969,40 @@ public class PersistenceContext {
         return infos;
     }
 
+    /**
+     * Fetches the hierarchy fragments of the descendants of a node down to a given depth, and records the complete
+     * children of each node above that depth, so that getting them later doesn't need any database access.
+     *
+     * @param rootId the root node id
+     * @param depth the maximum depth, {@code 1} for the children only
+     * @return the ids of the descendants
+     * @since 10.3
+     */
+    public List<Serializable> prefetchDescendants(Serializable rootId, int depth) {
+        List<Row> rows = mapper.readDescendantsHierRows(rootId, depth);
+        List<Serializable> ids = new ArrayList<>(rows.size());
+        Map<Serializable, List<Serializable>> childrenByParent = new HashMap<>();
+        for (Row row : rows) {
+            if (getFragmentFromFetchedRow(row, false) == null) {
+                // deleted in the context
+                continue;
+            }
+            ids.add(row.id);
+            childrenByParent.computeIfAbsent(row.get(Model.HIER_PARENT_KEY), k -> new ArrayList<>()).add(row.id);
+        }
+        List<Serializable> parentIds = Collections.singletonList(rootId);
+        for (int i = 0; i < depth && !parentIds.isEmpty(); i++) {
+            List<Serializable> nextParentIds = new ArrayList<>();
+            for (Serializable parentId : parentIds) {
+                List<Serializable> children = childrenByParent.getOrDefault(parentId, new ArrayList<>());
+                hierNonComplex.recordExistingComplete(parentId, children);
+                nextParentIds.addAll(children);
+            }
+            parentIds = nextParentIds;
+        }
+        return ids;
+    }
+
     /**
      * Removes a document node and its children.
      * <p>
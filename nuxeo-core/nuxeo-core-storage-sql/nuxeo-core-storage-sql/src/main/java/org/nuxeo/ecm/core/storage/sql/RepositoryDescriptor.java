@@ -48,6 +48,12 @@ public class RepositoryDescriptor {
 
     public static final int DEFAULT_PATH_OPTIM_VERSION = 2;
 
+    /** @since 10.3 */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    /** @since 10.3 */
+    public static final int DEFAULT_READ_ACL_CACHE_MAX_SIZE = 1000;
+
     /** At startup, DDL changes are not detected. */
     public static final String DDL_MODE_IGNORE = "ignore";
 
@@ -401,6 +407,74 @@ public class RepositoryDescriptor {
         return readAclMaxSize == null ? DEFAULT_READ_ACL_MAX_SIZE : readAclMaxSize.intValue();
     }
 
+    /** @since 10.3 */
+    @XNode("aclOptimizations@readAclCache")
+    private Boolean readAclCacheEnabled;
+
+    /**
+     * Whether the read ACLs allowed for a set of principals are cached in memory and passed to queries, instead of
+     * being joined from the database, if the dialect supports it.
+     *
+     * @since 10.3
+     */
+    public boolean getReadAclCacheEnabled() {
+        return defaultFalse(readAclCacheEnabled);
+    }
+
+    /** @since 10.3 */
+    @XNode("aclOptimizations@readAclCacheMaxSize")
+    private Integer readAclCacheMaxSize;
+
+    /**
+     * Maximum number of sets of principals for which the allowed read ACLs are cached.
+     *
+     * @since 10.3
+     */
+    public int getReadAclCacheMaxSize() {
+        return readAclCacheMaxSize == null || readAclCacheMaxSize.intValue() < 1 ? DEFAULT_READ_ACL_CACHE_MAX_SIZE
+                : readAclCacheMaxSize.intValue();
+    }
+
+    /** @since 10.3 */
+    @XNode("batch@size")
+    private Integer batchSize;
+
+    /**
+     * Maximum number of rows sent to the database in a single JDBC batch or multi-row statement.
+     *
+     * @since 10.3
+     */
+    public int getBatchSize() {
+        return batchSize == null || batchSize.intValue() < 1 ? DEFAULT_BATCH_SIZE : batchSize.intValue();
+    }
+
+    /** @since 10.3 */
+    @XNode("batch@multiRowInsert")
+    private Boolean multiRowInsertEnabled;
+
+    /**
+     * Whether inserts of several rows into the same table are done using multi-row {@code INSERT} statements, if the
+     * dialect supports them.
+     *
+     * @since 10.3
+     */
+    public boolean getMultiRowInsertEnabled() {
+        return defaultTrue(multiRowInsertEnabled);
+    }
+
+    /** @since 10.3 */
+    @XNode("fetch@size")
+    private Integer fetchSize;
+
+    /**
+     * JDBC fetch size used when streaming query results through a cursor, or {@code 0} to use the dialect default.
+     *
+     * @since 10.3
+     */
+    public int getFetchSize() {
+        return fetchSize == null || fetchSize.intValue() < 1 ? 0 : fetchSize.intValue();
+    }
+
     @XNode("usersSeparator@key")
     public String usersSeparatorKey;
 
@@ -453,6 +527,11 @@ public class RepositoryDescriptor {
         pathOptimizationsVersion = other.pathOptimizationsVersion;
         aclOptimizationsEnabled = other.aclOptimizationsEnabled;
         readAclMaxSize = other.readAclMaxSize;
+        readAclCacheEnabled = other.readAclCacheEnabled;
+        readAclCacheMaxSize = other.readAclCacheMaxSize;
+        batchSize = other.batchSize;
+        multiRowInsertEnabled = other.multiRowInsertEnabled;
+        fetchSize = other.fetchSize;
         usersSeparatorKey = other.usersSeparatorKey;
         changeTokenEnabled = other.changeTokenEnabled;
     }
@@ -554,6 +633,21 @@ public class RepositoryDescriptor {
         if (other.readAclMaxSize != null) {
             readAclMaxSize = other.readAclMaxSize;
         }
+        if (other.readAclCacheEnabled != null) {
+            readAclCacheEnabled = other.readAclCacheEnabled;
+        }
+        if (other.readAclCacheMaxSize != null) {
+            readAclCacheMaxSize = other.readAclCacheMaxSize;
+        }
+        if (other.batchSize != null) {
+            batchSize = other.batchSize;
+        }
+        if (other.multiRowInsertEnabled != null) {
+            multiRowInsertEnabled = other.multiRowInsertEnabled;
+        }
+        if (other.fetchSize != null) {
+            fetchSize = other.fetchSize;
+        }
         if (other.usersSeparatorKey != null) {
             usersSeparatorKey = other.usersSeparatorKey;
         }
@@ -20,6 +20,7 @@ package org.nuxeo.ecm.core.storage.sql;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
@@ -53,9 +54,19 @@ public final class Row extends RowId implements Serializable, Cloneable {
 
     /**
      * The row keys, for single row.
+     * <p>
+     * The array may be shared with other rows (see {@link #keysShared}), in which case it is copied before a new key is
+     * appended.
      */
     protected String[] keys;
 
+    /**
+     * Whether {@link #keys} may be shared with other rows.
+     *
+     * @since 10.3
+     */
+    protected boolean keysShared;
+
     /**
      * The row values.
      */
@@ -69,7 +80,11 @@ public final class Row extends RowId implements Serializable, Cloneable {
     /** Copy constructor. */
     private Row(Row row) {
         super(row);
-        keys = row.keys == null ? null : row.keys.clone();
+        // keys are only ever appended to, so they can be shared until then
+        keys = row.keys;
+        if (keys != null) {
+            keysShared = row.keysShared = true;
+        }
         values = row.values == null ? null : row.values.clone();
         size = row.size;
     }
@@ -116,6 +131,22 @@ public final class Row extends RowId implements Serializable, Cloneable {
         size = -1;
     }
 
+    /**
+     * Constructs a new {@link Row} from shared keys and values. The keys array is not copied and must never be changed
+     * by the caller.
+     *
+     * @param keys the interned keys, shared with other rows
+     * @param values the values, whose array is owned by the new row
+     * @since 10.3
+     */
+    protected Row(String tableName, Serializable id, String[] keys, Serializable[] values) {
+        super(tableName, id);
+        this.keys = keys;
+        this.values = values;
+        size = keys.length;
+        keysShared = true;
+    }
+
     public boolean isCollection() {
         return size == -1;
     }
@@ -132,6 +163,10 @@ public final class Row extends RowId implements Serializable, Cloneable {
             values = new Serializable[newCapacity];
             System.arraycopy(d, 0, values, 0, size);
             System.arraycopy(k, 0, keys, 0, size);
+            keysShared = false;
+        } else if (keysShared) {
+            keys = Arrays.copyOf(keys, values.length);
+            keysShared = false;
         }
     }
 
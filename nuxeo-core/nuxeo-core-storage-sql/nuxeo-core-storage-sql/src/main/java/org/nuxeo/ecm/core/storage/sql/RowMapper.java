@@ -382,6 +382,19 @@ public interface RowMapper {
      */
     List<NodeInfo> getDescendantsInfo(Serializable rootId);
 
+    /**
+     * Gets the hierarchy rows of the descendants (not complex properties) of a given root node, down to a given depth.
+     * This does not include the row of the root node itself.
+     * <p>
+     * When the database supports it, this is done using a single recursive query.
+     *
+     * @param rootId the root node id from which to get descendants
+     * @param depth the maximum depth, {@code 1} for the children only
+     * @return the list of hierarchy rows
+     * @since 10.3
+     */
+    List<Row> readDescendantsHierRows(Serializable rootId, int depth);
+
     /**
      * Deletes a hierarchy.
      *
@@ -207,6 +207,15 @@ public class Selection {
         existing = new HashSet<Serializable>(actualExisting);
     }
 
+    /**
+     * Checks if complete information about the existing ids is known.
+     *
+     * @since 10.3
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
     /**
      * Marks as incomplete.
      * <p>
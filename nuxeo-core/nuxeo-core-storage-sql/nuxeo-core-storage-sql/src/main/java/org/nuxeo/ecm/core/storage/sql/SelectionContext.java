@@ -185,6 +185,18 @@ public class SelectionContext {
         }
     }
 
+    /**
+     * Records the complete list of existing ids of a selection, as read from the database, unless it's already known.
+     *
+     * @since 10.3
+     */
+    public void recordExistingComplete(Serializable selId, List<Serializable> ids) {
+        Selection selection = getSelection(selId);
+        if (!selection.isComplete()) {
+            selection.addExistingComplete(ids);
+        }
+    }
+
     /** Removes a selection item from the selection. */
     public void recordRemoved(SimpleFragment fragment) {
         recordRemoved(fragment.getId(), fragment.get(selType.selKey));
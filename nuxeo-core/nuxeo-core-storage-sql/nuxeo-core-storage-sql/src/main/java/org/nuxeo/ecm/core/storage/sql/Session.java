@@ -26,6 +26,7 @@ import javax.resource.cci.Connection;
 
 import org.nuxeo.ecm.core.api.IterableQueryResult;
 import org.nuxeo.ecm.core.api.PartialList;
+import org.nuxeo.ecm.core.api.ProjectionCursor;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.model.LockManager;
 import org.nuxeo.ecm.core.query.QueryFilter;
@@ -218,6 +219,19 @@ public interface Session extends Connection {
      */
     List<Node> getChildren(Node parent, String name, boolean complexProp);
 
+    /**
+     * Loads in the session the descendants of a node down to a given depth, so that subsequent calls to
+     * {@link #getChildren} on them don't need any database access.
+     * <p>
+     * The hierarchy is read in a single query if the database supports it, and the fragments configured for prefetch
+     * are read in bulk.
+     *
+     * @param node the root node
+     * @param depth the maximum depth, {@code 1} for the children only
+     * @since 10.3
+     */
+    void prefetchDescendants(Node node, int depth);
+
     /**
      * Creates a new child node.
      *
@@ -450,6 +464,20 @@ public interface Session extends Connection {
     IterableQueryResult queryAndFetch(String query, String queryType, QueryFilter queryFilter,
             boolean distinctDocuments, Object... params);
 
+    /**
+     * Makes a query to the database and returns a forward-only cursor (which must be closed when done).
+     *
+     * @param query the query
+     * @param queryType the query type
+     * @param queryFilter the query filter
+     * @param distinctDocuments if {@code true} then a maximum of one row per document will be returned
+     * @param params optional query-type-dependent parameters
+     * @return a cursor, which <b>must</b> be closed when done
+     * @since 10.3
+     */
+    ProjectionCursor queryProjectionCursor(String query, String queryType, QueryFilter queryFilter,
+            boolean distinctDocuments, Object... params);
+
     /**
      * Makes a query to the database.
      *
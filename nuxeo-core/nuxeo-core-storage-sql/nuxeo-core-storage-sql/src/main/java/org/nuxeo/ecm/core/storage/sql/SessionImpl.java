@@ -51,6 +51,7 @@ import org.nuxeo.ecm.core.api.DocumentExistsException;
 import org.nuxeo.ecm.core.api.IterableQueryResult;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.PartialList;
+import org.nuxeo.ecm.core.api.ProjectionCursor;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.api.repository.RepositoryManager;
 import org.nuxeo.ecm.core.api.security.ACL;
@@ -61,6 +62,7 @@ import org.nuxeo.ecm.core.query.sql.NXQL;
 import org.nuxeo.ecm.core.schema.DocumentType;
 import org.nuxeo.ecm.core.schema.SchemaManager;
 import org.nuxeo.ecm.core.storage.FulltextConfiguration;
+import org.nuxeo.ecm.core.storage.FulltextExtractorWork;
 import org.nuxeo.ecm.core.storage.FulltextParser;
 import org.nuxeo.ecm.core.storage.FulltextUpdaterWork;
 import org.nuxeo.ecm.core.storage.FulltextUpdaterWork.IndexAndText;
@@ -465,9 +467,19 @@ public class SessionImpl implements Session, XAResource {
         // FulltextExtractorWork does fulltext extraction using converters
         // and then schedules a FulltextUpdaterWork to write the results
         // single-threaded
+        List<String> docIds = new ArrayList<>(dirtyBinaries.size());
         for (Serializable id : dirtyBinaries) {
-            String docId = model.idToString(id);
-            Work work = new SQLFulltextExtractorWork(repository.getName(), docId);
+            docIds.add(model.idToString(id));
+        }
+        int batchSize = FulltextExtractorWork.getBatchSize();
+        for (int i = 0; i < docIds.size(); i += batchSize) {
+            List<String> batch = docIds.subList(i, Math.min(i + batchSize, docIds.size()));
+            Work work;
+            if (batch.size() == 1) {
+                work = new SQLFulltextExtractorWork(repository.getName(), batch.get(0));
+            } else {
+                work = new SQLFulltextExtractorWork(repository.getName(), batch);
+            }
             works.add(work);
         }
     }
@@ -1076,6 +1088,16 @@ public class SessionImpl implements Session, XAResource {
         return nodes;
     }
 
+    @Override
+    public void prefetchDescendants(Node node, int depth) {
+        checkLive();
+        List<Serializable> ids = context.prefetchDescendants(node.getId(), depth);
+        if (!ids.isEmpty()) {
+            // bulk fetch of the other prefetched fragments
+            getNodesByIds(ids, true);
+        }
+    }
+
     @Override
     public void orderBefore(Node parent, Node source, Node dest) {
         checkLive();
@@ -1343,6 +1365,26 @@ public class SessionImpl implements Session, XAResource {
         }
     }
 
+    @Override
+    public ProjectionCursor queryProjectionCursor(String query, String queryType, QueryFilter queryFilter,
+            boolean distinctDocuments, Object... params) {
+        final Timer.Context timerContext = queryTimer.time();
+        try {
+            return mapper.queryProjectionCursor(query, queryType, queryFilter, distinctDocuments, params);
+        } finally {
+            long duration = timerContext.stop();
+            if ((LOG_MIN_DURATION_NS >= 0) && (duration > LOG_MIN_DURATION_NS)) {
+                String msg = String.format("duration_ms:\t%.2f\t%s\tqueryProjectionCursor\t%s",
+                        duration / 1000000.0, queryFilter, query);
+                if (log.isTraceEnabled()) {
+                    log.info(msg, new Throwable("Slow query stack trace"));
+                } else {
+                    log.info(msg);
+                }
+            }
+        }
+    }
+
     @Override
     public PartialList<Map<String, Serializable>> queryProjection(String query, String queryType,
             QueryFilter queryFilter, boolean distinctDocuments, long countUpTo, Object... params) {
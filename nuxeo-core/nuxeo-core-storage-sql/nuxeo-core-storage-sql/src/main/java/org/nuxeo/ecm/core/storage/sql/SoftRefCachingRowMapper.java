@@ -54,18 +54,20 @@ public class SoftRefCachingRowMapper implements RowMapper {
      * The cached rows. All held data is identical to what is present in the underlying {@link RowMapper} and could be
      * refetched if needed.
      * <p>
-     * The values are either {@link Row} for fragments present in the database, or a row with tableName {@link #ABSENT}
-     * to denote a fragment known to be absent from the database.
+     * The values are either {@link CompactRow} or {@link Row} (for collections) for fragments present in the database,
+     * or a row with tableName {@link #ABSENT} to denote a fragment known to be absent from the database.
      * <p>
      * This cache is memory-sensitive (all values are soft-referenced), a fragment can always be refetched if the GC
      * collects it.
      */
     // we use a new Row instance for the absent case to avoid keeping other
     // references to it which would prevent its GCing
-    private final Map<RowId, Row> cache;
+    private final Map<RowId, Serializable> cache;
 
     private Model model;
 
+    private CompactRow.Layouts layouts;
+
     /**
      * The {@link RowMapper} to which operations that cannot be processed from the cache are delegated.
      */
@@ -114,6 +116,7 @@ public class SoftRefCachingRowMapper implements RowMapper {
     public void initialize(String repositoryName, Model model, RowMapper rowMapper,
             InvalidationsPropagator cachePropagator, Map<String, String> properties) {
         this.model = model;
+        layouts = model.getCompactRowLayouts();
         this.rowMapper = rowMapper;
         this.cachePropagator = cachePropagator;
         cachePropagator.addQueue(cacheQueue);
@@ -150,6 +153,11 @@ public class SoftRefCachingRowMapper implements RowMapper {
     }
 
     protected void cachePut(Row row) {
+        CompactRow compactRow = layouts.compact(row);
+        if (compactRow != null) {
+            cache.put(new RowId(row), compactRow);
+            return;
+        }
         row = row.clone();
         // for ACL collections, make sure the order is correct
         // (without the cache, the query to get a list of collection does an
@@ -190,9 +198,15 @@ public class SoftRefCachingRowMapper implements RowMapper {
     protected Row cacheGet(RowId rowId) {
         final Timer.Context context = cacheGetTimer.time();
         try {
-            Row row = cache.get(rowId);
-            if (row != null && !isAbsent(row)) {
-                row = row.clone();
+            Serializable value = cache.get(rowId);
+            Row row;
+            if (value instanceof CompactRow) {
+                row = ((CompactRow) value).toRow();
+            } else {
+                row = (Row) value;
+                if (row != null && !isAbsent(row)) {
+                    row = row.clone();
+                }
             }
             if (row != null) {
                 cacheHitCount.inc();
@@ -442,6 +456,15 @@ public class SoftRefCachingRowMapper implements RowMapper {
         return rowMapper.getDescendantsInfo(rootId);
     }
 
+    @Override
+    public List<Row> readDescendantsHierRows(Serializable rootId, int depth) {
+        List<Row> rows = rowMapper.readDescendantsHierRows(rootId, depth);
+        for (Row row : rows) {
+            cachePut(row);
+        }
+        return rows;
+    }
+
     @Override
     public void remove(Serializable rootId, List<NodeInfo> nodeInfos) {
         rowMapper.remove(rootId, nodeInfos);
@@ -77,6 +77,8 @@ public class UnifiedCachingRowMapper implements RowMapper {
 
     private Model model;
 
+    private CompactRow.Layouts layouts;
+
     /**
      * The {@link RowMapper} to which operations that cannot be processed from the cache are delegated.
      */
@@ -129,6 +131,7 @@ public class UnifiedCachingRowMapper implements RowMapper {
     synchronized public void initialize(String repositoryName, Model model, RowMapper rowMapper,
             InvalidationsPropagator invalidationsPropagator, Map<String, String> properties) {
         this.model = model;
+        layouts = model.getCompactRowLayouts();
         this.rowMapper = rowMapper;
         this.invalidationsPropagator = invalidationsPropagator;
         invalidationsPropagator.addQueue(invalidationsQueue);
@@ -254,6 +257,11 @@ public class UnifiedCachingRowMapper implements RowMapper {
     }
 
     protected void cachePut(Row row) {
+        CompactRow compactRow = layouts.compact(row);
+        if (compactRow != null) {
+            ehCachePut(new Element(new RowId(row), compactRow));
+            return;
+        }
         row = row.clone();
         // for ACL collections, make sure the order is correct
         // (without the cache, the query to get a list of collection does an
@@ -299,10 +307,15 @@ public class UnifiedCachingRowMapper implements RowMapper {
             Element element = ehCacheGet(rowId);
             Row row = null;
             if (element != null) {
-                row = (Row) element.getObjectValue();
-            }
-            if (row != null && !isAbsent(row)) {
-                row = row.clone();
+                Object value = element.getObjectValue();
+                if (value instanceof CompactRow) {
+                    row = ((CompactRow) value).toRow();
+                } else {
+                    row = (Row) value;
+                    if (row != null && !isAbsent(row)) {
+                        row = row.clone();
+                    }
+                }
             }
             if (row != null) {
                 cacheHitCount.inc();
@@ -562,6 +575,15 @@ public class UnifiedCachingRowMapper implements RowMapper {
         return rowMapper.getDescendantsInfo(rootId);
     }
 
+    @Override
+    public List<Row> readDescendantsHierRows(Serializable rootId, int depth) {
+        List<Row> rows = rowMapper.readDescendantsHierRows(rootId, depth);
+        for (Row row : rows) {
+            cachePut(row);
+        }
+        return rows;
+    }
+
     @Override
     public void remove(Serializable rootId, List<NodeInfo> nodeInfos) {
         rowMapper.remove(rootId, nodeInfos);
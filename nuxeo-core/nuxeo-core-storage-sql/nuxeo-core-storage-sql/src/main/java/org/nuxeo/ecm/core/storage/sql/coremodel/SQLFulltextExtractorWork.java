@@ -19,6 +19,8 @@
  */
 package org.nuxeo.ecm.core.storage.sql.coremodel;
 
+import java.util.List;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.storage.DefaultFulltextParser;
@@ -42,6 +44,18 @@ public class SQLFulltextExtractorWork extends FulltextExtractorWork {
         super(repositoryName, docId, true);
     }
 
+    /**
+     * @since 10.3
+     */
+    public SQLFulltextExtractorWork(String repositoryName, List<String> docIds) {
+        super(repositoryName, docIds, true);
+    }
+
+    @Override
+    protected FulltextExtractorWork newWork(List<String> ids) {
+        return new SQLFulltextExtractorWork(repositoryName, ids);
+    }
+
     private static final Log log = LogFactory.getLog(SQLFulltextExtractorWork.class);
 
     @Override
@@ -44,6 +44,7 @@ import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentNotFoundException;
 import org.nuxeo.ecm.core.api.IterableQueryResult;
 import org.nuxeo.ecm.core.api.PartialList;
+import org.nuxeo.ecm.core.api.ProjectionCursor;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.api.VersionModel;
 import org.nuxeo.ecm.core.api.security.ACE;
@@ -125,6 +126,11 @@ public class SQLSession implements Session<QueryFilter> {
         return new SQLDocumentLive(null, null, this, true);
     }
 
+    @Override
+    public void prefetchDescendants(Document doc, int depth) {
+        session.prefetchDescendants(((SQLDocument) doc).getNode(), depth);
+    }
+
     @Override
     public void close() {
         root = null;
@@ -436,6 +442,12 @@ public class SQLSession implements Session<QueryFilter> {
         return session.queryAndFetch(query, queryType, queryFilter, distinctDocuments, params);
     }
 
+    @Override
+    public ProjectionCursor queryProjectionCursor(String query, String queryType, QueryFilter queryFilter,
+            boolean distinctDocuments, Object[] params) {
+        return session.queryProjectionCursor(query, queryType, queryFilter, distinctDocuments, params);
+    }
+
     @Override
     public PartialList<Map<String, Serializable>> queryProjection(String query, String queryType,
             QueryFilter queryFilter, boolean distinctDocuments, long countUpTo, Object[] params) {
@@ -19,12 +19,10 @@
 package org.nuxeo.ecm.core.storage.sql.jdbc;
 
 import java.io.Serializable;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Iterator;
 import java.util.List;
 
 import org.nuxeo.ecm.core.storage.sql.ACLRow;
@@ -108,14 +106,9 @@ public class ACLCollectionIO implements CollectionIO {
     }
 
     @Override
-    public void executeInserts(PreparedStatement ps, List<RowUpdate> rowus, List<Column> columns,
-            boolean supportsBatchUpdates, String sql, JDBCConnection connection) throws SQLException {
-        List<Serializable> debugValues = connection.logger.isLogEnabled() ? new ArrayList<Serializable>() : null;
-        boolean batched = supportsBatchUpdates && rowus.size() > 1;
-        String loggedSql = batched ? sql + " -- BATCHED" : sql;
-        int batch = 0;
-        for (Iterator<RowUpdate> rowIt = rowus.iterator(); rowIt.hasNext();) {
-            RowUpdate rowu = rowIt.next();
+    public List<Serializable[]> getInsertValues(List<RowUpdate> rowus, List<Column> columns) {
+        List<Serializable[]> rows = new ArrayList<>();
+        for (RowUpdate rowu : rowus) {
             int start;
             if (rowu.pos == -1 || insertAll) {
                 start = 0;
@@ -126,9 +119,9 @@ public class ACLCollectionIO implements CollectionIO {
             Serializable[] array = rowu.row.values;
             for (int i = start; i < array.length; i++) {
                 ACLRow acl = (ACLRow) array[i];
+                Serializable[] values = new Serializable[columns.size()];
                 int n = 0;
                 for (Column column : columns) {
-                    n++;
                     String key = column.getKey();
                     Serializable v;
                     switch (key) {
@@ -168,28 +161,12 @@ public class ACLCollectionIO implements CollectionIO {
                     default:
                         throw new RuntimeException(key);
                     }
-                    column.setToPreparedStatement(ps, n, v);
-                    if (debugValues != null) {
-                        debugValues.add(v);
-                    }
-                }
-                if (debugValues != null) {
-                    connection.logger.logSQL(loggedSql, debugValues);
-                    debugValues.clear();
-                }
-                if (batched) {
-                    ps.addBatch();
-                    batch++;
-                    if (batch % JDBCRowMapper.UPDATE_BATCH_SIZE == 0 || !rowIt.hasNext()) {
-                        ps.executeBatch();
-                        connection.countExecute();
-                    }
-                } else {
-                    ps.execute();
-                    connection.countExecute();
+                    values[n++] = v;
                 }
+                rows.add(values);
             }
         }
+        return rows;
     }
 
 }
@@ -22,6 +22,8 @@ import java.io.Serializable;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import org.nuxeo.ecm.core.storage.sql.Model;
@@ -40,11 +42,45 @@ public interface CollectionIO {
     Serializable getCurrentFromResultSet(ResultSet rs, List<Column> columns, Model model, Serializable[] returnId,
             int[] returnPos) throws SQLException;
 
+    /**
+     * Gets the values to insert for a fragment, as one array of column values for each collection element to write.
+     *
+     * @since 10.3
+     */
+    List<Serializable[]> getInsertValues(List<RowUpdate> rowus, List<Column> columns);
+
     /**
      * Sets the values of a fragment to a SQL prepared statement, and executes the statement for each value. Uses
      * batching if possible.
      */
-    void executeInserts(PreparedStatement ps, List<RowUpdate> rowus, List<Column> columns, boolean supportsBatchUpdates,
-            String sql, JDBCConnection connection) throws SQLException;
+    default void executeInserts(PreparedStatement ps, List<RowUpdate> rowus, List<Column> columns,
+            boolean supportsBatchUpdates, String sql, JDBCConnection connection) throws SQLException {
+        List<Serializable[]> rows = getInsertValues(rowus, columns);
+        boolean batched = supportsBatchUpdates && rows.size() > 1;
+        String loggedSql = batched ? sql + " -- BATCHED" : sql;
+        int batch = 0;
+        for (Iterator<Serializable[]> rowIt = rows.iterator(); rowIt.hasNext();) {
+            Serializable[] values = rowIt.next();
+            int n = 0;
+            for (Column column : columns) {
+                column.setToPreparedStatement(ps, n + 1, values[n]);
+                n++;
+            }
+            if (connection.logger.isLogEnabled()) {
+                connection.logger.logSQL(loggedSql, Arrays.asList(values));
+            }
+            if (batched) {
+                ps.addBatch();
+                batch++;
+                if (batch % connection.getBatchSize() == 0 || !rowIt.hasNext()) {
+                    ps.executeBatch();
+                    connection.countExecute();
+                }
+            } else {
+                ps.execute();
+                connection.countExecute();
+            }
+        }
+    }
 
 }
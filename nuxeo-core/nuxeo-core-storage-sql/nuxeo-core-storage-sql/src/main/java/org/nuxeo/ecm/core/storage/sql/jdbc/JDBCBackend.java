@@ -60,6 +60,8 @@ public class JDBCBackend implements RepositoryBackend {
 
     private boolean isPooledDataSource;
 
+    private ReadAclCache readAclCache;
+
     @Override
     public Model initialize(RepositoryImpl repository) {
         this.repository = repository;
@@ -84,6 +86,10 @@ public class JDBCBackend implements RepositoryBackend {
             throw new NuxeoException("Cannot get connection from datasource: " + dataSourceName, cause);
         }
 
+        if (repositoryDescriptor.getReadAclCacheEnabled() && dialect.supportsReadAclCache()) {
+            readAclCache = new ReadAclCache(repositoryDescriptor.name, repositoryDescriptor.getReadAclCacheMaxSize());
+        }
+
         // model setup
         ModelSetup modelSetup = new ModelSetup();
         modelSetup.materializeFulltextSyntheticColumn = dialect.getMaterializeFulltextSyntheticColumn();
@@ -142,7 +148,7 @@ public class JDBCBackend implements RepositoryBackend {
     public Mapper newMapper(PathResolver pathResolver, boolean useInvalidations) {
         boolean noSharing = !useInvalidations;
         ClusterInvalidator cnh = useInvalidations ? clusterInvalidator : null;
-        Mapper mapper = new JDBCMapper(model, pathResolver, sqlInfo, cnh, repository);
+        Mapper mapper = new JDBCMapper(model, pathResolver, sqlInfo, cnh, repository, readAclCache);
         if (isPooledDataSource) {
             mapper = JDBCMapperConnector.newConnector(mapper, noSharing);
         } else {
@@ -32,6 +32,7 @@ import org.nuxeo.ecm.core.api.ConcurrentUpdateException;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.storage.sql.Mapper.Identification;
 import org.nuxeo.ecm.core.storage.sql.Model;
+import org.nuxeo.ecm.core.storage.sql.RepositoryDescriptor;
 import org.nuxeo.ecm.core.storage.sql.jdbc.dialect.Dialect;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.datasource.ConnectionHelper;
@@ -64,6 +65,13 @@ public class JDBCConnection {
 
     protected boolean supportsBatchUpdates;
 
+    /**
+     * Maximum number of rows sent in a single batch or multi-row statement.
+     *
+     * @since 10.3
+     */
+    protected int batchSize;
+
     protected XAResource xaresource = new XAResourceConnectionAdapter(this);
 
     // for tests
@@ -94,6 +102,7 @@ public class JDBCConnection {
         this.model = model;
         this.sqlInfo = sqlInfo;
         dialect = sqlInfo.dialect;
+        batchSize = model.getRepositoryDescriptor().getBatchSize();
         setClientInfo = Boolean.parseBoolean(Framework.getProperty(SET_CLIENT_INFO_PROP, SET_CLIENT_INFO_DEFAULT));
     }
 
@@ -106,12 +115,22 @@ public class JDBCConnection {
         sqlInfo = null;
         model = null;
         dialect = null;
+        batchSize = RepositoryDescriptor.DEFAULT_BATCH_SIZE;
     }
 
     public String getRepositoryName() {
         return model.getRepositoryDescriptor().name;
     }
 
+    /**
+     * Gets the maximum number of rows sent in a single batch or multi-row statement.
+     *
+     * @since 10.3
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     public Identification getIdentification() {
         return new Identification(null, "" + instanceNumber);
     }
@@ -64,6 +64,7 @@ import org.nuxeo.ecm.core.api.IterableQueryResult;
 import org.nuxeo.ecm.core.api.Lock;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.PartialList;
+import org.nuxeo.ecm.core.api.ProjectionCursor;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.api.ScrollResultImpl;
 import org.nuxeo.ecm.core.blob.DocumentBlobManager;
@@ -125,6 +126,16 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
 
     protected boolean clusteringEnabled;
 
+    /**
+     * The cache of allowed read ACLs shared by the mappers of the repository, or {@code null} if not enabled.
+     *
+     * @since 10.3
+     */
+    protected final ReadAclCache readAclCache;
+
+    /** Whether read ACLs have been updated in the current transaction. */
+    protected boolean readAclsUpdated;
+
     protected static final String NOSCROLL_ID = "noscroll";
 
     /**
@@ -138,9 +149,26 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
      */
     public JDBCMapper(Model model, PathResolver pathResolver, SQLInfo sqlInfo, ClusterInvalidator clusterInvalidator,
             RepositoryImpl repository) {
+        this(model, pathResolver, sqlInfo, clusterInvalidator, repository, null);
+    }
+
+    /**
+     * Creates a new Mapper.
+     *
+     * @param model the model
+     * @param pathResolver the path resolver (used for startswith queries)
+     * @param sqlInfo the sql info
+     * @param clusterInvalidator the cluster invalidator
+     * @param repository the repository
+     * @param readAclCache the cache of allowed read ACLs, or {@code null}
+     * @since 10.3
+     */
+    public JDBCMapper(Model model, PathResolver pathResolver, SQLInfo sqlInfo, ClusterInvalidator clusterInvalidator,
+            RepositoryImpl repository, ReadAclCache readAclCache) {
         super(model, sqlInfo, clusterInvalidator, repository.getInvalidationsPropagator());
         this.pathResolver = pathResolver;
         this.repository = repository;
+        this.readAclCache = readAclCache;
         clusteringEnabled = clusterInvalidator != null;
         queryMakerService = Framework.getService(QueryMakerService.class);
 
@@ -683,6 +711,51 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
         return null;
     }
 
+    /**
+     * Finds the query maker for a query, and prepares the read ACLs needed to check security for its principals.
+     *
+     * @since 10.3
+     */
+    protected QueryMaker findQueryMaker(String queryType, QueryFilter queryFilter) {
+        QueryMaker queryMaker = findQueryMaker(queryType);
+        if (readAclCache != null && queryMaker instanceof NXQLQueryMaker && queryFilter.getPrincipals() != null) {
+            // no need for the database cache, pass the allowed read acls to the query
+            String[] readAclIds = readAclCache.getReadAclIds(queryFilter.getPrincipals(), this::listUserReadAcls);
+            ((NXQLQueryMaker) queryMaker).setReadAclIds(readAclIds);
+        } else if (dialect.needsPrepareUserReadAcls()) {
+            prepareUserReadAcls(queryFilter);
+        }
+        return queryMaker;
+    }
+
+    /**
+     * Lists the read ACL ids allowed for the given principals.
+     *
+     * @since 10.3
+     */
+    protected List<String> listUserReadAcls(String[] principals) {
+        String sql = dialect.getListUserReadAclsSql();
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            if (logger.isLogEnabled()) {
+                logger.logSQL(sql, Collections.singleton(principals));
+            }
+            setToPreparedStatement(ps, 1, principals);
+            List<String> aclIds = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                countExecute();
+                while (rs.next()) {
+                    aclIds.add(rs.getString(1));
+                }
+            }
+            if (logger.isLogEnabled()) {
+                logger.log("  -> " + aclIds.size() + " read acls");
+            }
+            return aclIds;
+        } catch (SQLException e) {
+            throw new NuxeoException("Failed to list user read acls", e);
+        }
+    }
+
     protected void prepareUserReadAcls(QueryFilter queryFilter) {
         String sql = dialect.getPrepareUserReadAclsSql();
         Serializable principals = queryFilter.getPrincipals();
@@ -726,10 +799,7 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
     @Override
     public IterableQueryResult queryAndFetch(String query, String queryType, QueryFilter queryFilter,
             boolean distinctDocuments, Object... params) {
-        if (dialect.needsPrepareUserReadAcls()) {
-            prepareUserReadAcls(queryFilter);
-        }
-        QueryMaker queryMaker = findQueryMaker(queryType);
+        QueryMaker queryMaker = findQueryMaker(queryType, queryFilter);
         if (queryMaker == null) {
             throw new NuxeoException("No QueryMaker accepts query: " + queryType + ": " + query);
         }
@@ -741,6 +811,21 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
         }
     }
 
+    @Override
+    public ProjectionCursor queryProjectionCursor(String query, String queryType, QueryFilter queryFilter,
+            boolean distinctDocuments, Object... params) {
+        QueryMaker queryMaker = findQueryMaker(queryType, queryFilter);
+        if (queryMaker == null) {
+            throw new NuxeoException("No QueryMaker accepts query: " + queryType + ": " + query);
+        }
+        query = computeDistinctDocuments(query, distinctDocuments);
+        try {
+            return new ResultSetProjectionCursor(queryMaker, query, queryFilter, pathResolver, this, params);
+        } catch (SQLException e) {
+            throw new NuxeoException("Invalid query: " + queryType + ": " + query, e);
+        }
+    }
+
     @Override
     public PartialList<Map<String, Serializable>> queryProjection(String query, String queryType,
             QueryFilter queryFilter, boolean distinctDocuments, long countUpTo, Object... params) {
@@ -768,10 +853,7 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
 
     protected <T> PartialList<T> queryProjection(String query, String queryType, QueryFilter queryFilter,
             long countUpTo, BiFunctionSQLException<SQLInfoSelect, ResultSet, T> extractor, Object... params) {
-        if (dialect.needsPrepareUserReadAcls()) {
-            prepareUserReadAcls(queryFilter);
-        }
-        QueryMaker queryMaker = findQueryMaker(queryType);
+        QueryMaker queryMaker = findQueryMaker(queryType, queryFilter);
         if (queryMaker == null) {
             throw new NuxeoException("No QueryMaker accepts query: " + queryType + ": " + query);
         }
@@ -1194,6 +1276,7 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
             checkConcurrentUpdate(e);
             throw new NuxeoException("Failed to update read acls", e);
         }
+        readAclsUpdated();
         if (log.isDebugEnabled()) {
             log.debug("updateReadAcls: done.");
         }
@@ -1213,9 +1296,42 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
         } catch (SQLException e) {
             throw new NuxeoException("Failed to rebuild read acls", e);
         }
+        readAclsUpdated();
         log.debug("rebuildReadAcls: done.");
     }
 
+    /**
+     * Called when new read ACLs may have been created in the current transaction.
+     */
+    protected void readAclsUpdated() {
+        if (readAclCache != null) {
+            readAclCache.invalidate();
+            readAclsUpdated = true;
+        }
+    }
+
+    @Override
+    public Invalidations receiveInvalidations() {
+        Invalidations invalidations = super.receiveInvalidations();
+        if (readAclCache != null && invalidations != null && invalidations.hasReadAcls()) {
+            readAclCache.invalidate();
+        }
+        return invalidations;
+    }
+
+    @Override
+    public void sendInvalidations(Invalidations invalidations) {
+        if (readAclsUpdated) {
+            readAclsUpdated = false;
+            // invalidate again after commit, read acls may have been computed concurrently from the old ones
+            readAclCache.invalidate();
+            if (invalidations != null) {
+                invalidations.addReadAcls();
+            }
+        }
+        super.sendInvalidations(invalidations);
+    }
+
     /*
      * ----- Locking -----
      */
@@ -54,6 +54,7 @@ import org.nuxeo.ecm.core.storage.sql.Invalidations;
 import org.nuxeo.ecm.core.storage.sql.InvalidationsPropagator;
 import org.nuxeo.ecm.core.storage.sql.Model;
 import org.nuxeo.ecm.core.storage.sql.PropertyType;
+import org.nuxeo.ecm.core.storage.sql.RepositoryDescriptor;
 import org.nuxeo.ecm.core.storage.sql.Row;
 import org.nuxeo.ecm.core.storage.sql.RowId;
 import org.nuxeo.ecm.core.storage.sql.RowMapper;
@@ -72,7 +73,12 @@ import org.nuxeo.runtime.services.config.ConfigurationService;
  */
 public class JDBCRowMapper extends JDBCConnection implements RowMapper {
 
-    public static final int UPDATE_BATCH_SIZE = 100; // also insert/delete
+    /**
+     * Default batch size, the actual one is configured on the repository.
+     *
+     * @see RepositoryDescriptor#getBatchSize
+     */
+    public static final int UPDATE_BATCH_SIZE = RepositoryDescriptor.DEFAULT_BATCH_SIZE; // also insert/delete
 
     public static final int DEBUG_MAX_TREE = 50;
 
@@ -89,6 +95,9 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
 
     private final boolean collectionDeleteBeforeAppend;
 
+    /** Whether several rows inserted into the same table are sent using a single multi-row statement. */
+    private final boolean multiRowInsert;
+
     private final CollectionIO aclCollectionIO;
 
     private final CollectionIO scalarCollectionIO;
@@ -102,6 +111,7 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         collectionDeleteBeforeAppend = configurationService.isBooleanPropertyTrue(COLLECTION_DELETE_BEFORE_APPEND_PROP);
         aclCollectionIO = new ACLCollectionIO(collectionDeleteBeforeAppend);
         scalarCollectionIO = new ScalarCollectionIO(collectionDeleteBeforeAppend);
+        multiRowInsert = dialect.supportsMultiRowInsert() && model.getRepositoryDescriptor().getMultiRowInsertEnabled();
     }
 
     @Override
@@ -505,9 +515,23 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         if (sql == null) {
             throw new NuxeoException("Unknown table: " + tableName);
         }
+        List<Column> columns = sqlInfo.getInsertColumns(tableName);
+        if (multiRowInsert && rows.size() > 1) {
+            List<Serializable[]> values = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                Serializable[] rowValues = new Serializable[columns.size()];
+                int i = 0;
+                for (Column column : columns) {
+                    rowValues[i++] = row.get(column.getKey());
+                }
+                values.add(rowValues);
+            }
+            if (insertMultiRows(tableName, columns, values)) {
+                return;
+            }
+        }
         boolean batched = supportsBatchUpdates && rows.size() > 1;
         String loggedSql = batched ? sql + " -- BATCHED" : sql;
-        List<Column> columns = sqlInfo.getInsertColumns(tableName);
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
             int batch = 0;
             for (Iterator<Row> rowIt = rows.iterator(); rowIt.hasNext();) {
@@ -522,7 +546,7 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
                 if (batched) {
                     ps.addBatch();
                     batch++;
-                    if (batch % UPDATE_BATCH_SIZE == 0 || !rowIt.hasNext()) {
+                    if (batch % batchSize == 0 || !rowIt.hasNext()) {
                         ps.executeBatch();
                         countExecute();
                     }
@@ -554,6 +578,12 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         String sql = sqlInfo.getInsertSql(tableName);
         List<Column> columns = sqlInfo.getInsertColumns(tableName);
         CollectionIO io = getCollectionIO(tableName);
+        if (multiRowInsert) {
+            List<Serializable[]> values = io.getInsertValues(rowus, columns);
+            if (values.isEmpty() || values.size() > 1 && insertMultiRows(tableName, columns, values)) {
+                return;
+            }
+        }
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
             io.executeInserts(ps, rowus, columns, supportsBatchUpdates, sql, this);
         } catch (SQLException e) {
@@ -562,6 +592,69 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         }
     }
 
+    /**
+     * Inserts multiple rows, all for the same table, using multi-row insert statements holding as many rows as allowed
+     * by the batch size and the dialect.
+     *
+     * @param tableName the table name
+     * @param columns the columns to insert
+     * @param rows the column values of each row to insert
+     * @return {@code false} if multi-row inserts are not available for this table
+     */
+    protected boolean insertMultiRows(String tableName, List<Column> columns, List<Serializable[]> rows) {
+        if (columns.isEmpty() || sqlInfo.getMultiRowInsertSql(tableName, 1) == null) {
+            return false;
+        }
+        int maxRows = Math.min(batchSize, dialect.getMaximumRowsForMultiRowInsert());
+        maxRows = Math.min(maxRows, dialect.getMaximumArgsForMultiRowInsert() / columns.size());
+        if (maxRows < 2) {
+            return false;
+        }
+        int size = rows.size();
+        int full = size - size % maxRows;
+        if (full > 0) {
+            insertMultiRows(tableName, columns, rows.subList(0, full), maxRows);
+        }
+        if (full < size) {
+            insertMultiRows(tableName, columns, rows.subList(full, size), size - full);
+        }
+        return true;
+    }
+
+    /**
+     * Inserts multiple rows, all for the same table, using multi-row insert statements of {@code nrows} rows. The
+     * number of rows must be a multiple of {@code nrows}.
+     */
+    protected void insertMultiRows(String tableName, List<Column> columns, List<Serializable[]> rows, int nrows) {
+        String sql = sqlInfo.getMultiRowInsertSql(tableName, nrows);
+        List<Serializable> debugValues = logger.isLogEnabled() ? new ArrayList<>() : null;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int i = 1;
+            for (Serializable[] values : rows) {
+                int n = 0;
+                for (Column column : columns) {
+                    Serializable v = values[n++];
+                    column.setToPreparedStatement(ps, i++, v);
+                    if (debugValues != null) {
+                        debugValues.add(v);
+                    }
+                }
+                if (i > nrows * columns.size()) {
+                    if (debugValues != null) {
+                        logger.logSQL(sql, debugValues);
+                        debugValues.clear();
+                    }
+                    ps.execute();
+                    countExecute();
+                    i = 1;
+                }
+            }
+        } catch (SQLException e) {
+            checkConcurrentUpdate(e);
+            throw new NuxeoException("Could not insert: " + sqlInfo.getInsertSql(tableName), e);
+        }
+    }
+
     /**
      * Updates multiple simple rows, all for the same table.
      */
@@ -619,14 +712,16 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
                     if (batched) {
                         ps.addBatch();
                         batch++;
-                        if (batch % UPDATE_BATCH_SIZE == 0 || !rowIt.hasNext()) {
+                        if (batch % batchSize == 0 || !rowIt.hasNext()) {
                             int[] counts = ps.executeBatch();
                             countExecute();
                             if (changeTokenEnabled && hasConditions) {
+                                // index of the first row update of this batch
+                                int first = batch - counts.length;
                                 for (int j = 0; j < counts.length; j++) {
                                     int count = counts[j];
                                     if (count != Statement.SUCCESS_NO_INFO && count != 1) {
-                                        Serializable id = rowUpdates.get(j).row.id;
+                                        Serializable id = rowUpdates.get(first + j).row.id;
                                         logger.log("  -> CONCURRENT UPDATE: " + id);
                                         throw new ConcurrentUpdateException(id.toString());
                                     }
@@ -1325,6 +1420,101 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         return descendants;
     }
 
+    @Override
+    public List<Row> readDescendantsHierRows(Serializable rootId, int depth) {
+        SQLInfoSelect select = sqlInfo.getSelectDescendantsHier();
+        if (select == null) {
+            return readDescendantsHierRowsIterative(rootId, depth);
+        }
+        String sql = select.sql;
+        boolean inline = !dialect.supportsParametersInRecursiveWith();
+        if (inline) {
+            sql = inlineParameters(sql, rootId, Integer.valueOf(depth));
+        }
+        if (logger.isLogEnabled()) {
+            logger.logSQL(sql, inline ? Collections.emptyList() : Arrays.asList(rootId, Integer.valueOf(depth)));
+        }
+        List<Row> rows = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            if (!inline) {
+                dialect.setId(ps, 1, rootId);
+                ps.setInt(2, depth);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                countExecute();
+                while (rs.next()) {
+                    Row row = new Row(Model.HIER_TABLE_NAME, (Serializable) null);
+                    int i = 1;
+                    for (Column column : select.whatColumns) {
+                        row.put(column.getKey(), column.getFromResultSet(rs, i++));
+                    }
+                    if (select.opaqueColumns != null) {
+                        for (Column column : select.opaqueColumns) {
+                            row.putNew(column.getKey(), Row.OPAQUE);
+                        }
+                    }
+                    rows.add(row);
+                }
+            }
+            if (logger.isLogEnabled()) {
+                logger.log("  -> " + rows.size() + " rows");
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw new NuxeoException("Failed to get descendants", e);
+        }
+    }
+
+    /**
+     * Replaces the free parameters of a statement with the literal values, for drivers that cannot bind them.
+     */
+    protected static String inlineParameters(String sql, Serializable... values) {
+        StringBuilder buf = new StringBuilder(sql.length() + 64);
+        int start = 0;
+        for (Serializable value : values) {
+            int index = sql.indexOf('?', start);
+            buf.append(sql, start, index);
+            if (value instanceof String) {
+                buf.append('\'').append(((String) value).replace("'", "''")).append('\'');
+            } else {
+                buf.append(value);
+            }
+            start = index + 1;
+        }
+        buf.append(sql, start, sql.length());
+        return buf.toString();
+    }
+
+    /**
+     * Gets the descendants level by level, when recursive queries are not available.
+     */
+    protected List<Row> readDescendantsHierRowsIterative(Serializable rootId, int depth) {
+        Set<Serializable> done = new HashSet<>(Collections.singleton(rootId));
+        List<Serializable> todo = new ArrayList<>(Collections.singleton(rootId));
+        List<Row> descendants = new ArrayList<>();
+        for (int level = 0; level < depth && !todo.isEmpty(); level++) {
+            List<Serializable> next = new ArrayList<>();
+            int size = todo.size();
+            int chunkSize = sqlInfo.getMaximumArgsForIn();
+            for (int start = 0; start < size; start += chunkSize) {
+                int end = Math.min(start + chunkSize, size);
+                // needs to be Serializable -> copy
+                List<Serializable> chunkTodo = new ArrayList<>(todo.subList(start, end));
+                SQLInfoSelect select = sqlInfo.getSelectChildrenHier(chunkTodo.size());
+                Map<String, Serializable> criteriaMap = Collections.singletonMap(Model.HIER_PARENT_KEY,
+                        (Serializable) chunkTodo);
+                for (Row row : getSelectRows(Model.HIER_TABLE_NAME, select, criteriaMap, null, false)) {
+                    if (done.add(row.id)) {
+                        next.add(row.id);
+                        descendants.add(row);
+                    }
+                }
+            }
+            todo = next;
+        }
+        return descendants;
+    }
+
     /**
      * Gets the children of a node as a list of NodeInfo.
      */
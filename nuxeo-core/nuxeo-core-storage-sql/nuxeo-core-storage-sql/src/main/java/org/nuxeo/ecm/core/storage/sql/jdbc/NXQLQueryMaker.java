@@ -45,6 +45,7 @@ import org.apache.commons.logging.LogFactory;
 import org.nuxeo.common.utils.FullTextUtils;
 import org.nuxeo.ecm.core.api.LifeCycleConstants;
 import org.nuxeo.ecm.core.api.impl.FacetFilter;
+import org.nuxeo.ecm.core.query.KeysetPagination;
 import org.nuxeo.ecm.core.query.QueryFilter;
 import org.nuxeo.ecm.core.query.QueryParseException;
 import org.nuxeo.ecm.core.query.sql.NXQL;
@@ -278,11 +279,24 @@ public class NXQLQueryMaker implements QueryMaker {
 
     protected int fragJoinCount = 0;
 
+    /** The read acl ids allowed for the principals of the query, if already known. */
+    protected String[] readAclIds;
+
     @Override
     public String getName() {
         return NXQL.NXQL;
     }
 
+    /**
+     * Sets the read acl ids allowed for the principals of the query, to check security without joining with the
+     * database cache of user read acls.
+     *
+     * @since 10.3
+     */
+    public void setReadAclIds(String[] readAclIds) {
+        this.readAclIds = readAclIds;
+    }
+
     @Override
     public boolean accepts(String queryType) {
         return queryType.equals(NXQL.NXQL);
@@ -313,6 +327,10 @@ public class NXQLQueryMaker implements QueryMaker {
         for (SQLQuery.Transformer transformer : queryFilter.getQueryTransformers()) {
             sqlQuery = transformer.transform(queryFilter.getPrincipal(), sqlQuery);
         }
+        if (queryFilter.getKeyset() != null) {
+            // keyset pagination
+            sqlQuery = KeysetPagination.addKeyset(sqlQuery, queryFilter.getKeyset());
+        }
 
         // SELECT * -> SELECT ecm:uuid
         SelectClause selectClause = sqlQuery.select;
@@ -601,13 +619,21 @@ public class NXQLQueryMaker implements QueryMaker {
                     // _ACLRUSERMAP.acl_id
                     // WHERE _ACLRUSERMAP.user_id = md5('bob,Everyone')
                     String racl = dialect.openQuote() + READ_ACL_ALIAS + dialect.closeQuote();
-                    String aclrum = dialect.openQuote() + READ_ACL_USER_MAP_ALIAS + dialect.closeQuote();
                     securityJoins.add(new Join(Join.INNER, Model.HIER_READ_ACL_TABLE_NAME, READ_ACL_ALIAS, null, id,
                             racl + '.' + Model.HIER_READ_ACL_ID));
-                    securityJoins.add(new Join(Join.INNER, Model.ACLR_USER_MAP_TABLE_NAME, READ_ACL_USER_MAP_ALIAS,
-                            null, racl + '.' + Model.HIER_READ_ACL_ACL_ID, aclrum + '.' + Model.ACLR_USER_MAP_ACL_ID));
-                    securityClause = dialect.getReadAclsCheckSql(aclrum + '.' + Model.ACLR_USER_MAP_USER_ID);
-                    securityParams.add(principals);
+                    if (readAclIds != null) {
+                        // allowed read acls already known
+                        // WHERE _RACL.acl_id = ANY(?)
+                        securityClause = dialect.getReadAclIdsCheckSql(racl + '.' + Model.HIER_READ_ACL_ACL_ID);
+                        securityParams.add(readAclIds);
+                    } else {
+                        String aclrum = dialect.openQuote() + READ_ACL_USER_MAP_ALIAS + dialect.closeQuote();
+                        securityJoins.add(new Join(Join.INNER, Model.ACLR_USER_MAP_TABLE_NAME,
+                                READ_ACL_USER_MAP_ALIAS, null, racl + '.' + Model.HIER_READ_ACL_ACL_ID,
+                                aclrum + '.' + Model.ACLR_USER_MAP_ACL_ID));
+                        securityClause = dialect.getReadAclsCheckSql(aclrum + '.' + Model.ACLR_USER_MAP_USER_ID);
+                        securityParams.add(principals);
+                    }
                 } else {
                     securityClause = dialect.getSecurityCheckSql(id);
                     securityParams.add(principals);
@@ -0,0 +1,203 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+
+/**
+ * In-memory cache of the read ACLs allowed for a set of principals, shared by all the mappers of a repository.
+ * <p>
+ * This allows queries to check security with the list of allowed read ACL ids, instead of joining with the
+ * {@code aclr_user_map} table prepared by the database for each set of principals.
+ * <p>
+ * Read ACL ids are interned in a dictionary, and the allowed read ACLs for a set of principals are stored as a
+ * {@link BitSet} of dictionary indexes, which is compact even for principals allowed to read many ACLs.
+ * <p>
+ * The cache must be invalidated when new read ACLs may have been created (ACL changes, moves), see
+ * {@link #invalidate}.
+ *
+ * @since 10.3
+ */
+public class ReadAclCache {
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected final int maxSize;
+
+    /** Allowed read ACLs (as dictionary indexes) by principals, in LRU order. */
+    protected final Map<List<String>, BitSet> cache;
+
+    /** Dictionary of read ACL ids. */
+    protected final List<String> aclIds = new ArrayList<>();
+
+    /** Dictionary index of read ACL ids. */
+    protected final Map<String, Integer> aclIndexes = new HashMap<>();
+
+    /** Incremented at each invalidation, so that values computed before it aren't cached. */
+    protected long generation;
+
+    protected final Counter hitCount;
+
+    protected final Counter missCount;
+
+    protected final Counter invalidationCount;
+
+    protected final Timer loadTimer;
+
+    public ReadAclCache(String repositoryName, int maxSize) {
+        this.maxSize = maxSize;
+        cache = new LinkedHashMap<List<String>, BitSet>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<String>, BitSet> eldest) {
+                return size() > ReadAclCache.this.maxSize;
+            }
+        };
+        hitCount = registry.counter(
+                MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "read-acls", "hits"));
+        missCount = registry.counter(
+                MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "read-acls", "misses"));
+        invalidationCount = registry.counter(
+                MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "read-acls", "invalidations"));
+        loadTimer = registry.timer(
+                MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "read-acls", "load"));
+        String gaugeName = MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "read-acls",
+                "hit-ratio");
+        registry.remove(gaugeName);
+        registry.register(gaugeName, new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                long hits = hitCount.getCount();
+                return Ratio.of(hits, hits + missCount.getCount());
+            }
+        });
+        // each hit saves the database computation of the read ACLs, estimate the time saved from the load time
+        gaugeName = MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "read-acls", "saved-ms");
+        registry.remove(gaugeName);
+        registry.register(gaugeName, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                double meanNanos = loadTimer.getSnapshot().getMean();
+                return Long.valueOf((long) (hitCount.getCount() * meanNanos / 1_000_000));
+            }
+        });
+        gaugeName = MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "read-acls", "size");
+        registry.remove(gaugeName);
+        registry.register(gaugeName, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return Long.valueOf(size());
+            }
+        });
+    }
+
+    /**
+     * Gets the read ACL ids allowed for the given principals, computing them if needed.
+     *
+     * @param principals the principals
+     * @param loader the function computing the allowed read ACL ids if they're not cached
+     * @return the allowed read ACL ids
+     */
+    public String[] getReadAclIds(String[] principals, Function<String[], Collection<String>> loader) {
+        List<String> key = Arrays.asList(principals.clone());
+        long gen;
+        synchronized (this) {
+            BitSet bits = cache.get(key);
+            if (bits != null) {
+                hitCount.inc();
+                return toAclIds(bits);
+            }
+            gen = generation;
+        }
+        missCount.inc();
+        Collection<String> allowed;
+        final Timer.Context context = loadTimer.time();
+        try {
+            allowed = loader.apply(principals);
+        } finally {
+            context.stop();
+        }
+        synchronized (this) {
+            if (gen == generation) {
+                cache.put(key, toBits(allowed));
+            }
+        }
+        return allowed.toArray(new String[allowed.size()]);
+    }
+
+    protected String[] toAclIds(BitSet bits) {
+        String[] array = new String[bits.cardinality()];
+        int n = 0;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            array[n++] = aclIds.get(i);
+        }
+        return array;
+    }
+
+    protected BitSet toBits(Collection<String> allowed) {
+        BitSet bits = new BitSet();
+        for (String aclId : allowed) {
+            Integer index = aclIndexes.get(aclId);
+            if (index == null) {
+                index = Integer.valueOf(aclIds.size());
+                aclIds.add(aclId);
+                aclIndexes.put(aclId, index);
+            }
+            bits.set(index.intValue());
+        }
+        return bits;
+    }
+
+    /**
+     * Invalidates the whole cache, and any computation in progress.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        cache.clear();
+        aclIds.clear();
+        aclIndexes.clear();
+        invalidationCount.inc();
+    }
+
+    /**
+     * Gets the number of principal sets in the cache.
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+}
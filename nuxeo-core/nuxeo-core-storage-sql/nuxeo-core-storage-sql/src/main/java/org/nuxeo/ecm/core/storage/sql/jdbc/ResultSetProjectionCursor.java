@@ -0,0 +1,256 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.jdbc;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.ProjectionCursor;
+import org.nuxeo.ecm.core.api.ProjectionRow;
+import org.nuxeo.ecm.core.query.QueryFilter;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.core.storage.sql.Session.PathResolver;
+import org.nuxeo.ecm.core.storage.sql.jdbc.SQLInfo.ColumnMapMaker;
+import org.nuxeo.ecm.core.storage.sql.jdbc.db.Column;
+
+/**
+ * Projection cursor implemented on a forward-only SQL {@link ResultSet}.
+ * <p>
+ * The statement uses the fetch size of the dialect ({@link Dialect#getStreamingFetchSize}) so that the JDBC driver
+ * doesn't read the whole result in memory. The values of the current row are read in a single array reused for all the
+ * rows. Note that PostgreSQL only honors the fetch size when the connection is not in auto-commit mode, i.e., inside a
+ * transaction.
+ *
+ * @since 10.3
+ */
+public class ResultSetProjectionCursor implements ProjectionCursor, ProjectionRow {
+
+    protected final JDBCLogger logger;
+
+    protected final QueryMaker.Query q;
+
+    protected PreparedStatement ps;
+
+    protected ResultSet rs;
+
+    /** The columns, or {@code null} if the values are read through the map maker. */
+    protected List<Column> columns;
+
+    /** Which columns hold ids, returned as strings. */
+    protected boolean[] idColumns;
+
+    /** The column names, or {@code null} until the first row for query makers not based on columns. */
+    protected List<String> names;
+
+    protected Serializable[] values;
+
+    /** Whether the result set has been moved to a row that hasn't been read yet. */
+    protected boolean ahead;
+
+    /** Whether the row the result set has been moved to has already been read by {@link #getColumnNames}. */
+    protected boolean aheadRead;
+
+    protected boolean eof;
+
+    protected long count;
+
+    public ResultSetProjectionCursor(QueryMaker queryMaker, String query, QueryFilter queryFilter,
+            PathResolver pathResolver, JDBCMapper mapper, Object... params) throws SQLException {
+        logger = mapper.logger;
+        q = queryMaker.buildQuery(mapper.sqlInfo, mapper.model, pathResolver, query, queryFilter, params);
+        if (q == null) {
+            // no result
+            names = Collections.emptyList();
+            eof = true;
+            return;
+        }
+        if (q.selectInfo.mapMaker instanceof ColumnMapMaker) {
+            ColumnMapMaker mapMaker = (ColumnMapMaker) q.selectInfo.mapMaker;
+            columns = mapMaker.columns;
+            names = Collections.unmodifiableList(new ArrayList<>(mapMaker.keys));
+            values = new Serializable[columns.size()];
+            idColumns = new boolean[columns.size()];
+            for (int i = 0; i < idColumns.length; i++) {
+                String name = names.get(i);
+                idColumns[i] = NXQL.ECM_UUID.equals(name) || NXQL.ECM_PARENTID.equals(name);
+            }
+        }
+        int fetchSize = mapper.dialect.getStreamingFetchSize();
+        if (logger.isLogEnabled()) {
+            logger.logSQL(q.selectInfo.sql + " -- FETCH SIZE " + fetchSize, q.selectParams);
+        }
+        ps = mapper.connection.prepareStatement(q.selectInfo.sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        try {
+            ps.setFetchSize(fetchSize);
+            int i = 1;
+            for (Serializable object : q.selectParams) {
+                mapper.setToPreparedStatement(ps, i++, object);
+            }
+            rs = ps.executeQuery();
+            mapper.countExecute();
+        } catch (SQLException | RuntimeException e) {
+            ResultSetQueryResult.closePreparedStatement(ps);
+            ps = null;
+            throw e;
+        }
+    }
+
+    @Override
+    public List<String> getColumnNames() {
+        if (names == null && hasNext()) {
+            // read the first row to know the columns
+            readRow();
+            aheadRead = true;
+        }
+        return names == null ? Collections.emptyList() : names;
+    }
+
+    @Override
+    public boolean mustBeClosed() {
+        return rs != null;
+    }
+
+    @Override
+    public void close() {
+        if (rs == null) {
+            return;
+        }
+        try {
+            rs.close();
+            ResultSetQueryResult.closePreparedStatement(ps);
+        } catch (SQLException e) {
+            logger.error("Error closing statement: " + e.getMessage(), e);
+        } finally {
+            rs = null;
+            ps = null;
+            eof = true;
+        }
+    }
+
+    protected void checkNotClosed() {
+        if (rs == null) {
+            throw new ResultSetQueryResult.ClosedIteratorException(q);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (eof) {
+            return false;
+        }
+        if (ahead) {
+            return true;
+        }
+        checkNotClosed();
+        try {
+            ahead = rs.next();
+        } catch (SQLException e) {
+            throw new NuxeoException("Error fetching next row: " + e.getMessage(), e);
+        }
+        if (!ahead) {
+            eof = true;
+            if (logger.isLogEnabled()) {
+                logger.log("  -> END (" + count + " rows)");
+            }
+        }
+        return ahead;
+    }
+
+    @Override
+    public ProjectionRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (!aheadRead) {
+            readRow();
+        }
+        ahead = false;
+        aheadRead = false;
+        return this;
+    }
+
+    protected void readRow() {
+        try {
+            if (columns != null) {
+                for (int i = 0; i < values.length; i++) {
+                    Serializable value = columns.get(i).getFromResultSet(rs, i + 1);
+                    if (idColumns[i]) {
+                        value = String.valueOf(value); // idToString
+                    }
+                    values[i] = value;
+                }
+            } else {
+                Map<String, Serializable> map = q.selectInfo.mapMaker.makeMap(rs);
+                if (names == null) {
+                    names = Collections.unmodifiableList(new ArrayList<>(map.keySet()));
+                    values = new Serializable[names.size()];
+                }
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = map.get(names.get(i));
+                }
+            }
+            count++;
+            if (logger.isLogEnabled()) {
+                logger.logMap(toMap());
+            }
+        } catch (SQLException e) {
+            throw new NuxeoException("Error reading row: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int getColumnCount() {
+        return values.length;
+    }
+
+    @Override
+    public String getColumnName(int index) {
+        return names.get(index);
+    }
+
+    @Override
+    public int getColumnIndex(String name) {
+        return names.indexOf(name);
+    }
+
+    @Override
+    public Serializable get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public Map<String, Serializable> toMap() {
+        Map<String, Serializable> map = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            map.put(names.get(i), values[i]);
+        }
+        return map;
+    }
+
+}
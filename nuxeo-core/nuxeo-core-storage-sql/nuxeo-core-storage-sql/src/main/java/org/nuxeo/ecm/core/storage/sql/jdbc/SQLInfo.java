@@ -91,6 +91,8 @@ public class SQLInfo {
 
     private final Map<String, List<Column>> insertColumnsMap;
 
+    private final Map<String, Insert> insertMap;
+
     private final Map<String, String> deleteSqlMap; // statement
 
     private Map<SelectionType, SQLInfoSelection> selections;
@@ -105,6 +107,8 @@ public class SQLInfo {
 
     private List<Column> selectDescendantsInfoWhatColumns;
 
+    private SQLInfoSelect selectDescendantsHier;
+
     private final Map<String, String> copySqlMap;
 
     private final Map<String, Column> copyIdColumnMap;
@@ -161,6 +165,7 @@ public class SQLInfo {
 
         insertSqlMap = new HashMap<>();
         insertColumnsMap = new HashMap<>();
+        insertMap = new HashMap<>();
 
         deleteSqlMap = new HashMap<>();
 
@@ -223,6 +228,19 @@ public class SQLInfo {
         return selectDescendantsInfoWhatColumns;
     }
 
+    /**
+     * Selects the hierarchy rows of the descendants (not complex) of a node up to a given depth, using a recursive
+     * common table expression.
+     * <p>
+     * The free parameters are the root id and the maximum depth.
+     *
+     * @return the select, or {@code null} if the dialect does not support recursive common table expressions
+     * @since 10.3
+     */
+    public SQLInfoSelect getSelectDescendantsHier() {
+        return selectDescendantsHier;
+    }
+
     // ----- cluster -----
 
     public String getCreateClusterNodeSql() {
@@ -280,6 +298,20 @@ public class SQLInfo {
         return insertColumnsMap.get(tableName);
     }
 
+    /**
+     * Returns the SQL {@code INSERT} to add several rows at once, with the columns of {@link #getInsertColumns}
+     * repeated for each row.
+     *
+     * @param tableName the table name
+     * @param nrows the number of rows
+     * @return the SQL {@code INSERT} statement, or {@code null} if multi-row inserts are not available for this table
+     * @since 10.3
+     */
+    public String getMultiRowInsertSql(String tableName, int nrows) {
+        Insert insert = insertMap.get(tableName);
+        return insert == null ? null : insert.getMultiRowStatement(nrows);
+    }
+
     // -----
 
     /**
@@ -523,6 +555,44 @@ public class SQLInfo {
         return new SQLInfoSelect(select.getStatement(), whatColumns, Collections.singletonList(whereColumn), null);
     }
 
+    /**
+     * Selects the hierarchy rows of all children (not complex) for several parent ids.
+     *
+     * @since 10.3
+     */
+    public SQLInfoSelect getSelectChildrenHier(int nids) {
+        Table hierTable = database.getTable(Model.HIER_TABLE_NAME);
+        List<Column> whatColumns = new ArrayList<>();
+        List<Column> opaqueColumns = new ArrayList<>();
+        for (Column column : hierTable.getColumns()) {
+            if (column.isOpaque()) {
+                opaqueColumns.add(column);
+            } else {
+                whatColumns.add(column);
+            }
+        }
+        Select select = new Select(null);
+        select.setWhat(whatColumns.stream().map(Column::getFullQuotedName).collect(Collectors.joining(", ")));
+        select.setFrom(hierTable.getQuotedName());
+        Column whereColumn = hierTable.getColumn(Model.HIER_PARENT_KEY);
+        StringBuilder wherebuf = new StringBuilder(whereColumn.getFullQuotedName());
+        wherebuf.append(" IN (");
+        for (int i = 0; i < nids; i++) {
+            if (i != 0) {
+                wherebuf.append(", ");
+            }
+            wherebuf.append('?');
+        }
+        wherebuf.append(')');
+        wherebuf.append(" AND ");
+        wherebuf.append(hierTable.getColumn(Model.HIER_CHILD_ISPROPERTY_KEY).getFullQuotedName());
+        wherebuf.append(" = ").append(dialect.toBooleanValueString(false)); // not complex
+        wherebuf.append(getSoftDeleteClause(Model.HIER_TABLE_NAME));
+        select.setWhere(wherebuf.toString());
+        return new SQLInfoSelect(select.getStatement(), whatColumns, Collections.singletonList(whereColumn),
+                opaqueColumns.isEmpty() ? null : opaqueColumns);
+    }
+
     // ----- delete -----
 
     /**
@@ -684,6 +754,7 @@ public class SQLInfo {
         }
 
         initSelectDescendantsSQL();
+        initSelectDescendantsHierSQL();
 
         /*
          * fulltext
@@ -817,6 +888,44 @@ public class SQLInfo {
         selectDescendantsInfoWhatColumns = whatCols;
     }
 
+    protected void initSelectDescendantsHierSQL() {
+        if (!dialect.supportsRecursiveWith()) {
+            return;
+        }
+        Table hierTable = database.getTable(Model.HIER_TABLE_NAME);
+        String hier = hierTable.getQuotedName();
+        String mainId = hierTable.getColumn(Model.MAIN_KEY).getFullQuotedName();
+        String parentId = hierTable.getColumn(Model.HIER_PARENT_KEY).getFullQuotedName();
+        String isProperty = hierTable.getColumn(Model.HIER_CHILD_ISPROPERTY_KEY).getFullQuotedName();
+        String tree = dialect.openQuote() + "nxtree" + dialect.closeQuote();
+        String id = dialect.openQuote() + "id" + dialect.closeQuote();
+        String depth = dialect.openQuote() + "depth" + dialect.closeQuote();
+        String treeId = tree + '.' + id;
+        String treeDepth = tree + '.' + depth;
+        List<Column> whatColumns = new ArrayList<>();
+        List<Column> opaqueColumns = new ArrayList<>();
+        for (Column column : hierTable.getColumns()) {
+            if (column.isOpaque()) {
+                opaqueColumns.add(column);
+            } else {
+                whatColumns.add(column);
+            }
+        }
+        String whats = whatColumns.stream().map(Column::getFullQuotedName).collect(Collectors.joining(", "));
+        String sql = dialect.getRecursiveWithKeyword() + ' ' + tree + " (" + id + ", " + depth + ") AS (" //
+                + "SELECT " + mainId + ", 0 FROM " + hier + " WHERE " + mainId + " = ?" //
+                + " UNION ALL " //
+                + "SELECT " + mainId + ", " + treeDepth + " + 1 FROM " + hier //
+                + " JOIN " + tree + " ON " + parentId + " = " + treeId //
+                + " WHERE " + isProperty + " = " + dialect.toBooleanValueString(false) // not complex
+                + " AND " + treeDepth + " < ?" //
+                + getSoftDeleteClause(Model.HIER_TABLE_NAME) //
+                + ") SELECT " + whats + " FROM " + hier + " JOIN " + tree + " ON " + mainId + " = " + treeId //
+                + " WHERE " + treeDepth + " > 0";
+        selectDescendantsHier = new SQLInfoSelect(sql, whatColumns, null,
+                opaqueColumns.isEmpty() ? null : opaqueColumns);
+    }
+
     /**
      * Creates the SQL for the table holding ancestors information.
      * <p>
@@ -1012,7 +1121,6 @@ public class SQLInfo {
             selectComplexChildrenIdsAndTypesSql = select.getStatement();
         }
 
-        // TODO optimize multiple inserts into one statement for collections
         protected void postProcessInsert() {
             // insert (implicitly auto-generated sequences not included)
             Collection<Column> columns = table.getColumns();
@@ -1028,6 +1136,7 @@ public class SQLInfo {
             }
             insertSqlMap.put(tableName, insert.getStatement());
             insertColumnsMap.put(tableName, insertColumns);
+            insertMap.put(tableName, insert);
         }
 
         protected void postProcessDelete() {
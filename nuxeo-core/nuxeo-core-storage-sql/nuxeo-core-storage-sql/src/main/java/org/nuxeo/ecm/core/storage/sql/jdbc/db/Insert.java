@@ -99,4 +99,26 @@ public class Insert implements Serializable {
         }
         return buf.toString();
     }
+
+    /**
+     * Gets the statement to insert several rows at once, if the dialect supports it.
+     * <p>
+     * Example: {@code INSERT INTO foo (a, b, c) VALUES (?, ?, ?), (?, ?, ?)}
+     *
+     * @param nrows the number of rows
+     * @return the SQL multi-row insert statement, or {@code null} if not available
+     * @since 10.3
+     */
+    public String getMultiRowStatement(int nrows) {
+        if (!dialect.supportsMultiRowInsert() || insertValues != null || columns.isEmpty()) {
+            return null;
+        }
+        List<String> columnNames = new LinkedList<>();
+        List<String> values = new LinkedList<>();
+        for (Column column : columns) {
+            columnNames.add(column.getQuotedName());
+            values.add(column.getFreeVariableSetter());
+        }
+        return dialect.getMultiRowInsertSql(table.getQuotedName(), columnNames, values, nrows);
+    }
 }
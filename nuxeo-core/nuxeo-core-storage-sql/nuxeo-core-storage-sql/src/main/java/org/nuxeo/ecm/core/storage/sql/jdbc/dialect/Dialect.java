@@ -190,6 +190,11 @@ public abstract class Dialect {
 
     protected final int readAclMaxSize;
 
+    /**
+     * @since 10.3
+     */
+    protected final int fetchSize;
+
     /**
      * Creates a {@code Dialect} by connecting to the datasource to check what database is used.
      */
@@ -265,6 +270,7 @@ public abstract class Dialect {
             clusteringEnabled = false;
             softDeleteEnabled = false;
             proxiesEnabled = true;
+            fetchSize = 0;
         } else {
             FulltextDescriptor fulltextDescriptor = repositoryDescriptor.getFulltextDescriptor();
             fulltextDisabled = fulltextDescriptor.getFulltextDisabled();
@@ -274,6 +280,7 @@ public abstract class Dialect {
             clusteringEnabled = repositoryDescriptor.getClusteringEnabled();
             softDeleteEnabled = repositoryDescriptor.getSoftDeleteEnabled();
             proxiesEnabled = repositoryDescriptor.getProxiesEnabled();
+            fetchSize = repositoryDescriptor.getFetchSize();
         }
     }
 
@@ -1098,6 +1105,39 @@ public abstract class Dialect {
         return null;
     }
 
+    /**
+     * Does the dialect support checking read security against a list of allowed read acl ids computed by
+     * {@link #getListUserReadAclsSql}, see {@link #getReadAclIdsCheckSql}.
+     *
+     * @since 10.3
+     */
+    public boolean supportsReadAclCache() {
+        return false;
+    }
+
+    /**
+     * Gets the expression to check if access is allowed using a list of allowed read acl ids. The dialect must
+     * {@link #supportsReadAclCache}.
+     *
+     * @param aclIdCol the quoted name of the hierarchy_read_acl acl_id column to use
+     * @return an SQL expression with one parameter (allowed read acl ids) that is true if access is allowed
+     * @since 10.3
+     */
+    public String getReadAclIdsCheckSql(String aclIdCol) {
+        return null;
+    }
+
+    /**
+     * Gets the SQL query listing the read acl ids allowed for a set of principals. The dialect must
+     * {@link #supportsReadAclCache}.
+     *
+     * @return an SQL query with one parameter (principals) returning the allowed read acl ids
+     * @since 10.3
+     */
+    public String getListUserReadAclsSql() {
+        return null;
+    }
+
     /**
      * Gets the SQL expression to prepare the user read acls cache. This can be used to populate a table cache.
      *
@@ -1329,4 +1369,111 @@ public abstract class Dialect {
         return true;
     }
 
+    /**
+     * Does the dialect support inserting several rows in a single statement, see {@link #getMultiRowInsertSql}.
+     *
+     * @since 10.3
+     */
+    public boolean supportsMultiRowInsert() {
+        return false;
+    }
+
+    /**
+     * Maximum number of free parameters in a multi-row insert statement.
+     * <p>
+     * Beyond this size the rows are inserted using several statements.
+     *
+     * @since 10.3
+     */
+    public int getMaximumArgsForMultiRowInsert() {
+        return 2000;
+    }
+
+    /**
+     * Maximum number of rows in a multi-row insert statement.
+     *
+     * @since 10.3
+     */
+    public int getMaximumRowsForMultiRowInsert() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gets the statement to insert several rows in a table.
+     * <p>
+     * Example: {@code INSERT INTO foo (a, b) VALUES (?, ?), (?, ?), (?, ?)}
+     *
+     * @param tableName the quoted table name
+     * @param columnNames the quoted column names
+     * @param values the free variable setters for the columns of one row
+     * @param nrows the number of rows to insert
+     * @return the SQL insert statement
+     * @since 10.3
+     */
+    public String getMultiRowInsertSql(String tableName, List<String> columnNames, List<String> values, int nrows) {
+        String row = "(" + String.join(", ", values) + ")";
+        StringBuilder buf = new StringBuilder(64 + nrows * (row.length() + 2));
+        buf.append("INSERT INTO ");
+        buf.append(tableName);
+        buf.append(" (");
+        buf.append(String.join(", ", columnNames));
+        buf.append(") VALUES ");
+        for (int i = 0; i < nrows; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(row);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Does the dialect support recursive common table expressions, used to read a whole subtree in a single statement.
+     *
+     * @since 10.3
+     */
+    public boolean supportsRecursiveWith() {
+        return false;
+    }
+
+    /**
+     * Gets the keywords introducing a recursive common table expression.
+     *
+     * @since 10.3
+     */
+    public String getRecursiveWithKeyword() {
+        return "WITH RECURSIVE";
+    }
+
+    /**
+     * Does the dialect accept free parameters inside a recursive common table expression. If not, the values are
+     * inlined in the statement.
+     *
+     * @since 10.3
+     */
+    public boolean supportsParametersInRecursiveWith() {
+        return true;
+    }
+
+    /**
+     * Gets the JDBC fetch size to use when streaming the rows of a query through a forward-only cursor, so that the
+     * driver doesn't hold the whole result in memory.
+     * <p>
+     * Uses the repository configuration if present, otherwise {@link #getDefaultStreamingFetchSize}.
+     *
+     * @since 10.3
+     */
+    public int getStreamingFetchSize() {
+        return fetchSize > 0 ? fetchSize : getDefaultStreamingFetchSize();
+    }
+
+    /**
+     * The default JDBC fetch size for streamed queries.
+     *
+     * @since 10.3
+     */
+    protected int getDefaultStreamingFetchSize() {
+        return 1000;
+    }
+
 }
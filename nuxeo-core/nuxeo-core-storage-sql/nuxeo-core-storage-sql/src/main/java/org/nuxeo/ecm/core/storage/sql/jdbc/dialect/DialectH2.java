@@ -400,4 +400,25 @@ public class DialectH2 extends Dialect {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
+    @Override
+    public int getMaximumArgsForMultiRowInsert() {
+        return 10000;
+    }
+
+    @Override
+    public boolean supportsRecursiveWith() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsParametersInRecursiveWith() {
+        // parameters in the recursive query are not bound properly
+        return false;
+    }
+
 }
@@ -484,4 +484,10 @@ public class DialectMySQL extends Dialect {
         return sql + " $$";
     }
 
+    @Override
+    public int getStreamingFetchSize() {
+        // the MySQL driver only streams rows (instead of reading the whole result) with this special value
+        return Integer.MIN_VALUE;
+    }
+
 }
@@ -1022,4 +1022,41 @@ public class DialectOracle extends Dialect {
         return majorVersion >= 12;
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
+    @Override
+    public int getMaximumArgsForMultiRowInsert() {
+        // keep statements small enough for the parser, Oracle doesn't do well with huge INSERT ALL
+        return 1000;
+    }
+
+    @Override
+    public String getMultiRowInsertSql(String tableName, List<String> columnNames, List<String> values, int nrows) {
+        // INSERT INTO foo (a, b) VALUES (?, ?), (?, ?) is not legal for Oracle, use
+        // INSERT ALL INTO foo (a, b) VALUES (?, ?) INTO foo (a, b) VALUES (?, ?) SELECT 1 FROM DUAL
+        String into = " INTO " + tableName + " (" + String.join(", ", columnNames) + ") VALUES ("
+                + String.join(", ", values) + ")";
+        StringBuilder buf = new StringBuilder(32 + nrows * into.length());
+        buf.append("INSERT ALL");
+        for (int i = 0; i < nrows; i++) {
+            buf.append(into);
+        }
+        buf.append(" SELECT 1 FROM DUAL");
+        return buf.toString();
+    }
+
+    @Override
+    public boolean supportsRecursiveWith() {
+        // recursive subquery factoring, since Oracle 11gR2
+        return true;
+    }
+
+    @Override
+    public String getRecursiveWithKeyword() {
+        return "WITH";
+    }
+
 }
@@ -811,6 +811,21 @@ public class DialectPostgreSQL extends Dialect {
         return String.format("%s = md5(array_to_string(?, '%s'))", userIdCol, getUsersSeparator());
     }
 
+    @Override
+    public boolean supportsReadAclCache() {
+        return supportsReadAcl();
+    }
+
+    @Override
+    public String getReadAclIdsCheckSql(String aclIdCol) {
+        return String.format("%s = ANY(?)", aclIdCol);
+    }
+
+    @Override
+    public String getListUserReadAclsSql() {
+        return "SELECT nx_list_read_acls_for(?)";
+    }
+
     @Override
     public String getUpdateReadAclsSql() {
         return "SELECT nx_update_read_acls();";
@@ -1420,4 +1435,20 @@ public class DialectPostgreSQL extends Dialect {
         return String.join(", ", newArgList);
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
+    @Override
+    public int getMaximumArgsForMultiRowInsert() {
+        // the JDBC driver protocol limits the number of bind parameters to 32767
+        return 32767;
+    }
+
+    @Override
+    public boolean supportsRecursiveWith() {
+        return true;
+    }
+
 }
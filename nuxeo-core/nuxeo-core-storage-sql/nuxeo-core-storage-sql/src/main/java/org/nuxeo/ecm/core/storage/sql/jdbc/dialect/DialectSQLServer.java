@@ -827,4 +827,31 @@ public class DialectSQLServer extends Dialect {
         return sql + "\nGO";
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
+    @Override
+    public int getMaximumArgsForMultiRowInsert() {
+        // a statement is limited to 2100 parameters
+        return 2000;
+    }
+
+    @Override
+    public int getMaximumRowsForMultiRowInsert() {
+        // a table value constructor is limited to 1000 rows
+        return 1000;
+    }
+
+    @Override
+    public boolean supportsRecursiveWith() {
+        return true;
+    }
+
+    @Override
+    public String getRecursiveWithKeyword() {
+        return "WITH";
+    }
+
 }
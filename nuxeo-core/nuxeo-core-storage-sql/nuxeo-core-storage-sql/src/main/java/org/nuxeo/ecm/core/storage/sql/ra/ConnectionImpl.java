@@ -35,6 +35,7 @@ import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.IterableQueryResult;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.PartialList;
+import org.nuxeo.ecm.core.api.ProjectionCursor;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.model.LockManager;
 import org.nuxeo.ecm.core.query.QueryFilter;
@@ -233,6 +234,11 @@ public class ConnectionImpl implements Session {
         return getSession().getChildren(parent, name, complexProp);
     }
 
+    @Override
+    public void prefetchDescendants(Node node, int depth) {
+        getSession().prefetchDescendants(node, depth);
+    }
+
     @Override
     public Node addChildNode(Node parent, String name, Long pos, String typeName, boolean complexProp) {
         return getSession().addChildNode(parent, name, pos, typeName, complexProp);
@@ -356,6 +362,15 @@ public class ConnectionImpl implements Session {
         return result;
     }
 
+    @Override
+    public ProjectionCursor queryProjectionCursor(String query, String queryType, QueryFilter queryFilter,
+            boolean distinctDocuments, Object... params) {
+        ProjectionCursor cursor = getSession().queryProjectionCursor(query, queryType, queryFilter,
+                distinctDocuments, params);
+        noteQueryResult(cursor);
+        return cursor;
+    }
+
     @Override
     public PartialList<Map<String,Serializable>> queryProjection(String query, String queryType, QueryFilter queryFilter,
             boolean distinctDocuments, long countUpTo, Object... params) {
@@ -367,9 +382,32 @@ public class ConnectionImpl implements Session {
 
         public final IterableQueryResult queryResult;
 
+        /** @since 10.3 */
+        public final ProjectionCursor cursor;
+
         public QueryResultContextException(IterableQueryResult queryResult) {
             super("queryAndFetch call context");
             this.queryResult = queryResult;
+            cursor = null;
+        }
+
+        /** @since 10.3 */
+        public QueryResultContextException(ProjectionCursor cursor) {
+            super("queryProjectionCursor call context");
+            queryResult = null;
+            this.cursor = cursor;
+        }
+
+        protected boolean mustBeClosed() {
+            return queryResult != null ? queryResult.mustBeClosed() : cursor.mustBeClosed();
+        }
+
+        protected void close() {
+            if (queryResult != null) {
+                queryResult.close();
+            } else {
+                cursor.close();
+            }
         }
     }
 
@@ -379,13 +417,18 @@ public class ConnectionImpl implements Session {
         queryResults.add(new QueryResultContextException(result));
     }
 
+    /** @since 10.3 */
+    protected void noteQueryResult(ProjectionCursor cursor) {
+        queryResults.add(new QueryResultContextException(cursor));
+    }
+
     protected void closeStillOpenQueryResults() {
         for (QueryResultContextException context : queryResults) {
-            if (!context.queryResult.mustBeClosed()) {
+            if (!context.mustBeClosed()) {
                 continue;
             }
             try {
-                context.queryResult.close();
+                context.close();
             } catch (RuntimeException e) {
                 LogFactory.getLog(ConnectionImpl.class).error("Cannot close query result", e);
             } finally {
@@ -0,0 +1,217 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.model.DeltaLong;
+
+public class TestCompactRow {
+
+    protected CompactRow.Layouts layouts;
+
+    @Before
+    public void setUp() {
+        Map<String, ColumnType> types = new HashMap<>();
+        types.put("title", ColumnType.STRING);
+        types.put("count", ColumnType.LONG);
+        types.put("pos", ColumnType.INTEGER);
+        types.put("flag", ColumnType.BOOLEAN);
+        types.put("created", ColumnType.TIMESTAMP);
+        types.put("modified", ColumnType.TIMESTAMP);
+        types.put("tags", ColumnType.ARRAY_STRING);
+        layouts = new CompactRow.Layouts(tableName -> "tst".equals(tableName) ? types : null);
+    }
+
+    protected static Calendar newCalendar(long millis) {
+        Calendar cal = new GregorianCalendar();
+        cal.setTimeInMillis(millis);
+        return cal;
+    }
+
+    protected static Row newRow(String id) {
+        Row row = new Row("tst", (Serializable) id);
+        row.putNew("title", "hello " + id);
+        row.putNew("count", Long.valueOf(123456789));
+        row.putNew("pos", Long.valueOf(3));
+        row.putNew("flag", Boolean.TRUE);
+        row.putNew("created", newCalendar(1234567890123L));
+        row.putNew("modified", null);
+        row.putNew("tags", new String[] { "a", "b" });
+        row.putNew("other", Row.OPAQUE);
+        return row;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Row row = newRow("id1");
+        CompactRow compactRow = layouts.compact(row);
+        assertNotNull(compactRow);
+        assertEquals(5, compactRow.getLayout().primitives);
+        assertEquals(3, compactRow.getLayout().references);
+
+        Row inflated = compactRow.toRow();
+        assertEquals("tst", inflated.tableName);
+        assertEquals("id1", inflated.id);
+        assertEquals(row.getKeys(), inflated.getKeys());
+        assertEquals("hello id1", inflated.get("title"));
+        assertEquals(Long.valueOf(123456789), inflated.get("count"));
+        assertEquals(Long.valueOf(3), inflated.get("pos"));
+        assertEquals(Boolean.TRUE, inflated.get("flag"));
+        assertEquals(row.get("created"), inflated.get("created"));
+        assertNotSame(row.get("created"), inflated.get("created"));
+        assertNull(inflated.get("modified"));
+        assertArrayEquals(new String[] { "a", "b" }, (String[]) inflated.get("tags"));
+        assertSame(Row.OPAQUE, inflated.get("other"));
+    }
+
+    @Test
+    public void testLayoutShared() {
+        CompactRow compactRow1 = layouts.compact(newRow("id1"));
+        CompactRow compactRow2 = layouts.compact(newRow("id2"));
+        assertSame(compactRow1.getLayout(), compactRow2.getLayout());
+        assertEquals(1, layouts.size());
+        // inflated rows share the keys of the layout
+        Row row1 = compactRow1.toRow();
+        Row row2 = compactRow2.toRow();
+        assertSame(row1.keys, row2.keys);
+
+        // another set of keys gives another layout
+        Row row = new Row("tst", (Serializable) "id3");
+        row.putNew("title", "foo");
+        CompactRow compactRow3 = layouts.compact(row);
+        assertNotSame(compactRow1.getLayout(), compactRow3.getLayout());
+        assertEquals(2, layouts.size());
+    }
+
+    @Test
+    public void testSharedKeysCopiedOnWrite() {
+        Row row1 = layouts.compact(newRow("id1")).toRow();
+        Row row2 = layouts.compact(newRow("id2")).toRow();
+        String[] keys = row1.keys.clone();
+        // changing an existing value doesn't touch the keys
+        row1.put("title", "bar");
+        assertSame(row1.keys, row2.keys);
+        // adding a key copies them
+        row1.put("added", "baz");
+        assertNotSame(row1.keys, row2.keys);
+        assertArrayEquals(keys, row2.keys);
+        assertEquals("baz", row1.get("added"));
+        assertNull(row2.get("added"));
+        assertEquals("bar", row1.get("title"));
+        assertEquals("hello id2", row2.get("title"));
+
+        // clones share keys too
+        Row row3 = row2.clone();
+        assertSame(row2.keys, row3.keys);
+        row3.putNew("added", "qux");
+        assertNotSame(row2.keys, row3.keys);
+        assertArrayEquals(keys, row2.keys);
+        assertEquals(Arrays.asList(keys).size() + 1, row3.getKeys().size());
+    }
+
+    @Test
+    public void testOverflow() {
+        Row row = newRow("id1");
+        Calendar paris = new GregorianCalendar(TimeZone.getTimeZone("Europe/Paris"));
+        paris.setTimeInMillis(1234567890123L);
+        paris.setFirstDayOfWeek(paris.getFirstDayOfWeek() % 7 + 1);
+        DeltaLong delta = DeltaLong.valueOf(Long.valueOf(10), 5);
+        row.put("created", paris);
+        row.put("count", delta);
+        row.put("flag", "notaboolean");
+        Row inflated = layouts.compact(row).toRow();
+        assertSame(paris, inflated.get("created"));
+        assertSame(delta, inflated.get("count"));
+        assertEquals("notaboolean", inflated.get("flag"));
+        assertEquals(Long.valueOf(3), inflated.get("pos"));
+    }
+
+    @Test
+    public void testTimeZones() {
+        Row row = newRow("id1");
+        Calendar created = new GregorianCalendar(TimeZone.getTimeZone("Asia/Tokyo"));
+        created.setTimeInMillis(1234567890123L);
+        Calendar modified = new GregorianCalendar(TimeZone.getTimeZone("America/New_York"));
+        modified.setTimeInMillis(1234567890456L);
+        row.put("created", created);
+        row.put("modified", modified);
+        Row inflated = layouts.compact(row).toRow();
+        assertEquals(created, inflated.get("created"));
+        assertEquals(modified, inflated.get("modified"));
+    }
+
+    @Test
+    public void testUnknownTableAndCollection() {
+        Row row = new Row("unknown", (Serializable) "id1");
+        row.putNew("count", Long.valueOf(1));
+        Row inflated = layouts.compact(row).toRow();
+        assertEquals(Long.valueOf(1), inflated.get("count"));
+        assertEquals(0, layouts.compact(row).getLayout().primitives);
+
+        Row collection = new Row("tags", "id1", new String[] { "a" });
+        assertNull(layouts.compact(collection));
+    }
+
+    @Test
+    public void testMaxLayouts() {
+        for (int i = 0; i < CompactRow.MAX_LAYOUTS_PER_TABLE; i++) {
+            Row row = new Row("tst", (Serializable) "id");
+            row.putNew("key" + i, "foo");
+            assertNotNull(layouts.compact(row));
+        }
+        Row row = new Row("tst", (Serializable) "id");
+        row.putNew("title", "foo");
+        assertNull(layouts.compact(row));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        CompactRow compactRow = layouts.compact(newRow("id1"));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+            out.writeObject(compactRow);
+        }
+        CompactRow read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            read = (CompactRow) in.readObject();
+        }
+        assertEquals(compactRow.toRow().toString(), read.toRow().toString());
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class TestInvalidations {
+
+    protected static byte[] serialize(Invalidations invalidations) throws IOException {
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        invalidations.serialize(baout);
+        return baout.toByteArray();
+    }
+
+    protected static Invalidations deserialize(byte[] bytes) throws IOException {
+        return Invalidations.deserialize(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Invalidations invalidations = new Invalidations();
+        String id = UUID.randomUUID().toString();
+        invalidations.add(id, new String[] { "hierarchy", "dublincore", "misc" }, Invalidations.MODIFIED);
+        invalidations.addModified(new RowId(Invalidations.PARENT, "foo"));
+        invalidations.addModified(new RowId("hierarchy", Long.valueOf(123)));
+        invalidations.addDeleted(new RowId("hierarchy", "bar"));
+        Invalidations result = deserialize(serialize(invalidations));
+        assertEquals(invalidations.modified, result.modified);
+        assertEquals(invalidations.deleted, result.deleted);
+
+        // id written once for its tables
+        invalidations = new Invalidations();
+        invalidations.add(id, new String[] { "hierarchy", "dublincore", "misc" }, Invalidations.MODIFIED);
+        // format, flags, all, 3 table names, 1 id (tag + 16) with 3 table indexes, 0 deleted
+        int expected = 1 + 1 + 1 + (1 + 1 + 9 + 1 + 10 + 1 + 4) + (1 + 17 + 4) + 1;
+        assertEquals(expected, serialize(invalidations).length);
+
+        // all
+        result = deserialize(serialize(new Invalidations(true)));
+        assertTrue(result.all);
+        assertNull(result.modified);
+
+        // empty message
+        assertNull(deserialize(new byte[0]));
+    }
+
+    @Test
+    public void testCompressed() throws IOException {
+        Invalidations invalidations = new Invalidations();
+        for (int i = 0; i < 1000; i++) {
+            invalidations.add("id" + i, new String[] { "hierarchy", "dublincore" }, Invalidations.MODIFIED);
+        }
+        byte[] bytes = serialize(invalidations);
+        assertEquals(1, bytes[1]); // compressed
+        assertEquals(invalidations.modified, deserialize(bytes).modified);
+    }
+
+    @Test
+    public void testLegacyFormat() throws IOException {
+        Invalidations invalidations = new Invalidations();
+        invalidations.addModified(new RowId("hierarchy", "foo"));
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        try (ObjectOutputStream oout = new ObjectOutputStream(baout)) {
+            oout.writeObject(invalidations);
+        }
+        byte[] legacy = baout.toByteArray();
+        assertEquals(invalidations.modified, deserialize(legacy).modified);
+        assertTrue(serialize(invalidations).length * 10 < legacy.length);
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TestOffHeapRowCache {
+
+    protected OffHeapRowCache cache;
+
+    @After
+    public void tearDown() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    protected static Row newRow(String id, String title) {
+        Row row = new Row("tst", (Serializable) id);
+        row.putNew("title", title);
+        return row;
+    }
+
+    @Test
+    public void testSimpleRow() {
+        cache = new OffHeapRowCache("test", 1024 * 1024, 1, false);
+        Calendar cal = new GregorianCalendar(TimeZone.getTimeZone("Europe/Paris"));
+        cal.setTimeInMillis(1234567890123L);
+        Row row = new Row("tst", (Serializable) "id1");
+        row.putNew("title", "hello");
+        row.putNew("count", Long.valueOf(123));
+        row.putNew("flag", Boolean.TRUE);
+        row.putNew("rate", Double.valueOf(1.5));
+        row.putNew("created", cal);
+        row.putNew("none", null);
+        row.putNew("opaque", Row.OPAQUE);
+        row.putNew("tags", new String[] { "a", "b" });
+        row.putNew("amount", new BigDecimal("12.34")); // Java serialization
+        cache.put(row, cache.getStamps());
+
+        Row cached = cache.get(new RowId("tst", "id1"));
+        assertNotNull(cached);
+        assertEquals("id1", cached.id);
+        assertEquals(row.getKeys(), cached.getKeys());
+        assertEquals("hello", cached.get("title"));
+        assertEquals(Long.valueOf(123), cached.get("count"));
+        assertEquals(Boolean.TRUE, cached.get("flag"));
+        assertEquals(Double.valueOf(1.5), cached.get("rate"));
+        assertEquals(cal, cached.get("created"));
+        assertNull(cached.get("none"));
+        assertSame(Row.OPAQUE, cached.get("opaque"));
+        assertArrayEquals(new String[] { "a", "b" }, (String[]) cached.get("tags"));
+        assertEquals(new BigDecimal("12.34"), cached.get("amount"));
+    }
+
+    @Test
+    public void testCollectionRow() {
+        cache = new OffHeapRowCache("test", 1024 * 1024, 1, false);
+        Row row = new Row("subjects", "id1", new String[] { "a", "b", "c" });
+        cache.put(row, cache.getStamps());
+        ACLRow acl = new ACLRow(0, "local", true, "Read", "bob", null, "admin", null, null, Long.valueOf(1));
+        row = new Row("acls", "id1", new ACLRow[] { acl });
+        cache.put(row, cache.getStamps());
+
+        Row cached = cache.get(new RowId("subjects", "id1"));
+        assertTrue(cached.isCollection());
+        assertArrayEquals(new String[] { "a", "b", "c" }, (String[]) cached.values);
+        cached = cache.get(new RowId("acls", "id1"));
+        ACLRow[] acls = (ACLRow[]) cached.values;
+        assertEquals(1, acls.length);
+        assertEquals("Read", acls[0].permission);
+        assertEquals("bob", acls[0].user);
+        assertEquals(Long.valueOf(1), acls[0].status);
+    }
+
+    @Test
+    public void testAbsent() {
+        cache = new OffHeapRowCache("test", 1024 * 1024, 1, false);
+        RowId rowId = new RowId("tst", "id1");
+        assertNull(cache.get(rowId));
+        cache.putAbsent(rowId, cache.getStamps());
+        assertSame(OffHeapRowCache.ABSENT, cache.get(rowId).tableName);
+    }
+
+    @Test
+    public void testInvalidation() {
+        cache = new OffHeapRowCache("test", 1024 * 1024, 1, false);
+        RowId rowId = new RowId("tst", "id1");
+        cache.put(newRow("id1", "hello"), cache.getStamps());
+        assertNotNull(cache.get(rowId));
+        cache.invalidate(rowId);
+        assertNull(cache.get(rowId));
+
+        // a row read before an invalidation is not cached
+        long[] stamps = cache.getStamps();
+        cache.invalidate(rowId);
+        cache.put(newRow("id1", "stale"), stamps);
+        assertNull(cache.get(rowId));
+
+        cache.put(newRow("id1", "hello"), cache.getStamps());
+        cache.clear();
+        assertNull(cache.get(rowId));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void testSizeBound() {
+        long maxSize = 256 * 1024;
+        cache = new OffHeapRowCache("test", maxSize, 4, false);
+        int n = 10000;
+        for (int i = 0; i < n; i++) {
+            cache.put(newRow("id" + i, "title" + i), cache.getStamps());
+        }
+        assertTrue(cache.getBytes() <= maxSize);
+        assertTrue(cache.getEntryCount() < n);
+        // most recent ones are present
+        assertEquals("title" + (n - 1), cache.get(new RowId("tst", "id" + (n - 1))).get("title"));
+        // oldest ones have been evicted
+        assertNull(cache.get(new RowId("tst", "id0")));
+    }
+
+    @Test
+    public void testLruEviction() {
+        assertFalse(isHotRowKept(false));
+    }
+
+    @Test
+    public void testTinyLfuAdmission() {
+        assertTrue(isHotRowKept(true));
+    }
+
+    /**
+     * Accesses a row frequently but at long intervals, with many rows accessed only once in between.
+     */
+    protected boolean isHotRowKept(boolean tinyLfu) {
+        cache = new OffHeapRowCache("test", 64 * 1024, 1, tinyLfu);
+        RowId hot = new RowId("tst", "hot");
+        cache.put(newRow("hot", "hot"), cache.getStamps());
+        for (int i = 0; i < 20; i++) {
+            assertNotNull(cache.get(hot));
+        }
+        int n = 10000;
+        for (int i = 0; i < n; i++) {
+            RowId rowId = new RowId("tst", "id" + i);
+            if (cache.get(rowId) == null) {
+                cache.put(newRow("id" + i, "title" + i), cache.getStamps());
+            }
+            if (i % 2000 == 0 && cache.get(hot) == null) {
+                return false;
+            }
+        }
+        return cache.get(hot) != null;
+    }
+
+    @Test
+    public void testTooBig() {
+        cache = new OffHeapRowCache("test", 64 * 1024, 1, false);
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            buf.append('x');
+        }
+        long rejected = cache.getRejectedCount();
+        cache.put(newRow("id1", buf.toString()), cache.getStamps());
+        assertNull(cache.get(new RowId("tst", "id1")));
+        assertEquals(rejected + 1, cache.getRejectedCount());
+        assertEquals(0, cache.getEntryCount());
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.sql.Invalidations;
+import org.nuxeo.ecm.core.storage.sql.RowId;
+
+public class TestReadAclCache {
+
+    protected static final String[] BOB = { "bob", "members", "Everyone" };
+
+    protected static final String[] PETE = { "pete", "Everyone" };
+
+    protected AtomicInteger loads = new AtomicInteger();
+
+    protected Function<String[], Collection<String>> loader(String... aclIds) {
+        return principals -> {
+            loads.incrementAndGet();
+            return Arrays.asList(aclIds);
+        };
+    }
+
+    @Test
+    public void testCache() {
+        ReadAclCache cache = new ReadAclCache("test", 10);
+        assertArrayEquals(new String[] { "acl1", "acl2" }, cache.getReadAclIds(BOB, loader("acl1", "acl2")));
+        assertArrayEquals(new String[] { "acl2", "acl3" }, cache.getReadAclIds(PETE, loader("acl2", "acl3")));
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.size());
+        // cached, in dictionary order
+        assertArrayEquals(new String[] { "acl1", "acl2" }, cache.getReadAclIds(BOB, loader()));
+        assertArrayEquals(new String[] { "acl2", "acl3" }, cache.getReadAclIds(PETE, loader()));
+        assertEquals(2, loads.get());
+        // principals order matters
+        cache.getReadAclIds(new String[] { "Everyone", "members", "bob" }, loader("acl1"));
+        assertEquals(3, loads.get());
+        // nothing allowed is cached too
+        assertArrayEquals(new String[0], cache.getReadAclIds(new String[] { "nobody" }, loader()));
+        assertArrayEquals(new String[0], cache.getReadAclIds(new String[] { "nobody" }, loader()));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testInvalidate() {
+        ReadAclCache cache = new ReadAclCache("test", 10);
+        cache.getReadAclIds(BOB, loader("acl1"));
+        cache.invalidate();
+        assertEquals(0, cache.size());
+        assertArrayEquals(new String[] { "acl1", "acl4" }, cache.getReadAclIds(BOB, loader("acl1", "acl4")));
+        assertEquals(2, loads.get());
+        // invalidation during a load, the loaded value isn't cached
+        String[] res = cache.getReadAclIds(PETE, principals -> {
+            cache.invalidate();
+            return Arrays.asList("acl5");
+        });
+        assertArrayEquals(new String[] { "acl5" }, res);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testMaxSize() {
+        ReadAclCache cache = new ReadAclCache("test", 2);
+        cache.getReadAclIds(new String[] { "a" }, loader("acl1"));
+        cache.getReadAclIds(new String[] { "b" }, loader("acl1"));
+        cache.getReadAclIds(new String[] { "a" }, loader());
+        cache.getReadAclIds(new String[] { "c" }, loader("acl1"));
+        assertEquals(2, cache.size());
+        assertEquals(3, loads.get());
+        // least recently used was evicted
+        cache.getReadAclIds(new String[] { "a" }, loader("acl1"));
+        assertEquals(3, loads.get());
+        cache.getReadAclIds(new String[] { "b" }, loader("acl1"));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testInvalidations() {
+        Invalidations invalidations = new Invalidations();
+        invalidations.addReadAcls();
+        assertTrue(invalidations.isEmpty());
+        invalidations.addModified(new RowId("hierarchy", "id1"));
+        assertFalse(invalidations.hasReadAcls());
+        invalidations.addReadAcls();
+        assertTrue(invalidations.hasReadAcls());
+        assertTrue(invalidations.modified.contains(new RowId(Invalidations.READ_ACLS, "id1")));
+        assertTrue(new Invalidations(true).hasReadAcls());
+    }
+
+}
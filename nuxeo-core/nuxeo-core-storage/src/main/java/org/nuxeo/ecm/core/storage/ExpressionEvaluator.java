@@ -29,15 +29,19 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.CharUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.nuxeo.ecm.core.api.LifeCycleConstants;
+import org.nuxeo.ecm.core.api.trash.TrashService.Feature;
 import org.nuxeo.ecm.core.query.QueryParseException;
 import org.nuxeo.ecm.core.query.sql.NXQL;
 import org.nuxeo.ecm.core.query.sql.model.BooleanLiteral;
@@ -57,11 +61,17 @@ import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
 import org.nuxeo.ecm.core.trash.TrashService;
 import org.nuxeo.runtime.api.Framework;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
 
 /**
  * Evaluator for an {@link Expression}.
+ * <p>
+ * An evaluator is meant to evaluate the same expression against many states. The work that doesn't depend on the
+ * state (literals, lists of literals, LIKE patterns, path resolution...) is done the first time a node of the expression
+ * is evaluated, and reused for the following states.
  *
  * @since 5.9.4
  */
@@ -88,6 +98,14 @@ public abstract class ExpressionEvaluator {
 
     protected static final String OR = "or";
 
+    /** Compiled LIKE patterns, shared by all the evaluators as the same queries tend to be repeated. */
+    protected static final Cache<String, Pattern> LIKE_PATTERNS = CacheBuilder.newBuilder().maximumSize(1000).build();
+
+    /** Literals for ecm:isTrashed, shared so that their values are computed once by each evaluator. */
+    protected static final StringLiteral DELETED_STATE_LITERAL = new StringLiteral(LifeCycleConstants.DELETED_STATE);
+
+    protected static final IntegerLiteral TRASHED_LITERAL = new IntegerLiteral(1L);
+
     /**
      * Interface for a class that knows how to resolve a path into an id.
      */
@@ -109,6 +127,24 @@ public abstract class ExpressionEvaluator {
 
     public boolean hasFulltext;
 
+    /** Values of the literals, computed once. */
+    protected final Map<Literal, Object> literalValues = new IdentityHashMap<>();
+
+    /** Values of the lists of literals, computed once. */
+    protected final Map<LiteralList, List<Object>> literalListValues = new IdentityHashMap<>();
+
+    /** Sets used for IN, computed once for each list of values. */
+    protected final Map<List<Object>, Set<Object>> inSets = new IdentityHashMap<>();
+
+    /** Resolved paths. */
+    protected final Map<String, String> pathIds = new HashMap<>();
+
+    /** LIKE patterns of the secondary fulltext index matches, computed once. */
+    protected final Map<StringLiteral, StringLiteral> fulltextLikeLiterals = new IdentityHashMap<>();
+
+    /** The trash service feature, computed once. */
+    protected Feature trashFeature;
+
     public ExpressionEvaluator(PathResolver pathResolver, String[] principals, boolean fulltextSearchDisabled) {
         this.pathResolver = pathResolver;
         this.principals = principals == null ? null : new HashSet<>(Arrays.asList(principals));
@@ -207,7 +243,7 @@ public abstract class ExpressionEvaluator {
         if (path.length() > 1 && path.endsWith("/")) {
             path = path.substring(0, path.length() - 1);
         }
-        String id = pathResolver.getIdForPath(path);
+        String id = getIdForPath(path);
         Object right = walkReference(new Reference(NXQL.ECM_UUID));
         if (id == null) {
             return FALSE;
@@ -262,9 +298,10 @@ public abstract class ExpressionEvaluator {
                 throw new QueryParseException(name + " has incorrect syntax for a secondary fulltext index");
             }
             String prop = name.substring(NXQL.ECM_FULLTEXT.length() + 1);
-            String ft = query.replace(" ", "%");
-            rvalue = new StringLiteral(ft);
-            return walkLike(new Reference(prop), rvalue, true, true);
+            // same literal for each evaluation, so that its value is computed once
+            StringLiteral like = fulltextLikeLiterals.computeIfAbsent((StringLiteral) rvalue,
+                    lit -> new StringLiteral(lit.value.replace(" ", "%")));
+            return walkLike(new Reference(prop), like, true, true);
         }
     }
 
@@ -272,23 +309,40 @@ public abstract class ExpressionEvaluator {
         if (op != Operator.EQ && op != Operator.NOTEQ) {
             throw new QueryParseException(NXQL.ECM_ISTRASHED + " requires = or <> operator");
         }
-        TrashService trashService = Framework.getService(TrashService.class);
-        if (trashService.hasFeature(TRASHED_STATE_IS_DEDUCED_FROM_LIFECYCLE)) {
-            return walkIsTrashed(new Reference(NXQL.ECM_LIFECYCLESTATE), op, rvalue,
-                    new StringLiteral(LifeCycleConstants.DELETED_STATE));
-        } else if (trashService.hasFeature(TRASHED_STATE_IN_MIGRATION)) {
+        Feature feature = getTrashFeature();
+        if (feature == TRASHED_STATE_IS_DEDUCED_FROM_LIFECYCLE) {
+            return walkIsTrashed(new Reference(NXQL.ECM_LIFECYCLESTATE), op, rvalue, DELETED_STATE_LITERAL);
+        } else if (feature == TRASHED_STATE_IN_MIGRATION) {
             Boolean lifeCycleTrashed = walkIsTrashed(new Reference(NXQL.ECM_LIFECYCLESTATE), op, rvalue,
-                    new StringLiteral(LifeCycleConstants.DELETED_STATE));
-            Boolean propertyTrashed = walkIsTrashed(new Reference(NXQL.ECM_ISTRASHED), op, rvalue,
-                    new IntegerLiteral(1L));
+                    DELETED_STATE_LITERAL);
+            Boolean propertyTrashed = walkIsTrashed(new Reference(NXQL.ECM_ISTRASHED), op, rvalue, TRASHED_LITERAL);
             return or(lifeCycleTrashed, propertyTrashed);
-        } else if (trashService.hasFeature(TRASHED_STATE_IS_DEDICATED_PROPERTY)) {
-            return walkIsTrashed(new Reference(NXQL.ECM_ISTRASHED), op, rvalue, new IntegerLiteral(1L));
+        } else if (feature == TRASHED_STATE_IS_DEDICATED_PROPERTY) {
+            return walkIsTrashed(new Reference(NXQL.ECM_ISTRASHED), op, rvalue, TRASHED_LITERAL);
         } else {
             throw new UnsupportedOperationException("TrashService is in an unknown state");
         }
     }
 
+    /**
+     * Gets the feature of the trash service describing how the trashed state is stored, or {@code null} if unknown.
+     *
+     * @since 10.3
+     */
+    protected Feature getTrashFeature() {
+        if (trashFeature == null) {
+            TrashService trashService = Framework.getService(TrashService.class);
+            for (Feature feature : Arrays.asList(TRASHED_STATE_IS_DEDUCED_FROM_LIFECYCLE, TRASHED_STATE_IN_MIGRATION,
+                    TRASHED_STATE_IS_DEDICATED_PROPERTY)) {
+                if (trashService.hasFeature(feature)) {
+                    trashFeature = feature;
+                    break;
+                }
+            }
+        }
+        return trashFeature;
+    }
+
     protected Boolean walkIsTrashed(Reference ref, Operator op, Operand initialRvalue, Literal deletedRvalue) {
         long v;
         if (!(initialRvalue instanceof IntegerLiteral)
@@ -397,19 +451,34 @@ public abstract class ExpressionEvaluator {
         if (!(right instanceof List)) {
             throw new QueryParseException("Invalid IN rhs: " + rvalue);
         }
+        @SuppressWarnings("unchecked")
+        List<Object> list = (List<Object>) right;
         if (isMixinTypes(lvalue)) {
-            return walkMixinTypes((List<String>) right, positive);
+            @SuppressWarnings("unchecked")
+            List<String> mixins = (List<String>) right;
+            return walkMixinTypes(mixins, positive);
         }
         Object left = walkOperand(lvalue);
-        Boolean in = inMaybeList(left, (List<Object>) right);
+        Set<Object> set = inSets.get(list);
+        if (set == null && !inSets.containsKey(list)) {
+            set = toInSet(list);
+            inSets.put(list, set);
+        }
+        Boolean in = set == null ? inMaybeList(left, list) : inMaybeSet(left, set);
         return positive ? in : not(in);
     }
 
     public Object walkOperand(Operand op) {
         if (op instanceof Literal) {
-            return walkLiteral((Literal) op);
+            Literal lit = (Literal) op;
+            Object value = literalValues.get(lit);
+            if (value == null) {
+                value = walkLiteral(lit);
+                literalValues.put(lit, value);
+            }
+            return value;
         } else if (op instanceof LiteralList) {
-            return walkLiteralList((LiteralList) op);
+            return literalListValues.computeIfAbsent((LiteralList) op, this::walkLiteralList);
         } else if (op instanceof Function) {
             return walkFunction((Function) op);
         } else if (op instanceof Expression) {
@@ -510,9 +579,24 @@ public abstract class ExpressionEvaluator {
         }
     }
 
+    /**
+     * Resolves a path into an id, only once for a given path.
+     *
+     * @return the id, or {@code null} if not found
+     * @since 10.3
+     */
+    public String getIdForPath(String path) {
+        String id = pathIds.get(path);
+        if (id == null && !pathIds.containsKey(path)) {
+            id = pathResolver.getIdForPath(path);
+            pathIds.put(path, id);
+        }
+        return id;
+    }
+
     protected Boolean walkStartsWithPath(String path) {
         // resolve path
-        String ancestorId = pathResolver.getIdForPath(path);
+        String ancestorId = getIdForPath(path);
         // don't return early on null ancestorId, we want to walk all references deterministically
         Object[] ancestorIds = (Object[]) walkReference(new Reference(NXQL_ECM_ANCESTOR_IDS));
         if (ancestorId == null) {
@@ -605,6 +689,21 @@ public abstract class ExpressionEvaluator {
         return left.equals(right);
     }
 
+    /**
+     * Turns the list of values of an IN into a set for fast lookups, or returns {@code null} if the list holds values
+     * that can't be compared using a set.
+     *
+     * @since 10.3
+     */
+    protected Set<Object> toInSet(List<Object> list) {
+        for (Object value : list) {
+            if (!(value instanceof String || value instanceof Long || value instanceof Boolean)) {
+                return null;
+            }
+        }
+        return new HashSet<>(list);
+    }
+
     // ternary logic
     protected Boolean in(Object left, List<Object> right) {
         if (left == null) {
@@ -651,9 +750,21 @@ public abstract class ExpressionEvaluator {
             value = value.toLowerCase();
             right = right.toLowerCase();
         }
-        String regex = likeToRegex(right);
-        boolean match = Pattern.matches(regex.toString(), value);
-        return match;
+        return Boolean.valueOf(getLikePattern(right).matcher(value).matches());
+    }
+
+    /**
+     * Gets the compiled regex for a LIKE pattern.
+     *
+     * @since 10.3
+     */
+    protected static Pattern getLikePattern(String like) {
+        Pattern pattern = LIKE_PATTERNS.getIfPresent(like);
+        if (pattern == null) {
+            pattern = Pattern.compile(likeToRegex(like));
+            LIKE_PATTERNS.put(like, pattern);
+        }
+        return pattern;
     }
 
     /**
@@ -738,6 +849,22 @@ public abstract class ExpressionEvaluator {
         }
     }
 
+    /** @since 10.3 */
+    protected Boolean inMaybeSet(Object left, Set<Object> right) {
+        if (left instanceof Object[]) {
+            for (Object l : ((Object[]) left)) {
+                if (l != null && right.contains(l)) {
+                    return TRUE;
+                }
+            }
+            return FALSE;
+        } else if (left == null) {
+            return null;
+        } else {
+            return Boolean.valueOf(right.contains(left));
+        }
+    }
+
     protected Boolean likeMaybeList(Object left, String right, boolean positive, boolean caseInsensitive) {
         if (left instanceof Object[]) {
             for (Object l : ((Object[]) left)) {
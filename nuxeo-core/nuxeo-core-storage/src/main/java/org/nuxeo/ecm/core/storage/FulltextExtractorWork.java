@@ -20,8 +20,22 @@
 package org.nuxeo.ecm.core.storage;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -42,12 +56,26 @@ import org.nuxeo.ecm.core.work.AbstractWork;
 import org.nuxeo.ecm.core.work.api.Work;
 import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.model.ComponentManager;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
 
 /**
  * Work task that does fulltext extraction from the blobs of the given document.
  * <p>
  * The extracted fulltext is then passed to the single-threaded {@link FulltextUpdaterWork}.
  * <p>
+ * Since 10.3, a single work can extract the fulltext of a batch of documents (see {@link #getBatchSize}). The blobs
+ * are converted in parallel by a bounded pool of threads shared by all the works, each conversion being given a
+ * timeout depending on the blob MIME type, and the fulltext of the whole batch is written by a single
+ * {@link FulltextUpdaterWork}. The documents having a conversion that timed out are rescheduled in a new work, with a
+ * doubled timeout, up to a maximum number of retries.
+ * <p>
  * This base abstract class must be subclassed in order to implement the proper
  * {@link #initFulltextConfigurationAndParser} depending on the storage.
  *
@@ -65,8 +93,58 @@ public abstract class FulltextExtractorWork extends AbstractWork {
 
     protected static final String TITLE = "fulltextExtractor";
 
+    /**
+     * Maximum number of documents whose fulltext is extracted by a single work.
+     *
+     * @since 10.3
+     */
+    public static final String BATCH_SIZE_PROP = "org.nuxeo.ecm.core.storage.fulltext.extractor.batchSize";
+
+    /** @since 10.3 */
+    public static final String DEFAULT_BATCH_SIZE = "10";
+
+    /**
+     * Number of threads converting blobs, shared by all the works. If {@code 0}, blobs are converted sequentially by
+     * the work thread, without timeout. Defaults to the number of processors.
+     *
+     * @since 10.3
+     */
+    public static final String THREADS_PROP = "org.nuxeo.ecm.core.storage.fulltext.extractor.threads";
+
+    /**
+     * Timeout in seconds of the conversion of a blob. A timeout for a given MIME type can be specified using a property
+     * suffixed by {@code .} and the MIME type, for instance
+     * {@code org.nuxeo.ecm.core.storage.fulltext.extractor.timeout.application/pdf}.
+     *
+     * @since 10.3
+     */
+    public static final String TIMEOUT_PROP = "org.nuxeo.ecm.core.storage.fulltext.extractor.timeout";
+
+    /** @since 10.3 */
+    public static final String DEFAULT_TIMEOUT = "300"; // 5 min
+
+    /**
+     * Maximum number of times the extraction of a document is rescheduled after a conversion timeout, the timeout
+     * being doubled at each retry.
+     *
+     * @since 10.3
+     */
+    public static final String TIMEOUT_RETRIES_PROP = "org.nuxeo.ecm.core.storage.fulltext.extractor.retries";
+
+    /** @since 10.3 */
+    public static final String DEFAULT_TIMEOUT_RETRIES = "2";
+
+    protected static ExecutorService executor;
+
     protected final boolean excludeProxies;
 
+    /**
+     * Number of previous extractions of these documents that timed out.
+     *
+     * @since 10.3
+     */
+    protected int attempt;
+
     protected transient FulltextConfiguration fulltextConfiguration;
 
     protected transient FulltextParser fulltextParser;
@@ -76,6 +154,76 @@ public abstract class FulltextExtractorWork extends AbstractWork {
         this.excludeProxies = excludeProxies;
     }
 
+    /**
+     * Constructs a work extracting the fulltext of several documents.
+     *
+     * @since 10.3
+     */
+    public FulltextExtractorWork(String repositoryName, List<String> docIds, boolean excludeProxies) {
+        setDocuments(repositoryName, docIds);
+        this.excludeProxies = excludeProxies;
+    }
+
+    /**
+     * Gets the maximum number of documents whose fulltext is extracted by a single work.
+     *
+     * @since 10.3
+     */
+    public static int getBatchSize() {
+        int batchSize = Integer.parseInt(Framework.getProperty(BATCH_SIZE_PROP, DEFAULT_BATCH_SIZE));
+        return Math.max(batchSize, 1);
+    }
+
+    /**
+     * Gets the executor converting blobs, or {@code null} if blobs are converted by the work thread.
+     *
+     * @since 10.3
+     */
+    protected static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            String defaultThreads = String.valueOf(Runtime.getRuntime().availableProcessors());
+            int threads = Integer.parseInt(Framework.getProperty(THREADS_PROP, defaultThreads));
+            if (threads <= 0) {
+                return null;
+            }
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor tpe = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread thread = new Thread(r, "Nuxeo-Fulltext-Extractor-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            tpe.allowCoreThreadTimeOut(true);
+            executor = tpe;
+            Framework.getRuntime().getComponentManager().addListener(new ComponentManager.Listener() {
+                @Override
+                public void afterStop(ComponentManager mgr, boolean isStandby) {
+                    // works are stopped before the components
+                    mgr.removeListener(this);
+                    shutdownExecutor();
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Shuts down the executor converting blobs, cancelling the pending conversions. A new executor is created by the
+     * next work.
+     *
+     * @since 10.3
+     */
+    public static synchronized void shutdownExecutor() {
+        if (executor == null) {
+            return;
+        }
+        for (Runnable runnable : executor.shutdownNow()) {
+            // never run, cancel them so that nobody waits for them
+            ((Future<?>) runnable).cancel(false);
+        }
+        executor = null;
+    }
+
     @Override
     public String getCategory() {
         return CATEGORY;
@@ -120,26 +268,85 @@ public abstract class FulltextExtractorWork extends AbstractWork {
     public abstract void initFulltextConfigurationAndParser();
 
     protected void extractBinaryText() {
+        List<String> ids = docIds == null ? Collections.singletonList(docId) : docIds;
+        // get the blobs in this thread, the session cannot be shared, and start their conversion
+        Map<String, List<PendingText>> pendingTextsByDoc = new LinkedHashMap<>();
+        for (String id : ids) {
+            List<PendingText> pendingTexts = startExtraction(id);
+            if (pendingTexts != null) {
+                pendingTextsByDoc.put(id, pendingTexts);
+            }
+        }
+        // gather the text extracted from the blobs
+        FulltextMetrics metrics = new FulltextMetrics(repositoryName);
+        Map<String, List<IndexAndText>> indexesAndTextByDoc = new LinkedHashMap<>();
+        List<String> timedOutIds = new ArrayList<>();
+        boolean retry = attempt < getTimeoutRetries();
+        pendingTextsByDoc.forEach((id, pendingTexts) -> {
+            List<IndexAndText> indexesAndText = new LinkedList<>();
+            boolean timedOut = false;
+            for (PendingText pendingText : pendingTexts) {
+                indexesAndText.add(new IndexAndText(pendingText.indexName, getText(pendingText, id, metrics)));
+                timedOut |= pendingText.isTimedOut();
+            }
+            if (timedOut && retry) {
+                // don't write a partial text, the document is extracted again
+                timedOutIds.add(id);
+                return;
+            }
+            if (!indexesAndText.isEmpty()) {
+                indexesAndTextByDoc.put(id, indexesAndText);
+            }
+            metrics.documents.mark();
+        });
+        metrics.lag.update(System.currentTimeMillis() - getSchedulingTime(), TimeUnit.MILLISECONDS);
+        if (!timedOutIds.isEmpty()) {
+            rescheduleTimedOut(timedOutIds);
+        }
+
+        if (!indexesAndTextByDoc.isEmpty()) {
+            Work work;
+            if (docIds == null) {
+                work = new FulltextUpdaterWork(repositoryName, docId, false, true, indexesAndTextByDoc.get(docId));
+            } else {
+                work = new FulltextUpdaterWork(repositoryName, false, true, indexesAndTextByDoc);
+            }
+            if (!fulltextConfiguration.fulltextSearchDisabled) {
+                WorkManager workManager = Framework.getService(WorkManager.class);
+                workManager.schedule(work, true);
+            } else {
+                ((FulltextUpdaterWork) work).updateWithSession(session);
+            }
+        }
+    }
+
+    /**
+     * Gets the blobs of a document for each fulltext index, and starts their conversion to text.
+     *
+     * @return the texts being extracted, or {@code null} if the document is not to be indexed
+     * @since 10.3
+     */
+    protected List<PendingText> startExtraction(String docId) {
         IdRef docRef = new IdRef(docId);
         if (!session.exists(docRef)) {
             // doc is gone
-            return;
+            return null;
         }
         DocumentModel doc = session.getDocument(docRef);
         if (excludeProxies && doc.isProxy()) {
             // VCS proxies don't have any fulltext attached, it's
             // the target document that carries it
-            return;
+            return null;
         }
         if (!fulltextConfiguration.isFulltextIndexable(doc.getType())) {
             // excluded by config
-            return;
+            return null;
         }
 
         // Iterate on each index to set the binaryText column
         BlobsExtractor extractor = new BlobsExtractor();
         DocumentLocation docLocation = new DocumentLocationImpl(doc);
-        List<IndexAndText> indexesAndText = new LinkedList<>();
+        List<PendingText> pendingTexts = new LinkedList<>();
         for (String indexName : fulltextConfiguration.indexNames) {
             if (!fulltextConfiguration.indexesAllBinary.contains(indexName)
                     && fulltextConfiguration.propPathsByIndexBinary.get(indexName) == null) {
@@ -150,29 +357,155 @@ public abstract class FulltextExtractorWork extends AbstractWork {
                     fulltextConfiguration.propPathsExcludedByIndexBinary.get(indexName),
                     fulltextConfiguration.indexesAllBinary.contains(indexName));
             List<Blob> blobs = extractor.getBlobs(doc);
-            StringBlob stringBlob = blobsToStringBlob(blobs, docId);
-            String text = fulltextParser.parse(stringBlob.getString(), null, stringBlob.getMimeType(), docLocation);
-            int fullTextFieldSizeLimit = fulltextConfiguration.fulltextFieldSizeLimit;
-            if (fullTextFieldSizeLimit != 0 && text.length() > fullTextFieldSizeLimit) {
-                if (log.isDebugEnabled()) {
-                    log.debug(String.format(
-                            "Fulltext extract of length: %s for indexName: %s of document: %s truncated to length: %s",
-                            text.length(), indexName, docId, fullTextFieldSizeLimit));
+            List<Conversion> conversions = new ArrayList<>(blobs.size());
+            ExecutorService executor = getExecutor();
+            if (executor != null) {
+                for (Blob blob : blobs) {
+                    conversions.add(startConversion(executor, blob, docId));
                 }
-                text = text.substring(0, fullTextFieldSizeLimit);
             }
-            indexesAndText.add(new IndexAndText(indexName, text));
+            pendingTexts.add(new PendingText(indexName, docLocation, blobs, conversions));
         }
-        if (!indexesAndText.isEmpty()) {
-            Work work = new FulltextUpdaterWork(repositoryName, docId, false, true, indexesAndText);
-            if (!fulltextConfiguration.fulltextSearchDisabled) {
-                WorkManager workManager = Framework.getService(WorkManager.class);
-                workManager.schedule(work, true);
-            } else {
-                ((FulltextUpdaterWork) work).updateWithSession(session);
+        return pendingTexts;
+    }
+
+    /**
+     * Submits the conversion of a blob to the executor.
+     *
+     * @since 10.3
+     */
+    protected Conversion startConversion(ExecutorService executor, Blob blob, String docId) {
+        Conversion conversion = new Conversion(blob);
+        conversion.future = executor.submit(() -> {
+            conversion.start();
+            return convertBlob(blob, docId);
+        });
+        return conversion;
+    }
+
+    /**
+     * Reschedules the extraction of documents having a conversion that timed out, with a doubled timeout.
+     *
+     * @since 10.3
+     */
+    protected void rescheduleTimedOut(List<String> ids) {
+        FulltextExtractorWork work = newWork(ids);
+        if (work == null) {
+            log.warn("Cannot reschedule fulltext extraction of documents: " + ids);
+            return;
+        }
+        work.attempt = attempt + 1;
+        log.info("Rescheduling fulltext extraction after timeout, attempt " + work.attempt + ", of documents: " + ids);
+        Framework.getService(WorkManager.class).schedule(work, true);
+    }
+
+    /**
+     * Creates a work extracting the fulltext of the given documents, used to retry them after a timeout. Returns
+     * {@code null} by default, in which case the documents are not retried.
+     *
+     * @since 10.3
+     */
+    protected FulltextExtractorWork newWork(List<String> ids) {
+        return null;
+    }
+
+    /**
+     * Waits for the conversions of the blobs of an index, and parses the resulting text.
+     *
+     * @since 10.3
+     */
+    protected String getText(PendingText pendingText, String docId, FulltextMetrics metrics) {
+        StringBlob stringBlob;
+        if (pendingText.conversions.isEmpty()) {
+            // no executor, convert in this thread
+            final Timer.Context context = metrics.conversions.time();
+            try {
+                stringBlob = blobsToStringBlob(pendingText.blobs, docId);
+            } finally {
+                context.stop();
+            }
+        } else {
+            List<StringBlob> converted = new ArrayList<>(pendingText.blobs.size());
+            for (Conversion conversion : pendingText.conversions) {
+                StringBlob result = waitForConversion(conversion, docId, metrics);
+                if (result != null) {
+                    converted.add(result);
+                }
             }
+            stringBlob = joinStringBlobs(converted);
+        }
+        String text = fulltextParser.parse(stringBlob.getString(), null, stringBlob.getMimeType(),
+                pendingText.docLocation);
+        int fullTextFieldSizeLimit = fulltextConfiguration.fulltextFieldSizeLimit;
+        if (fullTextFieldSizeLimit != 0 && text.length() > fullTextFieldSizeLimit) {
+            if (log.isDebugEnabled()) {
+                log.debug(String.format(
+                        "Fulltext extract of length: %s for indexName: %s of document: %s truncated to length: %s",
+                        text.length(), pendingText.indexName, docId, fullTextFieldSizeLimit));
+            }
+            text = text.substring(0, fullTextFieldSizeLimit);
+        }
+        return text;
+    }
+
+    /**
+     * Waits for a conversion, the timeout being counted from the start of the conversion and not from its submission,
+     * as it may wait for a thread of the executor.
+     *
+     * @return the text, or {@code null} if it could not be converted or timed out
+     * @since 10.3
+     */
+    protected StringBlob waitForConversion(Conversion conversion, String docId, FulltextMetrics metrics) {
+        Blob blob = conversion.blob;
+        long timeout = getTimeout(blob.getMimeType()) << attempt;
+        try {
+            conversion.awaitStart();
+            long remaining = conversion.startTime + TimeUnit.SECONDS.toNanos(timeout) - System.nanoTime();
+            return conversion.future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            conversion.future.cancel(true);
+            conversion.timedOut = true;
+            metrics.timeouts.inc();
+            log.warn("Timeout after " + timeout + "s extracting fulltext of file '" + blob.getFilename()
+                    + "' for document: " + docId);
+            return null;
+        } catch (InterruptedException e) {
+            conversion.future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException | CancellationException e) {
+            log.warn("Could not extract fulltext of file '" + blob.getFilename() + "' for document: " + docId, e);
+            return null;
+        } finally {
+            if (conversion.startTime != 0) {
+                metrics.conversions.update(System.nanoTime() - conversion.startTime, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Gets the conversion timeout in seconds for a MIME type.
+     *
+     * @since 10.3
+     */
+    protected static long getTimeout(String mimeType) {
+        String timeout = null;
+        if (StringUtils.isNotEmpty(mimeType)) {
+            timeout = Framework.getProperty(TIMEOUT_PROP + '.' + mimeType);
         }
+        if (timeout == null) {
+            timeout = Framework.getProperty(TIMEOUT_PROP, DEFAULT_TIMEOUT);
+        }
+        return Long.parseLong(timeout.trim());
+    }
 
+    /**
+     * Gets the maximum number of times the extraction of a document is rescheduled after a timeout.
+     *
+     * @since 10.3
+     */
+    protected static int getTimeoutRetries() {
+        return Integer.parseInt(Framework.getProperty(TIMEOUT_RETRIES_PROP, DEFAULT_TIMEOUT_RETRIES).trim());
     }
 
     @Override
@@ -183,35 +516,61 @@ public abstract class FulltextExtractorWork extends AbstractWork {
     }
 
     protected StringBlob blobsToStringBlob(List<Blob> blobs, String docId) {
+        List<StringBlob> converted = new ArrayList<>(blobs.size());
+        for (Blob blob : blobs) {
+            StringBlob result = convertBlob(blob, docId);
+            if (result != null) {
+                converted.add(result);
+            }
+        }
+        return joinStringBlobs(converted);
+    }
+
+    /**
+     * Converts a blob to text.
+     *
+     * @return the text, or {@code null} if it could not be converted
+     * @since 10.3
+     */
+    protected StringBlob convertBlob(Blob blob, String docId) {
+        try {
+            SimpleBlobHolder bh = new SimpleBlobHolder(blob);
+            BlobHolder result = convert(bh);
+            if (result == null) {
+                return null;
+            }
+            Blob resultBlob = result.getBlob();
+            if (resultBlob == null) {
+                return null;
+            }
+            String string = new String(resultBlob.getByteArray(), "UTF-8");
+            // strip '\0 chars from text
+            if (string.indexOf('\0') >= 0) {
+                string = string.replace("\0", " ");
+            }
+            return new StringBlob(string, resultBlob.getMimeType());
+        } catch (ConversionException | IOException e) {
+            String msg = "Could not extract fulltext of file '" + blob.getFilename() + "' for document: " + docId
+                    + ": " + e;
+            log.warn(msg);
+            log.debug(msg, e);
+            return null;
+        }
+    }
+
+    /**
+     * Joins converted texts, keeping the first MIME type.
+     *
+     * @since 10.3
+     */
+    protected StringBlob joinStringBlobs(List<StringBlob> blobs) {
         String mimeType = null;
         List<String> strings = new LinkedList<>();
-        for (Blob blob : blobs) {
-            try {
-                SimpleBlobHolder bh = new SimpleBlobHolder(blob);
-                BlobHolder result = convert(bh);
-                if (result == null) {
-                    continue;
-                }
-                blob = result.getBlob();
-                if (blob == null) {
-                    continue;
-                }
-                if (StringUtils.isEmpty(mimeType) && StringUtils.isNotEmpty(blob.getMimeType())) {
-                    mimeType = blob.getMimeType();
-                }
-                String string = new String(blob.getByteArray(), "UTF-8");
-                // strip '\0 chars from text
-                if (string.indexOf('\0') >= 0) {
-                    string = string.replace("\0", " ");
-                }
-                strings.add(string);
-            } catch (ConversionException | IOException e) {
-                String msg = "Could not extract fulltext of file '" + blob.getFilename() + "' for document: " + docId
-                        + ": " + e;
-                log.warn(msg);
-                log.debug(msg, e);
-                continue;
+        for (StringBlob blob : blobs) {
+            if (StringUtils.isEmpty(mimeType) && StringUtils.isNotEmpty(blob.getMimeType())) {
+                mimeType = blob.getMimeType();
             }
+            strings.add(blob.getString());
         }
         return new StringBlob(StringUtils.join(strings, " "), mimeType);
     }
@@ -225,4 +584,104 @@ public abstract class FulltextExtractorWork extends AbstractWork {
         return conversionService.convert(ANY2TEXT, blobHolder, null);
     }
 
+    /**
+     * The blobs of a fulltext index being converted.
+     *
+     * @since 10.3
+     */
+    protected static class PendingText {
+
+        protected final String indexName;
+
+        protected final DocumentLocation docLocation;
+
+        protected final List<Blob> blobs;
+
+        /** The conversions of the blobs, or empty if they are to be converted by the work thread. */
+        protected final List<Conversion> conversions;
+
+        protected PendingText(String indexName, DocumentLocation docLocation, List<Blob> blobs,
+                List<Conversion> conversions) {
+            this.indexName = indexName;
+            this.docLocation = docLocation;
+            this.blobs = blobs;
+            this.conversions = conversions;
+        }
+
+        protected boolean isTimedOut() {
+            return conversions.stream().anyMatch(conversion -> conversion.timedOut);
+        }
+    }
+
+    /**
+     * The conversion of a blob by the executor.
+     *
+     * @since 10.3
+     */
+    protected static class Conversion {
+
+        protected final Blob blob;
+
+        protected final CountDownLatch started = new CountDownLatch(1);
+
+        protected Future<StringBlob> future;
+
+        /** Start time in nanoseconds, or 0 if not started. */
+        protected volatile long startTime;
+
+        protected boolean timedOut;
+
+        protected Conversion(Blob blob) {
+            this.blob = blob;
+        }
+
+        protected void start() {
+            startTime = System.nanoTime();
+            started.countDown();
+        }
+
+        /**
+         * Waits for the conversion to be started by the executor, or to be cancelled before that.
+         */
+        protected void awaitStart() throws InterruptedException {
+            while (!started.await(1, TimeUnit.SECONDS)) {
+                if (future.isDone()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Metrics of the fulltext extraction for a repository.
+     *
+     * @since 10.3
+     */
+    protected static class FulltextMetrics {
+
+        protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+        /** Documents extracted, for the throughput. */
+        protected final Meter documents;
+
+        /** Time from the document save to the end of the extraction. */
+        protected final Timer lag;
+
+        /** Time of the conversion of each blob. */
+        protected final Timer conversions;
+
+        protected final Counter timeouts;
+
+        protected FulltextMetrics(String repositoryName) {
+            documents = registry.meter(
+                    MetricRegistry.name("nuxeo", "repositories", repositoryName, "fulltext", "extractor", "documents"));
+            lag = registry.timer(
+                    MetricRegistry.name("nuxeo", "repositories", repositoryName, "fulltext", "extractor", "lag"));
+            conversions = registry.timer(MetricRegistry.name("nuxeo", "repositories", repositoryName, "fulltext",
+                    "extractor", "conversions"));
+            timeouts = registry.counter(
+                    MetricRegistry.name("nuxeo", "repositories", repositoryName, "fulltext", "extractor", "timeouts"));
+        }
+    }
+
 }
@@ -20,9 +20,12 @@
 package org.nuxeo.ecm.core.storage;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -38,6 +41,8 @@ import org.nuxeo.ecm.core.work.api.WorkManager;
  * FulltextExtractorWork) into the fulltext table.
  * <p>
  * This is done single-threaded through the use of a {@link WorkManager} queue with only one thread.
+ * <p>
+ * Since 10.3, a single work can update several documents, in one transaction.
  */
 public class FulltextUpdaterWork extends AbstractWork {
 
@@ -66,6 +71,13 @@ public class FulltextUpdaterWork extends AbstractWork {
     /** The indexes and text to be updated. */
     protected final List<IndexAndText> indexesAndText;
 
+    /**
+     * The indexes and text to be updated by document id (or job id), when updating several documents.
+     *
+     * @since 10.3
+     */
+    protected final Map<String, List<IndexAndText>> indexesAndTextByDoc;
+
     public static class IndexAndText implements Serializable {
         private static final long serialVersionUID = 1L;
 
@@ -86,6 +98,23 @@ public class FulltextUpdaterWork extends AbstractWork {
         this.isSimpleText = isSimpleText;
         this.isJob = isJob;
         this.indexesAndText = indexesAndText;
+        indexesAndTextByDoc = null;
+    }
+
+    /**
+     * Constructs a work updating several documents.
+     *
+     * @param indexesAndTextByDoc the indexes and text to be updated by document id (or job id)
+     * @since 10.3
+     */
+    public FulltextUpdaterWork(String repositoryName, boolean isSimpleText, boolean isJob,
+            Map<String, List<IndexAndText>> indexesAndTextByDoc) {
+        super(); // random id, for unique job
+        setDocuments(repositoryName, new ArrayList<>(indexesAndTextByDoc.keySet()));
+        this.isSimpleText = isSimpleText;
+        this.isJob = isJob;
+        indexesAndText = null;
+        this.indexesAndTextByDoc = new LinkedHashMap<>(indexesAndTextByDoc);
     }
 
     @Override
@@ -128,6 +157,19 @@ public class FulltextUpdaterWork extends AbstractWork {
     }
 
     protected void update() {
+        if (indexesAndTextByDoc == null) {
+            update(docId, indexesAndText);
+        } else {
+            indexesAndTextByDoc.forEach(this::update);
+        }
+    }
+
+    /**
+     * Updates the fulltext of a document, or of all the documents of a job.
+     *
+     * @since 10.3
+     */
+    protected void update(String docId, List<IndexAndText> indexesAndText) {
         Collection<DocumentModel> docs;
         if (isJob) {
             String query = String.format("SELECT * FROM Document WHERE ecm:fulltextJobId = '%s' AND ecm:isProxy = 0",
@@ -25,6 +25,7 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -42,6 +43,10 @@ import com.google.common.collect.ImmutableSet;
  * Abstraction for a Map<String, Serializable> that is Serializable.
  * <p>
  * Internal storage is optimized to avoid a full {@link HashMap} when there is a small number of keys.
+ * <p>
+ * A state can be a copy-on-write copy of another one (see {@link StateHelper#copyOnWrite}): the containers it holds
+ * ({@link State}s, {@link List}s and arrays) are then shared with the original state until they are accessed through
+ * {@link #get} or {@link #entrySet}, at which point they are copied one level at a time.
  *
  * @since 5.9.5
  */
@@ -156,6 +161,13 @@ public class State implements StateAccessor, Serializable {
 
     protected List<Serializable> values;
 
+    /**
+     * The keys whose values are containers shared with another state, that must be copied before being returned.
+     *
+     * @since 10.3
+     */
+    protected transient Set<String> sharedKeys;
+
     /**
      * Private constructor with explicit map.
      */
@@ -234,6 +246,23 @@ public class State implements StateAccessor, Serializable {
      * Gets a value for a key, or {@code null} if the key is not present.
      */
     public Serializable get(Object key) {
+        Serializable value = peek(key);
+        if (value != null && sharedKeys != null && sharedKeys.contains(key)) {
+            unshare(key);
+            // copy the shared container before it can be modified by the caller
+            value = StateHelper.copyOnWrite(value);
+            putEvenIfNull((String) key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Gets a value for a key without copying it if it is shared with another state. THE RETURNED VALUE MUST NOT BE
+     * MODIFIED.
+     *
+     * @since 10.3
+     */
+    public Serializable peek(Object key) {
         if (map != null) {
             return map.get(key);
         } else {
@@ -246,6 +275,7 @@ public class State implements StateAccessor, Serializable {
      * Sets a key/value.
      */
     public void put(String key, Serializable value) {
+        unshare(key);
         if (value == null) {
             // if we're using a ConcurrentHashMap
             // then null values are forbidden
@@ -298,6 +328,7 @@ public class State implements StateAccessor, Serializable {
      * @return the previous value associated with the key, or {@code null} if there was no mapping for the key
      */
     public Serializable remove(Object key) {
+        unshare(key);
         if (map != null) {
             return map.remove(key);
         } else {
@@ -348,6 +379,22 @@ public class State implements StateAccessor, Serializable {
      * Gets the entry set. IT MUST NOT BE MODIFIED.
      */
     public Set<Entry<String, Serializable>> entrySet() {
+        if (sharedKeys != null) {
+            // copy all the shared containers, as the caller may modify them
+            for (String key : sharedKeys.toArray(EMPTY_STRING_ARRAY)) {
+                get(key);
+            }
+        }
+        return peekEntrySet();
+    }
+
+    /**
+     * Gets the entry set without copying the values shared with another state. IT MUST NOT BE MODIFIED, AND NEITHER
+     * MUST THE VALUES.
+     *
+     * @since 10.3
+     */
+    public Set<Entry<String, Serializable>> peekEntrySet() {
         if (map != null) {
             return map.entrySet();
         } else {
@@ -355,6 +402,50 @@ public class State implements StateAccessor, Serializable {
         }
     }
 
+    /**
+     * Marks the value for a key as shared with another state, it will be copied before being returned by {@link #get}.
+     *
+     * @since 10.3
+     */
+    protected void share(String key) {
+        if (sharedKeys == null) {
+            sharedKeys = new HashSet<>();
+        }
+        sharedKeys.add(key);
+    }
+
+    /**
+     * Forgets that the value for a key is shared, because it is being replaced.
+     *
+     * @since 10.3
+     */
+    protected void unshare(Object key) {
+        if (sharedKeys != null) {
+            sharedKeys.remove(key);
+            if (sharedKeys.isEmpty()) {
+                sharedKeys = null;
+            }
+        }
+    }
+
+    /**
+     * Checks if the value for a key is shared with another state.
+     *
+     * @since 10.3
+     */
+    public boolean isShared(String key) {
+        return sharedKeys != null && sharedKeys.contains(key);
+    }
+
+    /**
+     * Checks if this state is thread-safe, and may therefore be changed concurrently.
+     *
+     * @since 10.3
+     */
+    public boolean isThreadSafe() {
+        return map instanceof ConcurrentHashMap;
+    }
+
     /** EntrySet optimized to just return a simple Iterator on the entries. */
     protected class ArraysEntrySet implements Set<Entry<String, Serializable>> {
 
@@ -485,7 +576,7 @@ public class State implements StateAccessor, Serializable {
                 empty = false;
                 buf.append(key);
                 buf.append('=');
-                toString(buf, get(key));
+                toString(buf, peek(key));
             }
         }
         // sort keys
@@ -502,7 +593,7 @@ public class State implements StateAccessor, Serializable {
             empty = false;
             buf.append(key);
             buf.append('=');
-            toString(buf, get(key));
+            toString(buf, peek(key));
         }
         buf.append('}');
         return buf.toString();
@@ -103,10 +103,10 @@ public class StateHelper {
         if (!a.keySet().equals(b.keySet())) {
             return false;
         }
-        for (Entry<String, Serializable> en : a.entrySet()) {
+        for (Entry<String, Serializable> en : a.peekEntrySet()) {
             String key = en.getKey();
             Serializable va = en.getValue();
-            Serializable vb = b.get(key);
+            Serializable vb = b.peek(key);
             if (!equalsStrict(va, vb)) {
                 return false;
             }
@@ -192,21 +192,21 @@ public class StateHelper {
         if (b == null) {
             b = State.EMPTY;
         }
-        for (Entry<String, Serializable> en : a.entrySet()) {
+        for (Entry<String, Serializable> en : a.peekEntrySet()) {
             Serializable va = en.getValue();
             if (va == null) {
                 // checked by loop on b
                 continue;
             }
             String key = en.getKey();
-            Serializable vb = b.get(key);
+            Serializable vb = b.peek(key);
             if (!equalsLoose(va, vb)) {
                 return false;
             }
         }
-        for (Entry<String, Serializable> en : b.entrySet()) {
+        for (Entry<String, Serializable> en : b.peekEntrySet()) {
             String key = en.getKey();
-            Serializable va = a.get(key);
+            Serializable va = a.peek(key);
             if (va != null) {
                 // already checked by loop on a
                 continue;
@@ -310,12 +310,71 @@ public class StateHelper {
      */
     public static State deepCopy(State state, boolean threadSafe) {
         State copy = new State(state.size(), threadSafe);
-        for (Entry<String, Serializable> en : state.entrySet()) {
-            copy.put(en.getKey(), deepCopy(en.getValue(), threadSafe));
+        for (Entry<String, Serializable> en : state.peekEntrySet()) {
+            String key = en.getKey();
+            Serializable value = en.getValue();
+            if (!threadSafe && state.isShared(key)) {
+                // a shared value is never modified, it can be shared with the copy as well
+                copy.put(key, value);
+                copy.share(key);
+            } else {
+                copy.put(key, deepCopy(value, threadSafe));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Makes a copy-on-write copy of a {@link State} map.
+     * <p>
+     * The containers held by the state ({@link State}s, {@link List}s and arrays) are shared with the copy, which
+     * copies them one level at a time when they are accessed. This is much cheaper than a {@link #deepCopy} when only
+     * a few values are read or changed, but the original state MUST NOT BE MODIFIED afterwards.
+     * <p>
+     * A thread-safe state, which may be changed concurrently, is deep copied instead.
+     *
+     * @since 10.3
+     */
+    public static State copyOnWrite(State state) {
+        if (state.isThreadSafe()) {
+            return deepCopy(state);
+        }
+        State copy = new State(state.size());
+        for (Entry<String, Serializable> en : state.peekEntrySet()) {
+            String key = en.getKey();
+            Serializable value = en.getValue();
+            copy.put(key, value);
+            if (value instanceof State || value instanceof List || value instanceof Object[]) {
+                copy.share(key);
+            }
         }
         return copy;
     }
 
+    /**
+     * Makes a one-level copy of a value: a copy-on-write copy for a {@link State}, a copy of a {@link List} holding
+     * copy-on-write copies of its elements, or a copy of an array.
+     *
+     * @since 10.3
+     */
+    public static Serializable copyOnWrite(Object value) {
+        if (value instanceof State) {
+            return copyOnWrite((State) value);
+        } else if (value instanceof List) {
+            @SuppressWarnings("unchecked")
+            List<Serializable> list = (List<Serializable>) value;
+            List<Serializable> copy = new ArrayList<>(list.size());
+            for (Serializable v : list) {
+                copy.add(copyOnWrite(v));
+            }
+            return (Serializable) copy;
+        } else if (value instanceof Object[]) {
+            // array values are supposed to be scalars
+            return ((Object[]) value).clone();
+        }
+        return (Serializable) value;
+    }
+
     /**
      * Makes a deep copy of a {@link List}.
      */
@@ -337,6 +396,50 @@ public class StateHelper {
         return copy;
     }
 
+    /**
+     * Estimates the memory size of a value, in bytes.
+     * <p>
+     * This is a rough estimate based on the usual sizes of the JVM objects involved, used to weigh values in caches.
+     *
+     * @since 10.3
+     */
+    public static long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            // object header + fields + char array
+            return 40 + 2L * ((String) value).length();
+        } else if (value instanceof State) {
+            State state = (State) value;
+            // map + table
+            long size = 64 + 8L * state.size();
+            for (Entry<String, Serializable> en : state.peekEntrySet()) {
+                // entry, the keys are shared and not counted
+                size += 32 + estimateSize(en.getValue());
+            }
+            return size;
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            long size = 40 + 8L * list.size();
+            for (Object v : list) {
+                size += estimateSize(v);
+            }
+            return size;
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            long size = 16 + 8L * array.length;
+            for (Object v : array) {
+                size += estimateSize(v);
+            }
+            return size;
+        } else if (value instanceof Calendar) {
+            return 400;
+        } else {
+            // boxed scalars
+            return 16;
+        }
+    }
+
     /**
      * Does a diff of two values.
      *
@@ -439,14 +542,15 @@ public class StateHelper {
      */
     public static StateDiff diff(State a, State b) {
         StateDiff diff = new StateDiff();
-        for (Entry<String, Serializable> en : a.entrySet()) {
+        // values shared between a and b are compared by identity, without being copied or walked
+        for (Entry<String, Serializable> en : a.peekEntrySet()) {
             Serializable va = en.getValue();
             if (va == null) {
                 // checked by loop on b
                 continue;
             }
             String key = en.getKey();
-            Serializable vb = b.get(key);
+            Serializable vb = b.peek(key);
             if (vb == null) {
                 // value must be cleared
                 diff.put(key, null);
@@ -469,9 +573,9 @@ public class StateHelper {
                 }
             }
         }
-        for (Entry<String, Serializable> en : b.entrySet()) {
+        for (Entry<String, Serializable> en : b.peekEntrySet()) {
             String key = en.getKey();
-            Serializable va = a.get(key);
+            Serializable va = a.peek(key);
             if (va != null) {
                 // already checked by loop on a
                 continue;
@@ -494,7 +598,11 @@ public class StateHelper {
         if (Boolean.parseBoolean(Framework.getProperty(DISABLED_DELTA_PROP, "false"))) {
             return;
         }
-        for (Entry<String, Serializable> en : state.entrySet()) {
+        for (Entry<String, Serializable> en : state.peekEntrySet()) {
+            if (state.isShared(en.getKey())) {
+                // shared values come from the repository and have no deltas
+                continue;
+            }
             Serializable value = en.getValue();
             if (value instanceof State) {
                 resetDeltas((State) value);
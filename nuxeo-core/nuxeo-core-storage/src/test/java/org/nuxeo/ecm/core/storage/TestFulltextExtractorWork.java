@@ -0,0 +1,150 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.impl.blob.StringBlob;
+import org.nuxeo.ecm.core.storage.FulltextExtractorWork.Conversion;
+import org.nuxeo.ecm.core.storage.FulltextExtractorWork.FulltextMetrics;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+public class TestFulltextExtractorWork {
+
+    /**
+     * Extractor whose conversion of a blob sleeps for the number of milliseconds given by the blob content.
+     */
+    protected static class SleepingExtractorWork extends FulltextExtractorWork {
+
+        private static final long serialVersionUID = 1L;
+
+        public SleepingExtractorWork() {
+            super("test", "doc", false);
+        }
+
+        @Override
+        public void initFulltextConfigurationAndParser() {
+        }
+
+        @Override
+        protected StringBlob convertBlob(Blob blob, String docId) {
+            try {
+                Thread.sleep(Long.parseLong(blob.getString()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NuxeoException(e);
+            } catch (IOException e) {
+                throw new NuxeoException(e);
+            }
+            return new StringBlob("converted");
+        }
+    }
+
+    protected SleepingExtractorWork work;
+
+    protected FulltextMetrics metrics;
+
+    @Before
+    public void setUp() {
+        Framework.getProperties().setProperty(FulltextExtractorWork.THREADS_PROP, "1");
+        Framework.getProperties().setProperty(FulltextExtractorWork.TIMEOUT_PROP, "1");
+        FulltextExtractorWork.shutdownExecutor();
+        work = new SleepingExtractorWork();
+        metrics = new FulltextMetrics("test");
+    }
+
+    @After
+    public void tearDown() {
+        FulltextExtractorWork.shutdownExecutor();
+        Framework.getProperties().remove(FulltextExtractorWork.THREADS_PROP);
+        Framework.getProperties().remove(FulltextExtractorWork.TIMEOUT_PROP);
+    }
+
+    protected List<Conversion> startConversions(long... millis) {
+        ExecutorService executor = FulltextExtractorWork.getExecutor();
+        List<Conversion> conversions = new ArrayList<>();
+        for (long ms : millis) {
+            conversions.add(work.startConversion(executor, Blobs.createBlob(String.valueOf(ms)), "doc"));
+        }
+        return conversions;
+    }
+
+    @Test
+    public void testTimeoutFromConversionStart() {
+        // with a single thread the last conversion starts more than the 1s timeout after its submission
+        List<Conversion> conversions = startConversions(600, 600, 600);
+        for (Conversion conversion : conversions) {
+            StringBlob text = work.waitForConversion(conversion, "doc", metrics);
+            assertEquals("converted", text.getString());
+            assertFalse(conversion.timedOut);
+        }
+    }
+
+    @Test
+    public void testTimeout() {
+        long timeouts = metrics.timeouts.getCount();
+        List<Conversion> conversions = startConversions(5000, 100);
+        assertNull(work.waitForConversion(conversions.get(0), "doc", metrics));
+        assertTrue(conversions.get(0).timedOut);
+        assertTrue(conversions.get(0).future.isCancelled());
+        assertEquals(timeouts + 1, metrics.timeouts.getCount());
+        // the thread is released for the next conversion
+        assertEquals("converted", work.waitForConversion(conversions.get(1), "doc", metrics).getString());
+    }
+
+    @Test
+    public void testTimeoutDoubledOnRetry() {
+        work.attempt = 2;
+        // within the 4s timeout of the third attempt
+        Conversion conversion = startConversions(1500).get(0);
+        assertEquals("converted", work.waitForConversion(conversion, "doc", metrics).getString());
+        assertFalse(conversion.timedOut);
+    }
+
+    @Test
+    public void testShutdownCancelsPendingConversions() {
+        List<Conversion> conversions = startConversions(5000, 100);
+        FulltextExtractorWork.shutdownExecutor();
+        // never started, does not wait
+        assertNull(work.waitForConversion(conversions.get(1), "doc", metrics));
+        assertTrue(conversions.get(1).future.isCancelled());
+        assertFalse(conversions.get(1).timedOut);
+    }
+
+}
@@ -18,6 +18,7 @@
  */
 package org.nuxeo.ecm.core.storage;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.nuxeo.ecm.core.storage.State.NOP;
@@ -265,4 +266,68 @@ public class TestStateHelper {
                 state(), state("A", "B", "X", null));
     }
 
+    @Test
+    public void testEstimateSize() {
+        long small = StateHelper.estimateSize(state("A", "B"));
+        long big = StateHelper.estimateSize(state("A", "B", "C", (Serializable) list(state("D", "EEEEEEEEEE"),
+                state("D", "FFFFFFFFFF")), "G", new String[] { "H", "I" }));
+        assertTrue(small > 0);
+        assertTrue(small + " >= " + big, big > 3 * small);
+        assertEquals(0, StateHelper.estimateSize(null));
+    }
+
+    @Test
+    public void testCopyOnWrite() {
+        State complex = state("A", "B", "C", new String[] { "D" });
+        ArrayList<Object> list = list(state("E", "F"));
+        State base = state("id", "1", "complex", complex, "list", (Serializable) list);
+        State copy = StateHelper.copyOnWrite(base);
+        assertEqualsStrict(base, copy);
+        assertTrue(copy.isShared("complex"));
+        assertFalse(copy.isShared("id"));
+        // nothing is copied until accessed
+        assertTrue(complex == copy.peek("complex"));
+
+        // changes on the copy don't change the base
+        State complexCopy = (State) copy.get("complex");
+        assertFalse(complex == complexCopy);
+        assertFalse(copy.isShared("complex"));
+        assertTrue(complexCopy.isShared("C"));
+        ((Object[]) complexCopy.get("C"))[0] = "X";
+        complexCopy.put("A", "Y");
+        @SuppressWarnings("unchecked")
+        List<Serializable> listCopy = (List<Serializable>) copy.entrySet()
+                                                              .stream()
+                                                              .filter(en -> en.getKey().equals("list"))
+                                                              .findFirst()
+                                                              .get()
+                                                              .getValue();
+        ((State) listCopy.get(0)).put("E", "Z");
+        assertEqualsStrict(state("id", "1", "complex", state("A", "B", "C", new String[] { "D" }), "list",
+                (Serializable) list(state("E", "F"))), base);
+
+        // the diff only walks what was copied
+        assertDiff(stateDiff("complex", stateDiff("A", "Y", "C", new String[] { "X" }), "list",
+                listDiff(stateDiff("E", "Z"))), base, copy);
+    }
+
+    @Test
+    public void testDeepCopyKeepsSharing() {
+        State complex = state("A", "B");
+        State copy = StateHelper.copyOnWrite(state("complex", complex, "other", state("C", "D")));
+        copy.get("other");
+        State snapshot = StateHelper.deepCopy(copy);
+        // still shared with the base state
+        assertTrue(snapshot.isShared("complex"));
+        assertTrue(complex == snapshot.peek("complex"));
+        // private to the copy, so copied
+        assertFalse(snapshot.isShared("other"));
+        assertFalse(copy.peek("other") == snapshot.peek("other"));
+        assertEqualsStrict(copy, snapshot);
+        // a thread-safe copy doesn't share anything
+        State threadSafe = StateHelper.deepCopy(copy, true);
+        assertFalse(threadSafe.isShared("complex"));
+        assertFalse(complex == threadSafe.peek("complex"));
+    }
+
 }
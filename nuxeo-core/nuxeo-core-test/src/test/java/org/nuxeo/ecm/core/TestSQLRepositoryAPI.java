@@ -110,12 +110,14 @@ import org.nuxeo.ecm.core.schema.FacetNames;
 import org.nuxeo.ecm.core.schema.SchemaManager;
 import org.nuxeo.ecm.core.schema.SchemaManagerImpl;
 import org.nuxeo.ecm.core.schema.types.Schema;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState;
 import org.nuxeo.ecm.core.storage.sql.listeners.DummyBeforeModificationListener;
 import org.nuxeo.ecm.core.storage.sql.listeners.DummyTestListener;
 import org.nuxeo.ecm.core.test.CoreFeature;
 import org.nuxeo.ecm.core.test.annotations.Granularity;
 import org.nuxeo.ecm.core.test.annotations.RepositoryConfig;
 import org.nuxeo.ecm.core.versioning.VersioningService;
+import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.ConditionalIgnoreRule;
 import org.nuxeo.runtime.test.runner.ConditionalIgnoreRule.IgnoreWindows;
 import org.nuxeo.runtime.test.runner.Deploy;
@@ -2519,6 +2521,84 @@ public class TestSQLRepositoryAPI {
         session.cancel();
     }
 
+    @Test
+    public void testCopyAndRemoveLargeTree() {
+        String thresholdProp = "nuxeo.core.tree.parallel.threshold";
+        String batchSizeProp = "nuxeo.core.tree.parallel.batchSize";
+        String threadsProp = "nuxeo.core.tree.parallel.threads";
+        Framework.getProperties().put(thresholdProp, "10");
+        Framework.getProperties().put(batchSizeProp, "4");
+        Framework.getProperties().put(threadsProp, "3");
+        try {
+            doTestCopyAndRemoveLargeTree();
+        } finally {
+            Framework.getProperties().remove(thresholdProp);
+            Framework.getProperties().remove(batchSizeProp);
+            Framework.getProperties().remove(threadsProp);
+        }
+    }
+
+    protected void doTestCopyAndRemoveLargeTree() {
+        DocumentModel folder = session.createDocumentModel("/", "folder", "Folder");
+        folder = session.createDocument(folder);
+        DocumentModel dest = session.createDocumentModel("/", "dest", "Folder");
+        dest = session.createDocument(dest);
+        for (int i = 0; i < 3; i++) {
+            DocumentModel sub = session.createDocumentModel("/folder", "sub" + i, "Folder");
+            session.createDocument(sub);
+            for (int j = 0; j < 5; j++) {
+                DocumentModel file = session.createDocumentModel("/folder/sub" + i, "file" + j, "File");
+                session.createDocument(file);
+            }
+            DocumentModel subsub = session.createDocumentModel("/folder/sub" + i, "subsub", "Folder");
+            session.createDocument(subsub);
+            for (int j = 0; j < 2; j++) {
+                DocumentModel file = session.createDocumentModel("/folder/sub" + i + "/subsub", "file" + j, "File");
+                session.createDocument(file);
+            }
+        }
+        session.save();
+        String query = "SELECT * FROM Document WHERE ecm:ancestorId = '%s'";
+        assertEquals(27, session.query(String.format(query, folder.getId())).size());
+
+        DocumentModel copy = session.copy(folder.getRef(), dest.getRef(), null);
+        session.save();
+        nextTransaction();
+        assertEquals(27, session.query(String.format(query, copy.getId())).size());
+        assertEquals(27, session.query(String.format(query, folder.getId())).size());
+        DocumentModel file = session.getDocument(new PathRef("/dest/folder/sub2/subsub/file1"));
+        DocumentModel subsub = session.getDocument(new PathRef("/dest/folder/sub2/subsub"));
+        assertEquals(subsub.getRef(), file.getParentRef());
+        assertEquals(4, session.getParentDocuments(file.getRef()).size() - 1);
+        assertEquals(3, session.getChildren(copy.getRef()).size());
+
+        session.removeDocument(copy.getRef());
+        session.save();
+        nextTransaction();
+        assertFalse(session.exists(new PathRef("/dest/folder")));
+        assertEquals(0, session.query(String.format(query, copy.getId())).size());
+        assertEquals(27, session.query(String.format(query, folder.getId())).size());
+
+        // copy rolled back
+        copy = session.copy(folder.getRef(), dest.getRef(), null);
+        session.save();
+        TransactionHelper.setTransactionRollbackOnly();
+        nextTransaction();
+        assertFalse(session.exists(copy.getRef()));
+        assertEquals(0, session.query(String.format(query, copy.getId())).size());
+        assertEquals(0, session.query(String.format(query, dest.getId())).size());
+
+        // removal rolled back
+        session.removeDocument(folder.getRef());
+        session.save();
+        TransactionHelper.setTransactionRollbackOnly();
+        nextTransaction();
+        assertTrue(session.exists(folder.getRef()));
+        assertEquals(27, session.query(String.format(query, folder.getId())).size());
+        file = session.getDocument(new PathRef("/folder/sub2/subsub/file1"));
+        assertEquals(3, session.getParentDocuments(file.getRef()).size() - 1);
+    }
+
     @Test
     public void testCopyProxyAsDocument() throws Exception {
         // create a folder tree
@@ -3296,6 +3376,37 @@ public class TestSQLRepositoryAPI {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testPrefetchDescendants() throws Exception {
+        DocumentModel folder = session.createDocumentModel("/", "folder", "Folder");
+        folder = session.createDocument(folder);
+        for (int i = 0; i < 3; i++) {
+            DocumentModel sub = session.createDocumentModel("/folder", "sub" + i, "Folder");
+            session.createDocument(sub);
+            for (int j = 0; j < 2; j++) {
+                DocumentModel doc = session.createDocumentModel("/folder/sub" + i, "doc" + j, "File");
+                session.createDocument(doc);
+            }
+        }
+        session.save();
+        // not yet saved
+        DocumentModel doc = session.createDocumentModel("/folder/sub0", "doc2", "File");
+        session.createDocument(doc);
+
+        session.prefetchDescendants(folder.getRef(), 2);
+
+        assertEquals(3, session.getChildren(folder.getRef()).size());
+        assertEquals(3, session.getChildren(new PathRef("/folder/sub0")).size());
+        assertEquals(2, session.getChildren(new PathRef("/folder/sub1")).size());
+
+        // still consistent after changes
+        session.removeDocument(new PathRef("/folder/sub1/doc0"));
+        doc = session.createDocumentModel("/folder/sub2", "doc2", "File");
+        session.createDocument(doc);
+        assertEquals(1, session.getChildren(new PathRef("/folder/sub1")).size());
+        assertEquals(3, session.getChildren(new PathRef("/folder/sub2")).size());
+    }
+
     @Test
     public void testProxyChildren() throws Exception {
         DocumentModel root = session.getRootDocument();
@@ -4525,6 +4636,58 @@ public class TestSQLRepositoryAPI {
         assertNotEquals(token2, token2b);
     }
 
+    @Test
+    public void testSaveInBatches() {
+        Framework.getProperties().setProperty(DBSTransactionState.SAVE_BATCH_SIZE_PROPERTY, "2");
+        try {
+            DocumentModel folder = session.createDocumentModel("/", "folder", "Folder");
+            folder = session.createDocument(folder);
+            List<DocumentModel> docs = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                DocumentModel doc = session.createDocumentModel("/folder", "doc" + i, "File");
+                doc.setPropertyValue("dc:title", "title" + i);
+                maybeCreateChangeToken(doc);
+                docs.add(session.createDocument(doc));
+            }
+            session.save();
+            nextTransaction();
+
+            for (DocumentModel doc : docs) {
+                doc.setPropertyValue("dc:title", doc.getTitle() + " changed");
+                maybeUpdateChangeToken(doc);
+                session.saveDocument(doc);
+            }
+            session.save();
+            nextTransaction();
+            for (int i = 0; i < 5; i++) {
+                DocumentModel doc = session.getDocument(docs.get(i).getRef());
+                assertEquals("title" + i + " changed", doc.getTitle());
+            }
+
+            // rollback
+            for (DocumentModel doc : docs) {
+                doc = session.getDocument(doc.getRef());
+                doc.setPropertyValue("dc:title", "foo");
+                session.saveDocument(doc);
+            }
+            session.save();
+            TransactionHelper.setTransactionRollbackOnly();
+            nextTransaction();
+            for (int i = 0; i < 5; i++) {
+                DocumentModel doc = session.getDocument(docs.get(i).getRef());
+                assertEquals("title" + i + " changed", doc.getTitle());
+            }
+
+            session.removeDocument(folder.getRef());
+            session.save();
+            for (DocumentModel doc : docs) {
+                assertFalse(session.exists(doc.getRef()));
+            }
+        } finally {
+            Framework.getProperties().remove(DBSTransactionState.SAVE_BATCH_SIZE_PROPERTY);
+        }
+    }
+
     // query providers create "search" doc types to collect results
     @Test
     public void testChangeTokenOnFakeDocument() {
@@ -831,6 +831,27 @@ public class TestSQLRepositoryFulltextQuery {
         waitForFulltextIndexing();
     }
 
+    @Test
+    public void testFulltextBlobBatch() throws Exception {
+        // more documents than the extractor batch size
+        int n = 25;
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "file" + i, "File");
+            Blob blob = Blobs.createBlob("batched content" + i + " restaurant");
+            doc.setPropertyValue("content", (Serializable) blob);
+            doc = session.createDocument(doc);
+            ids.add(doc.getId());
+        }
+        session.save();
+        waitForFulltextIndexing();
+
+        DocumentModelList dml = session.query("SELECT * FROM File WHERE ecm:fulltext = 'restaurant'");
+        assertIdSet(dml, ids.toArray(new String[n]));
+        dml = session.query("SELECT * FROM File WHERE ecm:fulltext = 'content7'");
+        assertIdSet(dml, ids.get(7));
+    }
+
     @Test
     public void testFulltextCopy() throws Exception {
         createDocs();
@@ -54,6 +54,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
@@ -78,6 +79,8 @@ import org.nuxeo.ecm.core.api.IterableQueryResult;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.PartialList;
 import org.nuxeo.ecm.core.api.PathRef;
+import org.nuxeo.ecm.core.api.ProjectionCursor;
+import org.nuxeo.ecm.core.api.ProjectionRow;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.api.VersioningOption;
 import org.nuxeo.ecm.core.api.impl.FacetFilter;
@@ -88,10 +91,14 @@ import org.nuxeo.ecm.core.api.security.ACL;
 import org.nuxeo.ecm.core.api.security.ACP;
 import org.nuxeo.ecm.core.api.security.impl.ACLImpl;
 import org.nuxeo.ecm.core.api.security.impl.ACPImpl;
+import org.nuxeo.ecm.core.query.KeysetPagination;
 import org.nuxeo.ecm.core.query.QueryFilter;
 import org.nuxeo.ecm.core.query.QueryParseException;
 import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
 import org.nuxeo.ecm.core.schema.FacetNames;
+import org.nuxeo.ecm.core.storage.dbs.DBSScrollPosition;
 import org.nuxeo.ecm.core.test.CoreFeature;
 import org.nuxeo.ecm.core.test.StorageConfiguration;
 import org.nuxeo.ecm.core.test.annotations.Granularity;
@@ -179,8 +186,8 @@ public class TestSQLRepositoryQuery {
 
     public boolean supportsScroll() {
         StorageConfiguration conf = coreFeature.getStorageConfiguration();
-        // DBS mem and marklogic are not yet supported
-        return (conf.isDBSMongoDB() || conf.isVCS());
+        // DBS marklogic is not yet supported
+        return (conf.isDBSMongoDB() || conf.isDBSMem() || conf.isVCS());
     }
 
     // ---------------------------------------
@@ -1817,6 +1824,48 @@ public class TestSQLRepositoryQuery {
         assertEquals(whole.get(1).get(NXQL.ECM_UUID), secondPage.get(0).get(NXQL.ECM_UUID));
     }
 
+    @Test
+    public void testQueryKeysetPaging() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "doc" + i, "File");
+            // duplicate titles to check that ecm:uuid is used to order them
+            doc.setPropertyValue("dc:title", "title" + (i % 4));
+            session.createDocument(doc);
+        }
+        session.save();
+
+        for (String query : Arrays.asList( //
+                "SELECT * FROM File ORDER BY dc:title", //
+                "SELECT * FROM File ORDER BY dc:title DESC", //
+                "SELECT * FROM File ORDER BY dc:title DESC, ecm:name", //
+                "SELECT * FROM File")) {
+            SQLQuery sqlQuery = SQLQueryParser.parse(query);
+            // same order without keyset
+            String orderedQuery = query + (sqlQuery.orderBy == null ? " ORDER BY " : ", ") + NXQL.ECM_UUID;
+            List<String> expected = new ArrayList<>();
+            for (DocumentModel doc : session.query(orderedQuery)) {
+                expected.add(doc.getId());
+            }
+            assertEquals(10, expected.size());
+
+            List<String> ids = new ArrayList<>();
+            Serializable[] keyset = null;
+            for (;;) {
+                DocumentModelList page = session.query(query, NXQL.NXQL, null, 3, keyset, 0);
+                assertTrue(page.size() <= 3);
+                for (DocumentModel doc : page) {
+                    ids.add(doc.getId());
+                }
+                if (page.size() < 3) {
+                    break;
+                }
+                keyset = KeysetPagination.getKeyset(sqlQuery, page.get(page.size() - 1));
+                assertNotNull(keyset);
+            }
+            assertEquals(query, expected, ids);
+        }
+    }
+
     @Test
     public void testQueryPrimaryTypeOptimization() throws Exception {
         // check these queries in the logs
@@ -2465,6 +2514,56 @@ public class TestSQLRepositoryQuery {
         assertEquals(1, res.size());
     }
 
+    @Test
+    public void testQueryProjectionCursor() throws Exception {
+        createDocs();
+
+        String query = "SELECT ecm:uuid, dc:title FROM File ORDER BY dc:title";
+        List<Map<String, Serializable>> expected = new ArrayList<>();
+        try (IterableQueryResult res = session.queryAndFetch(query, "NXQL")) {
+            for (Map<String, Serializable> map : res) {
+                Map<String, Serializable> projection = new HashMap<>();
+                projection.put(NXQL.ECM_UUID, map.get(NXQL.ECM_UUID));
+                projection.put("dc:title", map.get("dc:title"));
+                expected.add(projection);
+            }
+        }
+        assertEquals(3, expected.size());
+
+        List<Map<String, Serializable>> maps = new ArrayList<>();
+        try (ProjectionCursor cursor = session.queryProjectionCursor(query, "NXQL", false)) {
+            assertEquals(Arrays.asList(NXQL.ECM_UUID, "dc:title"), cursor.getColumnNames());
+            ProjectionRow previous = null;
+            while (cursor.hasNext()) {
+                ProjectionRow row = cursor.next();
+                if (previous != null) {
+                    // the row is reused
+                    assertTrue(previous == row);
+                }
+                previous = row;
+                assertEquals(2, row.getColumnCount());
+                assertEquals(1, row.getColumnIndex("dc:title"));
+                assertEquals(-1, row.getColumnIndex("dc:description"));
+                assertEquals(row.get("dc:title"), row.getString(1));
+                maps.add(row.toMap());
+            }
+        }
+        assertEquals(expected, maps);
+
+        // as a stream
+        List<String> titles;
+        try (Stream<ProjectionRow> stream = session.queryProjectionCursor(query, "NXQL", false).stream()) {
+            titles = stream.map(row -> row.getString(1)).collect(Collectors.toList());
+        }
+        assertEquals(Arrays.asList("testfile1_Title", "testfile2_Title", "testfile4Title"), titles);
+
+        // no result
+        try (ProjectionCursor cursor = session.queryProjectionCursor("SELECT ecm:uuid FROM File WHERE dc:title = 'nope'",
+                "NXQL", false)) {
+            assertFalse(cursor.hasNext());
+        }
+    }
+
     @Test
     public void testSelectColumnsDistinct() throws Exception {
         assumeTrue("DBS does not support DISTINCT in queries", supportsDistinct());
@@ -3530,6 +3629,47 @@ public class TestSQLRepositoryQuery {
         assertFalse(ret.hasResults());
     }
 
+    @Test
+    public void testScrollApiResume() throws Exception {
+        StorageConfiguration conf = coreFeature.getStorageConfiguration();
+        assumeTrue("Backend must support resumable scrolling", conf.isDBSMongoDB() || conf.isDBSMem());
+
+        final int nbDocs = 27;
+        final int batchSize = 4;
+        for (int i = 0; i < nbDocs; i++) {
+            session.createDocument(session.createDocumentModel("/", "doc" + i, "File"));
+        }
+        session.save();
+
+        String query = "SELECT * FROM File";
+        Framework.getProperties().put(DBSScrollPosition.RESUMABLE_PROPERTY, "true");
+        try {
+            ScrollResult<String> ret = session.scroll(query, batchSize, 10);
+            List<String> ids = new ArrayList<>(ret.getResults());
+            assertEquals(batchSize, ids.size());
+            ret = session.scroll(ret.getScrollId());
+            ids.addAll(ret.getResults());
+            // the position is known cluster-wide, simulate another node resuming it without its cursor
+            String repositoryName = session.getRepositoryName();
+            String lostScrollId = "lost-" + ret.getScrollId();
+            DBSScrollPosition.load(repositoryName, ret.getScrollId()).save(repositoryName, lostScrollId);
+            ret = session.scroll(lostScrollId);
+            while (ret.hasResults()) {
+                ids.addAll(ret.getResults());
+                ret = session.scroll(lostScrollId);
+            }
+            // all the documents, once, in id order
+            List<String> expected = new ArrayList<>(ids);
+            Collections.sort(expected);
+            assertEquals(expected, ids);
+            assertEquals(nbDocs, new HashSet<>(ids).size());
+            // the position is removed once the scroll is finished
+            assertNull(DBSScrollPosition.load(repositoryName, lostScrollId));
+        } finally {
+            Framework.getProperties().remove(DBSScrollPosition.RESUMABLE_PROPERTY);
+        }
+    }
+
     @Test
     @LogCaptureFeature.FilterOn(logLevel = "WARN")
     public void testScrollApiEmtpy() throws Exception {
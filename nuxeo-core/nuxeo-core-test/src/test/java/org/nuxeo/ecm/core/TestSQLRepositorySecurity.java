@@ -869,6 +869,113 @@ public class TestSQLRepositorySecurity {
         }
     }
 
+    @Test
+    public void testReadAclOnLargeTreeDocumentMode() {
+        String enabledProp = "nuxeo.core.readacl.async.enabled";
+        String thresholdProp = "nuxeo.core.readacl.async.threshold";
+        String modeProp = "nuxeo.core.readacl.async.mode";
+        Framework.getProperties().put(enabledProp, "true");
+        Framework.getProperties().put(thresholdProp, "10");
+        Framework.getProperties().put(modeProp, "document");
+        try {
+            doTestReadAclOnLargeTree();
+        } finally {
+            Framework.getProperties().remove(enabledProp);
+            Framework.getProperties().remove(thresholdProp);
+            Framework.getProperties().remove(modeProp);
+        }
+    }
+
+    @Test
+    public void testReadAclOnLargeTreeWithBlockedInheritance() {
+        String enabledProp = "nuxeo.core.readacl.async.enabled";
+        String thresholdProp = "nuxeo.core.readacl.async.threshold";
+        String batchSizeProp = "nuxeo.core.readacl.async.batchSize";
+        Framework.getProperties().put(enabledProp, "true");
+        Framework.getProperties().put(thresholdProp, "10");
+        Framework.getProperties().put(batchSizeProp, "7");
+        try {
+            doTestReadAclOnLargeTreeWithBlockedInheritance();
+        } finally {
+            Framework.getProperties().remove(enabledProp);
+            Framework.getProperties().remove(thresholdProp);
+            Framework.getProperties().remove(batchSizeProp);
+        }
+    }
+
+    protected void doTestReadAclOnLargeTreeWithBlockedInheritance() {
+        DocumentModel rootFolder = session.createDocumentModel("/", "folder", "Folder");
+        rootFolder = session.createDocument(rootFolder);
+        String firstUser = "mickey";
+        String secondUser = "minnie";
+        String thirdUser = "goofy";
+
+        ACP acp = new ACPImpl();
+        acp.addACE(ACL.LOCAL_ACL, new ACE(firstUser, READ, true));
+        rootFolder.setACP(acp, true);
+
+        // a chain of folders, the blocked one only readable by the third user
+        int nbLevels = 10;
+        int nbPerLevel = 5;
+        int blockedLevel = 6;
+        DocumentModel parent = rootFolder;
+        for (int level = 0; level < nbLevels; level++) {
+            DocumentModel folder = session.createDocumentModel(parent.getPathAsString(), "folder-" + level, "Folder");
+            folder = session.createDocument(folder);
+            if (level == blockedLevel) {
+                ACP blockedAcp = new ACPImpl();
+                ACL acl = blockedAcp.getOrCreateACL(ACL.LOCAL_ACL);
+                acl.add(new ACE(thirdUser, READ, true));
+                acl.add(new ACE(EVERYONE, EVERYTHING, false));
+                folder.setACP(blockedAcp, true);
+            }
+            for (int i = 0; i < nbPerLevel; i++) {
+                DocumentModel doc = session.createDocumentModel(folder.getPathAsString(), "doc-" + level + "-" + i,
+                        "File");
+                session.createDocument(doc);
+            }
+            parent = folder;
+        }
+        session.save();
+        int nbDocs = 1 + nbLevels * (nbPerLevel + 1);
+        int nbBlocked = (nbLevels - blockedLevel) * (nbPerLevel + 1);
+
+        assertEquals(nbDocs - nbBlocked, numberOfReadableDocuments(firstUser));
+        assertEquals(0, numberOfReadableDocuments(secondUser));
+        assertEquals(nbBlocked, numberOfReadableDocuments(thirdUser));
+
+        // set ACL for second user on root folder
+        acp.addACE(ACL.LOCAL_ACL, new ACE(secondUser, READ, true));
+        rootFolder.setACP(acp, true);
+        session.save();
+
+        // wait for asynchronous stuff to finish
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        eventService.waitForAsyncCompletion();
+
+        // the blocked subtree is still not readable by the first and second users
+        assertEquals(nbDocs - nbBlocked, numberOfReadableDocuments(firstUser));
+        assertEquals(nbDocs - nbBlocked, numberOfReadableDocuments(secondUser));
+        assertEquals(nbBlocked, numberOfReadableDocuments(thirdUser));
+
+        // remove the blocking, now everything is readable by the first and second users
+        DocumentModel blocked = session.getDocument(new PathRef(
+                "/folder/folder-0/folder-1/folder-2/folder-3/folder-4/folder-5/folder-6"));
+        ACP blockedAcp = blocked.getACP();
+        blockedAcp.removeACL(ACL.LOCAL_ACL);
+        blocked.setACP(blockedAcp, true);
+        session.save();
+
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        eventService.waitForAsyncCompletion();
+
+        assertEquals(nbDocs, numberOfReadableDocuments(firstUser));
+        assertEquals(nbDocs, numberOfReadableDocuments(secondUser));
+        assertEquals(0, numberOfReadableDocuments(thirdUser));
+    }
+
     protected void doTestReadAclOnLargeTree() {
         DocumentModel rootFolder = session.createDocumentModel("/", "folder", "Folder");
         rootFolder = session.createDocument(rootFolder);
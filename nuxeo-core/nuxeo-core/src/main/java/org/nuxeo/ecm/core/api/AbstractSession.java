@@ -932,6 +932,13 @@ public abstract class AbstractSession implements CoreSession, Serializable {
         return refs;
     }
 
+    @Override
+    public void prefetchDescendants(DocumentRef parentRef, int depth) {
+        Document parent = resolveReference(parentRef);
+        checkPermission(parent, READ_CHILDREN);
+        getSession().prefetchDescendants(parent, depth);
+    }
+
     @Override
     public DocumentModelIterator getChildrenIterator(DocumentRef parent) {
         return getChildrenIterator(parent, null, null, null);
@@ -1170,6 +1177,21 @@ public abstract class AbstractSession implements CoreSession, Serializable {
     @Override
     public DocumentModelList query(String query, String queryType, Filter filter, long limit, long offset,
             long countUpTo) {
+        return query(query, queryType, filter, limit, offset, null, countUpTo);
+    }
+
+    @Override
+    public DocumentModelList query(String query, String queryType, Filter filter, long limit, Serializable[] keyset,
+            long countUpTo) {
+        if (keyset == null) {
+            // first page, still ordered as the following ones
+            keyset = new Serializable[0];
+        }
+        return query(query, queryType, filter, limit, 0, keyset, countUpTo);
+    }
+
+    protected DocumentModelList query(String query, String queryType, Filter filter, long limit, long offset,
+            Serializable[] keyset, long countUpTo) {
         SecurityService securityService = getSecurityService();
         Principal principal = getPrincipal();
         try {
@@ -1184,7 +1206,7 @@ public abstract class AbstractSession implements CoreSession, Serializable {
 
             QueryFilter queryFilter = new QueryFilter(principal, principals, permissions,
                     filter instanceof FacetFilter ? (FacetFilter) filter : null, transformers, postFilter ? 0 : limit,
-                    postFilter ? 0 : offset);
+                    postFilter ? 0 : offset, keyset);
 
             // get document list with total size
             PartialList<Document> pl = getSession().query(query, queryType, queryFilter, postFilter ? -1 : countUpTo);
@@ -1267,6 +1289,24 @@ public abstract class AbstractSession implements CoreSession, Serializable {
         }
     }
 
+    @Override
+    public ProjectionCursor queryProjectionCursor(String query, String queryType, boolean distinctDocuments,
+            Object... params) {
+        try {
+            SecurityService securityService = getSecurityService();
+            Principal principal = getPrincipal();
+            String[] principals = getPrincipalsToCheck();
+            String[] permissions = securityService.getPermissionsToCheck(BROWSE);
+            Collection<Transformer> transformers = getPoliciesQueryTransformers(queryType);
+
+            QueryFilter queryFilter = new QueryFilter(principal, principals, permissions, null, transformers, 0, 0);
+            return getSession().queryProjectionCursor(query, queryType, queryFilter, distinctDocuments, params);
+        } catch (QueryParseException e) {
+            e.addInfo("Failed to execute query: " + queryType + ": " + query);
+            throw e;
+        }
+    }
+
     @Override
     public PartialList<Map<String, Serializable>> queryProjection(String query, long limit, long offset) {
         return queryProjection(query, limit, offset, false);
@@ -92,6 +92,14 @@ public class QueryObject extends AbstractResource<ResourceTypeImpl> {
      */
     public static final String QUICK_FILTERS = "quickFilters";
 
+    /**
+     * Token returned as {@code nextPageToken} with a page, to get the following page without using an offset. An empty
+     * token gets the first page.
+     *
+     * @since 10.3
+     */
+    public static final String PAGE_TOKEN = "pageToken";
+
     private static final Log log = LogFactory.getLog(QueryObject.class);
 
     protected EnumMap<QueryParams, String> queryParametersMap;
@@ -113,6 +121,7 @@ public class QueryObject extends AbstractResource<ResourceTypeImpl> {
         queryParametersMap.put(QueryParams.QUERY, QUERY);
         queryParametersMap.put(QueryParams.ORDERED_PARAMS, ORDERED_PARAMS);
         queryParametersMap.put(QueryParams.QUICK_FILTERS, QUICK_FILTERS);
+        queryParametersMap.put(QueryParams.PAGE_TOKEN, PAGE_TOKEN);
         // Lang Path Enum Map
         langPathMap = new EnumMap<>(LangParams.class);
         langPathMap.put(LangParams.NXQL, NXQL);
@@ -135,6 +144,7 @@ public class QueryObject extends AbstractResource<ResourceTypeImpl> {
         String sortOrder = queryParams.getFirst(SORT_ORDER);
         List<String> orderedParams = queryParams.get(ORDERED_PARAMS);
         String quickFilters = queryParams.getFirst(QUICK_FILTERS);
+        String pageToken = queryParams.getFirst(PAGE_TOKEN);
 
         // If no query or provider name has been found
         // Execute big select
@@ -189,6 +199,9 @@ public class QueryObject extends AbstractResource<ResourceTypeImpl> {
 
         Map<String, Serializable> props = new HashMap<>();
         props.put(CoreQueryDocumentPageProvider.CORE_SESSION_PROPERTY, (Serializable) ctx.getCoreSession());
+        if (pageToken != null) {
+            props.put(CoreQueryDocumentPageProvider.PAGE_TOKEN_PROPERTY, pageToken);
+        }
 
         DocumentModel searchDocumentModel = getSearchDocumentModel(ctx.getCoreSession(), pageProviderService,
                 providerName, namedParameters);
@@ -319,7 +332,7 @@ public class QueryObject extends AbstractResource<ResourceTypeImpl> {
     }
 
     public enum QueryParams {
-        PAGE_SIZE, CURRENT_PAGE_INDEX, MAX_RESULTS, SORT_BY, SORT_ORDER, ORDERED_PARAMS, QUERY, QUICK_FILTERS
+        PAGE_SIZE, CURRENT_PAGE_INDEX, MAX_RESULTS, SORT_BY, SORT_ORDER, ORDERED_PARAMS, QUERY, QUICK_FILTERS, PAGE_TOKEN
     }
 
     public enum LangParams {
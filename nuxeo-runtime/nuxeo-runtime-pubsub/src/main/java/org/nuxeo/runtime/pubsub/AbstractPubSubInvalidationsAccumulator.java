@@ -18,11 +18,20 @@
  */
 package org.nuxeo.runtime.pubsub;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.nuxeo.runtime.api.Framework;
 
 /**
  * Encapsulates invalidations management through the {@link PubSubService}.
+ * <p>
+ * Since 10.3, invalidations sent can be coalesced over a window of time before being published, see
+ * {@link #COALESCING_WINDOW_PROP}.
  *
  * @since 9.3
  */
@@ -31,19 +40,60 @@ public abstract class AbstractPubSubInvalidationsAccumulator<T extends Serializa
 
     private static final Log log = LogFactory.getLog(AbstractPubSubInvalidationsAccumulator.class);
 
+    /**
+     * Time window (in milliseconds) during which invalidations sent are coalesced into a single message. The default
+     * is 0, which publishes invalidations immediately.
+     *
+     * @since 10.3
+     */
+    public static final String COALESCING_WINDOW_PROP = "nuxeo.pubsub.invalidations.coalescing.window";
+
     protected volatile T bufferedInvalidations;
 
+    /** @since 10.3 */
+    protected long coalescingWindow;
+
+    /** Invalidations waiting to be sent, or {@code null}. Guarded by {@link #pendingLock}. */
+    protected T pendingInvalidations;
+
+    protected final Object pendingLock = new Object();
+
+    protected volatile ScheduledExecutorService flushExecutor;
+
     /** Constructs new empty invalidations, of type {@link T}. */
     public abstract T newInvalidations();
 
     @Override
     public void initialize(String topic, String discriminator) {
         bufferedInvalidations = newInvalidations();
+        coalescingWindow = getCoalescingWindow();
+        if (coalescingWindow > 0) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Nuxeo-PubSub-Invalidations-" + topic);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
         super.initialize(topic, discriminator);
     }
 
+    /**
+     * Gets the coalescing window for sent invalidations, in milliseconds.
+     *
+     * @since 10.3
+     */
+    protected long getCoalescingWindow() {
+        return Long.parseLong(Framework.getProperty(COALESCING_WINDOW_PROP, "0"));
+    }
+
     @Override
     public void close() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+            flushExecutor = null;
+            // don't lose pending invalidations
+            flushInvalidations();
+        }
         super.close();
         // not null to avoid crashing subscriber thread still in flight
         bufferedInvalidations = newInvalidations();
@@ -51,9 +101,48 @@ public abstract class AbstractPubSubInvalidationsAccumulator<T extends Serializa
 
     /**
      * Sends invalidations to other nodes.
+     * <p>
+     * If a coalescing window is configured, the invalidations are accumulated with the ones sent during the window and
+     * published together at its end.
      */
     public void sendInvalidations(T invalidations) {
-        sendMessage(invalidations);
+        ScheduledExecutorService executor = flushExecutor;
+        if (executor == null) {
+            sendMessage(invalidations);
+            return;
+        }
+        boolean schedule;
+        synchronized (pendingLock) {
+            schedule = pendingInvalidations == null;
+            if (schedule) {
+                pendingInvalidations = newInvalidations();
+            }
+            pendingInvalidations.add(invalidations);
+        }
+        if (schedule) {
+            try {
+                executor.schedule(this::flushInvalidations, coalescingWindow, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // closing
+                flushInvalidations();
+            }
+        }
+    }
+
+    /**
+     * Publishes the invalidations accumulated during the coalescing window.
+     *
+     * @since 10.3
+     */
+    protected void flushInvalidations() {
+        T invalidations;
+        synchronized (pendingLock) {
+            invalidations = pendingInvalidations;
+            pendingInvalidations = null;
+        }
+        if (invalidations != null && !invalidations.isEmpty()) {
+            sendMessage(invalidations);
+        }
     }
 
     @Override
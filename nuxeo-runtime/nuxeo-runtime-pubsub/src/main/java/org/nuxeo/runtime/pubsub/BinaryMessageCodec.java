@@ -0,0 +1,231 @@
+/*
+ * (C) Copyright 2018 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.runtime.pubsub;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Helpers to write and read compact binary messages, used for invalidations.
+ * <p>
+ * A message starts with the {@link #BINARY_FORMAT} byte, followed by a flags byte and the body. The body is compressed
+ * if it's larger than {@link #COMPRESSION_THRESHOLD}. Integers are written as varints, strings as their varint length
+ * followed by their UTF-8 bytes, and ids with a type tag so that UUIDs take 16 bytes.
+ *
+ * @since 10.3
+ */
+public class BinaryMessageCodec {
+
+    /**
+     * First byte of a binary message. Distinct from the first byte of a Java serialization stream and of the legacy
+     * textual formats, so that they can still be read.
+     */
+    public static final int BINARY_FORMAT = 0x01;
+
+    /** Body size above which the body is compressed. */
+    public static final int COMPRESSION_THRESHOLD = 1024;
+
+    protected static final int FLAG_DEFLATE = 0x01;
+
+    protected static final int ID_STRING = 0;
+
+    protected static final int ID_UUID = 1;
+
+    protected static final int ID_LONG = 2;
+
+    private BinaryMessageCodec() {
+        // utility class
+    }
+
+    /**
+     * Writes a binary message with the given body, compressed if large enough.
+     */
+    public static void writeMessage(OutputStream out, byte[] body) throws IOException {
+        out.write(BINARY_FORMAT);
+        if (body.length > COMPRESSION_THRESHOLD) {
+            out.write(FLAG_DEFLATE);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                DeflaterOutputStream dout = new DeflaterOutputStream(out, deflater);
+                dout.write(body);
+                dout.finish();
+            } finally {
+                deflater.end();
+            }
+        } else {
+            out.write(0);
+            out.write(body);
+        }
+    }
+
+    /**
+     * Reads the header of a binary message whose {@link #BINARY_FORMAT} first byte has already been read, and returns
+     * the stream from which to read the body.
+     */
+    public static InputStream readMessage(InputStream in) throws IOException {
+        int flags = readByte(in);
+        if ((flags & FLAG_DEFLATE) != 0) {
+            return new InflaterInputStream(in);
+        }
+        return in;
+    }
+
+    protected static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    public static void writeVarInt(OutputStream out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    public static int readVarInt(InputStream in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    public static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    public static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid varint");
+    }
+
+    public static void writeString(OutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(InputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        int n = 0;
+        while (n < length) {
+            int count = in.read(bytes, n, length - n);
+            if (count == -1) {
+                throw new EOFException();
+            }
+            n += count;
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Writes an id, which must be a {@link String} or a {@link Long}. Strings in the canonical lowercase UUID form are
+     * written in binary.
+     */
+    public static void writeId(OutputStream out, Serializable id) throws IOException {
+        if (id instanceof String) {
+            String string = (String) id;
+            if (isUUID(string)) {
+                out.write(ID_UUID);
+                UUID uuid = UUID.fromString(string);
+                writeLong(out, uuid.getMostSignificantBits());
+                writeLong(out, uuid.getLeastSignificantBits());
+            } else {
+                out.write(ID_STRING);
+                writeString(out, string);
+            }
+        } else if (id instanceof Long) {
+            out.write(ID_LONG);
+            writeVarLong(out, ((Long) id).longValue());
+        } else {
+            throw new IOException("Unsupported id: " + id);
+        }
+    }
+
+    public static Serializable readId(InputStream in) throws IOException {
+        int type = readByte(in);
+        switch (type) {
+        case ID_STRING:
+            return readString(in);
+        case ID_UUID:
+            long msb = readLong(in);
+            long lsb = readLong(in);
+            return new UUID(msb, lsb).toString();
+        case ID_LONG:
+            return Long.valueOf(readVarLong(in));
+        default:
+            throw new IOException("Invalid id type: " + type);
+        }
+    }
+
+    protected static void writeLong(OutputStream out, long value) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    protected static long readLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | readByte(in);
+        }
+        return value;
+    }
+
+    /**
+     * Checks if a string is a UUID in canonical lowercase form, which is what {@link UUID#toString} returns.
+     */
+    protected static boolean isUUID(String string) {
+        if (string.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = string.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -24,7 +24,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -133,6 +137,38 @@ public class TestAbstractPubSubInvalidator {
         }
     }
 
+    public static class CoalescingDummyInvalidator extends DummyInvalidator {
+
+        @Override
+        protected long getCoalescingWindow() {
+            return 200;
+        }
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        DummyInvalidator invalidator = new CoalescingDummyInvalidator();
+        invalidator.initialize("topic", "d");
+        try {
+            for (int i = 0; i < 5; i++) {
+                DummyInvalidations invals = new DummyInvalidations();
+                invals.inval();
+                invalidator.sendInvalidations(invals);
+            }
+            // published only once at the end of the window
+            verify(pubSubService, timeout(5000)).publish(eq("topic"), any(byte[].class));
+            Thread.sleep(300);
+            verify(pubSubService, times(1)).publish(eq("topic"), any(byte[].class));
+            // pending invalidations are published on close
+            DummyInvalidations invals = new DummyInvalidations();
+            invals.inval();
+            invalidator.sendInvalidations(invals);
+        } finally {
+            invalidator.close();
+        }
+        verify(pubSubService, times(2)).publish(eq("topic"), any(byte[].class));
+    }
+
     @Test
     public void testScanDiscriminator() throws Exception {
         DummyInvalidator invalidator = new DummyInvalidator();
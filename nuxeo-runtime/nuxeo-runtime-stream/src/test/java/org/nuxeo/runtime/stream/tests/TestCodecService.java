@@ -65,6 +65,8 @@ public class TestCodecService {
         checkCodec(record, codec, 20);
         codec = service.getCodec("avroJson", Record.class);
         checkCodec(record, codec, 75);
+        codec = service.getCodec("bytes", Record.class);
+        checkCodec(record, codec, 20);
 
         codec = service.getCodec("java", Record.class);
         checkCodec(record, codec, 90);
@@ -0,0 +1,43 @@
+/*
+ * (C) Copyright 2018 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.codec;
+
+import net.openhft.chronicle.bytes.Bytes;
+
+/**
+ * A codec that is able to write and read objects directly in a {@link Bytes} buffer, for instance a Chronicle Queue
+ * memory-mapped excerpt, without going through an intermediate byte array.
+ *
+ * @since 10.3
+ */
+public interface BytesCodec<T> extends Codec<T> {
+
+    /**
+     * Writes the object at the current write position of the bytes.
+     */
+    void encode(T object, Bytes<?> bytes);
+
+    /**
+     * Reads an object from the current read position of the bytes.
+     *
+     * @throws IllegalArgumentException if data are invalid.
+     */
+    T decode(Bytes<?> bytes);
+
+}
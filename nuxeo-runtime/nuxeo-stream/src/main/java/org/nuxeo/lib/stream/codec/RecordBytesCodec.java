@@ -0,0 +1,103 @@
+/*
+ * (C) Copyright 2018 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.codec;
+
+import java.nio.BufferUnderflowException;
+
+import org.nuxeo.lib.stream.computation.Record;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.IORuntimeException;
+
+/**
+ * A compact binary codec dedicated to {@link Record}.
+ * <p>
+ * On a Chronicle Queue the fields are written directly into the mapped excerpt and the data is read in a single copy,
+ * there is no intermediate encoded array like with {@link AvroMessageCodec} or {@link SerializableCodec}.
+ *
+ * @since 10.3
+ */
+public class RecordBytesCodec implements BytesCodec<Record> {
+
+    public static final String NAME = "bytes";
+
+    protected static final byte MAGIC = (byte) 0xB1;
+
+    // magic, flags, watermark and lengths
+    protected static final int HEADER_SIZE = 32;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void encode(Record record, Bytes<?> bytes) {
+        byte[] data = record.getData();
+        bytes.writeByte(MAGIC);
+        bytes.writeByte(record.getFlagsAsByte());
+        bytes.writeLong(record.getWatermark());
+        bytes.writeUtf8(record.getKey());
+        bytes.writeStopBit(data.length);
+        bytes.write(data);
+    }
+
+    @Override
+    public Record decode(Bytes<?> bytes) {
+        try {
+            if (bytes.readByte() != MAGIC) {
+                throw new IllegalArgumentException("Invalid encoding for codec: " + NAME);
+            }
+            Record record = new Record();
+            record.setFlagsAsByte(bytes.readByte());
+            record.setWatermark(bytes.readLong());
+            record.setKey(bytes.readUtf8());
+            long length = bytes.readStopBit();
+            if (length < 0 || length > bytes.readRemaining()) {
+                throw new IllegalArgumentException("Invalid data length: " + length);
+            }
+            if (length > 0) {
+                byte[] data = new byte[(int) length];
+                bytes.read(data);
+                record.setData(data);
+            }
+            return record;
+        } catch (BufferUnderflowException | IORuntimeException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public byte[] encode(Record record) {
+        int keyLength = record.getKey() == null ? 0 : record.getKey().length();
+        Bytes<?> bytes = Bytes.allocateElasticDirect(HEADER_SIZE + keyLength + record.getData().length);
+        try {
+            encode(record, bytes);
+            return bytes.toByteArray();
+        } finally {
+            bytes.release();
+        }
+    }
+
+    @Override
+    public Record decode(byte[] data) {
+        return decode(Bytes.wrapForRead(data));
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * (C) Copyright 2018 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.computation;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A computation that receives records by batch: the runner polls up to {@link #getBatchCapacity()} records, waiting
+ * at most {@link #getBatchThreshold()}, and checkpoints at most once per batch.
+ * <p>
+ * A batch always contains records coming from the same input stream, in order. The records of a batch are considered
+ * processed when {@link #processRecords} returns: a checkpoint asked during the call covers all of them. When the
+ * computation asks for termination, the records read by the runner but not yet delivered are read again on restart.
+ *
+ * @since 10.3
+ */
+public interface BatchComputation extends Computation {
+
+    /**
+     * Process a batch of incoming records from one of the computation's input streams.
+     *
+     * @param context The computation context object provided by the system.
+     * @param inputStreamName Name of the input stream that provides the records.
+     * @param records The records, this list is only valid during the call.
+     */
+    void processRecords(ComputationContext context, String inputStreamName, List<Record> records);
+
+    /**
+     * Process a single record as a batch.
+     */
+    @Override
+    default void processRecord(ComputationContext context, String inputStreamName, Record record) {
+        processRecords(context, inputStreamName, Collections.singletonList(record));
+    }
+
+    /**
+     * The maximum number of records in a batch.
+     */
+    int getBatchCapacity();
+
+    /**
+     * The maximum duration to wait for records to fill a batch.
+     */
+    Duration getBatchThreshold();
+
+}
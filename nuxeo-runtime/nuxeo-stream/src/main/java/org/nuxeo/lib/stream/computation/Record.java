@@ -120,6 +120,25 @@ public class Record implements Externalizable {
         this.flagsAsByte = (byte) encodeFlags(flags);
     }
 
+    /**
+     * Returns the compact representation of the flags.
+     *
+     * @since 10.3
+     */
+    public byte getFlagsAsByte() {
+        return flagsAsByte;
+    }
+
+    /**
+     * Sets the flags from their compact representation, the enum set is decoded lazily.
+     *
+     * @since 10.3
+     */
+    public void setFlagsAsByte(byte flagsAsByte) {
+        this.flagsAsByte = flagsAsByte;
+        this.flags = null;
+    }
+
     public String getKey() {
         return key;
     }
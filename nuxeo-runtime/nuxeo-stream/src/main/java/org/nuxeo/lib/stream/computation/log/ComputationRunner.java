@@ -19,6 +19,7 @@
 package org.nuxeo.lib.stream.computation.log;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -31,6 +32,7 @@ import java.util.stream.Collectors;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.computation.BatchComputation;
 import org.nuxeo.lib.stream.computation.Computation;
 import org.nuxeo.lib.stream.computation.ComputationMetadataMapping;
 import org.nuxeo.lib.stream.computation.Record;
@@ -39,6 +41,7 @@ import org.nuxeo.lib.stream.computation.internals.ComputationContextImpl;
 import org.nuxeo.lib.stream.computation.internals.WatermarkMonotonicInterval;
 import org.nuxeo.lib.stream.log.LogAppender;
 import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.LogOffset;
 import org.nuxeo.lib.stream.log.LogPartition;
 import org.nuxeo.lib.stream.log.LogRecord;
 import org.nuxeo.lib.stream.log.LogTailer;
@@ -98,6 +101,13 @@ public class ComputationRunner implements Runnable, RebalanceListener {
 
     protected String threadName;
 
+    /**
+     * The records read for a {@link BatchComputation}.
+     *
+     * @since 10.3
+     */
+    protected final List<LogRecord<Record>> batch = new ArrayList<>();
+
     @SuppressWarnings("unchecked")
     public ComputationRunner(Supplier<Computation> supplier, ComputationMetadataMapping metadata,
             List<LogPartition> defaultAssignment, LogManager logManager, Codec<Record> inputCodec,
@@ -267,13 +277,10 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         if (tailer == null) {
             return false;
         }
-        Duration timeoutRead = getTimeoutDuration();
-        LogRecord<Record> logRecord = null;
-        try {
-            logRecord = tailer.read(timeoutRead);
-        } catch (RebalanceException e) {
-            // the revoke has done a checkpoint we can continue
+        if (computation instanceof BatchComputation) {
+            return processRecords((BatchComputation) computation);
         }
+        LogRecord<Record> logRecord = readRecord(getTimeoutDuration());
         Record record;
         if (logRecord != null) {
             record = logRecord.message();
@@ -291,6 +298,107 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         return false;
     }
 
+    /**
+     * Reads a batch of records, up to the batch capacity of the computation and within its batch threshold, and
+     * delivers them to the computation. The checkpoint is done at most once for the whole batch.
+     *
+     * @since 10.3
+     */
+    protected boolean processRecords(BatchComputation batchComputation) throws InterruptedException {
+        LogRecord<Record> logRecord = readRecord(getTimeoutDuration());
+        if (logRecord == null) {
+            return false;
+        }
+        int capacity = Math.max(1, batchComputation.getBatchCapacity());
+        long deadline = System.currentTimeMillis() + batchComputation.getBatchThreshold().toMillis();
+        try {
+            while (logRecord != null) {
+                batch.add(logRecord);
+                if (batch.size() >= capacity || logRecord.message().getFlags().contains(Record.Flag.POISON_PILL)) {
+                    break;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                logRecord = tailer.read(Duration.ofMillis(Math.min(remaining, READ_TIMEOUT.toMillis())));
+            }
+        } catch (RebalanceException e) {
+            // the records read are not processed, they are read again from the last checkpoint
+            log.debug(metadata.name() + ": Rebalance while reading a batch, " + batch.size() + " records dropped");
+            batch.clear();
+            return true;
+        }
+        lastReadTime = System.currentTimeMillis();
+        processBatch(batchComputation);
+        checkSourceLowWatermark();
+        setThreadName("records");
+        checkpointIfNecessary();
+        return true;
+    }
+
+    /**
+     * Delivers the batch to the computation by runs of records coming from the same input stream. When the
+     * computation asks for termination, the remaining records are not delivered and the tailer is moved back to them,
+     * so that a checkpoint never covers records that have not been processed.
+     *
+     * @since 10.3
+     */
+    protected void processBatch(BatchComputation batchComputation) {
+        int start = 0;
+        try {
+            while (start < batch.size() && !context.requireTerminate()) {
+                String from = getInputStream(batch.get(start));
+                int end = start + 1;
+                while (end < batch.size() && from.equals(getInputStream(batch.get(end)))) {
+                    end++;
+                }
+                List<Record> records = new ArrayList<>(end - start);
+                for (LogRecord<Record> logRecord : batch.subList(start, end)) {
+                    Record record = logRecord.message();
+                    inRecords++;
+                    lowWatermark.mark(record.getWatermark());
+                    records.add(record);
+                }
+                start = end;
+                batchComputation.processRecords(context, from, records);
+                records.forEach(this::checkRecordFlags);
+            }
+            if (start < batch.size()) {
+                rewind(batch.subList(start, batch.size()));
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Moves the tailer back to the first of the given records on each partition, so that they are read again.
+     *
+     * @since 10.3
+     */
+    protected void rewind(List<LogRecord<Record>> records) {
+        Map<LogPartition, LogOffset> offsets = new LinkedHashMap<>();
+        records.forEach(logRecord -> offsets.putIfAbsent(logRecord.offset().partition(), logRecord.offset()));
+        offsets.values().forEach(tailer::seek);
+        log.debug(metadata.name() + ": " + records.size() + " records not processed are read again");
+    }
+
+    /** @since 10.3 */
+    protected String getInputStream(LogRecord<Record> logRecord) {
+        return metadata.reverseMap(logRecord.offset().partition().name());
+    }
+
+    /** @since 10.3 */
+    protected LogRecord<Record> readRecord(Duration timeout) throws InterruptedException {
+        try {
+            return tailer.read(timeout);
+        } catch (RebalanceException e) {
+            // the revoke has done a checkpoint we can continue
+            return null;
+        }
+    }
+
     protected Duration getTimeoutDuration() {
         // Adapt the duration so we are not throttling when one of the input stream is empty
         return Duration.ofMillis(Math.min(READ_TIMEOUT.toMillis(), System.currentTimeMillis() - lastReadTime));
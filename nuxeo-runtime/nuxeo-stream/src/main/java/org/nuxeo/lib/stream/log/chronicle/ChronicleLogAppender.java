@@ -39,6 +39,7 @@ import java.util.stream.Stream;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.nuxeo.lib.stream.codec.BytesCodec;
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.log.LogOffset;
 import org.nuxeo.lib.stream.log.LogPartition;
@@ -287,12 +288,17 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
         return nbPartitions;
     }
 
+    @SuppressWarnings("unchecked")
     @Override
     public LogOffset append(int partition, M message) {
         ExcerptAppender appender = partitions.get(partition).acquireAppender();
         if (NO_CODEC.equals(codec)) {
             // default format for backward compatibility
             appender.writeDocument(w -> w.write(MSG_KEY).object(message));
+        } else if (codec instanceof BytesCodec) {
+            // encode directly into the excerpt
+            BytesCodec<M> bytesCodec = (BytesCodec<M>) codec;
+            appender.writeDocument(w -> bytesCodec.encode(message, w.bytes()));
         } else {
             appender.writeDocument(w -> w.write().bytes(codec.encode(message)));
         }
@@ -33,6 +33,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.nuxeo.lib.stream.codec.BytesCodec;
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.log.LogOffset;
 import org.nuxeo.lib.stream.log.LogPartition;
@@ -124,6 +125,12 @@ public class ChronicleLogTailer<M extends Externalizable> implements LogTailer<M
             } catch (ClassCastException e) {
                 throw new IllegalArgumentException(e);
             }
+        } else if (codec instanceof BytesCodec) {
+            // decode directly from the excerpt
+            BytesCodec<M> bytesCodec = (BytesCodec<M>) codec;
+            if (!cqTailer.readDocument(w -> value.add(bytesCodec.decode(w.bytes())))) {
+                return null;
+            }
         } else {
             if (!cqTailer.readDocument(w -> value.add(codec.decode(w.read().bytes())))) {
                 return null;
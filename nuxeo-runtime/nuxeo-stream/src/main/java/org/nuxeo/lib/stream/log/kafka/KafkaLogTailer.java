@@ -276,8 +276,8 @@ public class KafkaLogTailer<M extends Externalizable> implements LogTailer<M>, C
                 offset.partition().partition());
         consumer.seek(topicPartition, offset.offset());
         lastOffsets.remove(topicPartition);
-        int partition = topicPartition.partition();
-        records.removeIf(rec -> rec.partition() == partition);
+        records.removeIf(rec -> rec.partition() == topicPartition.partition()
+                && rec.topic().equals(topicPartition.topic()));
         consumerMoved = true;
     }
 
@@ -344,19 +344,35 @@ public class KafkaLogTailer<M extends Externalizable> implements LogTailer<M>, C
     }
 
     /**
-     * Commits the consumer at its current position regardless of lastOffsets or lastCommittedOffsets
+     * Commits the consumer at its current position regardless of lastOffsets or lastCommittedOffsets. The records
+     * polled but not yet read are not committed.
      */
     protected void forceCommit() {
         log.info("Force commit after a move");
 
         Map<TopicPartition, OffsetAndMetadata> offsets = topicPartitions.stream().collect(
-                toMap(tp -> tp, tp -> new OffsetAndMetadata(consumer.position(tp))));
+                toMap(tp -> tp, tp -> new OffsetAndMetadata(position(tp))));
         consumer.commitSync(offsets);
         offsets.forEach((topicPartition, offset) -> lastCommittedOffsets.put(topicPartition, offset.offset()));
         consumerMoved = false;
         lastOffsets.clear();
     }
 
+    /**
+     * Returns the offset of the next record to read on the partition, the consumer position is already after the
+     * records that have been polled.
+     *
+     * @since 10.3
+     */
+    protected long position(TopicPartition topicPartition) {
+        return records.stream()
+                      .filter(rec -> rec.partition() == topicPartition.partition()
+                              && rec.topic().equals(topicPartition.topic()))
+                      .mapToLong(ConsumerRecord::offset)
+                      .findFirst()
+                      .orElseGet(() -> consumer.position(topicPartition));
+    }
+
     @Override
     public LogOffset commit(LogPartition partition) {
         TopicPartition topicPartition = new TopicPartition(ns.getTopicName(partition.name()), partition.partition());
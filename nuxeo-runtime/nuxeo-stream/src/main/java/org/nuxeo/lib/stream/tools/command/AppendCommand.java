@@ -77,7 +77,7 @@ public class AppendCommand extends Command {
                                 .build());
         options.addOption(Option.builder()
                                 .longOpt("codec")
-                                .desc("Codec used to write the records, can be: java, avro, avroBinary, avroJson")
+                                .desc("Codec used to write the records, can be: java, avro, avroBinary, avroJson, bytes")
                                 .required()
                                 .hasArg()
                                 .argName("CODEC")
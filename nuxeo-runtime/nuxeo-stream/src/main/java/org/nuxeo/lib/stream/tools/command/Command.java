@@ -26,6 +26,7 @@ import org.nuxeo.lib.stream.codec.AvroBinaryCodec;
 import org.nuxeo.lib.stream.codec.AvroJsonCodec;
 import org.nuxeo.lib.stream.codec.AvroMessageCodec;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.RecordBytesCodec;
 import org.nuxeo.lib.stream.codec.SerializableCodec;
 import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.lib.stream.log.LogManager;
@@ -65,6 +66,8 @@ public abstract class Command {
             return new AvroJsonCodec<>(Record.class);
         case "avroBinary":
             return new AvroBinaryCodec<>(Record.class);
+        case RecordBytesCodec.NAME:
+            return new RecordBytesCodec();
         default:
             throw new IllegalArgumentException("Unknown codec: " + codec);
         }
@@ -57,7 +57,7 @@ public class CopyCommand extends Command {
                                 .build());
         options.addOption(Option.builder()
                                 .longOpt("srcCodec")
-                                .desc("Codec used to read record, can be: java, avro, avroBinary, avroJson")
+                                .desc("Codec used to read record, can be: java, avro, avroBinary, avroJson, bytes")
                                 .hasArg()
                                 .argName("CODEC")
                                 .build());
@@ -70,7 +70,7 @@ public class CopyCommand extends Command {
                                 .build());
         options.addOption(Option.builder()
                                 .longOpt("destCodec")
-                                .desc("Codec used to write record, can be: java, avro, avroBinary, avroJson")
+                                .desc("Codec used to write record, can be: java, avro, avroBinary, avroJson, bytes")
                                 .hasArg()
                                 .argName("CODEC")
                                 .build());
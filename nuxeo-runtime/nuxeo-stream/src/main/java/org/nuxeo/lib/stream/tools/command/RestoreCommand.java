@@ -102,7 +102,7 @@ public class RestoreCommand extends Command {
                                 .build());
         options.addOption(Option.builder()
                                 .longOpt("codec")
-                                .desc("Codec used to read record, can be: java, avro, avroBinary, avroJson")
+                                .desc("Codec used to read record, can be: java, avro, avroBinary, avroJson, bytes")
                                 .hasArg()
                                 .argName("CODEC")
                                 .build());
@@ -43,6 +43,7 @@ import org.nuxeo.lib.stream.codec.AvroConfluentCodec;
 import org.nuxeo.lib.stream.codec.AvroJsonCodec;
 import org.nuxeo.lib.stream.codec.AvroMessageCodec;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.RecordBytesCodec;
 import org.nuxeo.lib.stream.codec.SerializableCodec;
 import org.nuxeo.lib.stream.computation.Record;
 
@@ -145,6 +146,20 @@ public class TestCodec {
         testCodecFromFile("data/record-avro.json", codec);
     }
 
+    @Test
+    public void testRecordBytes() throws Exception {
+        Record src = getRecord();
+        Codec<Record> codec = new RecordBytesCodec();
+        Record dest = testCodec(src, codec);
+        assertEquals(src.toString(), dest.toString());
+        assertEquals(src.getFlags(), dest.getFlags());
+
+        Record empty = new Record(null, null, 0);
+        dest = testCodec(empty, codec);
+        assertNull(dest.getKey());
+        assertEquals(0, dest.getData().length);
+    }
+
     @Test
     public void testRecordConfluentAvro() throws Exception {
         assumeConfluentRegistryEnabled();
@@ -184,6 +199,14 @@ public class TestCodec {
         } catch (IllegalArgumentException e) {
             // expected
         }
+
+        codec = new RecordBytesCodec();
+        try {
+            codec.decode(data);
+            fail("failure expected on decode");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
     }
 
     protected void testCodecFromFile(String path, Codec<Record> codec) throws IOException {
@@ -0,0 +1,70 @@
+/*
+ * (C) Copyright 2018 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.tests.computation;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.nuxeo.lib.stream.computation.BatchComputation;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.Record;
+
+/**
+ * Computation that receives records by batch and round robin them on outputs. Request for checkpoint once per batch.
+ *
+ * @since 10.3
+ */
+public class ComputationForwardBatch extends ComputationForward implements BatchComputation {
+
+    protected final int batchCapacity;
+
+    protected final Duration batchThreshold;
+
+    public ComputationForwardBatch(String name, int inputs, int outputs, int batchCapacity,
+            Duration batchThreshold) {
+        super(name, inputs, outputs);
+        this.batchCapacity = batchCapacity;
+        this.batchThreshold = batchThreshold;
+    }
+
+    @Override
+    public void processRecords(ComputationContext context, String inputStreamName, List<Record> records) {
+        for (Record record : records) {
+            String outputStream = ostreamList.get(counter++ % ostreamList.size());
+            context.produceRecord(outputStream, record);
+        }
+        context.askForCheckpoint();
+    }
+
+    @Override
+    public void processRecord(ComputationContext context, String inputStreamName, Record record) {
+        BatchComputation.super.processRecord(context, inputStreamName, record);
+    }
+
+    @Override
+    public int getBatchCapacity() {
+        return batchCapacity;
+    }
+
+    @Override
+    public Duration getBatchThreshold() {
+        return batchThreshold;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2018 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.tests.computation;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.Record;
+
+/**
+ * Computation that receives records by batch, forwards the first batches and then asks for termination. On failure the
+ * last batch is not forwarded and the checkpoint is cancelled, like a batch computation that has exhausted its
+ * retries.
+ *
+ * @since 10.3
+ */
+public class ComputationForwardBatchTerminate extends ComputationForwardBatch {
+
+    protected final int batches;
+
+    protected final boolean failure;
+
+    protected int processed;
+
+    /**
+     * @param batches the number of batches delivered before asking for termination
+     * @param failure if {@code true} the last delivered batch fails, otherwise it is forwarded
+     */
+    public ComputationForwardBatchTerminate(String name, int inputs, int outputs, int batchCapacity,
+            Duration batchThreshold, int batches, boolean failure) {
+        super(name, inputs, outputs, batchCapacity, batchThreshold);
+        this.batches = batches;
+        this.failure = failure;
+    }
+
+    @Override
+    public void processRecords(ComputationContext context, String inputStreamName, List<Record> records) {
+        if (processed >= batches) {
+            // should not be called anymore
+            throw new IllegalStateException("Batch delivered after termination");
+        }
+        if (failure && processed == batches - 1) {
+            context.cancelAskForCheckpoint();
+            context.askForTermination();
+            processed++;
+            return;
+        }
+        super.processRecords(context, inputStreamName, records);
+        if (++processed == batches) {
+            context.askForTermination();
+        }
+    }
+
+}
@@ -26,8 +26,10 @@ import static org.nuxeo.lib.stream.codec.NoCodec.NO_CODEC;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -69,17 +71,24 @@ public abstract class TestStreamProcessor {
     public abstract StreamProcessor getStreamProcessor(LogManager logManager);
 
     public void testSimpleTopo(int nbRecords, int concurrency) throws Exception {
+        testSimpleTopo(nbRecords, concurrency, 0);
+    }
+
+    /**
+     * @param batchCapacity if not 0, the forward computations receive the records by batch of this capacity
+     */
+    public void testSimpleTopo(int nbRecords, int concurrency, int batchCapacity) throws Exception {
         final long targetTimestamp = System.currentTimeMillis();
         final long targetWatermark = Watermark.ofTimestamp(targetTimestamp).getValue();
         Topology topology = Topology.builder()
                                     .addComputation(
                                             () -> new ComputationSource("GENERATOR", 1, nbRecords, 5, targetTimestamp),
                                             Collections.singletonList("o1:s1"))
-                                    .addComputation(() -> new ComputationForward("C1", 1, 1),
+                                    .addComputation(() -> newComputationForward("C1", batchCapacity),
                                             Arrays.asList("i1:s1", "o1:s2"))
-                                    .addComputation(() -> new ComputationForward("C2", 1, 1),
+                                    .addComputation(() -> newComputationForward("C2", batchCapacity),
                                             Arrays.asList("i1:s2", "o1:s3"))
-                                    .addComputation(() -> new ComputationForward("C3", 1, 1),
+                                    .addComputation(() -> newComputationForward("C3", batchCapacity),
                                             Arrays.asList("i1:s3", "o1:s4"))
                                     .addComputation(
                                             () -> new ComputationRecordCounter("COUNTER", Duration.ofMillis(100)),
@@ -124,8 +133,9 @@ public abstract class TestStreamProcessor {
                 processor.shutdown();
             }
             log.info(
-                    String.format("topo: simple, concurrency: %d, records: %s, took: %.2fs, throughput: %.2f records/s",
-                            concurrency, result, elapsed, result / elapsed));
+                    String.format(
+                            "topo: simple, concurrency: %d, batch: %d, records: %s, took: %.2fs, throughput: %.2f records/s",
+                            concurrency, batchCapacity, result, elapsed, result / elapsed));
             assertEquals(expected, result);
         }
     }
@@ -190,6 +200,105 @@ public abstract class TestStreamProcessor {
         testSimpleTopo(1003, 1);
     }
 
+    @Test
+    public void testSimpleTopoManyRecordsOneThreadBatch() throws Exception {
+        testSimpleTopo(1003, 1, 100);
+    }
+
+    protected ComputationForward newComputationForward(String name, int batchCapacity) {
+        if (batchCapacity > 0) {
+            return new ComputationForwardBatch(name, 1, 1, batchCapacity, Duration.ofMillis(50));
+        }
+        return new ComputationForward(name, 1, 1);
+    }
+
+    @Test
+    public void testBatchTerminationInTheMiddleOfABatch() throws Exception {
+        testBatchTermination(false);
+    }
+
+    @Test
+    public void testBatchFailureAndRecovery() throws Exception {
+        testBatchTermination(true);
+    }
+
+    @Test
+    public void testBatchTerminationWithRecordsLeftInTheTailer() throws Exception {
+        // the batch capacity stops the runner before the records of the last stream, they stay in the tailer
+        testBatchTermination(3, 15, false);
+    }
+
+    protected void testBatchTermination(boolean failure) throws Exception {
+        testBatchTermination(2, 100, failure);
+    }
+
+    /**
+     * Terminates a batch computation reading several input streams after its first run of records, which is only a
+     * part of the records read by the runner, then resumes with a computation that processes the rest.
+     */
+    protected void testBatchTermination(int nbStreams, int batchCapacity, boolean failure) throws Exception {
+        final int nbRecords = 10;
+        final int total = nbStreams * nbRecords;
+        Settings settings = new Settings(1, 1, codec);
+        List<String> streams = new ArrayList<>();
+        for (int i = 1; i <= nbStreams; i++) {
+            streams.add(String.format("i%d:s%d", i, i));
+        }
+        streams.add("o1:" + OUTPUT_STREAM);
+        Topology failing = Topology.builder()
+                                   .addComputation(() -> new ComputationForwardBatchTerminate("C1", nbStreams, 1,
+                                           batchCapacity, Duration.ofSeconds(1), failure ? 2 : 1, failure), streams)
+                                   .build();
+        Topology recovering = Topology.builder()
+                                      .addComputation(() -> new ComputationForwardBatch("C1", nbStreams, 1,
+                                              batchCapacity, Duration.ofSeconds(1)), streams)
+                                      .build();
+        byte[] value = "value".getBytes(StandardCharsets.UTF_8);
+        int processed;
+        try (LogManager manager = getLogManager()) {
+            for (int s = 1; s <= nbStreams; s++) {
+                manager.createIfNotExists("s" + s, 1);
+            }
+            for (int i = 0; i < nbRecords; i++) {
+                for (int s = 1; s <= nbStreams; s++) {
+                    manager.getAppender("s" + s, codec).append(0, Record.of("1", value));
+                }
+            }
+            StreamProcessor processor = getStreamProcessor(manager);
+            processor.init(failing, settings).start();
+            assertTrue(processor.waitForAssignments(Duration.ofSeconds(10)));
+            assertTrue(processor.drainAndStop(Duration.ofSeconds(100)));
+            processed = readOutputCounter(manager);
+            long lag = getLag(manager, nbStreams);
+            if (failure) {
+                // nothing is checkpointed
+                assertEquals(0, processed);
+                assertEquals(total, lag);
+            } else {
+                // only the first run of records is checkpointed
+                assertTrue(String.valueOf(processed), processed > 0 && processed < total);
+                assertEquals(total - processed, lag);
+            }
+        }
+        try (LogManager manager = getSameLogManager()) {
+            StreamProcessor processor = getStreamProcessor(manager);
+            processor.init(recovering, settings).start();
+            assertTrue(processor.waitForAssignments(Duration.ofSeconds(10)));
+            assertTrue(processor.drainAndStop(Duration.ofSeconds(100)));
+            // the records not processed before the termination are processed once
+            assertEquals(total, readOutputCounter(manager));
+            assertEquals(0, getLag(manager, nbStreams));
+        }
+    }
+
+    protected long getLag(LogManager manager, int nbStreams) {
+        long lag = 0;
+        for (int s = 1; s <= nbStreams; s++) {
+            lag += manager.getLag("s" + s, "C1").lag();
+        }
+        return lag;
+    }
+
     @Ignore("A wrong case")
     @Test
     public void testSimpleTopoManyRecordsManyThread() throws Exception {
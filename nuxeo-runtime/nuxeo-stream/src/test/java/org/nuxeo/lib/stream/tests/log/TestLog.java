@@ -30,6 +30,7 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -46,6 +47,7 @@ import org.nuxeo.lib.stream.codec.AvroBinaryCodec;
 import org.nuxeo.lib.stream.codec.AvroJsonCodec;
 import org.nuxeo.lib.stream.codec.AvroMessageCodec;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.RecordBytesCodec;
 import org.nuxeo.lib.stream.codec.SerializableCodec;
 import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.lib.stream.computation.Watermark;
@@ -842,6 +844,30 @@ public abstract class TestLog {
         testCodec(codec);
     }
 
+    @Test
+    public void testRecordBytesCodec() throws Exception {
+        final String GROUP = "defaultTest";
+        manager.createIfNotExists(logName, 1);
+        Codec<Record> codec = new RecordBytesCodec();
+
+        LogAppender<Record> appender = manager.getAppender(logName, codec);
+        Record record1 = createRecord("key");
+        record1.setFlags(EnumSet.of(Record.Flag.COMMIT, Record.Flag.USER1));
+        Record record2 = new Record("id2", null, 0);
+        Record record3 = createRecord("1234567890");
+        appender.append(0, record1);
+        appender.append(0, record2);
+        appender.append(0, record3);
+
+        try (LogTailer<Record> tailer = manager.createTailer(GROUP, LogPartition.of(logName, 0), codec)) {
+            assertEquals(record1, tailer.read(DEF_TIMEOUT).message());
+            assertEquals(record1.getFlags(), EnumSet.of(Record.Flag.COMMIT, Record.Flag.USER1));
+            assertEquals(record2, tailer.read(DEF_TIMEOUT).message());
+            assertEquals(record3, tailer.read(DEF_TIMEOUT).message());
+            assertNull(tailer.read(SMALL_TIMEOUT));
+        }
+    }
+
     protected void testCodec(Codec<KeyValueMessage> codec) throws Exception {
         final int LOG_SIZE = 1;
         final String GROUP = "defaultTest";
@@ -21,12 +21,16 @@ package org.nuxeo.lib.stream.tests.log;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 import static org.nuxeo.lib.stream.tests.TestLibChronicle.IS_WIN;
 
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -36,6 +40,11 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.nuxeo.lib.stream.codec.AvroMessageCodec;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.RecordBytesCodec;
+import org.nuxeo.lib.stream.codec.SerializableCodec;
+import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.lib.stream.log.LogAppender;
 import org.nuxeo.lib.stream.log.LogLag;
 import org.nuxeo.lib.stream.log.LogManager;
@@ -43,6 +52,8 @@ import org.nuxeo.lib.stream.log.LogTailer;
 import org.nuxeo.lib.stream.log.chronicle.ChronicleLogManager;
 import org.nuxeo.lib.stream.tests.KeyValueMessage;
 
+import com.sun.management.ThreadMXBean;
+
 /**
  * @since 9.3
  */
@@ -187,4 +198,58 @@ public class TestLogChronicle extends TestLog {
         }
     }
 
+    @Test
+    public void testRecordCodecThroughput() throws Exception {
+        // opt-in benchmark, run with -Dbenchmark=true
+        assumeTrue("Skip benchmark", "true".equals(System.getProperty("benchmark")));
+        // compare the legacy codecs with the Record bytes codec that writes directly in the queue
+        final int NB_RECORDS = 50_000;
+        final int DATA_SIZE = 256;
+        List<Codec<Record>> codecs = Arrays.asList(new AvroMessageCodec<>(Record.class), new SerializableCodec<>(),
+                new RecordBytesCodec());
+        byte[] data = new byte[DATA_SIZE];
+        Arrays.fill(data, (byte) 'x');
+        Record record = Record.of("key", data);
+        for (int round = 0; round < 2; round++) {
+            // first round is a warmup
+            for (Codec<Record> codec : codecs) {
+                String name = logName + "-" + codec.getName() + "-" + round;
+                manager.createIfNotExists(name, 1);
+                LogAppender<Record> appender = manager.getAppender(name, codec);
+                long allocated = getAllocatedBytes();
+                long start = System.nanoTime();
+                for (int i = 0; i < NB_RECORDS; i++) {
+                    appender.append(0, record);
+                }
+                double writeElapsed = (System.nanoTime() - start) / 1e9;
+                long writeAllocated = getAllocatedBytes() - allocated;
+                int count = 0;
+                try (LogTailer<Record> tailer = manager.createTailer("group", name, codec)) {
+                    allocated = getAllocatedBytes();
+                    start = System.nanoTime();
+                    while (tailer.read(Duration.ZERO) != null) {
+                        count++;
+                    }
+                }
+                double readElapsed = (System.nanoTime() - start) / 1e9;
+                long readAllocated = getAllocatedBytes() - allocated;
+                assertEquals(NB_RECORDS, count);
+                if (round > 0) {
+                    log.info(String.format("codec: %s, records: %d, write: %.0f records/s %d bytes/record, "
+                            + "read: %.0f records/s %d bytes/record",
+                            codec.getName(), NB_RECORDS, NB_RECORDS / writeElapsed, writeAllocated / NB_RECORDS,
+                            NB_RECORDS / readElapsed, readAllocated / NB_RECORDS));
+                }
+            }
+        }
+    }
+
+    protected long getAllocatedBytes() {
+        Object bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof ThreadMXBean) {
+            return ((ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
 }
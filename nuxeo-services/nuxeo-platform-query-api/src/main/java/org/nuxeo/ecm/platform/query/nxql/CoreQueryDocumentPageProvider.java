@@ -33,6 +33,9 @@ import org.nuxeo.ecm.core.api.DocumentModelList;
 import org.nuxeo.ecm.core.api.Filter;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.SortInfo;
+import org.nuxeo.ecm.core.query.KeysetPagination;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
 import org.nuxeo.ecm.platform.query.api.AbstractPageProvider;
 import org.nuxeo.ecm.platform.query.api.PageProviderDefinition;
 import org.nuxeo.ecm.platform.query.api.PageSelections;
@@ -53,6 +56,10 @@ import org.nuxeo.runtime.services.config.ConfigurationService;
  * Since 6.0, the page provider property named {@link #USE_UNRESTRICTED_SESSION_PROPERTY} allows specifying whether the
  * query should be run as unrestricted. When such a property is set to "true", the additional property
  * {@link #DETACH_DOCUMENTS_PROPERTY} is used to detach documents (defaults to true when session is unrestricted).
+ * <p>
+ * Since 10.3, setting the page provider property named {@link #PAGE_TOKEN_PROPERTY} enables keyset pagination: pages
+ * are fetched after the token returned by {@link #getNextPageToken} for the previous page instead of at an offset, so
+ * that deep pages are as fast as the first ones. The results count is then not computed.
  *
  * @author Anahide Tchertchian
  * @since 5.4
@@ -92,6 +99,15 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
      */
     public static final String DETACH_DOCUMENTS_PROPERTY = "detachDocuments";
 
+    /**
+     * Property holding a token returned by {@link #getNextPageToken}, to get the page following the one it was returned
+     * with, or an empty string to get the first page. The token is used whatever the current page, so the property
+     * must be updated or removed to navigate to other pages.
+     *
+     * @since 10.3
+     */
+    public static final String PAGE_TOKEN_PROPERTY = "pageToken";
+
     private static final Log log = LogFactory.getLog(CoreQueryDocumentPageProvider.class);
 
     private static final long serialVersionUID = 1L;
@@ -102,6 +118,9 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
 
     protected Long maxResults;
 
+    /** @since 10.3 */
+    protected String nextPageToken;
+
     @Override
     public List<DocumentModel> getCurrentPage() {
 
@@ -138,7 +157,19 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
                 final boolean useUnrestricted = useUnrestrictedSession();
 
                 final boolean detachDocs = detachDocuments();
-                if (maxResults > 0) {
+                final Serializable[] keyset = getKeyset();
+                nextPageToken = null;
+                if (keyset != null) {
+                    // keyset pagination, don't count as it would need to read all the following results
+                    if (useUnrestricted) {
+                        CoreQueryUnrestrictedSessionRunner r = new CoreQueryUnrestrictedSessionRunner(coreSession,
+                                query, filter, minMaxPageSize, offset, keyset, false, 0, detachDocs);
+                        r.runUnrestricted();
+                        docs = r.getDocs();
+                    } else {
+                        docs = coreSession.query(query, NXQL.NXQL, filter, minMaxPageSize, keyset, 0);
+                    }
+                } else if (maxResults > 0) {
                     if (useUnrestricted) {
                         CoreQueryUnrestrictedSessionRunner r = new CoreQueryUnrestrictedSessionRunner(coreSession,
                                 query, filter, minMaxPageSize, offset, false, maxResults, detachDocs);
@@ -168,6 +199,9 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
                     setResultsCount(resultsCount);
                 }
                 currentPageDocuments = docs;
+                if (keyset != null && minMaxPageSize > 0 && docs.size() >= minMaxPageSize) {
+                    nextPageToken = computeNextPageToken(docs.get(docs.size() - 1));
+                }
 
                 if (log.isDebugEnabled()) {
                     log.debug(String.format("Performed query for provider '%s': got %s hits (limit %s)", getName(),
@@ -198,6 +232,39 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
         return currentPageDocuments;
     }
 
+    /**
+     * Gets the keyset to use to get the current page from the {@link #PAGE_TOKEN_PROPERTY} property, or {@code null}
+     * to use an offset.
+     *
+     * @since 10.3
+     */
+    protected Serializable[] getKeyset() {
+        String pageToken = (String) getProperties().get(PAGE_TOKEN_PROPERTY);
+        if (pageToken == null) {
+            return null;
+        }
+        if (StringUtils.isBlank(pageToken)) {
+            // first page
+            return new Serializable[0];
+        }
+        return KeysetPagination.decode(pageToken);
+    }
+
+    /**
+     * Computes the token to get the page following the given last document of the current page.
+     *
+     * @since 10.3
+     */
+    protected String computeNextPageToken(DocumentModel lastDoc) {
+        Serializable[] keyset = KeysetPagination.getKeyset(SQLQueryParser.parse(query), lastDoc);
+        return keyset == null ? null : KeysetPagination.encode(keyset);
+    }
+
+    @Override
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
     protected void buildQuery(CoreSession coreSession) {
         List<SortInfo> sort = null;
         List<QuickFilter> quickFilters = getQuickFilters();
@@ -407,6 +474,7 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
     public void refresh() {
         query = null;
         currentPageDocuments = null;
+        nextPageToken = null;
         super.refresh();
     }
 
@@ -18,11 +18,14 @@
  */
 package org.nuxeo.ecm.platform.query.nxql;
 
+import java.io.Serializable;
+
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentModelList;
 import org.nuxeo.ecm.core.api.Filter;
 import org.nuxeo.ecm.core.api.UnrestrictedSessionRunner;
+import org.nuxeo.ecm.core.query.sql.NXQL;
 
 /**
  * Unrestricted session runner providing API for retrieving the result documents list.
@@ -39,6 +42,9 @@ public class CoreQueryUnrestrictedSessionRunner extends UnrestrictedSessionRunne
 
     protected final long offset;
 
+    /** @since 10.3 */
+    protected final Serializable[] keyset;
+
     protected final boolean countTotal;
 
     protected final long countUpTo;
@@ -49,11 +55,23 @@ public class CoreQueryUnrestrictedSessionRunner extends UnrestrictedSessionRunne
 
     public CoreQueryUnrestrictedSessionRunner(CoreSession session, String query, Filter filter, long limit,
             long offset, boolean countTotal, long countUpTo, boolean detachDocuments) {
+        this(session, query, filter, limit, offset, null, countTotal, countUpTo, detachDocuments);
+    }
+
+    /**
+     * Constructs a runner getting the documents following the given keyset (see
+     * {@link CoreSession#query(String, String, Filter, long, Serializable[], long)}), the offset is then ignored.
+     *
+     * @since 10.3
+     */
+    public CoreQueryUnrestrictedSessionRunner(CoreSession session, String query, Filter filter, long limit,
+            long offset, Serializable[] keyset, boolean countTotal, long countUpTo, boolean detachDocuments) {
         super(session);
         this.query = query;
         this.filter = filter;
         this.limit = limit;
         this.offset = offset;
+        this.keyset = keyset;
         this.countTotal = countTotal;
         this.countUpTo = countUpTo;
         this.detachDocuments = detachDocuments;
@@ -61,7 +79,9 @@ public class CoreQueryUnrestrictedSessionRunner extends UnrestrictedSessionRunne
 
     @Override
     public void run() {
-        if (countTotal) {
+        if (keyset != null) {
+            docs = session.query(query, NXQL.NXQL, filter, limit, keyset, countTotal ? -1 : countUpTo);
+        } else if (countTotal) {
             docs = session.query(query, filter, limit, offset, countTotal);
         } else {
             docs = session.query(query, filter, limit, offset, countUpTo);